@@ -0,0 +1,63 @@
+package edu.hogwarts.studentadmin.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.hogwarts.studentadmin.dto.CourseDTO;
+import edu.hogwarts.studentadmin.model.Course;
+import edu.hogwarts.studentadmin.service.CourseService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures converting a course with its teacher and roster to a DTO, and writing that DTO as a JSON response body,
+ * for rosters of different sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CourseConversionBenchmark {
+    @Param({"0", "30", "300", "3000"})
+    private int rosterSize;
+
+    private CourseService courseService;
+    private ObjectMapper objectMapper;
+    private Course course;
+    private CourseDTO courseDTO;
+
+    @Setup
+    public void setup() {
+        courseService = Fixtures.courseService();
+        objectMapper = Fixtures.objectMapper();
+        course = Fixtures.course(rosterSize);
+        courseDTO = courseService.convertToDTO(course);
+    }
+
+    @Benchmark
+    public CourseDTO courseToDTO() {
+        return courseService.convertToDTO(course);
+    }
+
+    @Benchmark
+    public byte[] courseDTOToJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(courseDTO);
+    }
+
+    @Benchmark
+    public byte[] courseToJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(courseService.convertToDTO(course));
+    }
+}
@@ -0,0 +1,77 @@
+package edu.hogwarts.studentadmin.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import edu.hogwarts.studentadmin.model.Course;
+import edu.hogwarts.studentadmin.model.EmpType;
+import edu.hogwarts.studentadmin.model.House;
+import edu.hogwarts.studentadmin.model.Student;
+import edu.hogwarts.studentadmin.model.Teacher;
+import edu.hogwarts.studentadmin.service.CourseService;
+import edu.hogwarts.studentadmin.service.StudentService;
+import edu.hogwarts.studentadmin.service.TeacherService;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Builds the entities and services used by the benchmarks, without a Spring context or a database.
+ * The conversions don't touch the repositories, so the services are created without them.
+ */
+final class Fixtures {
+    static final List<House> HOUSES = List.of(
+            new House("Gryffindor", "Godric Gryffindor", "Scarlet", "Gold"),
+            new House("Hufflepuff", "Helga Hufflepuff", "Yellow", "Black"),
+            new House("Ravenclaw", "Rowena Ravenclaw", "Blue", "Bronze"),
+            new House("Slytherin", "Salazar Slytherin", "Green", "Silver"));
+
+    private Fixtures() {
+    }
+
+    static StudentService studentService() {
+        return new StudentService(null, null, null, null, null);
+    }
+
+    static TeacherService teacherService() {
+        return new TeacherService(null, null, null, null);
+    }
+
+    static CourseService courseService() {
+        return new CourseService(null, null, teacherService(), studentService(), null, null);
+    }
+
+    /**
+     * The same JSON settings Spring Boot uses for the responses.
+     */
+    static ObjectMapper objectMapper() {
+        return JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+    }
+
+    static Student student(long id) {
+        var middleName = id % 3 == 0 ? "Middle" + id : null;
+        return new Student(id, "First" + id, middleName, "Last" + id, LocalDate.of(1980, 1, 1).plusDays(id % 3650),
+                HOUSES.get((int) (id % HOUSES.size())), id % 10 == 0, 1991, null, false, 1 + (int) (id % 7));
+    }
+
+    static Teacher teacher(long id) {
+        return new Teacher(id, "Minerva", null, "McGonagall", LocalDate.of(1935, 10, 4),
+                HOUSES.get(0), true, EmpType.TENURED, LocalDate.of(1956, 12, 1), null);
+    }
+
+    /**
+     * Creates a course with a teacher and the given number of enrolled students.
+     * @param rosterSize the number of students enrolled in the course
+     * @return the course
+     */
+    static Course course(int rosterSize) {
+        var course = new Course(1L, "Transfiguration", 1, true, teacher(1));
+        for (long id = 1; id <= rosterSize; id++) {
+            course.enroll(student(id));
+        }
+        return course;
+    }
+}
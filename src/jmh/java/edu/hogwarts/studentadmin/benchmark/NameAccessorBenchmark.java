@@ -0,0 +1,63 @@
+package edu.hogwarts.studentadmin.benchmark;
+
+import edu.hogwarts.studentadmin.dto.StudentDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the JSON accessors of HogwartsPersonDTO that Jackson calls for every person read or written:
+ * joining and splitting the full name, calculating the age and capitalizing the house name.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NameAccessorBenchmark {
+    @Param({"Hannah", "Hannah Abbott", "Hannah Helga Abbott"})
+    private String name;
+
+    private StudentDTO studentDTO;
+
+    @Setup
+    public void setup() {
+        studentDTO = new StudentDTO();
+        studentDTO.setName(name);
+        studentDTO.setDateOfBirth(LocalDate.of(1980, 7, 31));
+    }
+
+    @Benchmark
+    public String getName() {
+        return studentDTO.getName();
+    }
+
+    @Benchmark
+    public StudentDTO setName() {
+        studentDTO.setName(name);
+        return studentDTO;
+    }
+
+    @Benchmark
+    public int getAge() {
+        return studentDTO.getAge();
+    }
+
+    @Benchmark
+    public StudentDTO setHouseName() {
+        studentDTO.setHouseName("hufflepuff");
+        return studentDTO;
+    }
+}
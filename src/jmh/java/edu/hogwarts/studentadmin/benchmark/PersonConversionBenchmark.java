@@ -0,0 +1,54 @@
+package edu.hogwarts.studentadmin.benchmark;
+
+import edu.hogwarts.studentadmin.dto.StudentDTO;
+import edu.hogwarts.studentadmin.dto.TeacherDTO;
+import edu.hogwarts.studentadmin.model.Student;
+import edu.hogwarts.studentadmin.model.Teacher;
+import edu.hogwarts.studentadmin.service.StudentService;
+import edu.hogwarts.studentadmin.service.TeacherService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures converting a single student or teacher entity to its DTO, which is done for every person in every response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersonConversionBenchmark {
+    private StudentService studentService;
+    private TeacherService teacherService;
+    private Student student;
+    private Teacher teacher;
+
+    @Setup
+    public void setup() {
+        studentService = Fixtures.studentService();
+        teacherService = Fixtures.teacherService();
+        student = Fixtures.student(3);
+        teacher = Fixtures.teacher(1);
+    }
+
+    @Benchmark
+    public StudentDTO studentToDTO() {
+        return studentService.convertToDTO(student);
+    }
+
+    @Benchmark
+    public TeacherDTO teacherToDTO() {
+        return teacherService.convertToDTO(teacher);
+    }
+}
@@ -0,0 +1,51 @@
+package edu.hogwarts.studentadmin.config;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Response wrapper that runs an action once, just before the response body is written,
+ * so filters can add headers that depend on the work done by the request. Headers can't be changed once the body has started.
+ * Filters call {@link #beforeBody()} again after the chain, for responses without a body.
+ */
+class BeforeBodyResponseWrapper extends HttpServletResponseWrapper {
+    private final Runnable action;
+    private boolean done;
+
+    BeforeBodyResponseWrapper(HttpServletResponse response, Runnable action) {
+        super(response);
+        this.action = action;
+    }
+
+    /**
+     * Runs the action, unless it has run already or the response is committed.
+     */
+    void beforeBody() {
+        if (!done && !isCommitted()) {
+            done = true;
+            action.run();
+        }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        beforeBody();
+        return super.getOutputStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        beforeBody();
+        return super.getWriter();
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        beforeBody();
+        super.flushBuffer();
+    }
+}
@@ -0,0 +1,65 @@
+package edu.hogwarts.studentadmin.config;
+
+import edu.hogwarts.studentadmin.service.CourseService;
+import edu.hogwarts.studentadmin.service.SchoolCollection;
+import edu.hogwarts.studentadmin.service.SchoolDataChangedEvent;
+import edu.hogwarts.studentadmin.service.StudentService;
+import edu.hogwarts.studentadmin.service.TeacherService;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Configuration of the change events of the school.
+ * Every service method that runs in a transaction that is not read-only publishes a SchoolDataChangedEvent when it returns,
+ * which SchoolReadModel, RequestCoalescer and ChangeCounters handle once the transaction has committed, so no service has to remember to tell them.
+ * The event is published instead of calling them, since SchoolReadModel depends on the services this aspect advises.
+ * The event names the collections the change belongs to: the rosters of the courses contain the students and teachers,
+ * so changes to them change the courses too. Changes made by other services are assumed to change every collection.
+ */
+@Aspect
+@Configuration
+public class ChangeEventConfig {
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Constructor for ChangeEventConfig. Uses dependency injection to get the publisher of the change events.
+     * @param eventPublisher the publisher of the change events
+     */
+    public ChangeEventConfig(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Publishes a change once a service method that writes has returned.
+     * @param joinPoint the method call
+     * @param transactional the transaction settings of the method
+     */
+    @AfterReturning("within(edu.hogwarts.studentadmin.service..*) && @annotation(transactional)")
+    public void publishChange(JoinPoint joinPoint, Transactional transactional) {
+        if (!transactional.readOnly()) {
+            var target = joinPoint.getTarget();
+            eventPublisher.publishEvent(new SchoolDataChangedEvent(
+                    target.getClass().getSimpleName() + "." + joinPoint.getSignature().getName(), collections(target)));
+        }
+    }
+
+    private static Set<SchoolCollection> collections(Object service) {
+        if (service instanceof StudentService) {
+            return EnumSet.of(SchoolCollection.STUDENTS, SchoolCollection.COURSES);
+        }
+        if (service instanceof TeacherService) {
+            return EnumSet.of(SchoolCollection.TEACHERS, SchoolCollection.COURSES);
+        }
+        if (service instanceof CourseService) {
+            return EnumSet.of(SchoolCollection.COURSES);
+        }
+        return EnumSet.allOf(SchoolCollection.class);
+    }
+}
@@ -0,0 +1,93 @@
+package edu.hogwarts.studentadmin.config;
+
+import edu.hogwarts.studentadmin.service.ChangeSequence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Class to give the students, teachers, courses and enrollments saved before the change sequence numbers were added a number of their own.
+ * GET /changes pages through the changes by number, so no two rows may share one.
+ * New and updated rows get their numbers when they are saved, so this only has work to do once per database.
+ * The students, teachers and courses get the first number of a reserved block plus their ID, with one statement per table.
+ * The enrollments have no single ID to add, so they are numbered in chunks, each in its own transaction.
+ */
+@Component
+public class ChangeSeqBackfill implements CommandLineRunner {
+    private static final Logger logger = LoggerFactory.getLogger(ChangeSeqBackfill.class);
+    private static final int CHUNK_SIZE = 1000;
+    private static final List<String> TABLES = List.of("student", "teacher", "course");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ChangeSequence changeSequence;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * ChangeSeqBackfill constructor, used to inject the JdbcTemplate, the change sequence and the transaction manager
+     * @param jdbcTemplate the JdbcTemplate for the database
+     * @param changeSequence the change sequence, which reserves the numbers
+     * @param transactionManager the transaction manager used for each table and chunk
+     */
+    public ChangeSeqBackfill(JdbcTemplate jdbcTemplate, ChangeSequence changeSequence, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.changeSequence = changeSequence;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Numbers all the rows without a change sequence number.
+     * @param args the command line arguments, not used
+     */
+    @Override
+    public void run(String... args) {
+        var updated = 0L;
+        for (var table : TABLES) {
+            updated += backfill(table);
+        }
+        updated += backfillEnrollments();
+        if (updated > 0) {
+            logger.info("Filled in change sequence numbers for {} rows", updated);
+        }
+    }
+
+    private int backfill(String table) {
+        var result = transactionTemplate.execute(status -> {
+            var maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from " + table + " where change_seq = 0", Long.class);
+            if (maxId == 0) {
+                return 0;
+            }
+            var changeSeqBase = changeSequence.reserve(maxId + 1);
+            return jdbcTemplate.update("update " + table + " set change_seq = ? + id where change_seq = 0", changeSeqBase);
+        });
+        return result == null ? 0 : result;
+    }
+
+    private long backfillEnrollments() {
+        var updated = 0L;
+        while (true) {
+            var result = transactionTemplate.execute(status -> {
+                var rows = jdbcTemplate.query("select course_id, student_id from enrollment where change_seq = 0 limit " + CHUNK_SIZE,
+                        (resultSet, rowNum) -> new Object[]{null, resultSet.getLong("course_id"), resultSet.getLong("student_id")});
+                if (rows.isEmpty()) {
+                    return 0;
+                }
+                var changeSeq = changeSequence.reserve(rows.size());
+                for (var row : rows) {
+                    row[0] = changeSeq++;
+                }
+                jdbcTemplate.batchUpdate("update enrollment set change_seq = ? where course_id = ? and student_id = ?", rows);
+                return rows.size();
+            });
+            if (result == null || result == 0) {
+                return updated;
+            }
+            updated += result;
+        }
+    }
+}
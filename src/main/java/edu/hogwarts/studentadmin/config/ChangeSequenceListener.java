@@ -0,0 +1,36 @@
+package edu.hogwarts.studentadmin.config;
+
+import edu.hogwarts.studentadmin.model.ChangeTracked;
+import edu.hogwarts.studentadmin.service.ChangeSequence;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+
+/**
+ * Entity listener that gives every inserted or updated ChangeTracked entity the next change sequence number.
+ * Created by Spring through Hibernate's bean container, so the sequence is injected into it.
+ * Rows changed by bulk statements get their numbers from the statements instead.
+ */
+public class ChangeSequenceListener {
+    private final ChangeSequence changeSequence;
+
+    /**
+     * Constructor for ChangeSequenceListener. Uses dependency injection to get the change sequence.
+     * @param changeSequence The change sequence
+     */
+    public ChangeSequenceListener(ChangeSequence changeSequence) {
+        this.changeSequence = changeSequence;
+    }
+
+    /**
+     * Sets the change sequence number of an entity before it is inserted or updated.
+     * An update only gets a number if Hibernate found the entity dirty.
+     * @param entity The entity
+     */
+    @PrePersist
+    @PreUpdate
+    public void setChangeSeq(Object entity) {
+        if (entity instanceof ChangeTracked changeTracked) {
+            changeTracked.setChangeSeq(changeSequence.next());
+        }
+    }
+}
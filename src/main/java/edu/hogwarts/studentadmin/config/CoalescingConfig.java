@@ -0,0 +1,66 @@
+package edu.hogwarts.studentadmin.config;
+
+import edu.hogwarts.studentadmin.service.RequestCoalescer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Configuration of the coalescing of identical concurrent service reads.
+ * Every service method annotated with @Coalesced is called through the RequestCoalescer, keyed by the service, the method and the arguments.
+ * The aspect runs before the transaction is started, so callers that share a call don't take a connection each.
+ */
+@Aspect
+@Configuration
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class CoalescingConfig {
+    private final RequestCoalescer requestCoalescer;
+
+    /**
+     * The key of a call.
+     * @param service the class of the service, since the methods of HogwartsPersonService are shared by students and teachers
+     * @param method the name of the method
+     * @param args the arguments
+     */
+    private record CallKey(Class<?> service, String method, List<Object> args) {
+    }
+
+    /**
+     * Constructor for CoalescingConfig. Uses dependency injection to get the coalescer.
+     * @param requestCoalescer the coalescer of identical calls
+     */
+    public CoalescingConfig(RequestCoalescer requestCoalescer) {
+        this.requestCoalescer = requestCoalescer;
+    }
+
+    /**
+     * Calls a service method through the coalescer.
+     * @param joinPoint the method call
+     * @return the result of the call, possibly shared with identical calls
+     * @throws Throwable whatever the method throws
+     */
+    @Around("@annotation(edu.hogwarts.studentadmin.service.Coalesced)")
+    public Object coalesce(ProceedingJoinPoint joinPoint) throws Throwable {
+        var key = new CallKey(joinPoint.getTarget().getClass(), joinPoint.getSignature().getName(), Arrays.asList(joinPoint.getArgs()));
+        try {
+            return requestCoalescer.execute(key, () -> {
+                try {
+                    return joinPoint.proceed();
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new UndeclaredThrowableException(e);
+                }
+            });
+        } catch (UndeclaredThrowableException e) {
+            throw e.getUndeclaredThrowable();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package edu.hogwarts.studentadmin.config;
+
+import edu.hogwarts.studentadmin.service.CourseResponseCache;
+import edu.hogwarts.studentadmin.service.TeacherService;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Configuration of the invalidation of the cached course responses.
+ * Every CourseService method that writes and takes the id of a course as its first argument invalidates that course.
+ * Every StudentService and TeacherService method that writes a person by id invalidates the courses that contain them.
+ * A rollover changes every student and course, so RolloverService invalidates the whole cache in each of its transactions.
+ * Creating courses and importing students change no cached course, so they invalidate nothing.
+ */
+@Aspect
+@Configuration
+public class CourseCacheConfig {
+    private final CourseResponseCache courseResponseCache;
+
+    /**
+     * Constructor for CourseCacheConfig. Uses dependency injection to get the cache.
+     * @param courseResponseCache the cache of course responses
+     */
+    public CourseCacheConfig(CourseResponseCache courseResponseCache) {
+        this.courseResponseCache = courseResponseCache;
+    }
+
+    /**
+     * Invalidates a course after a CourseService method has changed it.
+     * @param id the id of the course
+     * @param transactional the transaction settings of the method
+     */
+    @AfterReturning("execution(* edu.hogwarts.studentadmin.service.CourseService.*(Long, ..)) && args(id, ..) && @annotation(transactional)")
+    public void invalidateCourse(Long id, Transactional transactional) {
+        if (!transactional.readOnly()) {
+            courseResponseCache.invalidateCourse(id);
+        }
+    }
+
+    /**
+     * Invalidates the courses of a student or teacher after a StudentService or TeacherService method has changed them.
+     * The person is the Long argument of the method, methods without one create people who are on no course yet.
+     * @param joinPoint the method call
+     * @param transactional the transaction settings of the method
+     */
+    @AfterReturning("within(edu.hogwarts.studentadmin.service.HogwartsPersonService+) && @annotation(transactional)")
+    public void invalidatePerson(JoinPoint joinPoint, Transactional transactional) {
+        if (transactional.readOnly()) {
+            return;
+        }
+        for (var arg : joinPoint.getArgs()) {
+            if (arg instanceof Long id) {
+                if (joinPoint.getTarget() instanceof TeacherService) {
+                    courseResponseCache.invalidateTeacher(id);
+                } else {
+                    courseResponseCache.invalidateStudent(id);
+                }
+            }
+        }
+    }
+}
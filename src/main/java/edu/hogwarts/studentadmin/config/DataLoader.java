@@ -1,37 +1,48 @@
 package edu.hogwarts.studentadmin.config;
 
 import edu.hogwarts.studentadmin.model.EmpType;
+import edu.hogwarts.studentadmin.model.HogwartsPerson;
 import edu.hogwarts.studentadmin.model.House;
 import edu.hogwarts.studentadmin.model.Student;
 import edu.hogwarts.studentadmin.model.Teacher;
 import edu.hogwarts.studentadmin.repository.HouseRepository;
 import edu.hogwarts.studentadmin.repository.StudentRepository;
 import edu.hogwarts.studentadmin.repository.TeacherRepository;
+import edu.hogwarts.studentadmin.service.HouseService;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
 
 /**
- * Class to load initial data into the database
+ * Class to load initial data into the database.
+ * Not used with the synthetic profile, where SyntheticDataGenerator seeds the database instead.
  */
 @Component
+@Profile("!synthetic")
 public class DataLoader implements CommandLineRunner {
     private final HouseRepository houseRepository;
     private final StudentRepository studentRepository;
     private final TeacherRepository teacherRepository;
+    private final HouseService houseService;
 
     /**
-     * DataLoader constructor, used to inject the repositories
+     * DataLoader constructor, used to inject the repositories and the house service
      * @param houseRepository the house repository
      * @param studentRepository the student repository
      * @param teacherRepository the teacher repository
+     * @param houseService the house service, refreshed after the houses are created
      */
-    public DataLoader(HouseRepository houseRepository, StudentRepository studentRepository, TeacherRepository teacherRepository) {
+    public DataLoader(HouseRepository houseRepository, StudentRepository studentRepository, TeacherRepository teacherRepository, HouseService houseService) {
         this.studentRepository = studentRepository;
         this.teacherRepository = teacherRepository;
         this.houseRepository = houseRepository;
+        this.houseService = houseService;
     }
 
     @Override
@@ -44,19 +55,23 @@ public class DataLoader implements CommandLineRunner {
     }
 
     /**
-     * Create the four houses of Hogwarts
+     * The four houses of Hogwarts
+     * @return new, unsaved house entities
      */
-    private void createHouses() {
+    static List<House> houses() {
         var gryffindor = new House("Gryffindor", "Godric Gryffindor", "scarlet", "gold");
         var hufflepuff = new House("Hufflepuff", "Helga Hufflepuff", "yellow", "black");
         var ravenclaw = new House("Ravenclaw", "Rowena Ravenclaw", "blue", "silver");
         var slytherin = new House("Slytherin", "Salazar Slytherin", "green", "silver");
+        return List.of(gryffindor, hufflepuff, ravenclaw, slytherin);
+    }
 
-
-        houseRepository.save(gryffindor);
-        houseRepository.save(hufflepuff);
-        houseRepository.save(ravenclaw);
-        houseRepository.save(slytherin);
+    /**
+     * Create the four houses of Hogwarts
+     */
+    private void createHouses() {
+        houseRepository.saveAll(houses());
+        houseService.refresh();
     }
 
     /**
@@ -84,7 +99,7 @@ public class DataLoader implements CommandLineRunner {
         var parvati = new Student(12L, "Parvati", "", "Patil", LocalDate.of(1980, 1, 1), gryffindor.get(), false, 1991, 1998, true, 2);
 
         var students = new Student[]{harry, hermione, ron, neville, luna, draco, cedric, cho, ginny, seamus, dean, parvati};
-        studentRepository.saveAll(Arrays.asList(students));
+        studentRepository.saveAll(unsaved(studentRepository, Arrays.asList(students)));
     }
 
     /**
@@ -108,6 +123,21 @@ public class DataLoader implements CommandLineRunner {
         var quirrell = new Teacher(8L, "Quirinus", "", "Quirrell", LocalDate.of(1968, 9, 26), ravenclaw.get(), false, EmpType.TEMPORARY, LocalDate.of(1991, 9, 1), LocalDate.of(1992, 6, 30));
 
         var teachers = new Teacher[]{mcGonagall, snape, sprout, flitwick, hagrid, trelawney, binns, quirrell};
-        teacherRepository.saveAll(Arrays.asList(teachers));
+        teacherRepository.saveAll(unsaved(teacherRepository, Arrays.asList(teachers)));
+    }
+
+    /**
+     * Leaves out the people who are already in the database, so starting again with a persistent database doesn't overwrite their changes.
+     * Saving them again would fail anyway once they have been changed, since their versions would no longer match.
+     * @param repository the repository of the people
+     * @param people the people to save
+     * @return the people who are not in the database yet
+     */
+    private static <M extends HogwartsPerson> List<M> unsaved(JpaRepository<M, Long> repository, List<M> people) {
+        var saved = repository.findAllById(people.stream().map(HogwartsPerson::getId).toList())
+                .stream()
+                .map(HogwartsPerson::getId)
+                .collect(Collectors.toSet());
+        return people.stream().filter(person -> !saved.contains(person.getId())).toList();
     }
 }
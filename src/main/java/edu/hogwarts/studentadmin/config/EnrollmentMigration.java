@@ -0,0 +1,79 @@
+package edu.hogwarts.studentadmin.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Class to copy the rosters of a database created before enrollments were rows of their own into the enrollment table.
+ * The rosters used to be kept in the course_students join table, which Hibernate no longer maps, so ddl-auto=update
+ * creates the empty enrollment table but never fills it.
+ * The rows are copied with a single INSERT ... SELECT, and the old table is dropped afterwards, so the copy only runs once per database.
+ * Rows that are already in the enrollment table are skipped, so a copy that was interrupted before the drop can run again.
+ * The copied enrollments get the time of the copy as their enrollment time, since the join table had none.
+ * Runs before ChangeSeqBackfill, which gives the copied enrollments their change sequence numbers.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class EnrollmentMigration implements CommandLineRunner {
+    private static final Logger logger = LoggerFactory.getLogger(EnrollmentMigration.class);
+    static final String OLD_TABLE = "course_students";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * EnrollmentMigration constructor, used to inject the JdbcTemplate and the transaction manager
+     * @param jdbcTemplate the JdbcTemplate for the database
+     * @param transactionManager the transaction manager used for the copy
+     */
+    public EnrollmentMigration(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Copies the rows of the old join table into the enrollment table and drops the old table, if it exists.
+     * @param args the command line arguments, not used
+     */
+    @Override
+    public void run(String... args) {
+        if (!oldTableExists()) {
+            return;
+        }
+        var copied = transactionTemplate.execute(status -> jdbcTemplate.update(
+                "insert into enrollment (course_id, student_id, enrolled_at, change_seq) " +
+                        "select distinct cs.course_id, cs.students_id, ?, 0 from " + OLD_TABLE + " cs " +
+                        "where not exists (select 1 from enrollment e where e.course_id = cs.course_id and e.student_id = cs.students_id)",
+                Timestamp.valueOf(LocalDateTime.now())));
+        jdbcTemplate.execute("drop table " + OLD_TABLE);
+        logger.info("Copied {} enrollments from {} and dropped it", copied, OLD_TABLE);
+    }
+
+    /**
+     * Checks the database metadata for the old table, in any case, since H2 keeps unquoted names in upper case and MySQL in lower case.
+     */
+    private boolean oldTableExists() {
+        var exists = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            try (var tables = connection.getMetaData().getTables(connection.getCatalog(), null, "%", null)) {
+                while (tables.next()) {
+                    if (OLD_TABLE.equalsIgnoreCase(tables.getString("TABLE_NAME"))) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        });
+        return Boolean.TRUE.equals(exists);
+    }
+}
@@ -0,0 +1,94 @@
+package edu.hogwarts.studentadmin.config;
+
+import edu.hogwarts.studentadmin.dto.CourseDTO;
+import edu.hogwarts.studentadmin.dto.PageDTO;
+import edu.hogwarts.studentadmin.service.ServiceOperationEvent;
+import jdk.jfr.EventType;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Collection;
+
+/**
+ * Configuration of the Java Flight Recorder events for the service layer.
+ * Every public method of the course, student, teacher and house services, except the DTO conversions, creates a ServiceOperationEvent.
+ * When no recording has the event enabled, the cost is a check of the enabled flag of the event type, and no event is created,
+ * so the aspect can always be on.
+ * The fields of an event are only filled in when it is committed, i.e. when it is slower than the threshold of the recording.
+ * Record with the settings in jfr/student-admin.jfc, e.g.
+ * java -XX:StartFlightRecording:settings=default,settings=jfr/student-admin.jfc,filename=recording.jfr -jar student-admin.jar
+ */
+@Aspect
+@Configuration
+public class FlightRecorderConfig {
+    private static final String DTO_PACKAGE = CourseDTO.class.getPackageName();
+    private static final EventType EVENT_TYPE = EventType.getEventType(ServiceOperationEvent.class);
+
+    /**
+     * Records a service method call as a ServiceOperationEvent.
+     * @param joinPoint the method call
+     * @return the result of the method
+     * @throws Throwable whatever the method throws
+     */
+    @Around("(within(edu.hogwarts.studentadmin.service.CourseService) || within(edu.hogwarts.studentadmin.service.HogwartsPersonService)"
+            + " || within(edu.hogwarts.studentadmin.service.StudentService) || within(edu.hogwarts.studentadmin.service.TeacherService)"
+            + " || within(edu.hogwarts.studentadmin.service.HouseService)) && !execution(* convertTo*(..))")
+    public Object recordServiceOperation(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!EVENT_TYPE.isEnabled()) {
+            return joinPoint.proceed();
+        }
+        var event = new ServiceOperationEvent();
+        var previous = ServiceOperationEvent.enter(event);
+        Object result = null;
+        event.begin();
+        try {
+            result = joinPoint.proceed();
+            return result;
+        } finally {
+            event.end();
+            ServiceOperationEvent.exit(previous);
+            if (event.shouldCommit()) {
+                event.service = joinPoint.getTarget().getClass().getSimpleName();
+                event.operation = joinPoint.getSignature().getName();
+                var args = joinPoint.getArgs();
+                if (args.length > 0 && args[0] instanceof Long id) {
+                    event.entityId = id;
+                }
+                describeResult(event, result);
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Sets the roster size and number of converted entities from the result of a service method.
+     */
+    private static void describeResult(ServiceOperationEvent event, Object result) {
+        if (result instanceof CourseDTO course) {
+            event.rosterSize = course.getStudents() == null ? 0 : course.getStudents().size();
+        }
+        event.converted = countConverted(result);
+    }
+
+    /**
+     * Counts the DTOs in a result, including the teacher and students of courses.
+     */
+    private static int countConverted(Object result) {
+        if (result instanceof CourseDTO course) {
+            return 1 + (course.getTeacher() == null ? 0 : 1) + (course.getStudents() == null ? 0 : course.getStudents().size());
+        }
+        if (result instanceof PageDTO<?> page) {
+            return countConverted(page.getItems());
+        }
+        if (result instanceof Collection<?> collection) {
+            var count = 0;
+            for (var element : collection) {
+                count += countConverted(element);
+            }
+            return count;
+        }
+        return result != null && result.getClass().getPackageName().equals(DTO_PACKAGE) ? 1 : 0;
+    }
+}
@@ -0,0 +1,55 @@
+package edu.hogwarts.studentadmin.config;
+
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Class to move the student and teacher ID sequences past the existing IDs.
+ * The IDs used to be generated by auto-increment columns, so a database created before the sequences
+ * has rows with IDs that a new sequence would hand out again.
+ * Only MySQL needs this, where Hibernate emulates each sequence with a table holding the next value.
+ * In-memory H2 databases always start empty.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class IdSequenceAlignment implements CommandLineRunner {
+    /**
+     * The number of IDs Hibernate takes from a sequence at a time, the default allocation size.
+     */
+    private static final int ALLOCATION_SIZE = 50;
+    private static final List<String> TABLES = List.of("student", "teacher");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * IdSequenceAlignment constructor, used to inject the JdbcTemplate
+     * @param jdbcTemplate the JdbcTemplate for the database
+     */
+    public IdSequenceAlignment(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Moves each sequence past the highest existing ID, if it is behind.
+     * Hibernate hands out the block of IDs below the value it reads, so the value must be at least the highest ID plus a block.
+     * @param args the command line arguments, not used
+     */
+    @Override
+    public void run(String... args) {
+        var databaseName = jdbcTemplate.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        if (!"MySQL".equals(databaseName)) {
+            return;
+        }
+        for (var table : TABLES) {
+            var maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from " + table, Long.class);
+            var nextValue = maxId + ALLOCATION_SIZE;
+            jdbcTemplate.update("update " + table + "_seq set next_val = ? where next_val < ?", nextValue, nextValue);
+        }
+    }
+}
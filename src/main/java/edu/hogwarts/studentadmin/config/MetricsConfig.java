@@ -0,0 +1,114 @@
+package edu.hogwarts.studentadmin.config;
+
+import edu.hogwarts.studentadmin.dto.CourseDTO;
+import io.micrometer.common.KeyValue;
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Configuration of the metrics published on /actuator/prometheus.
+ * Request timers (http.server.requests) get a roster.size tag, so the latency of course routes can be broken down by the size of the course.
+ * Services annotated with @Timed get a studentadmin.service timer per public method, except the DTO conversions.
+ * Hibernate statistics and the HikariCP pool metrics are added by Spring Boot.
+ */
+@Configuration
+public class MetricsConfig {
+    /**
+     * The request attribute with the roster size bucket of the course in the response.
+     */
+    static final String ROSTER_SIZE_ATTRIBUTE = MetricsConfig.class.getName() + ".rosterSize";
+    private static final String ROSTER_SIZE_TAG = "roster.size";
+    private static final String NO_ROSTER = "none";
+
+    /**
+     * Times the public methods of classes annotated with @Timed.
+     * The class tag is the service that was called, so methods inherited from HogwartsPersonService are timed separately for students and teachers.
+     * The DTO conversions are not timed, since they are called once for every person in a response.
+     * @param registry the registry to add the timers to
+     * @return the aspect
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry,
+                joinPoint -> Tags.of("class", joinPoint.getTarget().getClass().getName(), "method", joinPoint.getSignature().getName()),
+                joinPoint -> joinPoint.getSignature().getName().startsWith("convertTo"));
+    }
+
+    /**
+     * Adds the roster.size tag to the request timers, "none" for responses without a course.
+     * @return the naming and tags of the request timers
+     */
+    @Bean
+    public DefaultServerRequestObservationConvention rosterSizeObservationConvention() {
+        return new DefaultServerRequestObservationConvention() {
+            @Override
+            public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+                var rosterSize = context.getCarrier().getAttribute(ROSTER_SIZE_ATTRIBUTE);
+                return super.getLowCardinalityKeyValues(context)
+                        .and(KeyValue.of(ROSTER_SIZE_TAG, rosterSize == null ? NO_ROSTER : rosterSize.toString()));
+            }
+        };
+    }
+
+    /**
+     * Records the roster size bucket of a course in the current request, for responses that are written without a CourseDTO,
+     * e.g. the cached JSON of a course.
+     * @param size the number of students in the course
+     */
+    public static void recordRosterSize(int size) {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            attributes.getRequest().setAttribute(ROSTER_SIZE_ATTRIBUTE, rosterSizeBucket(size));
+        }
+    }
+
+    /**
+     * Groups roster sizes by their order of magnitude, to keep the number of tag values small.
+     * @param size the number of students in a course
+     * @return the bucket, e.g. "10-99"
+     */
+    static String rosterSizeBucket(int size) {
+        if (size == 0) return "0";
+        if (size < 10) return "1-9";
+        if (size < 100) return "10-99";
+        if (size < 1000) return "100-999";
+        return "1000+";
+    }
+
+    /**
+     * Records the roster size bucket of a course returned by a controller, for the roster.size tag.
+     */
+    @ControllerAdvice
+    static class RosterSizeAdvice implements ResponseBodyAdvice<Object> {
+        @Override
+        public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+            return true;
+        }
+
+        @Override
+        public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                      Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                      ServerHttpRequest request, ServerHttpResponse response) {
+            if (body instanceof CourseDTO course && request instanceof ServletServerHttpRequest servletRequest) {
+                var size = course.getStudents() == null ? 0 : course.getStudents().size();
+                servletRequest.getServletRequest().setAttribute(ROSTER_SIZE_ATTRIBUTE, rosterSizeBucket(size));
+            }
+            return body;
+        }
+    }
+}
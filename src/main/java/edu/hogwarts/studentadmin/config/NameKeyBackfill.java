@@ -0,0 +1,83 @@
+package edu.hogwarts.studentadmin.config;
+
+import edu.hogwarts.studentadmin.model.HogwartsPerson;
+import edu.hogwarts.studentadmin.repository.HogwartsPersonRepository;
+import edu.hogwarts.studentadmin.repository.StudentRepository;
+import edu.hogwarts.studentadmin.repository.TeacherRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Class to fill in the name keys and sort keys of students and teachers saved before the keys were added.
+ * New and updated people get their keys when they are saved, so this only has work to do once per database.
+ * On every other start, a single existence check of a missing sort key tells it there is nothing to do.
+ * The people are updated in chunks, each in its own transaction, so large tables don't need one huge transaction.
+ */
+@Component
+public class NameKeyBackfill implements CommandLineRunner {
+    private static final Logger logger = LoggerFactory.getLogger(NameKeyBackfill.class);
+    private static final int CHUNK_SIZE = 500;
+
+    private final StudentRepository studentRepository;
+    private final TeacherRepository teacherRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * NameKeyBackfill constructor, used to inject the repositories and the transaction manager
+     * @param studentRepository the student repository
+     * @param teacherRepository the teacher repository
+     * @param transactionManager the transaction manager used for each chunk
+     */
+    public NameKeyBackfill(StudentRepository studentRepository, TeacherRepository teacherRepository, PlatformTransactionManager transactionManager) {
+        this.studentRepository = studentRepository;
+        this.teacherRepository = teacherRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Fills in the missing name keys of all students and teachers.
+     * @param args the command line arguments, not used
+     */
+    @Override
+    public void run(String... args) {
+        var students = backfill(studentRepository);
+        var teachers = backfill(teacherRepository);
+        if (students + teachers > 0) {
+            logger.info("Filled in name and sort keys for {} students and {} teachers", students, teachers);
+        }
+    }
+
+    /**
+     * Fills in the missing name keys of all people in a repository, one chunk at a time.
+     * The chunks are walked by id, so a person whose keys could not be saved is not fetched again and again.
+     * @param repository the repository of the people to update
+     * @return the number of people that were updated
+     */
+    private <M extends HogwartsPerson> int backfill(HogwartsPersonRepository<M> repository) {
+        if (!repository.existsByLastNameSortIsNull()) {
+            return 0;
+        }
+        var updated = 0;
+        var after = 0L;
+        while (true) {
+            var lastId = after;
+            List<M> chunk = transactionTemplate.execute(status -> {
+                var people = repository.findPageWithoutSortKeys(lastId, PageRequest.of(0, CHUNK_SIZE));
+                people.forEach(HogwartsPerson::updateNameKeys);
+                return people;
+            });
+            if (chunk == null || chunk.isEmpty()) {
+                return updated;
+            }
+            updated += chunk.size();
+            after = chunk.get(chunk.size() - 1).getId();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package edu.hogwarts.studentadmin.config;
+
+/**
+ * The time a single request spends in each layer of the application, for the Server-Timing header.
+ * Times are exclusive: when a service calls a repository, the time in the repository is only counted for the repository,
+ * so the phases add up to at most the total. Whatever is left is spent in Spring and the servlet container.
+ * A request is timed on the thread that handles it, the timing of the current thread is found with {@link #current()}.
+ */
+public class ServerTiming {
+    /**
+     * The layers of the application, in the order they appear in the header.
+     */
+    public enum Phase {
+        CONTROLLER("controller"),
+        SERVICE("service"),
+        REPOSITORY("repository"),
+        SERIALIZATION("serialization");
+
+        private final String metricName;
+
+        Phase(String metricName) {
+            this.metricName = metricName;
+        }
+
+        /**
+         * Gets the name of the phase in the header and in the metrics.
+         * @return the name, e.g. "repository"
+         */
+        public String getMetricName() {
+            return metricName;
+        }
+    }
+
+    private static final ThreadLocal<ServerTiming> current = new ThreadLocal<>();
+    private static final Phase[] phases = Phase.values();
+
+    private final long startNanos = System.nanoTime();
+    private final long[] nanos = new long[phases.length];
+    private Phase phase;
+    private long phaseStartNanos = startNanos;
+
+    /**
+     * Gets the timing of the request handled by the current thread.
+     * @return the timing, or null if the current thread is not handling a timed request
+     */
+    static ServerTiming current() {
+        return current.get();
+    }
+
+    /**
+     * Starts timing a request on the current thread.
+     * @return the timing of the request
+     */
+    static ServerTiming start() {
+        var timing = new ServerTiming();
+        current.set(timing);
+        return timing;
+    }
+
+    /**
+     * Stops timing the request on the current thread.
+     */
+    static void stop() {
+        current.remove();
+    }
+
+    /**
+     * Switches to a phase. Entering the phase the request is already in, e.g. a service calling another service, changes nothing.
+     * @param next the phase to switch to
+     * @return the phase to pass to {@link #exit(Phase)} when the phase ends
+     */
+    Phase enter(Phase next) {
+        if (next == phase) {
+            return next;
+        }
+        var previous = phase;
+        charge(System.nanoTime());
+        phase = next;
+        return previous;
+    }
+
+    /**
+     * Switches back to the phase the request was in before {@link #enter(Phase)}.
+     * @param previous the phase returned by enter
+     */
+    void exit(Phase previous) {
+        if (previous == phase) {
+            return;
+        }
+        charge(System.nanoTime());
+        phase = previous;
+    }
+
+    /**
+     * Gets the time spent in a phase so far.
+     * @param phase the phase
+     * @return the time in nanoseconds
+     */
+    long getNanos(Phase phase) {
+        var total = nanos[phase.ordinal()];
+        if (phase == this.phase) {
+            total += System.nanoTime() - phaseStartNanos;
+        }
+        return total;
+    }
+
+    /**
+     * Gets the time since the request started.
+     * @return the time in nanoseconds
+     */
+    long getTotalNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Formats the times so far as a Server-Timing header, e.g. "controller;dur=0.052, service;dur=1.3, ..., total;dur=4.81".
+     * Durations are in milliseconds.
+     * @return the value of the header
+     */
+    String toHeader() {
+        var header = new StringBuilder();
+        for (var phase : phases) {
+            appendMetric(header, phase.getMetricName(), getNanos(phase));
+            header.append(", ");
+        }
+        appendMetric(header, "total", getTotalNanos());
+        return header.toString();
+    }
+
+    /**
+     * Formats the serialization time and the total time as a Server-Timing trailer, sent after the body, once serialization is done.
+     * @return the value of the trailer, e.g. "serialization;dur=12.5, total;dur=20.1"
+     */
+    String toTrailer() {
+        var trailer = new StringBuilder();
+        appendMetric(trailer, Phase.SERIALIZATION.getMetricName(), getNanos(Phase.SERIALIZATION));
+        trailer.append(", ");
+        appendMetric(trailer, "total", getTotalNanos());
+        return trailer.toString();
+    }
+
+    private void charge(long now) {
+        if (phase != null) {
+            nanos[phase.ordinal()] += now - phaseStartNanos;
+        }
+        phaseStartNanos = now;
+    }
+
+    private static void appendMetric(StringBuilder header, String name, long nanos) {
+        header.append(name).append(";dur=").append(nanos / 1000 / 1000.0);
+    }
+}
@@ -0,0 +1,109 @@
+package edu.hogwarts.studentadmin.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Configuration of the phases timed by ServerTimingFilter.
+ * Controllers, services and repositories are timed by an aspect, JSON serialization by the message converter.
+ * Controllers and services are matched by package rather than annotation, so methods inherited from their generic base classes are timed too.
+ * Calls within a class, like a service converting its own entities to DTOs, are counted for the phase of the class.
+ * Lazy loading is counted for the phase that touches the lazy association, since it doesn't go through a repository.
+ */
+@Aspect
+@Configuration
+public class ServerTimingConfig {
+    /**
+     * Times the methods of controllers.
+     * @param joinPoint the method call
+     * @return the result of the method
+     * @throws Throwable whatever the method throws
+     */
+    @Around("within(edu.hogwarts.studentadmin.controller..*)")
+    public Object timeController(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, ServerTiming.Phase.CONTROLLER);
+    }
+
+    /**
+     * Times the methods of services.
+     * @param joinPoint the method call
+     * @return the result of the method
+     * @throws Throwable whatever the method throws
+     */
+    @Around("within(edu.hogwarts.studentadmin.service..*)")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, ServerTiming.Phase.SERVICE);
+    }
+
+    /**
+     * Times the methods of Spring Data repositories.
+     * @param joinPoint the method call
+     * @return the result of the method
+     * @throws Throwable whatever the method throws
+     */
+    @Around("this(org.springframework.data.repository.Repository)")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, ServerTiming.Phase.REPOSITORY);
+    }
+
+    /**
+     * Replaces the JSON converter with one that times serialization.
+     * Only used when studentadmin.server-timing.enabled is true, otherwise Spring Boot's own converter is used.
+     * @param objectMapper the JSON mapper configured by Spring Boot
+     * @return the converter
+     */
+    @Bean
+    @ConditionalOnProperty(name = "studentadmin.server-timing.enabled", havingValue = "true", matchIfMissing = true)
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper) {
+        return new TimedJsonConverter(objectMapper);
+    }
+
+    private static Object time(ProceedingJoinPoint joinPoint, ServerTiming.Phase phase) throws Throwable {
+        var timing = ServerTiming.current();
+        if (timing == null) {
+            return joinPoint.proceed();
+        }
+        var previous = timing.enter(phase);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            timing.exit(previous);
+        }
+    }
+
+    /**
+     * JSON converter that counts the time spent writing timed responses for the serialization phase.
+     * The body is written straight to the response, so the serialization of a large response can't be in the Server-Timing header,
+     * which has to be sent before the body. It is in the phase timer and in the Server-Timing trailer, see ServerTimingFilter.
+     */
+    static class TimedJsonConverter extends MappingJackson2HttpMessageConverter {
+        TimedJsonConverter(ObjectMapper objectMapper) {
+            super(objectMapper);
+        }
+
+        @Override
+        protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+            var timing = ServerTiming.current();
+            if (timing == null) {
+                super.writeInternal(object, type, outputMessage);
+                return;
+            }
+            var previous = timing.enter(ServerTiming.Phase.SERIALIZATION);
+            try {
+                super.writeInternal(object, type, outputMessage);
+            } finally {
+                timing.exit(previous);
+            }
+        }
+    }
+}
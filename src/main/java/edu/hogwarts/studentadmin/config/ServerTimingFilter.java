@@ -0,0 +1,112 @@
+package edu.hogwarts.studentadmin.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filter to time the controller, service, repository and serialization phases of each request.
+ * The times are sent in the Server-Timing header, which browsers show in their developer tools,
+ * and recorded in the studentadmin.request.phase timers with the phase, method and uri of the request.
+ * The header is added just before the response body is written, so it only has the serialization done before the first byte, usually none.
+ * The body is never buffered to wait for the serialization time. Instead, clients that send "TE: trailers" get a Server-Timing trailer
+ * with the serialization and total times after the body, and the phase timers always have the full serialization time.
+ * Bodies written by streaming responses are not included.
+ * The timers are created once per phase, method and uri, and reused for later requests.
+ * Only timed when studentadmin.server-timing.enabled is true, which is the default.
+ */
+@Component
+public class ServerTimingFilter extends OncePerRequestFilter {
+    /**
+     * The name of the response header with the times.
+     */
+    public static final String HEADER = "Server-Timing";
+    private static final String METRIC = "studentadmin.request.phase";
+    private static final ServerTiming.Phase[] phases = ServerTiming.Phase.values();
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Map<TimerKey, Timer[]> timers = new ConcurrentHashMap<>();
+
+    /**
+     * ServerTimingFilter constructor, used to inject the meter registry and the setting
+     * @param meterRegistry the registry of the phase timers
+     * @param enabled whether to time requests
+     */
+    public ServerTimingFilter(MeterRegistry meterRegistry, @Value("${studentadmin.server-timing.enabled:true}") boolean enabled) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        var timing = ServerTiming.start();
+        var trailers = acceptsTrailers(request);
+        var timedResponse = new BeforeBodyResponseWrapper(response, () -> {
+            response.setHeader(HEADER, timing.toHeader());
+            if (trailers) {
+                response.setHeader(HttpHeaders.TRAILER, HEADER);
+                response.setTrailerFields(() -> Map.of(HEADER, timing.toTrailer()));
+            }
+        });
+        try {
+            filterChain.doFilter(request, timedResponse);
+            timedResponse.beforeBody();
+        } finally {
+            ServerTiming.stop();
+            record(request, timing);
+        }
+    }
+
+    private void record(HttpServletRequest request, ServerTiming timing) {
+        var uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        var phaseTimers = timers.computeIfAbsent(new TimerKey(request.getMethod(), uri == null ? "UNKNOWN" : uri.toString()), this::createTimers);
+        for (var phase : phases) {
+            phaseTimers[phase.ordinal()].record(timing.getNanos(phase), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer[] createTimers(TimerKey key) {
+        var phaseTimers = new Timer[phases.length];
+        for (var phase : phases) {
+            phaseTimers[phase.ordinal()] = Timer.builder(METRIC)
+                    .description("Time spent by requests in each layer of the application")
+                    .tags("phase", phase.getMetricName(), "method", key.method(), "uri", key.uri())
+                    .register(meterRegistry);
+        }
+        return phaseTimers;
+    }
+
+    /**
+     * Checks if the client accepts trailers, from the "trailers" token of its TE header.
+     */
+    private static boolean acceptsTrailers(HttpServletRequest request) {
+        var te = request.getHeader(HttpHeaders.TE);
+        return te != null && Arrays.stream(te.split(",")).anyMatch(token -> token.trim().equalsIgnoreCase("trailers"));
+    }
+
+    /**
+     * The method and uri pattern of the requests a set of phase timers is for.
+     */
+    private record TimerKey(String method, String uri) {
+    }
+}
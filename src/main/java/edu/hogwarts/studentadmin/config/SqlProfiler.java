@@ -0,0 +1,267 @@
+package edu.hogwarts.studentadmin.config;
+
+import edu.hogwarts.studentadmin.dto.SlowQueryDTO;
+import net.ttddyy.dsproxy.ConnectionInfo;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ProxyConfig;
+import net.ttddyy.dsproxy.proxy.ResultSetProxyLogic;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.aspectj.lang.annotation.Aspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Collectors;
+
+/**
+ * Class to record slow SQL statements, replacing spring.jpa.show-sql.
+ * The data source is wrapped in a proxy that times every statement. Statements slower than the threshold are always recorded,
+ * faster ones are recorded at the sample rate. The time of a query includes reading its rows, since that is where large results spend their time.
+ * Each record has the duration, the number of bind parameters, the number of rows and the application method that ran the statement.
+ * The most recent records are kept in a fixed-size ring buffer, shown on /admin/slow-queries,
+ * and written to the log by a background thread, so a slow log never slows down the request.
+ * If the log thread falls behind, records are dropped from the log but are still kept in the buffer.
+ */
+@Component
+public class SqlProfiler implements QueryExecutionListener, BeanPostProcessor, DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(SqlProfiler.class);
+    private static final String START_NANOS = SqlProfiler.class.getName() + ".start";
+    private static final String APPLICATION_PACKAGE = "edu.hogwarts.studentadmin.";
+    private static final StackWalker stackWalker = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+    private final boolean enabled;
+    private final long thresholdNanos;
+    private final double sampleRate;
+    private final AtomicReferenceArray<SlowQueryDTO> buffer;
+    private final AtomicLong written = new AtomicLong();
+    private final ThreadPoolExecutor logExecutor;
+
+    /**
+     * Constructor for SqlProfiler.
+     * @param enabled whether the data source is wrapped at all, from studentadmin.sql-profiler.enabled
+     * @param thresholdMillis the duration from which a statement is always recorded, from studentadmin.sql-profiler.threshold-ms
+     * @param sampleRate the fraction of faster statements that is recorded, from studentadmin.sql-profiler.sample-rate
+     * @param bufferSize the number of recent records kept, from studentadmin.sql-profiler.buffer-size
+     */
+    public SqlProfiler(@Value("${studentadmin.sql-profiler.enabled:true}") boolean enabled,
+                       @Value("${studentadmin.sql-profiler.threshold-ms:100}") long thresholdMillis,
+                       @Value("${studentadmin.sql-profiler.sample-rate:0.01}") double sampleRate,
+                       @Value("${studentadmin.sql-profiler.buffer-size:500}") int bufferSize) {
+        this.enabled = enabled;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.sampleRate = sampleRate;
+        this.buffer = new AtomicReferenceArray<>(Math.max(bufferSize, 1));
+        this.logExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1000), runnable -> {
+            var thread = new Thread(runnable, "sql-profiler-log");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /**
+     * Wraps the data source in a proxy that reports every statement to this profiler.
+     * @param bean the bean that was created
+     * @param beanName the name of the bean
+     * @return the proxy if the bean is a data source, otherwise the bean itself
+     */
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (enabled && bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+            return ProxyDataSourceBuilder.create(beanName, dataSource)
+                    .listener(this)
+                    .proxyResultSet(RowCounter::new)
+                    .build();
+        }
+        return bean;
+    }
+
+    /**
+     * Notes the time a statement starts.
+     * @param execInfo the statement being run
+     * @param queryInfoList the SQL of the statement
+     */
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        execInfo.addCustomValue(START_NANOS, System.nanoTime());
+    }
+
+    /**
+     * Records a statement once it is done. A query is only done once its rows are read,
+     * so it is handed to the row counter of its result set and recorded when the result set is closed.
+     * @param execInfo the statement that was run
+     * @param queryInfoList the SQL of the statement
+     */
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        var start = execInfo.getCustomValue(START_NANOS, Long.class);
+        if (start == null) {
+            return;
+        }
+        var sql = queryInfoList.stream().map(QueryInfo::getQuery).collect(Collectors.joining("; "));
+        var parameterCount = queryInfoList.isEmpty() || queryInfoList.get(0).getParametersList().isEmpty()
+                ? 0 : queryInfoList.get(0).getParametersList().get(0).size();
+        var batchSize = execInfo.isBatch() ? execInfo.getBatchSize() : 1;
+        var statement = new Statement(start, sql, parameterCount, batchSize);
+        try {
+            if (execInfo.getResult() instanceof ResultSet resultSet && resultSet.isWrapperFor(RowCounter.class)) {
+                resultSet.unwrap(RowCounter.class).statement = statement;
+                return;
+            }
+        } catch (Exception e) {
+            // The result set was closed already, so the rows are unknown
+        }
+        record(statement, updateCount(execInfo.getResult()));
+    }
+
+    /**
+     * Gets the most recent records, newest first.
+     * Statements that finish while this runs may or may not be included.
+     * @return the records
+     */
+    public List<SlowQueryDTO> getRecent() {
+        var end = written.get();
+        var start = Math.max(0, end - buffer.length());
+        var recent = new ArrayList<SlowQueryDTO>((int) (end - start));
+        for (var i = end - 1; i >= start; i--) {
+            var entry = buffer.get((int) (i % buffer.length()));
+            if (entry != null) {
+                recent.add(entry);
+            }
+        }
+        return recent;
+    }
+
+    /**
+     * Stops the log thread, dropping records that were not written yet.
+     */
+    @Override
+    public void destroy() {
+        logExecutor.shutdownNow();
+    }
+
+    private void record(Statement statement, long rowCount) {
+        var nanos = System.nanoTime() - statement.startNanos;
+        var slow = nanos >= thresholdNanos;
+        var sampled = !slow && sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+        if (!slow && !sampled) {
+            return;
+        }
+        var entry = new SlowQueryDTO(Instant.now(), nanos / 1_000_000.0, statement.sql, statement.parameterCount, statement.batchSize,
+                rowCount, caller(), Thread.currentThread().getName(), sampled);
+        buffer.set((int) (written.getAndIncrement() % buffer.length()), entry);
+        logExecutor.execute(() -> log(entry));
+    }
+
+    private static void log(SlowQueryDTO entry) {
+        var message = "sql duration_ms={} rows={} parameters={} batch_size={} caller={} thread={} sampled={} statement=\"{}\"";
+        Object[] arguments = {String.format("%.3f", entry.getDurationMillis()), entry.getRowCount(), entry.getParameterCount(),
+                entry.getBatchSize(), entry.getCaller(), entry.getThread(), entry.isSampled(), entry.getSql()};
+        if (entry.isSampled()) {
+            logger.info(message, arguments);
+        } else {
+            logger.warn(message, arguments);
+        }
+    }
+
+    /**
+     * Finds the application method that ran the statement, usually a service method.
+     * Spring proxies, the aspects that wrap the services and repositories, and this class are skipped.
+     */
+    private static String caller() {
+        return stackWalker.walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith(APPLICATION_PACKAGE)
+                        && !frame.getClassName().startsWith(SqlProfiler.class.getName())
+                        && !frame.getClassName().contains("$$")
+                        && !frame.getDeclaringClass().isAnnotationPresent(Aspect.class))
+                .findFirst()
+                .map(frame -> frame.getClassName().substring(frame.getClassName().lastIndexOf('.') + 1) + "." + frame.getMethodName())
+                .orElse(null));
+    }
+
+    /**
+     * Gets the number of changed rows from the result of an update, -1 if it is unknown.
+     */
+    private static long updateCount(Object result) {
+        if (result instanceof Number count) {
+            return count.longValue();
+        }
+        if (result instanceof int[] counts) {
+            long total = 0;
+            for (var count : counts) {
+                total += Math.max(count, 0);
+            }
+            return total;
+        }
+        return -1;
+    }
+
+    /**
+     * A statement that is run but not recorded yet.
+     */
+    private record Statement(long startNanos, String sql, int parameterCount, int batchSize) {
+    }
+
+    /**
+     * Counts the rows read from a result set, and records the statement that created it once it is closed.
+     */
+    private class RowCounter implements ResultSetProxyLogic {
+        private final ResultSet resultSet;
+        private Statement statement;
+        private long rows;
+
+        RowCounter(ResultSet resultSet, ConnectionInfo connectionInfo, ProxyConfig proxyConfig) {
+            this.resultSet = resultSet;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "getTarget":
+                    return resultSet;
+                case "isWrapperFor":
+                    if (args[0] == RowCounter.class) {
+                        return true;
+                    }
+                    break;
+                case "unwrap":
+                    if (args[0] == RowCounter.class) {
+                        return this;
+                    }
+                    break;
+            }
+            Object result;
+            try {
+                result = method.invoke(resultSet, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+            if ("next".equals(method.getName()) && Boolean.TRUE.equals(result)) {
+                rows++;
+            } else if ("close".equals(method.getName()) && statement != null) {
+                var done = statement;
+                statement = null;
+                record(done, rows);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package edu.hogwarts.studentadmin.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Filter to add the number of SQL statements run by a request to its response, in the X-SQL-Statement-Count header.
+ * Only adds the header when studentadmin.statement-count-header is true, which the debug profile sets.
+ * The header is added just before the response body is written, since headers can't be changed once the body has started.
+ * Statements run while the body is written, e.g. by a streaming export, are not included.
+ */
+@Component
+public class StatementCountFilter extends OncePerRequestFilter {
+    /**
+     * The name of the response header with the number of statements.
+     */
+    public static final String HEADER = "X-SQL-Statement-Count";
+
+    private final StatementCounter statementCounter;
+    private final boolean enabled;
+
+    /**
+     * StatementCountFilter constructor, used to inject the counter and the setting
+     * @param statementCounter the counter of the statements
+     * @param enabled whether to add the header to responses
+     */
+    public StatementCountFilter(StatementCounter statementCounter, @Value("${studentadmin.statement-count-header:false}") boolean enabled) {
+        this.statementCounter = statementCounter;
+        this.enabled = enabled;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        var start = statementCounter.getCount();
+        var countingResponse = new BeforeBodyResponseWrapper(response,
+                () -> response.setHeader(HEADER, String.valueOf(statementCounter.getCount() - start)));
+        filterChain.doFilter(request, countingResponse);
+        countingResponse.beforeBody();
+    }
+}
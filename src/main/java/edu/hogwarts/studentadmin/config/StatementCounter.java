@@ -0,0 +1,47 @@
+package edu.hogwarts.studentadmin.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Class to count the SQL statements Hibernate prepares on each thread.
+ * The count only ever grows, so code that wants the number of statements run by a piece of work
+ * reads the count before and after it, e.g. StatementCountFilter for each request.
+ * A batch of inserts or updates is prepared once, so it is counted as one statement.
+ */
+@Component
+public class StatementCounter implements StatementInspector, HibernatePropertiesCustomizer {
+    private final ThreadLocal<long[]> count = ThreadLocal.withInitial(() -> new long[1]);
+
+    /**
+     * Counts a statement, without changing it.
+     * @param sql the SQL of the statement
+     * @return the same SQL
+     */
+    @Override
+    public String inspect(String sql) {
+        count.get()[0]++;
+        return sql;
+    }
+
+    /**
+     * Registers the counter with Hibernate.
+     * @param hibernateProperties the Hibernate properties to add the counter to
+     */
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+
+    /**
+     * Gets the number of statements prepared on the current thread so far.
+     * @return the number of statements
+     */
+    public long getCount() {
+        return count.get()[0];
+    }
+}
@@ -0,0 +1,312 @@
+package edu.hogwarts.studentadmin.config;
+
+import edu.hogwarts.studentadmin.model.Course;
+import edu.hogwarts.studentadmin.model.EmpType;
+import edu.hogwarts.studentadmin.model.House;
+import edu.hogwarts.studentadmin.model.Student;
+import edu.hogwarts.studentadmin.model.Teacher;
+import edu.hogwarts.studentadmin.repository.CourseRepository;
+import edu.hogwarts.studentadmin.repository.HouseRepository;
+import edu.hogwarts.studentadmin.repository.StudentRepository;
+import edu.hogwarts.studentadmin.repository.TeacherRepository;
+import edu.hogwarts.studentadmin.service.ChangeSequence;
+import edu.hogwarts.studentadmin.service.HouseService;
+import jakarta.persistence.EntityManager;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Class to seed the database with a large, random but reproducible school, used with the synthetic profile.
+ * The same settings and seed always give the same students, teachers, courses and rosters on an empty database.
+ * Nothing is generated if the database already has students, teachers or courses, so a restart keeps the existing data.
+ * Students, teachers and courses are saved through Hibernate in chunks with batched inserts, each chunk in its own transaction.
+ * Enrollments are inserted with plain JDBC batches, since there are more of them than anything else and they have no generated values.
+ * The batches bypass ChangeSequenceListener, so each batch sets the change sequence numbers of its rows from a block reserved for it.
+ */
+@Component
+@Profile("synthetic")
+public class SyntheticDataGenerator implements CommandLineRunner {
+    private static final Logger logger = LoggerFactory.getLogger(SyntheticDataGenerator.class);
+    private static final int CHUNK_SIZE = 5000;
+    private static final int SCHOOL_YEARS = 7;
+    /**
+     * The year the students in the first school year were enrolled, matching the years of the fixed seed data.
+     */
+    private static final int FIRST_YEAR_ENROLLMENT = 1991;
+
+    private static final String[] FIRST_NAMES = {
+            "Hannah", "Ernie", "Susan", "Justin", "Terry", "Mandy", "Michael", "Padma", "Lavender", "Colin",
+            "Dennis", "Katie", "Oliver", "Angelina", "Alicia", "Lee", "Fred", "George", "Percy", "Millicent",
+            "Vincent", "Gregory", "Pansy", "Theodore", "Blaise", "Marcus", "Adrian", "Anthony", "Zacharias", "Romilda"};
+    private static final String[] MIDDLE_NAMES = {
+            "James", "Jean", "Molly", "Arthur", "Frank", "Lucius", "Rose", "Albus", "Minerva", "Septimus"};
+    private static final String[] LAST_NAMES = {
+            "Abbott", "Macmillan", "Bones", "Finch-Fletchley", "Boot", "Brocklehurst", "Corner", "Patil", "Brown", "Creevey",
+            "Bell", "Wood", "Johnson", "Spinnet", "Jordan", "Weasley", "Bulstrode", "Crabbe", "Goyle", "Parkinson",
+            "Nott", "Zabini", "Flint", "Pucey", "Goldstein", "Smith", "Vane", "Hopkins", "Entwhistle", "Edgecombe"};
+    private static final String[] SUBJECTS = {
+            "Transfiguration", "Charms", "Potions", "History of Magic", "Defence Against the Dark Arts", "Astronomy",
+            "Herbology", "Arithmancy", "Muggle Studies", "Divination", "Study of Ancient Runes", "Care of Magical Creatures"};
+    private static final EmpType[] EMPLOYMENTS = {EmpType.TENURED, EmpType.TENURED, EmpType.TEMPORARY, EmpType.PROBATION};
+
+    private final HouseRepository houseRepository;
+    private final StudentRepository studentRepository;
+    private final TeacherRepository teacherRepository;
+    private final CourseRepository courseRepository;
+    private final HouseService houseService;
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final ChangeSequence changeSequence;
+    private final TransactionTemplate transactionTemplate;
+    private final int students;
+    private final int teachers;
+    private final int coursesPerYear;
+    private final int averageRosterSize;
+    private final long seed;
+
+    /**
+     * SyntheticDataGenerator constructor, used to inject the repositories, the database access and the settings
+     * @param houseRepository the house repository
+     * @param studentRepository the student repository
+     * @param teacherRepository the teacher repository
+     * @param courseRepository the course repository
+     * @param houseService the house service, refreshed after the houses are created
+     * @param entityManager the entity manager used to save the chunks
+     * @param jdbcTemplate the JdbcTemplate used to insert the enrollments
+     * @param changeSequence the change sequence, which reserves the change sequence numbers of the enrollments
+     * @param transactionManager the transaction manager used for each chunk
+     * @param students the number of students to generate, spread evenly over the school years
+     * @param teachers the number of teachers to generate
+     * @param coursesPerYear the number of courses to generate for each school year
+     * @param averageRosterSize the average number of students enrolled in a course
+     * @param seed the seed of the random generator, the same seed always gives the same data
+     */
+    public SyntheticDataGenerator(HouseRepository houseRepository, StudentRepository studentRepository, TeacherRepository teacherRepository,
+                                  CourseRepository courseRepository, HouseService houseService, EntityManager entityManager,
+                                  JdbcTemplate jdbcTemplate, ChangeSequence changeSequence, PlatformTransactionManager transactionManager,
+                                  @Value("${studentadmin.synthetic.students:1000000}") int students,
+                                  @Value("${studentadmin.synthetic.teachers:2000}") int teachers,
+                                  @Value("${studentadmin.synthetic.courses-per-year:7143}") int coursesPerYear,
+                                  @Value("${studentadmin.synthetic.average-roster-size:30}") int averageRosterSize,
+                                  @Value("${studentadmin.synthetic.seed:42}") long seed) {
+        this.houseRepository = houseRepository;
+        this.studentRepository = studentRepository;
+        this.teacherRepository = teacherRepository;
+        this.courseRepository = courseRepository;
+        this.houseService = houseService;
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.changeSequence = changeSequence;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.students = students;
+        this.teachers = teachers;
+        this.coursesPerYear = coursesPerYear;
+        this.averageRosterSize = averageRosterSize;
+        this.seed = seed;
+    }
+
+    /**
+     * Generates the school, unless the database already has data.
+     * @param args the command line arguments, not used
+     */
+    @Override
+    public void run(String... args) {
+        if (studentRepository.count() > 0 || teacherRepository.count() > 0 || courseRepository.count() > 0) {
+            logger.info("Database already has data, skipping synthetic data");
+            return;
+        }
+        var start = System.currentTimeMillis();
+        var random = new Random(seed);
+        if (houseRepository.count() == 0) {
+            houseRepository.saveAll(DataLoader.houses());
+        }
+        houseService.refresh();
+        var houseNames = houseService.getAll().stream().map(House::getName).toList();
+
+        var studentIds = createStudents(random, houseNames);
+        var teacherIds = createTeachers(random, houseNames);
+        var enrollments = createCourses(random, studentIds, teacherIds);
+        logger.info("Generated {} students, {} teachers, {} courses and {} enrollments in {} ms",
+                studentIds.length, teacherIds.length, coursesPerYear * SCHOOL_YEARS, enrollments, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Creates the students, ordered by school year, with the same number of students in each year.
+     * @return the ids of the students, in the order they were created
+     */
+    private long[] createStudents(Random random, List<String> houseNames) {
+        var ids = new long[students];
+        for (int from = 0; from < students; from += CHUNK_SIZE) {
+            var to = Math.min(from + CHUNK_SIZE, students);
+            var first = from;
+            inChunk(() -> {
+                var chunk = new ArrayList<Student>(to - first);
+                for (int i = first; i < to; i++) {
+                    var schoolYear = schoolYearOfStudent(i);
+                    var enrollmentYear = FIRST_YEAR_ENROLLMENT - schoolYear + 1;
+                    var dateOfBirth = LocalDate.of(enrollmentYear - 11, 9, 1).minusDays(1 + random.nextInt(365));
+                    var student = new Student(null, pick(random, FIRST_NAMES), middleName(random), pick(random, LAST_NAMES), dateOfBirth,
+                            house(random, houseNames), schoolYear >= 5 && random.nextInt(50) == 0,
+                            enrollmentYear, enrollmentYear + SCHOOL_YEARS, false, schoolYear);
+                    entityManager.persist(student);
+                    chunk.add(student);
+                }
+                entityManager.flush();
+                for (int i = 0; i < chunk.size(); i++) {
+                    ids[first + i] = chunk.get(i).getId();
+                }
+            });
+        }
+        return ids;
+    }
+
+    /**
+     * Creates the teachers.
+     * @return the ids of the teachers
+     */
+    private long[] createTeachers(Random random, List<String> houseNames) {
+        var ids = new long[teachers];
+        for (int from = 0; from < teachers; from += CHUNK_SIZE) {
+            var to = Math.min(from + CHUNK_SIZE, teachers);
+            var first = from;
+            inChunk(() -> {
+                var chunk = new ArrayList<Teacher>(to - first);
+                for (int i = first; i < to; i++) {
+                    var dateOfBirth = LocalDate.of(1920 + random.nextInt(45), 1, 1).plusDays(random.nextInt(365));
+                    var employmentStart = LocalDate.of(Math.min(dateOfBirth.getYear() + 21 + random.nextInt(20), FIRST_YEAR_ENROLLMENT), 9, 1);
+                    var teacher = new Teacher(null, pick(random, FIRST_NAMES), middleName(random), pick(random, LAST_NAMES), dateOfBirth,
+                            house(random, houseNames), false, pick(random, EMPLOYMENTS), employmentStart, null);
+                    entityManager.persist(teacher);
+                    chunk.add(teacher);
+                }
+                entityManager.flush();
+                for (int i = 0; i < chunk.size(); i++) {
+                    ids[first + i] = chunk.get(i).getId();
+                }
+            });
+        }
+        return ids;
+    }
+
+    /**
+     * Creates the courses of every school year, and enrolls a random set of students from the same year in each course.
+     * The roster sizes are spread evenly between half and one and a half times the average roster size.
+     * @return the number of enrollments
+     */
+    private long createCourses(Random random, long[] studentIds, long[] teacherIds) {
+        long enrollments = 0;
+        var coursesPerChunk = Math.max(1, CHUNK_SIZE / Math.max(1, averageRosterSize));
+        for (int schoolYear = 1; schoolYear <= SCHOOL_YEARS; schoolYear++) {
+            var yearStudents = studentIdsOfYear(studentIds, schoolYear);
+            var year = schoolYear;
+            for (int from = 0; from < coursesPerYear; from += coursesPerChunk) {
+                var to = Math.min(from + coursesPerChunk, coursesPerYear);
+                var first = from;
+                var rows = new ArrayList<Object[]>();
+                inChunk(() -> {
+                    for (int i = first; i < to; i++) {
+                        var subject = SUBJECTS[i % SUBJECTS.length] + " " + (i / SUBJECTS.length + 1);
+                        Teacher teacher = null;
+                        if (teacherIds.length > 0) {
+                            teacher = entityManager.getReference(Teacher.class, teacherIds[random.nextInt(teacherIds.length)]);
+                        }
+                        var course = new Course(null, subject, year, true, teacher);
+                        entityManager.persist(course);
+                        var enrolledAt = LocalDateTime.of(FIRST_YEAR_ENROLLMENT, 9, 1, 9, 0);
+                        for (var studentId : roster(random, yearStudents)) {
+                            enrolledAt = enrolledAt.plusSeconds(1);
+                            rows.add(new Object[]{course.getId(), studentId, Timestamp.valueOf(enrolledAt), null});
+                        }
+                    }
+                    entityManager.flush();
+                    var changeSeq = changeSequence.reserve(rows.size());
+                    for (var row : rows) {
+                        row[3] = changeSeq++;
+                    }
+                    jdbcTemplate.batchUpdate("insert into enrollment (course_id, student_id, enrolled_at, change_seq) values (?, ?, ?, ?)", rows);
+                });
+                enrollments += rows.size();
+            }
+        }
+        return enrollments;
+    }
+
+    /**
+     * Picks the students of a course, without picking any student twice.
+     * Uses Floyd's algorithm, so only the picked students are kept in memory whatever the size of the year.
+     * @return the ids of the picked students
+     */
+    private List<Long> roster(Random random, long[] yearStudents) {
+        if (averageRosterSize <= 0 || yearStudents.length == 0) {
+            return List.of();
+        }
+        var size = Math.min(averageRosterSize / 2 + random.nextInt(averageRosterSize + 1), yearStudents.length);
+        var picked = new HashSet<Integer>();
+        var roster = new ArrayList<Long>(size);
+        for (int j = yearStudents.length - size; j < yearStudents.length; j++) {
+            var index = random.nextInt(j + 1);
+            if (!picked.add(index)) {
+                index = j;
+                picked.add(index);
+            }
+            roster.add(yearStudents[index]);
+        }
+        return roster;
+    }
+
+    /**
+     * Runs part of the generation in its own transaction, without putting the new entities in the second-level cache.
+     * The persistence context is cleared afterwards, so it doesn't grow with the amount of data.
+     */
+    private void inChunk(Runnable chunk) {
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+            try {
+                chunk.run();
+            } finally {
+                entityManager.clear();
+            }
+        });
+    }
+
+    private int schoolYearOfStudent(int index) {
+        return 1 + (int) ((long) index * SCHOOL_YEARS / students);
+    }
+
+    private long[] studentIdsOfYear(long[] studentIds, int schoolYear) {
+        var from = (int) (((long) (schoolYear - 1) * students + SCHOOL_YEARS - 1) / SCHOOL_YEARS);
+        var to = (int) (((long) schoolYear * students + SCHOOL_YEARS - 1) / SCHOOL_YEARS);
+        var ids = new long[to - from];
+        System.arraycopy(studentIds, from, ids, 0, ids.length);
+        return ids;
+    }
+
+    private House house(Random random, List<String> houseNames) {
+        return entityManager.getReference(House.class, houseNames.get(random.nextInt(houseNames.size())));
+    }
+
+    private static String middleName(Random random) {
+        return random.nextInt(3) == 0 ? pick(random, MIDDLE_NAMES) : null;
+    }
+
+    private static <T> T pick(Random random, T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
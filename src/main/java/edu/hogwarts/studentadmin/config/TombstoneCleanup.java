@@ -0,0 +1,83 @@
+package edu.hogwarts.studentadmin.config;
+
+import edu.hogwarts.studentadmin.repository.TombstoneRepository;
+import edu.hogwarts.studentadmin.service.ChangeService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class to delete the tombstones that are older than their retention, so the tombstone table doesn't grow forever.
+ * Runs once the application has started, and then every interval on a background thread.
+ * Clients that last synced before the retention get 410 gone from GET /changes, so they never miss a deleted row.
+ * The tombstones are deleted by the repository instead of a service, so the cleanup doesn't count as a change of the school data.
+ */
+@Component
+public class TombstoneCleanup {
+    private static final Logger logger = LoggerFactory.getLogger(TombstoneCleanup.class);
+
+    private final TombstoneRepository tombstoneRepository;
+    private final ChangeService changeService;
+    private final Duration interval;
+    private final ScheduledExecutorService executor;
+
+    /**
+     * TombstoneCleanup constructor, used to inject the tombstone repository, the change service and the interval
+     * @param tombstoneRepository the repository the tombstones are deleted from
+     * @param changeService the change service, which knows the retention of the tombstones
+     * @param interval the time between two cleanups
+     */
+    public TombstoneCleanup(TombstoneRepository tombstoneRepository, ChangeService changeService,
+                            @Value("${studentadmin.changes.tombstone-cleanup-interval:1h}") Duration interval) {
+        this.tombstoneRepository = tombstoneRepository;
+        this.changeService = changeService;
+        this.interval = interval;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "tombstone-cleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Schedules the cleanup once the application has started and the data has been loaded.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        executor.scheduleWithFixedDelay(this::runSafely, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Deletes the tombstones that are older than their retention.
+     * @return the number of deleted tombstones
+     */
+    public int run() {
+        var deleted = tombstoneRepository.deleteUpTo(changeService.getRetentionHorizon());
+        if (deleted > 0) {
+            logger.info("Deleted {} tombstones older than their retention", deleted);
+        }
+        return deleted;
+    }
+
+    private void runSafely() {
+        try {
+            run();
+        } catch (RuntimeException e) {
+            logger.error("Tombstones could not be cleaned up", e);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package edu.hogwarts.studentadmin.controller;
+
+import edu.hogwarts.studentadmin.config.SqlProfiler;
+import edu.hogwarts.studentadmin.dto.CacheRegionStatisticsDTO;
+import edu.hogwarts.studentadmin.dto.SlowQueryDTO;
+import edu.hogwarts.studentadmin.service.CacheStatisticsService;
+import edu.hogwarts.studentadmin.service.RolloverService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * REST controller for administration and diagnostics.
+ * Handles HTTP requests for the /admin endpoint.
+ */
+@RestController
+@RequestMapping("/admin")
+@CrossOrigin
+public class AdminController {
+    private final CacheStatisticsService cacheStatisticsService;
+    private final SqlProfiler sqlProfiler;
+    private final RolloverService rolloverService;
+
+    public AdminController(CacheStatisticsService cacheStatisticsService, SqlProfiler sqlProfiler, RolloverService rolloverService) {
+        this.cacheStatisticsService = cacheStatisticsService;
+        this.sqlProfiler = sqlProfiler;
+        this.rolloverService = rolloverService;
+    }
+
+    /**
+     * Handle HTTP GET requests for the /cache endpoint.
+     * Returns the hit, miss, put, eviction and removal counts of every second-level cache region in response body.
+     * @return An HTTP response with a list of region statistics or 204 no content if there are none.
+     */
+    @GetMapping("/cache")
+    public ResponseEntity<List<CacheRegionStatisticsDTO>> getCacheStatistics() {
+        var statistics = cacheStatisticsService.getAll();
+        if (statistics.isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(statistics);
+    }
+
+    /**
+     * Handle HTTP GET requests for the /slow-queries endpoint.
+     * Returns the most recent SQL statements recorded by the SQL profiler in response body, newest first.
+     * These are the statements slower than the threshold, and a sample of the faster ones.
+     * @return An HTTP response with a list of statements or 204 no content if there are none.
+     */
+    @GetMapping("/slow-queries")
+    public ResponseEntity<List<SlowQueryDTO>> getSlowQueries() {
+        var queries = sqlProfiler.getRecent();
+        if (queries.isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(queries);
+    }
+
+    /**
+     * Handle HTTP POST requests for the /rollover endpoint.
+     * Rolls the school over to the next academic year: students move up one school year, students in the last school year graduate,
+     * and the current courses are finished. Returns the number of changed students and courses in response body.
+     * Each year can only be rolled over once, so repeating the request doesn't promote the students again.
+     * @param year The year that ends, set as the graduation year of the students who graduate
+     * @param copyCourses Whether to copy the current courses as new current courses without students, false by default
+     * @param dryRun Whether to only count what would be changed, false by default
+     * @param afterId The ID of the last student rolled over by a rollover that failed, to resume it, as logged by the failed rollover
+     * @return An HTTP response with the rollover report, or a 409 status code if the year or a later year has already been rolled over,
+     * or if afterId is given and the last rollover is not a failed rollover of the year
+     */
+    @PostMapping("/rollover")
+    public ResponseEntity<Object> rollover(@RequestParam("year") int year,
+                                           @RequestParam(value = "copyCourses", defaultValue = "false") boolean copyCourses,
+                                           @RequestParam(value = "dryRun", defaultValue = "false") boolean dryRun,
+                                           @RequestParam(value = "afterId", required = false) Long afterId) {
+        var report = rolloverService.rollover(year, copyCourses, dryRun, afterId);
+        if (report == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(afterId == null
+                    ? "Already rolled over. The year or a later year has already been rolled over."
+                    : "Nothing to resume. The last rollover is not a failed rollover of the year.");
+        }
+        return ResponseEntity.ok(report);
+    }
+}
@@ -0,0 +1,59 @@
+package edu.hogwarts.studentadmin.controller;
+
+import edu.hogwarts.studentadmin.service.ChangeSequence;
+import edu.hogwarts.studentadmin.service.ChangeService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+/**
+ * REST controller for syncing the changes of the school.
+ * Handles HTTP requests for the /changes endpoint.
+ */
+@RestController
+@RequestMapping("/changes")
+@CrossOrigin
+public class ChangeController {
+    private static final int DEFAULT_LIMIT = 500;
+    private static final int MAX_LIMIT = 5000;
+
+    private final ChangeService changeService;
+
+    public ChangeController(ChangeService changeService) {
+        this.changeService = changeService;
+    }
+
+    /**
+     * Handle HTTP GET requests for the /changes endpoint.
+     * Returns the students, teachers, courses and enrollments that were created or updated since the given token,
+     * and the ones that were deleted, with the token to pass as since by the next request.
+     * Without a token, everything is returned as changed, so a client can start with a full sync and continue with the tokens.
+     * A token older than the retention of the deleted rows is gone, and the client must start over with a full sync.
+     * @param since The next token of the previous response, or an ISO-8601 timestamp such as 2024-01-31T12:00:00Z
+     * @param limit The maximum number of changes of each kind, defaults to 500 and is capped at 5000
+     * @return An HTTP response with the changes, or 400 bad request if the token or the limit is invalid, or 410 gone if the token is too old
+     */
+    @GetMapping
+    public ResponseEntity<Object> getChanges(@RequestParam(value = "since", required = false) String since,
+                                             @RequestParam(value = "limit", required = false) Integer limit) {
+        if (limit != null && limit < 1) {
+            return ResponseEntity.badRequest().body("Invalid limit.");
+        }
+        var after = -1L;
+        if (since != null) {
+            try {
+                after = since.chars().allMatch(Character::isDigit) ? Long.parseLong(since) : ChangeSequence.fromInstant(Instant.parse(since));
+            } catch (NumberFormatException | DateTimeParseException | ArithmeticException e) {
+                return ResponseEntity.badRequest().body("Invalid since. Must be a token from /changes or an ISO-8601 timestamp.");
+            }
+        }
+        var changes = changeService.getChanges(after, limit == null ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT));
+        if (changes == null) {
+            return ResponseEntity.status(HttpStatus.GONE).body("Expired since. The deleted rows since then are no longer kept, sync again without since.");
+        }
+        return ResponseEntity.ok(changes);
+    }
+}
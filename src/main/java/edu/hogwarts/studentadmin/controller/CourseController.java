@@ -1,19 +1,34 @@
 package edu.hogwarts.studentadmin.controller;
 
+import edu.hogwarts.studentadmin.config.MetricsConfig;
 import edu.hogwarts.studentadmin.dto.CourseDTO;
 import edu.hogwarts.studentadmin.dto.StudentDTO;
 import edu.hogwarts.studentadmin.dto.TeacherDTO;
+import edu.hogwarts.studentadmin.service.ChangeCounters;
+import edu.hogwarts.studentadmin.service.CourseResponseCache;
 import edu.hogwarts.studentadmin.service.CourseService;
+import edu.hogwarts.studentadmin.service.EnrollmentValidator;
+import edu.hogwarts.studentadmin.service.SchoolCollection;
+import edu.hogwarts.studentadmin.service.SchoolReadModel;
+import edu.hogwarts.studentadmin.service.SchoolSnapshot;
 import edu.hogwarts.studentadmin.service.StudentService;
 import edu.hogwarts.studentadmin.service.TeacherService;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * This class is a REST controller for courses.
  * Handles HTTP requests for the /courses endpoint.
+ * GET requests are answered from the snapshot of the read model when it is enabled and fresh enough.
+ * Otherwise a single course, its teacher and its students are answered with the JSON cached by CourseResponseCache.
+ * Responses from the snapshot are not cached, since the snapshot may be stale and the cache is only invalidated by changes.
+ * GET responses have the change counter of the courses as their strong ETag, so conditional GETs with a matching If-None-Match
+ * are answered with 304 Not Modified without reading the database, the snapshot or the cache.
  */
 @RestController
 @RequestMapping("/courses")
@@ -23,27 +38,104 @@ public class CourseController {
     private final CourseService courseService;
     private final TeacherService teacherService;
     private final StudentService studentService;
+    private final EnrollmentValidator enrollmentValidator;
+    private final SchoolReadModel readModel;
+    private final CourseResponseCache courseResponseCache;
+    private final ChangeCounters changeCounters;
 
     /**
-     * Create a new CourseController. Uses dependency injection to set the CourseService, TeacherService, and StudentService.
+     * Create a new CourseController. Uses dependency injection to set the CourseService, TeacherService, StudentService, EnrollmentValidator, SchoolReadModel,
+     * CourseResponseCache, and ChangeCounters.
      * @param courseService The service for Course entities.
      * @param teacherService The service for Teacher entities.
      * @param studentService The service for Student entities.
+     * @param enrollmentValidator The validator for the students enrolled in a course.
+     * @param readModel The in-memory read model of the school.
+     * @param courseResponseCache The cache of the JSON of single courses.
+     * @param changeCounters The change counters, used as the ETags of the GET responses.
      */
-    public CourseController(CourseService courseService, TeacherService teacherService, StudentService studentService) {
+    public CourseController(CourseService courseService, TeacherService teacherService, StudentService studentService, EnrollmentValidator enrollmentValidator,
+                            SchoolReadModel readModel, CourseResponseCache courseResponseCache, ChangeCounters changeCounters) {
         this.courseService = courseService;
         this.teacherService = teacherService;
         this.studentService = studentService;
+        this.enrollmentValidator = enrollmentValidator;
+        this.readModel = readModel;
+        this.courseResponseCache = courseResponseCache;
+        this.changeCounters = changeCounters;
+    }
+
+    /**
+     * Gets the ETag of the GET responses, from the snapshot if they are answered from it, or else from the current change counter.
+     * @param snapshot The snapshot the response is answered from, or null if it is answered from the database or the cache
+     * @return The ETag of the courses
+     */
+    private String getETag(SchoolSnapshot snapshot) {
+        return snapshot != null
+                ? changeCounters.getETag(SchoolCollection.COURSES, snapshot.getChangeCounts())
+                : changeCounters.getETag(SchoolCollection.COURSES);
+    }
+
+    /**
+     * Answers a GET request for a course, or a part of it, from the snapshot of the read model if it can be used, or else from the cache.
+     * @param id The id of the course
+     * @param part Gets the body from the course, null for 204 no content
+     * @param cachedPart Gets the cached JSON of the body, null for 204 no content
+     * @param request The request, to check its If-None-Match header
+     * @return An HTTP response with the body, a 404 if the course doesn't exist, a 204 if the body is empty, or null if a 304 has been sent
+     */
+    private ResponseEntity<Object> getCoursePart(Long id, Function<CourseDTO, Object> part, Function<CourseResponseCache.CourseResponses, byte[]> cachedPart,
+                                                 WebRequest request) {
+        var snapshot = readModel.current();
+        if (request.checkNotModified(getETag(snapshot))) {
+            return null;
+        }
+        if (snapshot != null) {
+            var course = snapshot.getCourse(id);
+            if (course == null) {
+                return ResponseEntity.notFound().build();
+            }
+            var body = part.apply(course);
+            return body == null ? ResponseEntity.noContent().build() : ResponseEntity.ok(body);
+        }
+        var responses = courseResponseCache.get(id, () -> courseService.get(id));
+        if (responses == null) {
+            return ResponseEntity.notFound().build();
+        }
+        var body = cachedPart.apply(responses);
+        if (body == null) {
+            return ResponseEntity.noContent().build();
+        }
+        if (body == responses.course()) {
+            MetricsConfig.recordRosterSize(responses.rosterSize());
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 
     /**
      * Handle HTTP GET requests for the / endpoint.
-     * Returns list of all courses in response body
-     * @return An HTTP response containing a list of all courses or a 204 status code if there are no courses
+     * Returns list of all courses in response body.
+     * The summary view leaves out the rosters and only includes the teacher's name and the number of students.
+     * @param view The view of the courses, either "full" (default) or "summary"
+     * @param request The request, to check its If-None-Match header
+     * @return An HTTP response containing a list of all courses, a 204 status code if there are no courses, a 304 status code if the ETag matches,
+     * or a 400 status code if the view is invalid
      */
     @GetMapping
-    public ResponseEntity<List<CourseDTO>> getAll() {
-        var courses = courseService.getAll();
+    public ResponseEntity<Object> getAll(@RequestParam(value = "view", defaultValue = "full") String view, WebRequest request) {
+        if (!view.equals("summary") && !view.equals("full")) {
+            return ResponseEntity.badRequest().body("Invalid view. Must be either full or summary.");
+        }
+        var snapshot = readModel.current();
+        if (request.checkNotModified(getETag(snapshot))) {
+            return null;
+        }
+        List<?> courses;
+        if (view.equals("summary")) {
+            courses = snapshot != null ? snapshot.getCourseSummaries() : courseService.getAllSummaries();
+        } else {
+            courses = snapshot != null ? snapshot.getCourses() : courseService.getAll();
+        }
         if (courses.isEmpty()) {
             return ResponseEntity.noContent().build();
         }
@@ -54,60 +146,45 @@ public class CourseController {
      * Handle HTTP GET requests for the /{id} endpoint.
      * Returns course with the given id in response body
      * @param id The id of the course given as a path variable
-     * @return An HTTP response containing the course with the given id, or a 404 status code if it doesn't exist
+     * @param request The request, to check its If-None-Match header
+     * @return An HTTP response containing the course with the given id, a 304 status code if the ETag matches, or a 404 status code if it doesn't exist
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Object> get(@PathVariable("id") Long id) {
-        var course = courseService.get(id);
-        if (course == null) {
-            return ResponseEntity.notFound().build();
-        }
-        return ResponseEntity.ok(course);
+    public ResponseEntity<Object> get(@PathVariable("id") Long id, WebRequest request) {
+        return getCoursePart(id, course -> course, CourseResponseCache.CourseResponses::course, request);
     }
 
     /**
      * Handle HTTP GET requests for the /{id}/teacher endpoint.
      * Returns teacher of the course with the given id in response body
      * @param id The id of the course given as a path variable
-     * @return An HTTP response containing the teacher of the course with the given id, a 404 if the course doesn't exist, or a 204 status code if it doesn't have a teacher
+     * @param request The request, to check its If-None-Match header
+     * @return An HTTP response containing the teacher of the course with the given id, a 404 if the course doesn't exist, a 304 if the ETag matches,
+     * or a 204 status code if it doesn't have a teacher
      */
     @GetMapping("/{id}/teacher")
-    public ResponseEntity<TeacherDTO> getTeacher(@PathVariable("id") Long id) {
-        var course = courseService.get(id);
-        if (course == null) {
-            return ResponseEntity.notFound().build();
-        }
-        var teacher = course.getTeacher();
-        if (teacher == null) {
-            return ResponseEntity.noContent().build();
-        }
-        return ResponseEntity.ok(teacher);
+    public ResponseEntity<Object> getTeacher(@PathVariable("id") Long id, WebRequest request) {
+        return getCoursePart(id, CourseDTO::getTeacher, CourseResponseCache.CourseResponses::teacher, request);
     }
 
     /**
      * Handle HTTP GET requests for the /{id}/students endpoint.
      * Returns list of students of the course with the given id in response body
      * @param id The id of the course given as a path variable
-     * @return An HTTP response containing the students of the course with the given id, a 404 if the course doesn't exist, or a 204 status code if it doesn't have students
+     * @param request The request, to check its If-None-Match header
+     * @return An HTTP response containing the students of the course with the given id, a 404 if the course doesn't exist, a 304 if the ETag matches,
+     * or a 204 status code if it doesn't have students
      */
     @GetMapping("/{id}/students")
-    public ResponseEntity<List<StudentDTO>> getStudents(@PathVariable("id") Long id) {
-        var course = courseService.get(id);
-        if (course == null) {
-            return ResponseEntity.notFound().build();
-        }
-        var students = course.getStudents();
-        if (students.isEmpty()) {
-            return ResponseEntity.noContent().build();
-        }
-        return ResponseEntity.ok(students);
+    public ResponseEntity<Object> getStudents(@PathVariable("id") Long id, WebRequest request) {
+        return getCoursePart(id, course -> course.getStudents().isEmpty() ? null : course.getStudents(), CourseResponseCache.CourseResponses::students, request);
     }
 
     /**
      * Handle HTTP POST requests for the / endpoint.
      * Creates a new course from the request body, and returns it in the response body
      * @param course The course to create, given as a request body
-     * @return An HTTP response containing the created course, or a 400 status code if the course data is invalid
+     * @return An HTTP response containing the created course, or a 400 status code with all violations if the course data is invalid
      */
     @PostMapping
     public ResponseEntity<Object> create(@RequestBody CourseDTO course) {
@@ -117,14 +194,9 @@ public class CourseController {
             }
         }
         if (course.getStudents() != null) {
-            var studentsExist = course.getStudents().stream().allMatch(student -> studentService.get(student.getId()) != null);
-            if (!studentsExist) {
-                return ResponseEntity.badRequest().body("Invalid student id(s).");
-            }
-            for (var student : course.getStudents()) {
-                if (studentService.get(student.getId()).getSchoolYear() != course.getSchoolYear()) {
-                    return ResponseEntity.badRequest().body("Invalid school year for student(s).");
-                }
+            var violations = enrollmentValidator.validateIds(course.getSchoolYear(), course.getStudents());
+            if (!violations.isEmpty()) {
+                return ResponseEntity.badRequest().body(violations);
             }
         }
         return ResponseEntity.ok(courseService.create(course));
@@ -135,7 +207,7 @@ public class CourseController {
      * Updates a course by its id with the request body, and returns it in the response body
      * @param course The new course data, given as a request body
      * @param id The id of the course to update, given as a path variable
-     * @return An HTTP response containing the updated course, or a 404 status code if the course doesn't exist, or a 400 status code if the course data is invalid
+     * @return An HTTP response containing the updated course, or a 404 status code if the course doesn't exist, or a 400 status code with all violations if the course data is invalid
      */
     @PutMapping("/{id}")
     public ResponseEntity<Object> update(@RequestBody CourseDTO course, @PathVariable("id") Long id) {
@@ -145,14 +217,13 @@ public class CourseController {
             }
         }
         if (course.getStudents() != null) {
-            var studentsExist = course.getStudents().stream().allMatch(student -> studentService.get(student.getId()) != null);
-            if (!studentsExist) {
-                return ResponseEntity.badRequest().body("Invalid student id(s).");
+            if (!courseService.exists(id)) {
+                return ResponseEntity.notFound().build();
             }
-            for (var student : course.getStudents()) {
-                if (studentService.get(student.getName()).getSchoolYear() != courseService.get(id).getSchoolYear()) {
-                    return ResponseEntity.badRequest().body("Invalid school year for student(s).");
-                }
+            var schoolYear = course.getSchoolYear() != null ? course.getSchoolYear() : courseService.getSchoolYear(id);
+            var violations = enrollmentValidator.validateIds(schoolYear, course.getStudents());
+            if (!violations.isEmpty()) {
+                return ResponseEntity.badRequest().body(violations);
             }
         }
         var updatedCourse = courseService.update(id, course);
@@ -167,7 +238,7 @@ public class CourseController {
      * Patches a course by its id with the request body, and returns it in the response body
      * @param course The new course data, given as a request body
      * @param id The id of the course to update, given as a path variable
-     * @return An HTTP response containing the updated course, or a 404 status code if the course doesn't exist, or a 400 status code if the course data is invalid
+     * @return An HTTP response containing the updated course, or a 404 status code if the course doesn't exist, or a 400 status code with all violations if the course data is invalid
      */
     @PatchMapping("/{id}")
     public ResponseEntity<Object> patch(@RequestBody CourseDTO course, @PathVariable("id") Long id) {
@@ -177,14 +248,13 @@ public class CourseController {
             }
         }
         if (course.getStudents() != null) {
-            var studentsExist = course.getStudents().stream().allMatch(student -> studentService.get(student.getId()) != null);
-            if (!studentsExist) {
-                return ResponseEntity.badRequest().body("Invalid student id(s).");
+            if (!courseService.exists(id)) {
+                return ResponseEntity.notFound().build();
             }
-            for (var student : course.getStudents()) {
-                if (studentService.get(student.getName()).getSchoolYear() != courseService.get(id).getSchoolYear()) {
-                    return ResponseEntity.badRequest().body("Invalid school year for student(s).");
-                }
+            var schoolYear = course.getSchoolYear() != null ? course.getSchoolYear() : courseService.getSchoolYear(id);
+            var violations = enrollmentValidator.validateIds(schoolYear, course.getStudents());
+            if (!violations.isEmpty()) {
+                return ResponseEntity.badRequest().body(violations);
             }
         }
         var updatedCourse = courseService.patch(id, course);
@@ -212,42 +282,41 @@ public class CourseController {
 
     /**
      * Handle HTTP POST requests for the /{id}/students endpoint.
-     * Adds students to a course by its id with the request body, and returns the updated course in the response body
+     * Adds students to a course by its id with the request body, and returns the updated course in the response body.
+     * The students are enrolled without loading the roster, the course is only loaded afterwards for the response.
      * @param id The id of the course to update, given as a path variable
      * @param students The students to add, given as a request body, must contain at least either student ids or names
-     * @return An HTTP response containing the updated course, or a 404 status code if the course doesn't exist, or a 400 status code if the student data is invalid
+     * @return An HTTP response containing the updated course, or a 404 status code if the course doesn't exist, or a 400 status code with all violations if the student data is invalid
      */
     @PostMapping("/{id}/students")
     public ResponseEntity<Object> addStudents(@PathVariable("id") Long id, @RequestBody List<StudentDTO> students) {
-        CourseDTO updatedCourse;
+        Integer enrolled;
         var useIds = students.stream().allMatch(student -> student.getId() != null);
         var useNames = students.stream().allMatch(student -> student.getName() != null);
         if (!useIds && !useNames) {
             return ResponseEntity.badRequest().body("Invalid request. Must be either student ids or names.");
         }
+        if (!courseService.exists(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        var schoolYear = courseService.getSchoolYear(id);
         if (useIds) {
-            var studentsExist = students.stream().allMatch(student -> studentService.get(student.getId()) != null);
-            if (!studentsExist) {
-                return ResponseEntity.badRequest().body("Invalid student id(s).");
-            }
-            for (var student : students) {
-                if (studentService.get(student.getId()).getSchoolYear() != courseService.get(id).getSchoolYear()) {
-                    return ResponseEntity.badRequest().body("Invalid school year.");
-                }
+            var violations = enrollmentValidator.validateIds(schoolYear, students);
+            if (!violations.isEmpty()) {
+                return ResponseEntity.badRequest().body(violations);
             }
-            updatedCourse = courseService.addStudentsById(id, students);
+            enrolled = courseService.addStudentsById(id, students);
         } else {
-            var studentsExist = students.stream().allMatch(student -> studentService.get(student.getName()) != null);
-            if (!studentsExist) {
-                return ResponseEntity.badRequest().body("Invalid student name(s).");
-            }
-            for (var student : students) {
-                if (studentService.get(student.getName()).getSchoolYear() != courseService.get(id).getSchoolYear()) {
-                    return ResponseEntity.badRequest().body("Invalid school year.");
-                }
+            var violations = enrollmentValidator.validateNames(schoolYear, students);
+            if (!violations.isEmpty()) {
+                return ResponseEntity.badRequest().body(violations);
             }
-            updatedCourse = courseService.addStudentsByName(id, students);
+            enrolled = courseService.addStudentsByName(id, students);
         }
+        if (enrolled == null) {
+            return ResponseEntity.notFound().build();
+        }
+        var updatedCourse = courseService.get(id);
         if (updatedCourse == null) {
             return ResponseEntity.notFound().build();
         }
@@ -278,13 +347,10 @@ public class CourseController {
      */
     @DeleteMapping("/{id}/teacher")
     public ResponseEntity<Object> removeTeacher(@PathVariable("id") Long id) {
-        var course = courseService.get(id);
-        if (course == null) {
+        if (!courseService.exists(id)) {
             return ResponseEntity.notFound().build();
         }
-        var teacher = course.getTeacher();
-        courseService.removeTeacher(id);
-        return ResponseEntity.ok(teacher);
+        return ResponseEntity.ok(courseService.removeTeacher(id));
     }
 
     /**
@@ -296,8 +362,7 @@ public class CourseController {
      */
     @DeleteMapping("/{courseId}/students/{studentId}")
     public ResponseEntity<Object> removeStudent(@PathVariable("courseId") Long courseId, @PathVariable("studentId") Long studentId) {
-        var course = courseService.get(courseId);
-        if (course == null) {
+        if (!courseService.exists(courseId)) {
             return ResponseEntity.notFound().build();
         }
         var student = studentService.get(studentId);
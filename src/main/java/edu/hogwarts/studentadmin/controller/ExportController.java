@@ -0,0 +1,79 @@
+package edu.hogwarts.studentadmin.controller;
+
+import edu.hogwarts.studentadmin.service.ExportService;
+import edu.hogwarts.studentadmin.service.FileFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiConsumer;
+
+/**
+ * REST controller for exports.
+ * Handles HTTP requests for the /export endpoint.
+ * The exports are streamed to the response while they are read from the database, so they can be of any size.
+ * Only GET methods are implemented.
+ */
+@RestController
+@RequestMapping("/export")
+@CrossOrigin
+public class ExportController {
+    private final ExportService exportService;
+
+    public ExportController(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    /**
+     * Handle HTTP GET requests for the /students endpoint.
+     * Streams all students as NDJSON or CSV in the response body.
+     * @param format The format of the export, either "ndjson" (default) or "csv".
+     * @return An HTTP response with the students as an attachment, or 400 if the format is invalid.
+     */
+    @GetMapping("/students")
+    public ResponseEntity<StreamingResponseBody> exportStudents(@RequestParam(value = "format", defaultValue = "ndjson") String format) {
+        return export("students", format, exportService::exportStudents);
+    }
+
+    /**
+     * Handle HTTP GET requests for the /teachers endpoint.
+     * Streams all teachers as NDJSON or CSV in the response body.
+     * @param format The format of the export, either "ndjson" (default) or "csv".
+     * @return An HTTP response with the teachers as an attachment, or 400 if the format is invalid.
+     */
+    @GetMapping("/teachers")
+    public ResponseEntity<StreamingResponseBody> exportTeachers(@RequestParam(value = "format", defaultValue = "ndjson") String format) {
+        return export("teachers", format, exportService::exportTeachers);
+    }
+
+    /**
+     * Handle HTTP GET requests for the /enrollments endpoint.
+     * Streams the course and student ids of all enrollments as NDJSON or CSV in the response body.
+     * @param format The format of the export, either "ndjson" (default) or "csv".
+     * @return An HTTP response with the enrollments as an attachment, or 400 if the format is invalid.
+     */
+    @GetMapping("/enrollments")
+    public ResponseEntity<StreamingResponseBody> exportEnrollments(@RequestParam(value = "format", defaultValue = "ndjson") String format) {
+        return export("enrollments", format, exportService::exportEnrollments);
+    }
+
+    private ResponseEntity<StreamingResponseBody> export(String name, String formatName, BiConsumer<OutputStream, FileFormat> exporter) {
+        var format = FileFormat.fromName(formatName);
+        if (format == null) {
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body(output -> output.write("Invalid format. Must be either ndjson or csv.".getBytes(StandardCharsets.UTF_8)));
+        }
+        StreamingResponseBody body = output -> exporter.accept(output, format);
+        var disposition = ContentDisposition.attachment().filename(name + "." + format.getExtension()).build();
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString())
+                .body(body);
+    }
+}
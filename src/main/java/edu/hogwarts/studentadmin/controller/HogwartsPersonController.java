@@ -2,57 +2,159 @@ package edu.hogwarts.studentadmin.controller;
 
 import edu.hogwarts.studentadmin.dto.HogwartsPersonDTO;
 import edu.hogwarts.studentadmin.model.HogwartsPerson;
+import edu.hogwarts.studentadmin.service.ChangeCounters;
 import edu.hogwarts.studentadmin.service.HogwartsPersonService;
+import edu.hogwarts.studentadmin.service.SchoolCollection;
+import edu.hogwarts.studentadmin.service.SchoolReadModel;
+import edu.hogwarts.studentadmin.service.SchoolSnapshot;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.LocalDate;
 import java.util.List;
 
 /**
  * Controller superclass for HogwartsPerson entities.
+ * GET requests are answered from the snapshot of the read model when it is enabled and fresh enough, except pages sorted by name.
+ * GET responses have strong ETags, and conditional GETs with a matching If-None-Match are answered with 304 Not Modified.
+ * The ETag of a list or page is the change counter of the students or teachers, so it is checked without reading the database.
+ * The ETag of a single person is their version, which is looked up by ID before the person is loaded.
  * @param <M> The type of HogwartsPerson (Student | Teacher).
  * @param <D> The DTO for the HogwartsPerson (StudentDTO | TeacherDTO).
  * @param <S> The service for the HogwartsPerson (StudentService | TeacherService).
  */
 public abstract class HogwartsPersonController<M extends HogwartsPerson, D extends HogwartsPersonDTO, S extends HogwartsPersonService<M, D>> {
+    private static final int DEFAULT_PAGE_LIMIT = 50;
+    private static final int MAX_PAGE_LIMIT = 500;
+
     protected final S service;
+    protected final SchoolReadModel readModel;
+    protected final ChangeCounters changeCounters;
 
     /**
-     * Create a new HogwartsPersonController. Uses dependency injection to set the service.
+     * Create a new HogwartsPersonController. Uses dependency injection to set the service, the read model and the change counters.
      * @param service The service for HogwartsPerson entities.
+     * @param readModel The in-memory read model of the school.
+     * @param changeCounters The change counters, used as the ETags of the lists and pages.
      */
-    public HogwartsPersonController(S service) {
+    public HogwartsPersonController(S service, SchoolReadModel readModel, ChangeCounters changeCounters) {
         this.service = service;
+        this.readModel = readModel;
+        this.changeCounters = changeCounters;
     }
 
+    /**
+     * Must be implemented by the subclasses to get the collection of the people of the given type, for the ETags of the lists and pages.
+     * @return The collection of the students or teachers.
+     */
+    protected abstract SchoolCollection collection();
+
+    /**
+     * Must be implemented by the subclasses to get the people of the given type from a snapshot of the read model.
+     * @param snapshot The snapshot of the read model.
+     * @return The students or teachers of the snapshot.
+     */
+    protected abstract SchoolSnapshot.People<D> people(SchoolSnapshot snapshot);
+
     /**
      * Handle HTTP GET requests for the / endpoint.
-     * Gets all HogwartsPerson entities.
-     *
-     * @return An HTTP response with a list of HogwartsPerson entities or 204 no content if there are none.
+     * Gets all HogwartsPerson entities, or a single page of them if any of the pagination parameters are given.
+     * Pages are keyset-paginated: pass the nextCursor of a page as the after parameter to get the following page.
+     * @param after The ID of the last person on the previous page, omit for the first page.
+     * @param limit The maximum number of people on the page, defaults to 50 and is capped at 500.
+     * @param sort The sort order, either "id" (default) or "lastName,firstName".
+     * @param request The request, to check its If-None-Match header.
+     * @return An HTTP response with a list or page of HogwartsPerson entities, 204 no content if there are none, 304 not modified if the ETag matches,
+     * or 400 if the parameters are invalid.
      */
     @GetMapping
-    public ResponseEntity<List<D>> getAll() {
-        var people = service.getAll();
-        if (people.isEmpty()) {
+    public ResponseEntity<Object> getAll(@RequestParam(value = "after", required = false) Long after,
+                                         @RequestParam(value = "limit", required = false) Integer limit,
+                                         @RequestParam(value = "sort", required = false) String sort,
+                                         WebRequest request) {
+        var snapshot = readModel.current();
+        if (after == null && limit == null && sort == null) {
+            if (request.checkNotModified(getETag(snapshot))) {
+                return null;
+            }
+            List<D> people = snapshot != null ? people(snapshot).getAll() : service.getAll();
+            if (people.isEmpty()) {
+                return ResponseEntity.noContent().build();
+            }
+            return ResponseEntity.ok(people);
+        }
+
+        if (limit != null && limit < 1) {
+            return ResponseEntity.badRequest().body("Invalid limit.");
+        }
+        var sortByName = "lastName,firstName".equals(sort);
+        if (sort != null && !sortByName && !"id".equals(sort)) {
+            return ResponseEntity.badRequest().body("Invalid sort. Must be either id or lastName,firstName.");
+        }
+        var pageLimit = limit == null ? DEFAULT_PAGE_LIMIT : Math.min(limit, MAX_PAGE_LIMIT);
+
+        if (request.checkNotModified(getETag(sortByName ? null : snapshot))) {
+            return null;
+        }
+        var page = snapshot != null && !sortByName
+                ? people(snapshot).getPage(after, pageLimit)
+                : service.getPage(after, pageLimit, sortByName);
+        if (page == null) {
+            return ResponseEntity.badRequest().body("Invalid cursor.");
+        }
+        if (page.getItems().isEmpty()) {
             return ResponseEntity.noContent().build();
         }
-        return ResponseEntity.ok(people);
+        return ResponseEntity.ok(page);
     }
 
     /**
      * Handle HTTP GET requests for the /{id} endpoint.
      * Gets a HogwartsPerson entity by its ID.
+     * A conditional GET looks up the version of the person first, so the person is only loaded if it has changed.
      * @param id The ID of the HogwartsPerson entity.
-     * @return An HTTP response with the HogwartsPerson entity or 404 not found if it does not exist.
+     * @param request The request, to check its If-None-Match header.
+     * @return An HTTP response with the HogwartsPerson entity, 304 not modified if the ETag matches, or 404 not found if it does not exist.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<D> get(@PathVariable("id") Long id) {
-        var person = service.get(id);
+    public ResponseEntity<D> get(@PathVariable("id") Long id, WebRequest request) {
+        var snapshot = readModel.current();
+        if (snapshot == null && request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            var version = service.getVersion(id);
+            if (version == null) {
+                return ResponseEntity.notFound().build();
+            }
+            if (request.checkNotModified(getETag(version))) {
+                return null;
+            }
+        }
+        var person = snapshot != null ? people(snapshot).get(id) : service.get(id);
         if (person == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(person);
+        return ResponseEntity.ok().eTag(getETag(person.getVersion())).body(person);
+    }
+
+    /**
+     * Gets the ETag of the lists and pages, from the snapshot if they are answered from it, or else from the current change counter.
+     * @param snapshot The snapshot the response is answered from, or null if it is answered from the database.
+     * @return The ETag of the lists and pages.
+     */
+    private String getETag(SchoolSnapshot snapshot) {
+        return snapshot != null
+                ? changeCounters.getETag(collection(), snapshot.getChangeCounts())
+                : changeCounters.getETag(collection());
+    }
+
+    /**
+     * Gets the ETag of a single person. The ages of the people change with the date, so it contains the date too.
+     * @param version The version of the person.
+     * @return The ETag of the person.
+     */
+    private static String getETag(long version) {
+        return "\"" + version + "-" + LocalDate.now().toEpochDay() + "\"";
     }
 
     /**
@@ -4,6 +4,7 @@ import edu.hogwarts.studentadmin.model.House;
 import edu.hogwarts.studentadmin.service.HouseService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -11,6 +12,8 @@ import java.util.List;
  * REST controller for the House entity.
  * Handles HTTP requests for the /houses endpoint.
  * Only GET methods are implemented.
+ * The houses are kept in memory by HouseService, and their ETags are made from their versions,
+ * so conditional GETs are answered with 304 Not Modified without reading the database.
  */
 @RestController
 @RequestMapping("/houses")
@@ -25,11 +28,18 @@ public class HouseController {
     /**
      * Handle HTTP GET requests for the / endpoint.
      * Returns a list of all houses in response body.
-     * @return An HTTP response with a list of houses or 204 no content if there are none.
+     * The ETag is made from the number of houses, the sum of their versions, which only grows, and the hash of their names.
+     * @param request The request, to check its If-None-Match header.
+     * @return An HTTP response with a list of houses, 304 not modified if the ETag matches, or 204 no content if there are none.
      */
     @GetMapping
-    public ResponseEntity<List<House>> getAll() {
+    public ResponseEntity<List<House>> getAll(WebRequest request) {
         var houses = houseService.getAll();
+        var versions = houses.stream().mapToLong(House::getVersion).sum();
+        var names = houses.stream().map(House::getName).toList();
+        if (request.checkNotModified("\"" + houses.size() + "-" + versions + "-" + Integer.toHexString(names.hashCode()) + "\"")) {
+            return null;
+        }
         if (houses.isEmpty()) {
             return ResponseEntity.noContent().build();
         }
@@ -40,7 +50,7 @@ public class HouseController {
      * Handle HTTP GET requests for the /{name} endpoint.
      * Returns the house with the given name in response body.
      * @param name The name of the house.
-     * @return The house with the given name, or 404 if not found.
+     * @return The house with the given name with its version as the ETag, or 404 if not found.
      */
     @GetMapping("/{name}")
     public ResponseEntity<House> get(@PathVariable String name) {
@@ -48,6 +58,6 @@ public class HouseController {
         if (house == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(house);
+        return ResponseEntity.ok().eTag("\"" + house.getVersion() + "\"").body(house);
     }
 }
@@ -0,0 +1,30 @@
+package edu.hogwarts.studentadmin.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Handles the writes that lost a race with another write of the same row, for every controller.
+ * Students, teachers, courses and houses have a version column, so Hibernate only updates a row if nobody else has updated it
+ * since it was loaded. The write that comes second fails, and is answered with 409 Conflict, so the client can load the row again and retry.
+ */
+@RestControllerAdvice
+public class OptimisticLockingHandler {
+    private static final Logger logger = LoggerFactory.getLogger(OptimisticLockingHandler.class);
+
+    /**
+     * Answers a write of a row that was changed by another request since it was loaded with 409 Conflict.
+     * @param e The exception thrown when the transaction of the write was committed
+     * @return An HTTP response with status 409 and a message in the body
+     */
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleConflict(ObjectOptimisticLockingFailureException e) {
+        logger.info("Write conflict on {} {}", e.getPersistentClassName(), e.getIdentifier());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("Conflict. The data was changed by another request, load it again and retry.");
+    }
+}
@@ -1,12 +1,27 @@
 package edu.hogwarts.studentadmin.controller;
 
+import edu.hogwarts.studentadmin.dto.ImportReportDTO;
 import edu.hogwarts.studentadmin.dto.StudentDTO;
 import edu.hogwarts.studentadmin.model.Student;
+import edu.hogwarts.studentadmin.service.ChangeCounters;
+import edu.hogwarts.studentadmin.service.FileFormat;
+import edu.hogwarts.studentadmin.service.SchoolCollection;
+import edu.hogwarts.studentadmin.service.SchoolReadModel;
+import edu.hogwarts.studentadmin.service.SchoolSnapshot;
+import edu.hogwarts.studentadmin.service.StudentImportService;
 import edu.hogwarts.studentadmin.service.StudentService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.io.InputStream;
+
 /**
  * REST controller for Student entities.
  * Handles HTTP requests for the /students endpoint.
@@ -15,11 +30,45 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/students")
 @CrossOrigin
 public class StudentController extends HogwartsPersonController<Student, StudentDTO, StudentService> {
+    private final StudentImportService studentImportService;
+
     /**
-     * Create a new StudentController. Uses dependency injection to set the StudentService.
+     * Create a new StudentController. Uses dependency injection to set the StudentService, StudentImportService, SchoolReadModel and ChangeCounters.
      * @param studentService The service for Student entities.
+     * @param studentImportService The service for bulk imports of students.
+     * @param readModel The in-memory read model of the school.
+     * @param changeCounters The change counters, used as the ETags of the lists and pages.
+     */
+    public StudentController(StudentService studentService, StudentImportService studentImportService, SchoolReadModel readModel,
+                             ChangeCounters changeCounters) {
+        super(studentService, readModel, changeCounters);
+        this.studentImportService = studentImportService;
+    }
+
+    @Override
+    protected SchoolCollection collection() {
+        return SchoolCollection.STUDENTS;
+    }
+
+    @Override
+    protected SchoolSnapshot.People<StudentDTO> people(SchoolSnapshot snapshot) {
+        return snapshot.students();
+    }
+
+    /**
+     * Handle HTTP POST requests for the /import endpoint.
+     * Imports students in bulk from the request body, as NDJSON (application/x-ndjson) or CSV with a header row (text/csv).
+     * The body is streamed, so files of any size can be imported.
+     * @param contentType The content type of the request body.
+     * @param body The request body.
+     * @return An HTTP response with a report of the imported and failed rows.
+     * @throws IOException If the request body can't be read.
      */
-    public StudentController(StudentService studentService) {
-        super(studentService);
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"})
+    public ResponseEntity<ImportReportDTO> importStudents(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) throws IOException {
+        var format = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.APPLICATION_NDJSON)
+                ? FileFormat.NDJSON
+                : FileFormat.CSV;
+        return ResponseEntity.ok(studentImportService.importStudents(body, format));
     }
 }
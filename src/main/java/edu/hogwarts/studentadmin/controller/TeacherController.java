@@ -2,6 +2,10 @@ package edu.hogwarts.studentadmin.controller;
 
 import edu.hogwarts.studentadmin.dto.TeacherDTO;
 import edu.hogwarts.studentadmin.model.Teacher;
+import edu.hogwarts.studentadmin.service.ChangeCounters;
+import edu.hogwarts.studentadmin.service.SchoolCollection;
+import edu.hogwarts.studentadmin.service.SchoolReadModel;
+import edu.hogwarts.studentadmin.service.SchoolSnapshot;
 import edu.hogwarts.studentadmin.service.TeacherService;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -16,11 +20,23 @@ import org.springframework.web.bind.annotation.RestController;
 @CrossOrigin
 public class TeacherController extends HogwartsPersonController<Teacher, TeacherDTO, TeacherService> {
     /**
-     * Create a new TeacherController. Uses dependency injection to set the TeacherService.
+     * Create a new TeacherController. Uses dependency injection to set the TeacherService, SchoolReadModel and ChangeCounters.
      * @param teacherService The service for Teacher entities.
+     * @param readModel The in-memory read model of the school.
+     * @param changeCounters The change counters, used as the ETags of the lists and pages.
      */
-    public TeacherController(TeacherService teacherService) {
-        super(teacherService);
+    public TeacherController(TeacherService teacherService, SchoolReadModel readModel, ChangeCounters changeCounters) {
+        super(teacherService, readModel, changeCounters);
+    }
+
+    @Override
+    protected SchoolCollection collection() {
+        return SchoolCollection.TEACHERS;
+    }
+
+    @Override
+    protected SchoolSnapshot.People<TeacherDTO> people(SchoolSnapshot snapshot) {
+        return snapshot.teachers();
     }
 
 }
@@ -0,0 +1,85 @@
+package edu.hogwarts.studentadmin.dto;
+
+/**
+ * DTO for the statistics of a single second-level cache region.
+ * Evictions are entries dropped because the region was full or expired,
+ * removals are entries invalidated because the data was changed.
+ */
+public class CacheRegionStatisticsDTO {
+    private String region;
+    private long hits;
+    private long misses;
+    private long puts;
+    private long evictions;
+    private long removals;
+    private float hitPercentage;
+
+    public CacheRegionStatisticsDTO() {
+    }
+
+    public CacheRegionStatisticsDTO(String region, long hits, long misses, long puts, long evictions, long removals, float hitPercentage) {
+        this.region = region;
+        this.hits = hits;
+        this.misses = misses;
+        this.puts = puts;
+        this.evictions = evictions;
+        this.removals = removals;
+        this.hitPercentage = hitPercentage;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public void setRegion(String region) {
+        this.region = region;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public void setHits(long hits) {
+        this.hits = hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public void setMisses(long misses) {
+        this.misses = misses;
+    }
+
+    public long getPuts() {
+        return puts;
+    }
+
+    public void setPuts(long puts) {
+        this.puts = puts;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public void setEvictions(long evictions) {
+        this.evictions = evictions;
+    }
+
+    public long getRemovals() {
+        return removals;
+    }
+
+    public void setRemovals(long removals) {
+        this.removals = removals;
+    }
+
+    public float getHitPercentage() {
+        return hitPercentage;
+    }
+
+    public void setHitPercentage(float hitPercentage) {
+        this.hitPercentage = hitPercentage;
+    }
+}
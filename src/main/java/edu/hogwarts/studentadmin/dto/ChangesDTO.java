@@ -0,0 +1,88 @@
+package edu.hogwarts.studentadmin.dto;
+
+import java.util.List;
+
+/**
+ * DTO for the students, teachers, courses and enrollments that changed since a client last synced, and the ones that were deleted.
+ * The next token is passed as since by the next request. If there are more changes, the next request should be made right away.
+ * A deleted student or course stands for its enrollments too, which don't get a deleted entry of their own.
+ */
+public class ChangesDTO {
+    private List<StudentDTO> students;
+    private List<TeacherDTO> teachers;
+    private List<CourseRowDTO> courses;
+    private List<EnrollmentDTO> enrollments;
+    private List<DeletedDTO> deleted;
+    private long next;
+    private boolean more;
+
+    public ChangesDTO() {
+    }
+
+    public ChangesDTO(List<StudentDTO> students, List<TeacherDTO> teachers, List<CourseRowDTO> courses, List<EnrollmentDTO> enrollments,
+                      List<DeletedDTO> deleted, long next, boolean more) {
+        this.students = students;
+        this.teachers = teachers;
+        this.courses = courses;
+        this.enrollments = enrollments;
+        this.deleted = deleted;
+        this.next = next;
+        this.more = more;
+    }
+
+    public List<StudentDTO> getStudents() {
+        return students;
+    }
+
+    public void setStudents(List<StudentDTO> students) {
+        this.students = students;
+    }
+
+    public List<TeacherDTO> getTeachers() {
+        return teachers;
+    }
+
+    public void setTeachers(List<TeacherDTO> teachers) {
+        this.teachers = teachers;
+    }
+
+    public List<CourseRowDTO> getCourses() {
+        return courses;
+    }
+
+    public void setCourses(List<CourseRowDTO> courses) {
+        this.courses = courses;
+    }
+
+    public List<EnrollmentDTO> getEnrollments() {
+        return enrollments;
+    }
+
+    public void setEnrollments(List<EnrollmentDTO> enrollments) {
+        this.enrollments = enrollments;
+    }
+
+    public List<DeletedDTO> getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(List<DeletedDTO> deleted) {
+        this.deleted = deleted;
+    }
+
+    public long getNext() {
+        return next;
+    }
+
+    public void setNext(long next) {
+        this.next = next;
+    }
+
+    public boolean isMore() {
+        return more;
+    }
+
+    public void setMore(boolean more) {
+        this.more = more;
+    }
+}
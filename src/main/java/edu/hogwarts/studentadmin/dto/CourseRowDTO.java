@@ -0,0 +1,64 @@
+package edu.hogwarts.studentadmin.dto;
+
+/**
+ * DTO for a course without its teacher or roster, with only the id of the teacher.
+ * Used by GET /changes, which sends the changed enrollments separately.
+ */
+public class CourseRowDTO {
+    private Long id;
+    private String subject;
+    private Integer schoolYear;
+    private Boolean current;
+    private Long teacherId;
+
+    public CourseRowDTO() {
+    }
+
+    public CourseRowDTO(Long id, String subject, Integer schoolYear, Boolean current, Long teacherId) {
+        this.id = id;
+        this.subject = subject;
+        this.schoolYear = schoolYear;
+        this.current = current;
+        this.teacherId = teacherId;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public Integer getSchoolYear() {
+        return schoolYear;
+    }
+
+    public void setSchoolYear(Integer schoolYear) {
+        this.schoolYear = schoolYear;
+    }
+
+    public Boolean getCurrent() {
+        return current;
+    }
+
+    public void setCurrent(Boolean current) {
+        this.current = current;
+    }
+
+    public Long getTeacherId() {
+        return teacherId;
+    }
+
+    public void setTeacherId(Long teacherId) {
+        this.teacherId = teacherId;
+    }
+}
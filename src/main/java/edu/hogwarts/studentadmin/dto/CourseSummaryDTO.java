@@ -0,0 +1,84 @@
+package edu.hogwarts.studentadmin.dto;
+
+/**
+ * DTO for a course without its roster.
+ * Created directly from a projection query, so listing courses doesn't load any students.
+ */
+public class CourseSummaryDTO {
+    private Long id;
+    private String subject;
+    private Integer schoolYear;
+    private Boolean current;
+    private String teacher;
+    private Long studentCount;
+
+    public CourseSummaryDTO() {
+    }
+
+    /**
+     * Constructor used by the projection query.
+     * Joins the name parts of the teacher into a full name, the same way HogwartsPersonDTO does.
+     */
+    public CourseSummaryDTO(Long id, String subject, Integer schoolYear, Boolean current, String teacherFirstName, String teacherMiddleName, String teacherLastName, Long studentCount) {
+        this.id = id;
+        this.subject = subject;
+        this.schoolYear = schoolYear;
+        this.current = current;
+        this.studentCount = studentCount;
+        if (teacherFirstName != null) {
+            var teacherDTO = new TeacherDTO();
+            teacherDTO.setFirstName(teacherFirstName);
+            teacherDTO.setMiddleName(teacherMiddleName);
+            teacherDTO.setLastName(teacherLastName);
+            this.teacher = teacherDTO.getName();
+        }
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public Integer getSchoolYear() {
+        return schoolYear;
+    }
+
+    public void setSchoolYear(Integer schoolYear) {
+        this.schoolYear = schoolYear;
+    }
+
+    public Boolean isCurrent() {
+        return current;
+    }
+
+    public void setCurrent(Boolean current) {
+        this.current = current;
+    }
+
+    public String getTeacher() {
+        return teacher;
+    }
+
+    public void setTeacher(String teacher) {
+        this.teacher = teacher;
+    }
+
+    public Long getStudentCount() {
+        return studentCount;
+    }
+
+    public void setStudentCount(Long studentCount) {
+        this.studentCount = studentCount;
+    }
+}
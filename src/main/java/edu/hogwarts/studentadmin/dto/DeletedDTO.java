@@ -0,0 +1,54 @@
+package edu.hogwarts.studentadmin.dto;
+
+/**
+ * DTO for a deleted student, teacher, course or enrollment, sent by GET /changes.
+ * A deleted student, teacher or course has its id set, a deleted enrollment has its course id and student id set instead.
+ */
+public class DeletedDTO {
+    private String type;
+    private Long id;
+    private Long courseId;
+    private Long studentId;
+
+    public DeletedDTO() {
+    }
+
+    public DeletedDTO(String type, Long id, Long courseId, Long studentId) {
+        this.type = type;
+        this.id = id;
+        this.courseId = courseId;
+        this.studentId = studentId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getCourseId() {
+        return courseId;
+    }
+
+    public void setCourseId(Long courseId) {
+        this.courseId = courseId;
+    }
+
+    public Long getStudentId() {
+        return studentId;
+    }
+
+    public void setStudentId(Long studentId) {
+        this.studentId = studentId;
+    }
+}
@@ -0,0 +1,45 @@
+package edu.hogwarts.studentadmin.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for the enrollment of a student in a course, with only the ids of the course and the student.
+ */
+public class EnrollmentDTO {
+    private Long courseId;
+    private Long studentId;
+    private LocalDateTime enrolledAt;
+
+    public EnrollmentDTO() {
+    }
+
+    public EnrollmentDTO(Long courseId, Long studentId, LocalDateTime enrolledAt) {
+        this.courseId = courseId;
+        this.studentId = studentId;
+        this.enrolledAt = enrolledAt;
+    }
+
+    public Long getCourseId() {
+        return courseId;
+    }
+
+    public void setCourseId(Long courseId) {
+        this.courseId = courseId;
+    }
+
+    public Long getStudentId() {
+        return studentId;
+    }
+
+    public void setStudentId(Long studentId) {
+        this.studentId = studentId;
+    }
+
+    public LocalDateTime getEnrolledAt() {
+        return enrolledAt;
+    }
+
+    public void setEnrolledAt(LocalDateTime enrolledAt) {
+        this.enrolledAt = enrolledAt;
+    }
+}
@@ -19,6 +19,7 @@ public class HogwartsPersonDTO {
     protected LocalDate dateOfBirth;
     protected String houseName;
     protected House house;
+    protected Long version;
 
 
     public HogwartsPersonDTO() {
@@ -86,6 +87,10 @@ public class HogwartsPersonDTO {
 
     @JsonSetter("house")
     public void setHouseName(String houseName) {
+        if (houseName == null || houseName.isEmpty()) {
+            this.houseName = null;
+            return;
+        }
         char firstLetter = houseName.charAt(0);
         houseName = Character.toUpperCase(firstLetter) + houseName.substring(1);
         this.houseName = houseName;
@@ -101,6 +106,20 @@ public class HogwartsPersonDTO {
         this.house = house;
     }
 
+    /**
+     * Gets the version of the entity the DTO was converted from. Used for the ETag instead of being part of the JSON.
+     * @return The version of the entity, or null if the DTO was not converted from an entity.
+     */
+    @JsonIgnore
+    public Long getVersion() {
+        return version;
+    }
+
+    @JsonIgnore
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     /**
      * JSON getter for the full name of the person.
      * Used when serializing to the JSON file.
@@ -0,0 +1,34 @@
+package edu.hogwarts.studentadmin.dto;
+
+/**
+ * DTO for a row that could not be imported.
+ * The row is the number of the record in the file, counted from 1 and not counting blank lines or the CSV header.
+ */
+public class ImportErrorDTO {
+    private long row;
+    private String message;
+
+    public ImportErrorDTO() {
+    }
+
+    public ImportErrorDTO(long row, String message) {
+        this.row = row;
+        this.message = message;
+    }
+
+    public long getRow() {
+        return row;
+    }
+
+    public void setRow(long row) {
+        this.row = row;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
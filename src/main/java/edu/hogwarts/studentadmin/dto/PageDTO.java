@@ -0,0 +1,37 @@
+package edu.hogwarts.studentadmin.dto;
+
+import java.util.List;
+
+/**
+ * DTO for a single page of a keyset-paginated list.
+ * The next cursor is the id of the last item in the page, and is null when there are no more pages.
+ * @param <T> The type of the items in the page.
+ */
+public class PageDTO<T> {
+    private List<T> items;
+    private Long nextCursor;
+
+    public PageDTO() {
+    }
+
+    public PageDTO(List<T> items, Long nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Long nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,74 @@
+package edu.hogwarts.studentadmin.dto;
+
+/**
+ * DTO for the result of an academic year rollover.
+ * For a dry run, the counts are the number of students and courses the rollover would change.
+ */
+public class RolloverReportDTO {
+    private int graduationYear;
+    private boolean dryRun;
+    private long studentsPromoted;
+    private long studentsGraduated;
+    private long coursesFinished;
+    private long coursesCopied;
+    private long durationMillis;
+
+    public RolloverReportDTO() {
+    }
+
+    public int getGraduationYear() {
+        return graduationYear;
+    }
+
+    public void setGraduationYear(int graduationYear) {
+        this.graduationYear = graduationYear;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    public long getStudentsPromoted() {
+        return studentsPromoted;
+    }
+
+    public void setStudentsPromoted(long studentsPromoted) {
+        this.studentsPromoted = studentsPromoted;
+    }
+
+    public long getStudentsGraduated() {
+        return studentsGraduated;
+    }
+
+    public void setStudentsGraduated(long studentsGraduated) {
+        this.studentsGraduated = studentsGraduated;
+    }
+
+    public long getCoursesFinished() {
+        return coursesFinished;
+    }
+
+    public void setCoursesFinished(long coursesFinished) {
+        this.coursesFinished = coursesFinished;
+    }
+
+    public long getCoursesCopied() {
+        return coursesCopied;
+    }
+
+    public void setCoursesCopied(long coursesCopied) {
+        this.coursesCopied = coursesCopied;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+}
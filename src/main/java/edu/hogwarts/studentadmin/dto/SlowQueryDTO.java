@@ -0,0 +1,109 @@
+package edu.hogwarts.studentadmin.dto;
+
+import java.time.Instant;
+
+/**
+ * DTO for a single SQL statement recorded by the SQL profiler.
+ * The duration includes reading the rows of a query, so a query that is fast to run but returns a lot of rows is still slow.
+ * Row count is the number of rows read for queries and the number of rows changed for inserts, updates and deletes.
+ * Sampled statements were faster than the threshold and were recorded at random, to show what normal statements look like.
+ */
+public class SlowQueryDTO {
+    private Instant timestamp;
+    private double durationMillis;
+    private String sql;
+    private int parameterCount;
+    private int batchSize;
+    private long rowCount;
+    private String caller;
+    private String thread;
+    private boolean sampled;
+
+    public SlowQueryDTO() {
+    }
+
+    public SlowQueryDTO(Instant timestamp, double durationMillis, String sql, int parameterCount, int batchSize,
+                        long rowCount, String caller, String thread, boolean sampled) {
+        this.timestamp = timestamp;
+        this.durationMillis = durationMillis;
+        this.sql = sql;
+        this.parameterCount = parameterCount;
+        this.batchSize = batchSize;
+        this.rowCount = rowCount;
+        this.caller = caller;
+        this.thread = thread;
+        this.sampled = sampled;
+    }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Instant timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public double getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(double durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public void setSql(String sql) {
+        this.sql = sql;
+    }
+
+    public int getParameterCount() {
+        return parameterCount;
+    }
+
+    public void setParameterCount(int parameterCount) {
+        this.parameterCount = parameterCount;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(long rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public String getCaller() {
+        return caller;
+    }
+
+    public void setCaller(String caller) {
+        this.caller = caller;
+    }
+
+    public String getThread() {
+        return thread;
+    }
+
+    public void setThread(String thread) {
+        this.thread = thread;
+    }
+
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    public void setSampled(boolean sampled) {
+        this.sampled = sampled;
+    }
+}
@@ -0,0 +1,14 @@
+package edu.hogwarts.studentadmin.model;
+
+/**
+ * An entity with a change sequence number, set by ChangeSequenceListener every time the entity is inserted or updated,
+ * so GET /changes can find the rows that changed since a client last synced with an indexed range scan.
+ */
+public interface ChangeTracked {
+
+    /**
+     * Sets the change sequence number of the entity.
+     * @param changeSeq The number, from ChangeSequence
+     */
+    void setChangeSeq(long changeSeq);
+}
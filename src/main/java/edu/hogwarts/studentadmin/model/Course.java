@@ -1,15 +1,28 @@
 package edu.hogwarts.studentadmin.model;
 
+import edu.hogwarts.studentadmin.config.ChangeSequenceListener;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
 
-import java.util.ArrayList;
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * This class represents a course in the school.
+ * The teacher and the roster are loaded with separate selects instead of joins,
+ * so they can be served from the second-level cache.
+ * The version is incremented when the fields of the course change, but not when students are enrolled or removed,
+ * since the roster is owned by the enrollments. The same goes for the change sequence number.
  */
 @Entity(name = "course")
-public class Course {
+@Table(indexes = @Index(name = "idx_course_change_seq", columnList = "change_seq"))
+@EntityListeners(ChangeSequenceListener.class)
+public class Course implements ChangeTracked {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -17,28 +30,62 @@ public class Course {
     private Integer schoolYear;
     private Boolean current;
     @ManyToOne(fetch = FetchType.EAGER)
+    @Fetch(FetchMode.SELECT)
     private Teacher teacher;
-    @ManyToMany(fetch = FetchType.EAGER, cascade = {CascadeType.PERSIST, CascadeType.DETACH, CascadeType.MERGE})
-    private List<Student> students = new ArrayList<>();
+    @OneToMany(mappedBy = "course", fetch = FetchType.EAGER)
+    @Fetch(FetchMode.SELECT)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    @OrderBy("enrolledAt")
+    private Set<Enrollment> enrollments = new LinkedHashSet<>();
+    @Version
+    @Column(columnDefinition = "bigint default 0 not null")
+    private long version;
+    @Column(name = "change_seq", columnDefinition = "bigint default 0 not null")
+    private long changeSeq;
 
     public Course() {
     }
 
-    public Course(Long id, String subject, int schoolYear, boolean current, Teacher teacher, List<Student> students) {
+    public Course(Long id, String subject, int schoolYear, boolean current, Teacher teacher) {
         this.id = id;
         this.subject = subject;
         this.schoolYear = schoolYear;
         this.current = current;
         this.teacher = teacher;
-        this.students = students;
     }
 
     /**
-     * Removes a student from the course. Primarily used by the Student class to automatically remove the student from the course when the student is deleted.
-     * @param student The student to remove from the course.
+     * Enrolls a student in the course. The course must be saved before students can be enrolled.
+     * The returned enrollment must be saved by the caller, since the course doesn't cascade to its enrollments.
+     * @param student The student to enroll in the course.
+     * @return The new enrollment, or null if the student is already enrolled in the course.
      */
-    public void removeStudent(Student student) {
-        students.remove(student);
+    public Enrollment enroll(Student student) {
+        if (isEnrolled(student.getId())) {
+            return null;
+        }
+        var enrollment = new Enrollment(this, student, LocalDateTime.now());
+        enrollments.add(enrollment);
+        return enrollment;
+    }
+
+    /**
+     * Removes a student from the in-memory roster of the course.
+     * The enrollment row must be deleted by the caller.
+     * @param studentId The id of the student to remove from the course.
+     * @return True if the student was enrolled in the course, otherwise false.
+     */
+    public boolean unenroll(Long studentId) {
+        return enrollments.removeIf(enrollment -> enrollment.getId().getStudentId().equals(studentId));
+    }
+
+    /**
+     * Checks if a student is enrolled in the course.
+     * @param studentId The id of the student.
+     * @return True if the student is enrolled in the course, otherwise false.
+     */
+    public boolean isEnrolled(Long studentId) {
+        return enrollments.stream().anyMatch(enrollment -> enrollment.getId().getStudentId().equals(studentId));
     }
 
     public String getSubject() {
@@ -73,12 +120,29 @@ public class Course {
         this.teacher = teacher;
     }
 
+    public Set<Enrollment> getEnrollments() {
+        return enrollments;
+    }
+
+    /**
+     * Gets the students enrolled in the course, in the order they were enrolled.
+     * @return The students enrolled in the course.
+     */
     public List<Student> getStudents() {
-        return students;
+        return enrollments.stream().map(Enrollment::getStudent).toList();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getChangeSeq() {
+        return changeSeq;
     }
 
-    public void setStudents(List<Student> students) {
-        this.students = students;
+    @Override
+    public void setChangeSeq(long changeSeq) {
+        this.changeSeq = changeSeq;
     }
 
     public Long getId() {
@@ -96,7 +160,7 @@ public class Course {
                 ", schoolYear=" + schoolYear +
                 ", current=" + current +
                 ", teacher=" + teacher +
-                ", studentAmount=" + students.size() +
+                ", studentAmount=" + enrollments.size() +
                 '}';
     }
 }
@@ -0,0 +1,106 @@
+package edu.hogwarts.studentadmin.model;
+
+import edu.hogwarts.studentadmin.config.ChangeSequenceListener;
+import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * This class represents a student's enrollment in a course.
+ * Each enrollment is its own row, so adding or removing a student only inserts or deletes that row.
+ * The rows are deleted by the database when the course or the student is deleted.
+ * An enrollment is never updated, so its change sequence number is the one it was inserted with.
+ * The student is loaded lazily, so checking or deleting an enrollment doesn't load the student. Rosters that are shown
+ * are loaded with a query that fetches the students with the enrollments.
+ */
+@Entity(name = "enrollment")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(indexes = {
+        @Index(name = "idx_enrollment_course", columnList = "course_id"),
+        @Index(name = "idx_enrollment_student", columnList = "student_id"),
+        @Index(name = "idx_enrollment_change_seq", columnList = "change_seq")
+})
+@EntityListeners(ChangeSequenceListener.class)
+public class Enrollment implements Persistable<EnrollmentId>, ChangeTracked {
+    @EmbeddedId
+    private EnrollmentId id;
+
+    @MapsId("courseId")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Course course;
+
+    @MapsId("studentId")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Student student;
+
+    private LocalDateTime enrolledAt;
+
+    @Column(name = "change_seq", columnDefinition = "bigint default 0 not null")
+    private long changeSeq;
+
+    /**
+     * Enrollments always have their id set before they are saved, so Spring Data can't tell new ones apart from existing ones.
+     * Keeping track of it here lets save() insert directly instead of selecting the row first to merge it.
+     */
+    @Transient
+    private boolean isNew = true;
+
+    public Enrollment() {
+    }
+
+    public Enrollment(Course course, Student student, LocalDateTime enrolledAt) {
+        this.id = new EnrollmentId(course.getId(), student.getId());
+        this.course = course;
+        this.student = student;
+        this.enrolledAt = enrolledAt;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    @Override
+    public EnrollmentId getId() {
+        return id;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    public Course getCourse() {
+        return course;
+    }
+
+    public Student getStudent() {
+        return student;
+    }
+
+    public LocalDateTime getEnrolledAt() {
+        return enrolledAt;
+    }
+
+    public void setEnrolledAt(LocalDateTime enrolledAt) {
+        this.enrolledAt = enrolledAt;
+    }
+
+    public long getChangeSeq() {
+        return changeSeq;
+    }
+
+    @Override
+    public void setChangeSeq(long changeSeq) {
+        this.changeSeq = changeSeq;
+    }
+}
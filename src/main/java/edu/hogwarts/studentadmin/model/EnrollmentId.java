@@ -0,0 +1,51 @@
+package edu.hogwarts.studentadmin.model;
+
+import jakarta.persistence.Embeddable;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * This class is the composite key of an enrollment, made up of the course id and the student id.
+ */
+@Embeddable
+public class EnrollmentId implements Serializable {
+    private Long courseId;
+    private Long studentId;
+
+    public EnrollmentId() {
+    }
+
+    public EnrollmentId(Long courseId, Long studentId) {
+        this.courseId = courseId;
+        this.studentId = studentId;
+    }
+
+    public Long getCourseId() {
+        return courseId;
+    }
+
+    public void setCourseId(Long courseId) {
+        this.courseId = courseId;
+    }
+
+    public Long getStudentId() {
+        return studentId;
+    }
+
+    public void setStudentId(Long studentId) {
+        this.studentId = studentId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof EnrollmentId that)) return false;
+        return Objects.equals(courseId, that.courseId) && Objects.equals(studentId, that.studentId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(courseId, studentId);
+    }
+}
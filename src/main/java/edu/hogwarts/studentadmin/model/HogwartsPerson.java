@@ -1,16 +1,29 @@
 package edu.hogwarts.studentadmin.model;
 
+import edu.hogwarts.studentadmin.config.ChangeSequenceListener;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
 
 import java.time.LocalDate;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * This entity superclass represents a person at Hogwarts.
+ * Keeps normalized name keys next to the names, so people can be found by name with an indexed equality lookup.
+ * IDs come from a sequence per entity (student_seq, teacher_seq) that hands out blocks of 50,
+ * so Hibernate can batch inserts instead of inserting one row at a time to get each generated ID.
+ * The version is incremented by every change, so it can be used as the ETag of the person.
+ * The change sequence number is set by every change too, so GET /changes can find the people that changed since a client last synced.
  */
 @MappedSuperclass
-public abstract class HogwartsPerson {
+@EntityListeners(ChangeSequenceListener.class)
+public abstract class HogwartsPerson implements ChangeTracked {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
     protected Long id;
     protected String firstName;
     protected String middleName;
@@ -18,9 +31,83 @@ public abstract class HogwartsPerson {
     protected LocalDate dateOfBirth;
 
     @ManyToOne(fetch = FetchType.EAGER)
+    @Fetch(FetchMode.SELECT)
     @JoinColumn(name = "house")
     protected House house;
 
+    /**
+     * The normalized first name, e.g. "harry".
+     */
+    @Column(name = "first_name_key", length = 255)
+    protected String firstNameKey;
+
+    /**
+     * The normalized first, middle and last names, e.g. "harry james potter".
+     */
+    @Column(name = "name_key", length = 512)
+    protected String nameKey;
+
+    /**
+     * The normalized first and last names, e.g. "harry potter".
+     */
+    @Column(name = "short_name_key", length = 512)
+    protected String shortNameKey;
+
+    /**
+     * The last name as it is, or an empty string if it is missing, so the name-sorted pages can use an index instead of sorting on coalesce().
+     */
+    @Column(name = "last_name_sort", length = 255)
+    protected String lastNameSort;
+
+    /**
+     * The first name as it is, or an empty string if it is missing.
+     */
+    @Column(name = "first_name_sort", length = 255)
+    protected String firstNameSort;
+
+    /**
+     * Incremented by Hibernate on every update. Rows saved before the column was added start at 0.
+     */
+    @Version
+    @Column(columnDefinition = "bigint default 0 not null")
+    protected long version;
+
+    /**
+     * Set by ChangeSequenceListener on every insert and update. Rows saved before the column was added start at 0.
+     */
+    @Column(name = "change_seq", columnDefinition = "bigint default 0 not null")
+    protected long changeSeq;
+
+    /**
+     * Normalizes a name for lookups, by trimming it, collapsing whitespace and converting it to lower case.
+     * @param name The name to normalize.
+     * @return The normalized name, or null if the name is null or blank.
+     */
+    public static String normalizeName(String name) {
+        if (name == null || name.isBlank()) {
+            return null;
+        }
+        return name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Updates the name keys and sort keys from the current names.
+     * Called before the person is inserted or updated, so the keys are always saved together with the names.
+     */
+    @PrePersist
+    @PreUpdate
+    public void updateNameKeys() {
+        firstNameKey = normalizeName(firstName);
+        nameKey = normalizeName(joinNames(firstName, middleName, lastName));
+        shortNameKey = normalizeName(joinNames(firstName, lastName));
+        lastNameSort = lastName == null ? "" : lastName;
+        firstNameSort = firstName == null ? "" : firstName;
+    }
+
+    private static String joinNames(String... names) {
+        return Stream.of(names).filter(Objects::nonNull).collect(Collectors.joining(" "));
+    }
+
     public String getFirstName() {
         return firstName;
     }
@@ -61,6 +148,39 @@ public abstract class HogwartsPerson {
         this.house = house;
     }
 
+    public String getFirstNameKey() {
+        return firstNameKey;
+    }
+
+    public String getNameKey() {
+        return nameKey;
+    }
+
+    public String getShortNameKey() {
+        return shortNameKey;
+    }
+
+    public String getLastNameSort() {
+        return lastNameSort;
+    }
+
+    public String getFirstNameSort() {
+        return firstNameSort;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getChangeSeq() {
+        return changeSeq;
+    }
+
+    @Override
+    public void setChangeSeq(long changeSeq) {
+        this.changeSeq = changeSeq;
+    }
+
     public Long getId() {
         return id;
     }
@@ -1,14 +1,23 @@
 package edu.hogwarts.studentadmin.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Version;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.List;
 
 /**
  * This class represents a house at Hogwarts.
+ * The version is a primitive, so Spring Data still decides by the assigned name whether a house is new, and saving a house again merges it.
  */
 @Entity(name = "house")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class House {
 
     @Id
@@ -19,6 +28,10 @@ public class House {
     private String primaryColor;
     private String secondaryColor;
 
+    @Version
+    @Column(columnDefinition = "bigint default 0 not null")
+    private long version;
+
     public House() {
     }
 
@@ -45,6 +58,15 @@ public class House {
         this.founder = founder;
     }
 
+    /**
+     * Gets the version of the house, incremented on every update. Used for the ETag instead of being part of the JSON.
+     * @return The version of the house.
+     */
+    @JsonIgnore
+    public long getVersion() {
+        return version;
+    }
+
     public List<String> getColors() {
         return List.of(primaryColor, secondaryColor);
     }
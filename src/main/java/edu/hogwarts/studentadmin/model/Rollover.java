@@ -0,0 +1,48 @@
+package edu.hogwarts.studentadmin.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * This class records a rollover of the school to the next academic year, so the same year can't be rolled over twice.
+ * Saved by RolloverService before any student is changed, and completed once the courses have been rolled over.
+ * A rollover that failed is recorded without a completion time, and can only be resumed.
+ */
+@Entity(name = "rollover")
+public class Rollover {
+    /**
+     * The year that ended, which the students who graduated got as their graduation year.
+     */
+    @Id
+    private Integer graduationYear;
+
+    @Column(nullable = false)
+    private LocalDateTime startedAt;
+
+    private LocalDateTime completedAt;
+
+    public Rollover() {
+    }
+
+    public Rollover(Integer graduationYear, LocalDateTime startedAt) {
+        this.graduationYear = graduationYear;
+        this.startedAt = startedAt;
+    }
+
+    public Integer getGraduationYear() {
+        return graduationYear;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
@@ -1,17 +1,30 @@
 package edu.hogwarts.studentadmin.model;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
-import jakarta.persistence.ManyToMany;
-import jakarta.persistence.PreRemove;
+import jakarta.persistence.Index;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.Table;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 /**
  * This entity class represents a student at Hogwarts.
  */
 @Entity(name = "student")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(indexes = {
+        @Index(name = "idx_student_first_name_key", columnList = "first_name_key"),
+        @Index(name = "idx_student_name_key", columnList = "name_key"),
+        @Index(name = "idx_student_short_name_key", columnList = "short_name_key"),
+        @Index(name = "idx_student_name_sort", columnList = "last_name_sort, first_name_sort, id"),
+        @Index(name = "idx_student_change_seq", columnList = "change_seq")
+})
 public class Student extends HogwartsPerson {
     private Boolean prefect;
     private Integer enrollmentYear;
@@ -19,8 +32,8 @@ public class Student extends HogwartsPerson {
     private Boolean graduated;
 
     private Integer schoolYear;
-    @ManyToMany(mappedBy = "students")
-    private List<Course> courses = new ArrayList<>();
+    @OneToMany(mappedBy = "student")
+    private Set<Enrollment> enrollments = new LinkedHashSet<>();
 
     public Student() {
 
@@ -40,22 +53,8 @@ public class Student extends HogwartsPerson {
         this.graduated = graduated;
     }
 
-    /**
-     * Makes sure that the student is removed from all courses when they are deleted.
-     */
-    @PreRemove
-    public void removeStudentFromCourse() {
-        for (Course course : courses) {
-            course.removeStudent(this);
-        }
-    }
-
-    public List<Course> getCourses() {
-        return courses;
-    }
-
-    public void setCourses(List<Course> courses) {
-        this.courses = courses;
+    public Set<Enrollment> getEnrollments() {
+        return enrollments;
     }
 
     public Boolean isPrefect() {
@@ -1,6 +1,8 @@
 package edu.hogwarts.studentadmin.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
@@ -10,6 +12,15 @@ import java.util.List;
  * This class represents a teacher at Hogwarts.
  */
 @Entity(name = "teacher")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(indexes = {
+        @Index(name = "idx_teacher_first_name_key", columnList = "first_name_key"),
+        @Index(name = "idx_teacher_name_key", columnList = "name_key"),
+        @Index(name = "idx_teacher_short_name_key", columnList = "short_name_key"),
+        @Index(name = "idx_teacher_name_sort", columnList = "last_name_sort, first_name_sort, id"),
+        @Index(name = "idx_teacher_change_seq", columnList = "change_seq")
+})
 public class Teacher extends HogwartsPerson {
     private Boolean headOfHouse;
 
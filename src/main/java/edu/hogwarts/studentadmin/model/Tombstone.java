@@ -0,0 +1,87 @@
+package edu.hogwarts.studentadmin.model;
+
+import edu.hogwarts.studentadmin.config.ChangeSequenceListener;
+import jakarta.persistence.*;
+
+/**
+ * This class records that a student, teacher, course or enrollment was deleted, so GET /changes can tell clients to delete it too.
+ * Saved by the services in the same transaction as the delete, and kept for studentadmin.changes.tombstone-retention,
+ * after which TombstoneCleanup deletes it.
+ * The enrollments the database deletes together with their student or course don't get tombstones of their own.
+ */
+@Entity(name = "tombstone")
+@Table(indexes = @Index(name = "idx_tombstone_change_seq", columnList = "change_seq"))
+@EntityListeners(ChangeSequenceListener.class)
+public class Tombstone implements ChangeTracked {
+    public static final String STUDENT = "student";
+    public static final String TEACHER = "teacher";
+    public static final String COURSE = "course";
+    public static final String ENROLLMENT = "enrollment";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * What was deleted: student, teacher, course or enrollment.
+     */
+    @Column(nullable = false, length = 16)
+    private String type;
+
+    /**
+     * The id of the deleted student, teacher or course, or the id of the course of the deleted enrollment.
+     */
+    @Column(nullable = false)
+    private Long entityId;
+
+    /**
+     * The id of the student of the deleted enrollment, otherwise null.
+     */
+    private Long studentId;
+
+    @Column(name = "change_seq", nullable = false)
+    private long changeSeq;
+
+    public Tombstone() {
+    }
+
+    public Tombstone(String type, Long entityId, Long studentId) {
+        this.type = type;
+        this.entityId = entityId;
+        this.studentId = studentId;
+    }
+
+    /**
+     * Creates the tombstone of a deleted enrollment.
+     * @param enrollment The deleted enrollment
+     * @return The tombstone, not saved yet
+     */
+    public static Tombstone of(Enrollment enrollment) {
+        return new Tombstone(ENROLLMENT, enrollment.getId().getCourseId(), enrollment.getId().getStudentId());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public Long getStudentId() {
+        return studentId;
+    }
+
+    public long getChangeSeq() {
+        return changeSeq;
+    }
+
+    @Override
+    public void setChangeSeq(long changeSeq) {
+        this.changeSeq = changeSeq;
+    }
+}
@@ -1,11 +1,158 @@
 package edu.hogwarts.studentadmin.repository;
 
+import edu.hogwarts.studentadmin.dto.CourseSummaryDTO;
 import edu.hogwarts.studentadmin.model.Course;
+import edu.hogwarts.studentadmin.model.Teacher;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository for Course entities.
  * Provides all JpaRepository methods for the Course entity.
  */
 public interface CourseRepository extends JpaRepository<Course, Long> {
+
+    /**
+     * The columns of a course without its teacher or students, with the id of the teacher.
+     */
+    interface CourseRow {
+        Long getId();
+        String getSubject();
+        Integer getSchoolYear();
+        Boolean getCurrent();
+        Long getTeacherId();
+    }
+
+    /**
+     * The columns of a course with its change sequence number.
+     */
+    interface ChangedCourseRow extends CourseRow {
+        long getChangeSeq();
+    }
+
+    /**
+     * Find every course without loading its teacher or students, which the course entities would load with a select each.
+     * @return every course, ordered by id
+     */
+    @Query("select c.id as id, c.subject as subject, c.schoolYear as schoolYear, c.current as current, c.teacher.id as teacherId " +
+            "from course c order by c.id")
+    List<CourseRow> findAllRows();
+
+    /**
+     * Find the courses changed in a range of change sequence numbers, ordered by change sequence number, without loading their teachers or students.
+     * @param after the change sequence number the range starts after
+     * @param upTo the highest change sequence number of the range
+     * @param pageable the maximum number of courses to find
+     * @return the changed courses
+     */
+    @Query("select c.id as id, c.subject as subject, c.schoolYear as schoolYear, c.current as current, c.teacher.id as teacherId, c.changeSeq as changeSeq " +
+            "from course c where c.changeSeq > :after and c.changeSeq <= :upTo order by c.changeSeq")
+    List<ChangedCourseRow> findChanged(@Param("after") long after, @Param("upTo") long upTo, Pageable pageable);
+
+    /**
+     * Find the school year of a course without loading the course, its teacher or its students.
+     * @param id the id of the course
+     * @return the school year of the course, or an empty Optional if the course doesn't exist or has no school year
+     */
+    @Query("select c.schoolYear from course c where c.id = :id")
+    Optional<Integer> findSchoolYearById(@Param("id") Long id);
+
+    /**
+     * Find a course with its teacher, enrollments and enrolled students in a single query,
+     * instead of loading the teacher and the roster with a query each.
+     * @param id the id of the course
+     * @return the course, or an empty Optional if the course doesn't exist
+     */
+    @Query("select c from course c left join fetch c.teacher left join fetch c.enrollments e left join fetch e.student where c.id = :id")
+    Optional<Course> findWithRosterById(@Param("id") Long id);
+
+    /**
+     * Find all courses with their teachers, enrollments and enrolled students in a single query,
+     * instead of loading the teacher and the roster of every course with a query each.
+     * @return all courses, ordered by id
+     */
+    @Query("select c from course c left join fetch c.teacher left join fetch c.enrollments e left join fetch e.student order by c.id")
+    List<Course> findAllWithRosters();
+
+    /**
+     * Find the teacher of a course without loading the course or its students.
+     * @param id the id of the course
+     * @return the teacher of the course, or an empty Optional if the course doesn't exist or has no teacher
+     */
+    @Query("select c.teacher from course c where c.id = :id")
+    Optional<Teacher> findTeacherById(@Param("id") Long id);
+
+    /**
+     * Remove the teacher of a course with a single UPDATE statement, without loading the course or its students.
+     * Increments the version of the course, and clears the persistence context afterwards, so no loaded course still holds the removed teacher.
+     * @param id the id of the course
+     * @param changeSeq the change sequence number of the course, from ChangeSequence.next
+     * @return the number of updated courses
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update versioned course c set c.teacher = null, c.changeSeq = :changeSeq where c.id = :id")
+    int removeTeacherById(@Param("id") Long id, @Param("changeSeq") long changeSeq);
+
+    /**
+     * Find the highest course ID, so courses added after it can be told apart from the existing ones.
+     * @return the highest ID, or 0 if there are no courses
+     */
+    @Query("select coalesce(max(c.id), 0) from course c")
+    long findMaxId();
+
+    /**
+     * Count the current courses with IDs up to the given ID.
+     * @param maxId the highest ID to count
+     * @return the number of current courses
+     */
+    @Query("select count(c) from course c where c.current = true and c.id <= :maxId")
+    long countCurrent(@Param("maxId") long maxId);
+
+    /**
+     * Copy the current courses with IDs up to the given ID with a single INSERT ... SELECT statement, without loading them.
+     * The copies keep the subject, school year and teacher, are current, have no students, and start at version 0.
+     * Each copy gets the change sequence number changeSeqBase + the ID of the course it is copied from, so the numbers are unique.
+     * @param maxId the highest ID to copy
+     * @param changeSeqBase the first number of a block of maxId + 1 numbers reserved with ChangeSequence.reserve
+     * @return the number of copied courses
+     */
+    @Modifying
+    @Query("insert into course (subject, schoolYear, current, teacher, changeSeq) " +
+            "select c.subject, c.schoolYear, true, c.teacher, :changeSeqBase + c.id from course c where c.current = true and c.id <= :maxId")
+    int copyCurrent(@Param("maxId") long maxId, @Param("changeSeqBase") long changeSeqBase);
+
+    /**
+     * Mark the current courses with IDs up to the given ID as no longer current, with a single UPDATE statement.
+     * Increments the versions of the courses, and clears the persistence context afterwards, so no loaded course is still current.
+     * Each course gets the change sequence number changeSeqBase + its ID, so the numbers are unique.
+     * @param maxId the highest ID to update
+     * @param changeSeqBase the first number of a block of maxId + 1 numbers reserved with ChangeSequence.reserve
+     * @return the number of updated courses
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update versioned course c set c.current = false, c.changeSeq = :changeSeqBase + c.id where c.current = true and c.id <= :maxId")
+    int finishCurrent(@Param("maxId") long maxId, @Param("changeSeqBase") long changeSeqBase);
+
+    /**
+     * Find a summary of every course, with the teacher's name and the number of enrolled students.
+     * Counts the enrollments in the database, so no students or enrollments are loaded.
+     * The result is kept in the query cache until one of the course, teacher or enrollment tables is changed.
+     * @return a summary of every course, ordered by id
+     */
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    @Query("select new edu.hogwarts.studentadmin.dto.CourseSummaryDTO(" +
+            "c.id, c.subject, c.schoolYear, c.current, t.firstName, t.middleName, t.lastName, count(e.id.studentId)) " +
+            "from course c left join c.teacher t left join c.enrollments e " +
+            "group by c.id, c.subject, c.schoolYear, c.current, t.firstName, t.middleName, t.lastName " +
+            "order by c.id")
+    List<CourseSummaryDTO> findAllSummaries();
 }
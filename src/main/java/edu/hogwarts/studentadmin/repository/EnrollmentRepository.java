@@ -0,0 +1,93 @@
+package edu.hogwarts.studentadmin.repository;
+
+import edu.hogwarts.studentadmin.dto.EnrollmentDTO;
+import edu.hogwarts.studentadmin.model.Enrollment;
+import edu.hogwarts.studentadmin.model.EnrollmentId;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Repository for Enrollment entities.
+ * Provides all JpaRepository methods for the Enrollment entity.
+ * Also provides methods for deleting all enrollments of a course or a student with a single DELETE statement.
+ * These bulk deletes evict the whole enrollment and roster cache regions, so single enrollments should be deleted as entities.
+ */
+public interface EnrollmentRepository extends JpaRepository<Enrollment, EnrollmentId> {
+
+    /**
+     * The columns of an enrollment with its change sequence number.
+     */
+    interface ChangedEnrollmentRow {
+        Long getCourseId();
+        Long getStudentId();
+        LocalDateTime getEnrolledAt();
+        long getChangeSeq();
+    }
+
+    /**
+     * Find which of the given students are enrolled in a course, from the enrollment keys only,
+     * without loading the course, its roster or the students.
+     * @param courseId the id of the course
+     * @param studentIds the ids of the students to check
+     * @return the ids of the students that are enrolled in the course
+     */
+    @Query("select e.id.studentId from enrollment e where e.id.courseId = :courseId and e.id.studentId in :studentIds")
+    Set<Long> findEnrolledStudentIds(@Param("courseId") Long courseId, @Param("studentIds") Collection<Long> studentIds);
+
+    /**
+     * Delete all enrollments of a course with a single DELETE statement.
+     * Clears the persistence context afterwards, so no loaded course still holds the deleted enrollments.
+     * @param courseId the id of the course
+     * @return the number of deleted enrollments
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("delete from enrollment e where e.id.courseId = :courseId")
+    int deleteByCourseId(@Param("courseId") Long courseId);
+
+    /**
+     * Delete all enrollments of a student with a single DELETE statement.
+     * Clears the persistence context afterwards, so no loaded course still holds the deleted enrollments.
+     * @param studentId the id of the student
+     * @return the number of deleted enrollments
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("delete from enrollment e where e.id.studentId = :studentId")
+    int deleteByStudentId(@Param("studentId") Long studentId);
+
+    /**
+     * Stream all enrollments ordered by course and student, without loading the courses or students.
+     * Must be called inside a transaction, and the stream must be closed after use.
+     * On MySQL, the rows are only fetched in batches if useCursorFetch=true is set on the connection.
+     * @return a stream of all enrollments
+     */
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new edu.hogwarts.studentadmin.dto.EnrollmentDTO(e.id.courseId, e.id.studentId, e.enrolledAt) " +
+            "from enrollment e order by e.id.courseId, e.id.studentId")
+    Stream<EnrollmentDTO> streamAllOrderByCourseAndStudent();
+
+    /**
+     * Find the enrollments inserted in a range of change sequence numbers, ordered by change sequence number, without loading the courses or students.
+     * @param after the change sequence number the range starts after
+     * @param upTo the highest change sequence number of the range
+     * @param pageable the maximum number of enrollments to find
+     * @return the inserted enrollments
+     */
+    @Query("select e.id.courseId as courseId, e.id.studentId as studentId, e.enrolledAt as enrolledAt, e.changeSeq as changeSeq " +
+            "from enrollment e where e.changeSeq > :after and e.changeSeq <= :upTo order by e.changeSeq")
+    List<ChangedEnrollmentRow> findChanged(@Param("after") long after, @Param("upTo") long upTo, Pageable pageable);
+}
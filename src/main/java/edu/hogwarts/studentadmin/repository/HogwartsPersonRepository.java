@@ -1,11 +1,133 @@
 package edu.hogwarts.studentadmin.repository;
 
 import edu.hogwarts.studentadmin.model.HogwartsPerson;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository for HogwartsPerson entities.
  * Provides all JpaRepository methods for the HogwartsPerson entity.
+ * Also provides keyset pagination queries, indexed name lookups, a version lookup, a change lookup and a streaming query shared by the Student and Teacher repositories.
+ * The name lookups compare the normalized name keys, so the names must be normalized with HogwartsPerson.normalizeName first.
  */
-public interface HogwartsPersonRepository<M extends HogwartsPerson> extends JpaRepository<M, Long> {
+@NoRepositoryBean
+public interface HogwartsPersonRepository<M extends HogwartsPerson> extends JpaRepository<M, Long>, JpaSpecificationExecutor<M> {
+
+    /**
+     * Find the person with the lowest id with the given normalized first, middle and last names.
+     * @param nameKey the normalized full name, e.g. "harry james potter"
+     * @return the person with the lowest id with the given name, or an empty Optional if none is found
+     */
+    Optional<M> findFirstByNameKeyOrderByIdAsc(String nameKey);
+
+    /**
+     * Find the person with the lowest id with the given normalized first and last names, whatever their middle name is.
+     * @param shortNameKey the normalized first and last names, e.g. "harry potter"
+     * @return the person with the lowest id with the given names, or an empty Optional if none is found
+     */
+    Optional<M> findFirstByShortNameKeyOrderByIdAsc(String shortNameKey);
+
+    /**
+     * Find the person with the lowest id with the given normalized first name, whatever their other names are.
+     * @param firstNameKey the normalized first name, e.g. "harry"
+     * @return the person with the lowest id with the given first name, or an empty Optional if none is found
+     */
+    Optional<M> findFirstByFirstNameKeyOrderByIdAsc(String firstNameKey);
+
+    /**
+     * Find the version of a person by their id, without loading the person.
+     * Used to answer conditional GET requests with a single primary key lookup.
+     * @param id the id of the person
+     * @return the version of the person, or an empty Optional if the person doesn't exist
+     */
+    @Query("select p.version from #{#entityName} p where p.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    /**
+     * Find the people changed in a range of change sequence numbers, ordered by change sequence number, with an indexed range scan.
+     * @param after the change sequence number the range starts after
+     * @param upTo the highest change sequence number of the range
+     * @param pageable the maximum number of people to find
+     * @return the changed people
+     */
+    @Query("select p from #{#entityName} p where p.changeSeq > :after and p.changeSeq <= :upTo order by p.changeSeq")
+    List<M> findChanged(@Param("after") long after, @Param("upTo") long upTo, Pageable pageable);
+
+    /**
+     * Check if any person is missing their sort keys, without scanning the table.
+     * The check stops at the first match, which is a lookup in the index that starts with last_name_sort.
+     * @return true if the sort keys of at least one person must be filled in
+     */
+    boolean existsByLastNameSortIsNull();
+
+    /**
+     * Find a page of people without sort keys, ordered by id.
+     * Used to fill in the name keys and sort keys of people saved before the keys were added.
+     * The sort keys are never null once they are filled in, even for people without names, so every person is only found once.
+     * @param after the id of the last person on the previous page, or 0 for the first page
+     * @param pageable the page size, the page number should always be 0
+     * @return the people on the page
+     */
+    @Query("select p from #{#entityName} p where p.lastNameSort is null and p.id > :after order by p.id")
+    List<M> findPageWithoutSortKeys(@Param("after") Long after, Pageable pageable);
+
+    /**
+     * Find a page of people with an id greater than the given id, ordered by id.
+     * @param after the id of the last person on the previous page, or 0 for the first page
+     * @param pageable the page size, the page number should always be 0
+     * @return the people on the page
+     */
+    @Query("select p from #{#entityName} p where p.id > :after order by p.id")
+    List<M> findPageOrderById(@Param("after") Long after, Pageable pageable);
+
+    /**
+     * Find the first page of people ordered by last name, first name and id.
+     * Sorts on the sort keys, where missing names are empty strings, so the (last_name_sort, first_name_sort, id) index gives the order.
+     * @param pageable the page size, the page number should always be 0
+     * @return the people on the page
+     */
+    @Query("select p from #{#entityName} p order by p.lastNameSort, p.firstNameSort, p.id")
+    List<M> findFirstPageOrderByName(Pageable pageable);
+
+    /**
+     * Find a page of people sorted after the given last name, first name and id, ordered by last name, first name and id.
+     * Sorts on the sort keys, where missing names are empty strings, so the page is a range scan of the (last_name_sort, first_name_sort, id) index.
+     * @param lastName the last name sort key of the last person on the previous page
+     * @param firstName the first name sort key of the last person on the previous page
+     * @param after the id of the last person on the previous page
+     * @param pageable the page size, the page number should always be 0
+     * @return the people on the page
+     */
+    @Query("select p from #{#entityName} p " +
+            "where p.lastNameSort > :lastName " +
+            "or (p.lastNameSort = :lastName and p.firstNameSort > :firstName) " +
+            "or (p.lastNameSort = :lastName and p.firstNameSort = :firstName and p.id > :after) " +
+            "order by p.lastNameSort, p.firstNameSort, p.id")
+    List<M> findPageOrderByName(@Param("lastName") String lastName, @Param("firstName") String firstName, @Param("after") Long after, Pageable pageable);
+
+    /**
+     * Stream all people ordered by id, reading them from the database in batches instead of all at once.
+     * The people are loaded read-only and not put in the second-level cache.
+     * Must be called inside a transaction, and the stream must be closed after use.
+     * On MySQL, the rows are only fetched in batches if useCursorFetch=true is set on the connection.
+     * @return a stream of all people
+     */
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_MODE, value = "IGNORE")
+    })
+    @Query("select p from #{#entityName} p order by p.id")
+    Stream<M> streamAllOrderById();
 }
@@ -0,0 +1,32 @@
+package edu.hogwarts.studentadmin.repository;
+
+import edu.hogwarts.studentadmin.model.Rollover;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+/**
+ * Repository for Rollover entities.
+ * Provides all JpaRepository methods for the Rollover entity.
+ */
+public interface RolloverRepository extends JpaRepository<Rollover, Integer> {
+
+    /**
+     * Find the latest rollover, completed or not.
+     * @return the rollover with the highest graduation year, or null if the school was never rolled over
+     */
+    Rollover findFirstByOrderByGraduationYearDesc();
+
+    /**
+     * Complete a rollover, with a single statement.
+     * @param graduationYear the graduation year of the rollover
+     * @param completedAt the time the rollover completed
+     * @return the number of completed rollovers, 1 if the rollover exists
+     */
+    @Modifying
+    @Query("update rollover r set r.completedAt = :completedAt where r.graduationYear = :graduationYear")
+    int complete(@Param("graduationYear") int graduationYear, @Param("completedAt") LocalDateTime completedAt);
+}
@@ -1,37 +1,79 @@
 package edu.hogwarts.studentadmin.repository;
 
 import edu.hogwarts.studentadmin.model.Student;
-
-import java.util.Optional;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 /**
  * Repository for Student entities.
  * Provides all JpaRepository methods for the Student entity.
- * Also provides custom methods for finding students by first name, first name + last name, and full name.
+ * Students are found by name through the name key methods in HogwartsPersonRepository.
+ * Also provides the set-based UPDATE statements of the academic year rollover, which work on ranges of IDs without loading any students.
  */
 public interface StudentRepository extends HogwartsPersonRepository<Student> {
 
     /**
-     * Find the first student with the given first name, ignoring case.
-     * @param firstName the first name to search for
-     * @return the first student with the given first name, or an empty Optional if none is found
+     * Find the lowest student ID, where the ranges of IDs of the rollover start.
+     * @return the lowest ID, or 0 if there are no students
+     */
+    @Query("select coalesce(min(s.id), 0) from student s")
+    long findMinId();
+
+    /**
+     * Find the highest student ID, where the ranges of IDs of the rollover end.
+     * @return the highest ID, or 0 if there are no students
+     */
+    @Query("select coalesce(max(s.id), 0) from student s")
+    long findMaxId();
+
+    /**
+     * Count the students that have not graduated and are below the given school year, i.e. the students a rollover promotes.
+     * @param finalSchoolYear the last school year
+     * @return the number of students
+     */
+    @Query("select count(s) from student s where s.schoolYear < :finalSchoolYear and (s.graduated is null or s.graduated = false)")
+    long countPromotable(@Param("finalSchoolYear") int finalSchoolYear);
+
+    /**
+     * Count the students that have not graduated and are in the given school year or above, i.e. the students a rollover graduates.
+     * @param finalSchoolYear the last school year
+     * @return the number of students
      */
-    Optional<Student> findFirstByFirstNameIgnoreCase(String firstName);
+    @Query("select count(s) from student s where s.schoolYear >= :finalSchoolYear and (s.graduated is null or s.graduated = false)")
+    long countGraduating(@Param("finalSchoolYear") int finalSchoolYear);
 
     /**
-     * Find the first student with the given first and last names, ignoring case.
-     * @param firstName the first name to search for
-     * @param lastName the last name to search for
-     * @return the first student with the given first and last names, or an empty Optional if none is found
+     * Graduate the students in a range of IDs that have not graduated and are in the last school year or above, with a single UPDATE statement.
+     * Increments the versions of the students, and clears the persistence context afterwards, so no loaded student keeps the old values.
+     * Each student gets the change sequence number changeSeqBase + their ID, so the numbers are unique.
+     * @param from the lowest ID of the range
+     * @param to the ID after the highest ID of the range
+     * @param finalSchoolYear the last school year
+     * @param graduationYear the year the students graduate
+     * @param changeSeqBase the first number of a block reserved for the range with ChangeSequence.reserve, minus the lowest ID of the range
+     * @return the number of graduated students
      */
-    Optional<Student> findFirstByFirstNameIgnoreCaseAndLastNameIgnoreCase(String firstName, String lastName);
+    @Modifying(clearAutomatically = true)
+    @Query("update versioned student s set s.graduated = true, s.graduationYear = :graduationYear, s.changeSeq = :changeSeqBase + s.id " +
+            "where s.id >= :from and s.id < :to and s.schoolYear >= :finalSchoolYear and (s.graduated is null or s.graduated = false)")
+    int graduateRange(@Param("from") long from, @Param("to") long to, @Param("finalSchoolYear") int finalSchoolYear, @Param("graduationYear") int graduationYear,
+                      @Param("changeSeqBase") long changeSeqBase);
 
     /**
-     * Find the first student with the given first, middle, and last names, ignoring case.
-     * @param firstName the first name to search for
-     * @param middleName the middle name to search for
-     * @param lastName the last name to search for
-     * @return the first student with the given first, middle, and last names, or an empty Optional if none is found
+     * Move the students in a range of IDs that have not graduated and are below the last school year up one school year, with a single UPDATE statement.
+     * Increments the versions of the students, and clears the persistence context afterwards, so no loaded student keeps the old values.
+     * Each student gets the change sequence number changeSeqBase + their ID, like graduateRange.
+     * The students of a range are either graduated or promoted, so both statements can use the same block of numbers.
+     * @param from the lowest ID of the range
+     * @param to the ID after the highest ID of the range
+     * @param finalSchoolYear the last school year
+     * @param changeSeqBase the first number of a block reserved for the range with ChangeSequence.reserve, minus the lowest ID of the range
+     * @return the number of promoted students
      */
-    Optional<Student> findFirstByFirstNameIgnoreCaseAndMiddleNameIgnoreCaseAndLastNameIgnoreCase(String firstName, String middleName, String lastName);
+    @Modifying(clearAutomatically = true)
+    @Query("update versioned student s set s.schoolYear = s.schoolYear + 1, s.changeSeq = :changeSeqBase + s.id " +
+            "where s.id >= :from and s.id < :to and s.schoolYear < :finalSchoolYear and (s.graduated is null or s.graduated = false)")
+    int promoteRange(@Param("from") long from, @Param("to") long to, @Param("finalSchoolYear") int finalSchoolYear,
+                     @Param("changeSeqBase") long changeSeqBase);
 }
@@ -0,0 +1,38 @@
+package edu.hogwarts.studentadmin.repository;
+
+import edu.hogwarts.studentadmin.model.Tombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Repository for Tombstone entities.
+ * Provides all JpaRepository methods for the Tombstone entity.
+ */
+public interface TombstoneRepository extends JpaRepository<Tombstone, Long> {
+
+    /**
+     * Find the tombstones saved in a range of change sequence numbers, ordered by change sequence number, with an indexed range scan.
+     * @param after the change sequence number the range starts after
+     * @param upTo the highest change sequence number of the range
+     * @param pageable the maximum number of tombstones to find
+     * @return the tombstones
+     */
+    @Query("select t from tombstone t where t.changeSeq > :after and t.changeSeq <= :upTo order by t.changeSeq")
+    List<Tombstone> findChanged(@Param("after") long after, @Param("upTo") long upTo, Pageable pageable);
+
+    /**
+     * Delete the tombstones saved up to a change sequence number, with a single statement.
+     * @param upTo the highest change sequence number of the tombstones to delete
+     * @return the number of deleted tombstones
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("delete from tombstone t where t.changeSeq <= :upTo")
+    int deleteUpTo(@Param("upTo") long upTo);
+}
@@ -0,0 +1,46 @@
+package edu.hogwarts.studentadmin.service;
+
+import edu.hogwarts.studentadmin.dto.CacheRegionStatisticsDTO;
+import org.springframework.stereotype.Service;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * This class provides the statistics of the second-level cache regions, so the regions in ehcache.xml can be sized.
+ * The statistics are read from the JCache statistics MBeans that the cache provider registers for every region.
+ */
+@Service
+public class CacheStatisticsService {
+    private final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+    /**
+     * Get the statistics of all second-level cache regions.
+     * The counts are cumulative since the application was started.
+     * @return A list of statistics ordered by region name, empty if the cache statistics aren't enabled.
+     */
+    public List<CacheRegionStatisticsDTO> getAll() {
+        var statistics = new ArrayList<CacheRegionStatisticsDTO>();
+        try {
+            for (var name : mBeanServer.queryNames(new ObjectName("javax.cache:type=CacheStatistics,*"), null)) {
+                statistics.add(new CacheRegionStatisticsDTO(
+                        name.getKeyProperty("Cache"),
+                        (Long) mBeanServer.getAttribute(name, "CacheHits"),
+                        (Long) mBeanServer.getAttribute(name, "CacheMisses"),
+                        (Long) mBeanServer.getAttribute(name, "CachePuts"),
+                        (Long) mBeanServer.getAttribute(name, "CacheEvictions"),
+                        (Long) mBeanServer.getAttribute(name, "CacheRemovals"),
+                        (Float) mBeanServer.getAttribute(name, "CacheHitPercentage")));
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not read the cache statistics.", e);
+        }
+        statistics.sort(Comparator.comparing(CacheRegionStatisticsDTO::getRegion));
+        return statistics;
+    }
+}
@@ -0,0 +1,92 @@
+package edu.hogwarts.studentadmin.service;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class counts the committed changes of each collection of the school, to use as the ETags of the collection and course responses.
+ * A response is not modified as long as the counter of its collection has not changed since the client got it,
+ * so a conditional GET is answered with 304 Not Modified without reading the database or serializing anything.
+ * The counters start over when the application starts, so the ETags contain a random epoch to tell them apart from those of earlier runs.
+ * The ages of the people in the responses change with the date, so the ETags contain the date too.
+ * A counter is incremented after the committed change has invalidated the caches and cleared the coalesced reads, but before the read model
+ * starts rebuilding, and a controller reads the ETag before it reads the data. A response can then have an ETag that is older than its body,
+ * which only costs the client one more full response, but never one that is newer.
+ * The counters are kept in memory and only count the changes made through this instance, so the ETags are only valid
+ * as long as a single instance of the application writes to the database. With more instances, a change made through one of them
+ * would leave the ETags of the others unchanged, and they would answer 304 Not Modified with data that is out of date.
+ * Running more instances would need the counters to be read from the database instead, such as the highest change sequence number
+ * of each collection, at the cost of a statement for every conditional GET.
+ */
+@Service
+public class ChangeCounters {
+    private final String epoch = Long.toString(new SecureRandom().nextLong() & Long.MAX_VALUE, 36);
+    private final AtomicLongArray counters = new AtomicLongArray(SchoolCollection.values().length);
+
+    /**
+     * The counters of every collection at one point in time, kept by a snapshot of the read model.
+     * @param students The counter of the students
+     * @param teachers The counter of the teachers
+     * @param courses The counter of the courses
+     */
+    public record Counts(long students, long teachers, long courses) {
+        private long of(SchoolCollection collection) {
+            return switch (collection) {
+                case STUDENTS -> students;
+                case TEACHERS -> teachers;
+                case COURSES -> courses;
+            };
+        }
+    }
+
+    /**
+     * Gets the current counters of every collection.
+     * @return The counters
+     */
+    public Counts current() {
+        return new Counts(counters.get(SchoolCollection.STUDENTS.ordinal()), counters.get(SchoolCollection.TEACHERS.ordinal()),
+                counters.get(SchoolCollection.COURSES.ordinal()));
+    }
+
+    /**
+     * Gets the current ETag of a collection. Must be read before the data of the response.
+     * @param collection The collection
+     * @return The strong ETag, quoted
+     */
+    public String getETag(SchoolCollection collection) {
+        return getETag(collection, counters.get(collection.ordinal()));
+    }
+
+    /**
+     * Gets the ETag of a collection at the time of the given counters, for responses from a snapshot of the read model.
+     * @param collection The collection
+     * @param counts The counters the snapshot was built with
+     * @return The strong ETag, quoted
+     */
+    public String getETag(SchoolCollection collection, Counts counts) {
+        return getETag(collection, counts.of(collection));
+    }
+
+    private String getETag(SchoolCollection collection, long counter) {
+        return "\"" + collection.name().toLowerCase(Locale.ROOT) + "-" + epoch + "-" + counter + "-" + LocalDate.now().toEpochDay() + "\"";
+    }
+
+    /**
+     * Increments the counters of the changed collections once the change has committed.
+     * Ordered after RequestCoalescer, and before SchoolReadModel, which reads the counters when it starts a build.
+     * @param event The change
+     */
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChange(SchoolDataChangedEvent event) {
+        for (var collection : event.collections()) {
+            counters.incrementAndGet(collection.ordinal());
+        }
+    }
+}
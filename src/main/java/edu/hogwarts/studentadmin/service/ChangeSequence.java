@@ -0,0 +1,114 @@
+package edu.hogwarts.studentadmin.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.TreeSet;
+
+/**
+ * This class hands out the change sequence numbers of the students, teachers, courses, enrollments and tombstones,
+ * which GET /changes uses to find the rows that changed since a client last synced.
+ * Every number is higher than the one before, and at least the current time in microseconds since the epoch,
+ * so a number can be used as a timestamp, and the numbers keep increasing across restarts.
+ * The numbers are handed out in memory instead of by a database sequence, so a write doesn't need a statement to get one,
+ * which means they are only unique as long as a single instance of the application writes to the database.
+ * A transaction that has taken a number may commit after a transaction that took a higher one, so readers must only read
+ * up to the horizon, below the lowest number of any transaction that has not completed yet.
+ */
+@Service
+public class ChangeSequence {
+    private static final String MAX_CHANGE_SEQ = "select max(m) from (" +
+            "select max(change_seq) m from student union all " +
+            "select max(change_seq) from teacher union all " +
+            "select max(change_seq) from course union all " +
+            "select max(change_seq) from enrollment union all " +
+            "select max(change_seq) from tombstone) t";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TreeSet<Long> inFlight = new TreeSet<>();
+    private long last = -1;
+
+    /**
+     * Constructor for ChangeSequence. Uses dependency injection to get the JdbcTemplate,
+     * since the sequence is created while the entity manager factory is built.
+     * @param jdbcTemplate The JdbcTemplate used to find the highest number saved by earlier runs
+     */
+    public ChangeSequence(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Gets the next change sequence number for a row written by the current transaction.
+     * @return The number
+     */
+    public long next() {
+        return reserve(1);
+    }
+
+    /**
+     * Reserves a block of numbers for the rows written by a single bulk statement of the current transaction.
+     * @param size The number of numbers to reserve
+     * @return The first number of the block, the block ends at the first number + size - 1
+     */
+    public synchronized long reserve(long size) {
+        var first = Math.max(last() + 1, nowMicros());
+        last = first + Math.max(size, 1) - 1;
+        registerInFlight(first);
+        return first;
+    }
+
+    /**
+     * Gets the highest number that every transaction has committed or rolled back up to.
+     * Every row with a number up to the horizon is visible to a transaction that starts after the horizon was read.
+     * @return The horizon
+     */
+    public synchronized long horizon() {
+        return inFlight.isEmpty() ? last() : inFlight.first() - 1;
+    }
+
+    /**
+     * Converts a timestamp to the lowest change sequence number it could have been handed out at.
+     * @param instant The timestamp
+     * @return The number
+     */
+    public static long fromInstant(Instant instant) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, instant);
+    }
+
+    private long last() {
+        if (last < 0) {
+            var saved = jdbcTemplate.queryForObject(MAX_CHANGE_SEQ, Long.class);
+            last = saved == null ? 0 : saved;
+        }
+        return last;
+    }
+
+    /**
+     * Keeps the first number taken by the current transaction in flight until the transaction has completed.
+     * The numbers taken later by the same transaction are higher, so only the first one holds back the horizon.
+     */
+    private void registerInFlight(long first) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive() || TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, first);
+        inFlight.add(first);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ChangeSequence.this);
+                synchronized (ChangeSequence.this) {
+                    inFlight.remove(first);
+                }
+            }
+        });
+    }
+
+    private static long nowMicros() {
+        return fromInstant(Instant.now());
+    }
+}
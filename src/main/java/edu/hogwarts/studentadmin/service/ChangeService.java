@@ -0,0 +1,144 @@
+package edu.hogwarts.studentadmin.service;
+
+import edu.hogwarts.studentadmin.dto.ChangesDTO;
+import edu.hogwarts.studentadmin.dto.CourseRowDTO;
+import edu.hogwarts.studentadmin.dto.DeletedDTO;
+import edu.hogwarts.studentadmin.dto.EnrollmentDTO;
+import edu.hogwarts.studentadmin.model.Student;
+import edu.hogwarts.studentadmin.model.Teacher;
+import edu.hogwarts.studentadmin.model.Tombstone;
+import edu.hogwarts.studentadmin.repository.CourseRepository;
+import edu.hogwarts.studentadmin.repository.EnrollmentRepository;
+import edu.hogwarts.studentadmin.repository.StudentRepository;
+import edu.hogwarts.studentadmin.repository.TeacherRepository;
+import edu.hogwarts.studentadmin.repository.TombstoneRepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * This class finds the students, teachers, courses and enrollments that changed since a client last synced, and the ones that were deleted.
+ * Every table is read with an indexed range scan over its change sequence numbers, so the cost of a sync grows with the number of changes
+ * instead of the size of the school.
+ * The changes are read up to the horizon of ChangeSequence, so a transaction that commits later with a lower number is never skipped.
+ * Tombstones are only kept for the configured retention, so a client that last synced before it must sync everything again.
+ */
+@Service
+@Timed("studentadmin.service")
+public class ChangeService {
+    private final StudentRepository studentRepository;
+    private final TeacherRepository teacherRepository;
+    private final CourseRepository courseRepository;
+    private final EnrollmentRepository enrollmentRepository;
+    private final TombstoneRepository tombstoneRepository;
+    private final StudentService studentService;
+    private final TeacherService teacherService;
+    private final ChangeSequence changeSequence;
+    private final Duration tombstoneRetention;
+
+    /**
+     * Constructor for ChangeService. Uses dependency injection to get the repositories, the services that convert people to DTOs and the ChangeSequence.
+     * @param studentRepository The repository for students
+     * @param teacherRepository The repository for teachers
+     * @param courseRepository The repository for courses
+     * @param enrollmentRepository The repository for the enrollments of students in courses
+     * @param tombstoneRepository The repository for the tombstones of deleted rows
+     * @param studentService The service for students
+     * @param teacherService The service for teachers
+     * @param changeSequence The change sequence, which gives the horizon the changes are read up to
+     * @param tombstoneRetention How long the tombstones of deleted rows are kept
+     */
+    public ChangeService(StudentRepository studentRepository, TeacherRepository teacherRepository, CourseRepository courseRepository,
+                         EnrollmentRepository enrollmentRepository, TombstoneRepository tombstoneRepository,
+                         StudentService studentService, TeacherService teacherService, ChangeSequence changeSequence,
+                         @Value("${studentadmin.changes.tombstone-retention:30d}") Duration tombstoneRetention) {
+        this.studentRepository = studentRepository;
+        this.teacherRepository = teacherRepository;
+        this.courseRepository = courseRepository;
+        this.enrollmentRepository = enrollmentRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.studentService = studentService;
+        this.teacherService = teacherService;
+        this.changeSequence = changeSequence;
+        this.tombstoneRetention = tombstoneRetention;
+    }
+
+    /**
+     * Gets the change sequence number the tombstones are kept after. Tombstones up to it may have been deleted,
+     * so the changes since an earlier number can't be read anymore.
+     * @return The number, which only grows over time
+     */
+    public long getRetentionHorizon() {
+        return ChangeSequence.fromInstant(Instant.now().minus(tombstoneRetention));
+    }
+
+    /**
+     * Gets the changes after a change sequence number, at most limit of each kind.
+     * If any kind has more changes than the limit, the changes of every kind are cut off at the same number,
+     * so the next sync, which starts after that number, doesn't miss or repeat any change.
+     * @param since The change sequence number the client last synced up to, or -1 for everything
+     * @param limit The maximum number of students, teachers, courses, enrollments and deleted rows each
+     * @return The changes, with the number to pass as since by the next sync, or null if since is older than the tombstones that are kept
+     */
+    @Transactional(readOnly = true)
+    public ChangesDTO getChanges(long since, int limit) {
+        if (since >= 0 && since < getRetentionHorizon()) {
+            return null;
+        }
+        var horizon = changeSequence.horizon();
+        var upTo = Math.max(since, horizon);
+        var page = PageRequest.ofSize(limit + 1);
+        var students = studentRepository.findChanged(since, upTo, page);
+        var teachers = teacherRepository.findChanged(since, upTo, page);
+        var courses = courseRepository.findChanged(since, upTo, page);
+        var enrollments = enrollmentRepository.findChanged(since, upTo, page);
+        var tombstones = tombstoneRepository.findChanged(since, upTo, page);
+
+        var next = upTo;
+        next = Math.min(next, cutOff(students, limit, Student::getChangeSeq));
+        next = Math.min(next, cutOff(teachers, limit, Teacher::getChangeSeq));
+        next = Math.min(next, cutOff(courses, limit, CourseRepository.ChangedCourseRow::getChangeSeq));
+        next = Math.min(next, cutOff(enrollments, limit, EnrollmentRepository.ChangedEnrollmentRow::getChangeSeq));
+        next = Math.min(next, cutOff(tombstones, limit, Tombstone::getChangeSeq));
+        var last = next;
+
+        return new ChangesDTO(
+                upTo(students, last, Student::getChangeSeq).stream().map(studentService::convertToDTO).toList(),
+                upTo(teachers, last, Teacher::getChangeSeq).stream().map(teacherService::convertToDTO).toList(),
+                upTo(courses, last, CourseRepository.ChangedCourseRow::getChangeSeq).stream()
+                        .map(course -> new CourseRowDTO(course.getId(), course.getSubject(), course.getSchoolYear(), course.getCurrent(), course.getTeacherId()))
+                        .toList(),
+                upTo(enrollments, last, EnrollmentRepository.ChangedEnrollmentRow::getChangeSeq).stream()
+                        .map(enrollment -> new EnrollmentDTO(enrollment.getCourseId(), enrollment.getStudentId(), enrollment.getEnrolledAt()))
+                        .toList(),
+                upTo(tombstones, last, Tombstone::getChangeSeq).stream().map(ChangeService::convertToDTO).toList(),
+                next,
+                next < upTo);
+    }
+
+    /**
+     * Gets the number the changes must be cut off at, so none of a kind that has more changes than the limit are skipped.
+     * @return The number of the last change within the limit, or Long.MAX_VALUE if all the changes are within it
+     */
+    private static <T> long cutOff(List<T> changes, int limit, ToLongFunction<T> changeSeq) {
+        return changes.size() > limit ? changeSeq.applyAsLong(changes.get(limit - 1)) : Long.MAX_VALUE;
+    }
+
+    private static <T> List<T> upTo(List<T> changes, long last, ToLongFunction<T> changeSeq) {
+        return changes.stream().filter(change -> changeSeq.applyAsLong(change) <= last).toList();
+    }
+
+    private static DeletedDTO convertToDTO(Tombstone tombstone) {
+        if (Tombstone.ENROLLMENT.equals(tombstone.getType())) {
+            return new DeletedDTO(tombstone.getType(), null, tombstone.getEntityId(), tombstone.getStudentId());
+        }
+        return new DeletedDTO(tombstone.getType(), tombstone.getEntityId(), null, null);
+    }
+}
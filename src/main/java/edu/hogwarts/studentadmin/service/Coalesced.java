@@ -0,0 +1,16 @@
+package edu.hogwarts.studentadmin.service;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a service method that only reads, so identical concurrent calls share one call through the RequestCoalescer.
+ * Calls are identical when they are made on the same service with the same method and equal arguments.
+ * The result is shared between the callers, so it must not be changed by them.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Coalesced {
+}
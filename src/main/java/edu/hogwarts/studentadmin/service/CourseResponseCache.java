@@ -0,0 +1,316 @@
+package edu.hogwarts.studentadmin.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.hogwarts.studentadmin.dto.CourseDTO;
+import edu.hogwarts.studentadmin.dto.StudentDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * This class caches the serialized JSON responses of GET /courses/{id}, /courses/{id}/teacher and /courses/{id}/students, keyed by course id.
+ * The three responses of a course are serialized together on a miss, so the other two routes hit afterwards.
+ * The cache is bounded by the total size of the responses, and evicts the least recently used courses first.
+ * Changes invalidate exactly the courses they affect: a course by its id, and a student or teacher through a reverse index
+ * of the courses whose cached responses contain them. Invalidations run once the transaction has committed,
+ * before the other handlers of the commit, so ChangeCounters never hands out the ETag of a change while the cache still has the data from before it.
+ * A response loaded while an invalidation happens is not cached, so a response read before a commit can't be cached after it.
+ * The responses contain the ages of the people, so the whole cache is cleared on the first lookup of a new day.
+ * Hits, misses and evictions are published as metrics, so the hit ratio can be watched.
+ */
+@Service
+public class CourseResponseCache {
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+    private final boolean enabled;
+    private final long maxBytes;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter sizeEvictions;
+    private final Counter invalidations;
+
+    /**
+     * The cached courses in least recently used order. Guarded by this, like the fields below.
+     */
+    private final LinkedHashMap<Long, CourseResponses> courses = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Long, Set<Long>> coursesByStudent = new HashMap<>();
+    private final Map<Long, Set<Long>> coursesByTeacher = new HashMap<>();
+    private long bytes;
+
+    /**
+     * Counts the invalidations, so a response loaded before an invalidation is not cached after it.
+     */
+    private long generation;
+
+    /**
+     * The day the cached responses were serialized on, as a day since the epoch.
+     */
+    private long epochDay;
+
+    /**
+     * The serialized responses of a course, and the students and teacher they contain.
+     * @param course The JSON of the course.
+     * @param teacher The JSON of the teacher, or null if the course has no teacher.
+     * @param students The JSON of the roster, or null if the roster is empty.
+     * @param rosterSize The number of students on the roster.
+     * @param studentIds The IDs of the students on the roster.
+     * @param teacherId The ID of the teacher, or null if the course has no teacher.
+     */
+    public record CourseResponses(byte[] course, byte[] teacher, byte[] students, int rosterSize, long[] studentIds, Long teacherId) {
+        private long weight() {
+            return ENTRY_OVERHEAD + course.length + (teacher == null ? 0 : teacher.length) + (students == null ? 0 : students.length)
+                    + (long) Long.BYTES * studentIds.length;
+        }
+    }
+
+    /**
+     * Constructor for CourseResponseCache. Uses dependency injection to get the JSON mapper and the settings.
+     * @param objectMapper The JSON mapper used to serialize the responses, the same as for the other responses
+     * @param meterRegistry The registry for the metrics of the cache
+     * @param enabled Whether the responses are cached
+     * @param maxSize The maximum total size of the cached responses
+     */
+    @Autowired
+    public CourseResponseCache(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                               @Value("${studentadmin.course-cache.enabled:true}") boolean enabled,
+                               @Value("${studentadmin.course-cache.max-size:64MB}") DataSize maxSize) {
+        this(objectMapper, meterRegistry, enabled, maxSize, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Constructor for CourseResponseCache with the clock the date is read from, so tests can change the date.
+     * @param objectMapper The JSON mapper used to serialize the responses
+     * @param meterRegistry The registry for the metrics of the cache
+     * @param enabled Whether the responses are cached
+     * @param maxSize The maximum total size of the cached responses
+     * @param clock The clock the date is read from
+     */
+    public CourseResponseCache(ObjectMapper objectMapper, MeterRegistry meterRegistry, boolean enabled, DataSize maxSize, Clock clock) {
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+        this.epochDay = LocalDate.now(clock).toEpochDay();
+        this.enabled = enabled;
+        this.maxBytes = maxSize.toBytes();
+        this.hits = Counter.builder("studentadmin.course_cache.gets").tag("result", "hit")
+                .description("Lookups of course responses in the cache").register(meterRegistry);
+        this.misses = Counter.builder("studentadmin.course_cache.gets").tag("result", "miss")
+                .description("Lookups of course responses in the cache").register(meterRegistry);
+        this.sizeEvictions = Counter.builder("studentadmin.course_cache.evictions").tag("cause", "size")
+                .description("Courses removed from the cache").register(meterRegistry);
+        this.invalidations = Counter.builder("studentadmin.course_cache.evictions").tag("cause", "invalidation")
+                .description("Courses removed from the cache").register(meterRegistry);
+        Gauge.builder("studentadmin.course_cache.size", this, CourseResponseCache::size)
+                .description("Number of courses in the cache").register(meterRegistry);
+        Gauge.builder("studentadmin.course_cache.weight", this, CourseResponseCache::weight)
+                .description("Total size of the cached responses").baseUnit("bytes").register(meterRegistry);
+    }
+
+    /**
+     * Gets the cached responses of a course, or loads and caches them.
+     * @param id The ID of the course
+     * @param loader Loads the course, returns null if it doesn't exist
+     * @return The responses of the course, or null if it doesn't exist
+     */
+    public CourseResponses get(Long id, Supplier<CourseDTO> loader) {
+        long loadedGeneration;
+        synchronized (this) {
+            clearIfNewDay();
+            var cached = enabled ? courses.get(id) : null;
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+            loadedGeneration = generation;
+        }
+        misses.increment();
+        var course = loader.get();
+        if (course == null) {
+            return null;
+        }
+        var responses = serialize(course);
+        if (enabled) {
+            put(id, responses, loadedGeneration);
+        }
+        return responses;
+    }
+
+    /**
+     * Invalidates a course once the current transaction has committed, or right away if there is none.
+     * @param id The ID of the course
+     */
+    public void invalidateCourse(Long id) {
+        afterCommit(() -> remove(id));
+    }
+
+    /**
+     * Invalidates the courses whose cached responses contain a student, once the current transaction has committed.
+     * @param studentId The ID of the student
+     */
+    public void invalidateStudent(Long studentId) {
+        afterCommit(() -> removeAll(coursesByStudent.get(studentId)));
+    }
+
+    /**
+     * Invalidates the courses whose cached responses contain a teacher, once the current transaction has committed.
+     * @param teacherId The ID of the teacher
+     */
+    public void invalidateTeacher(Long teacherId) {
+        afterCommit(() -> removeAll(coursesByTeacher.get(teacherId)));
+    }
+
+    /**
+     * Invalidates every course once the current transaction has committed, for changes to many students or courses at once.
+     */
+    public void invalidateAll() {
+        afterCommit(() -> removeAll(courses.keySet()));
+    }
+
+    /**
+     * Gets the number of cached courses.
+     * @return The number of courses
+     */
+    public synchronized int size() {
+        return courses.size();
+    }
+
+    /**
+     * Gets the total size of the cached responses, with an estimate of the overhead of each course.
+     * @return The size in bytes
+     */
+    public synchronized long weight() {
+        return bytes;
+    }
+
+    private CourseResponses serialize(CourseDTO course) {
+        try {
+            var teacher = course.getTeacher();
+            var students = course.getStudents() == null ? List.<StudentDTO>of() : course.getStudents();
+            return new CourseResponses(
+                    objectMapper.writeValueAsBytes(course),
+                    teacher == null ? null : objectMapper.writeValueAsBytes(teacher),
+                    students.isEmpty() ? null : objectMapper.writeValueAsBytes(students),
+                    students.size(),
+                    students.stream().mapToLong(StudentDTO::getId).toArray(),
+                    teacher == null ? null : teacher.getId());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize course " + course.getId(), e);
+        }
+    }
+
+    private synchronized void put(Long id, CourseResponses responses, long loadedGeneration) {
+        if (generation != loadedGeneration || responses.weight() > maxBytes) {
+            return;
+        }
+        var previous = courses.put(id, responses);
+        if (previous != null) {
+            unindex(id, previous);
+        }
+        bytes += responses.weight();
+        for (var studentId : responses.studentIds()) {
+            coursesByStudent.computeIfAbsent(studentId, key -> new HashSet<>()).add(id);
+        }
+        if (responses.teacherId() != null) {
+            coursesByTeacher.computeIfAbsent(responses.teacherId(), key -> new HashSet<>()).add(id);
+        }
+        var eldest = courses.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            var entry = eldest.next();
+            eldest.remove();
+            unindex(entry.getKey(), entry.getValue());
+            sizeEvictions.increment();
+        }
+    }
+
+    private void afterCommit(Runnable invalidation) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public int getOrder() {
+                    return Ordered.HIGHEST_PRECEDENCE;
+                }
+
+                @Override
+                public void afterCommit() {
+                    invalidate(invalidation);
+                }
+            });
+        } else {
+            invalidate(invalidation);
+        }
+    }
+
+    /**
+     * Clears the cache once the date has changed, since the ages in the responses may have changed with it.
+     * Also counts as an invalidation, so a response loaded on the day before is not cached.
+     */
+    private void clearIfNewDay() {
+        var today = LocalDate.now(clock).toEpochDay();
+        if (today != epochDay) {
+            epochDay = today;
+            generation++;
+            removeAll(courses.keySet());
+        }
+    }
+
+    private synchronized void invalidate(Runnable invalidation) {
+        generation++;
+        invalidation.run();
+    }
+
+    private void removeAll(Collection<Long> ids) {
+        if (ids != null) {
+            for (var id : List.copyOf(ids)) {
+                remove(id);
+            }
+        }
+    }
+
+    private void remove(Long id) {
+        var responses = courses.remove(id);
+        if (responses != null) {
+            unindex(id, responses);
+            invalidations.increment();
+        }
+    }
+
+    private void unindex(Long id, CourseResponses responses) {
+        bytes -= responses.weight();
+        for (var studentId : responses.studentIds()) {
+            unindex(coursesByStudent, studentId, id);
+        }
+        if (responses.teacherId() != null) {
+            unindex(coursesByTeacher, responses.teacherId(), id);
+        }
+    }
+
+    private static void unindex(Map<Long, Set<Long>> index, Long key, Long id) {
+        var ids = index.get(key);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            index.remove(key);
+        }
+    }
+}
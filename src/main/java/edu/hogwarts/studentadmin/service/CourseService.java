@@ -1,36 +1,63 @@
 package edu.hogwarts.studentadmin.service;
 
 import edu.hogwarts.studentadmin.dto.CourseDTO;
+import edu.hogwarts.studentadmin.dto.CourseSummaryDTO;
 import edu.hogwarts.studentadmin.dto.StudentDTO;
 import edu.hogwarts.studentadmin.dto.TeacherDTO;
 import edu.hogwarts.studentadmin.model.Course;
+import edu.hogwarts.studentadmin.model.Enrollment;
+import edu.hogwarts.studentadmin.model.EnrollmentId;
+import edu.hogwarts.studentadmin.model.Student;
 import edu.hogwarts.studentadmin.model.Teacher;
+import edu.hogwarts.studentadmin.model.Tombstone;
 import edu.hogwarts.studentadmin.repository.CourseRepository;
+import edu.hogwarts.studentadmin.repository.EnrollmentRepository;
+import edu.hogwarts.studentadmin.repository.TombstoneRepository;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 /**
  * This class provides service methods to manage courses in the school.
+ * Methods that only read run in read-only transactions, so Hibernate doesn't keep snapshots of the loaded rosters for dirty checking.
+ * Entities loaded by a read-only method stay read-only for the rest of the request, since the persistence context is shared,
+ * so methods that write load the course they change themselves instead of taking one that was loaded before.
+ * The list and detail reads are @Coalesced, so identical concurrent requests share one call and its result.
  */
 @Service
+@Timed("studentadmin.service")
 public class CourseService {
 
     private final CourseRepository courseRepository;
+    private final EnrollmentRepository enrollmentRepository;
     private final TeacherService teacherService;
     private final StudentService studentService;
+    private final TombstoneRepository tombstoneRepository;
+    private final ChangeSequence changeSequence;
 
     /**
-     * Constructor for CourseService. Uses dependency injection to get the CourseRepository, TeacherService, and StudentService.
+     * Constructor for CourseService. Uses dependency injection to get the CourseRepository, EnrollmentRepository, TeacherService, StudentService,
+     * TombstoneRepository and ChangeSequence.
      * @param courseRepository The repository for courses
+     * @param enrollmentRepository The repository for the enrollments of students in courses
      * @param teacherService The service for teachers
      * @param studentService The service for students
+     * @param tombstoneRepository The repository for the tombstones of deleted courses and enrollments
+     * @param changeSequence The change sequence, for the courses updated with a single statement
      */
-    public CourseService(CourseRepository courseRepository, TeacherService teacherService, StudentService studentService) {
+    public CourseService(CourseRepository courseRepository, EnrollmentRepository enrollmentRepository, TeacherService teacherService, StudentService studentService,
+                         TombstoneRepository tombstoneRepository, ChangeSequence changeSequence) {
         this.courseRepository = courseRepository;
+        this.enrollmentRepository = enrollmentRepository;
         this.teacherService = teacherService;
         this.studentService = studentService;
+        this.tombstoneRepository = tombstoneRepository;
+        this.changeSequence = changeSequence;
     }
 
     /**
@@ -61,7 +88,8 @@ public class CourseService {
 
     /**
      * Converts a course DTO to a course entity.
-     * If the teacher or students are not null, they are fetched from the database to ensure they exist.
+     * If the teacher is not null, it is fetched from the database to ensure it exists.
+     * The students are not converted, since they can only be enrolled once the course has been saved.
      * @param courseDTO The course DTO to convert.
      * @return The course entity.
      */
@@ -76,31 +104,124 @@ public class CourseService {
         if (courseDTO.getTeacher() != null) {
             courseEntity.setTeacher(teacherService.getEntity(courseDTO.getTeacher().getId()));
         }
-        if (courseDTO.getStudents() != null) {
-            var studentEntities = courseDTO.getStudents().stream().map(s-> studentService.getEntity(s.getId())).toList();
-            if(studentEntities.stream().allMatch(Objects::nonNull)) {
-                courseEntity.setStudents(studentEntities);
-            }
-        }
         return courseEntity;
     }
 
     /**
-     * Gets list of all courses from the database
+     * Gets the student entities for a list of student DTOs in a single query.
+     * @param studentDTOs The students as a list of Student objects with at least their ids set
+     * @return The student entities, or null if any of the students don't exist
+     */
+    private List<Student> getStudentEntities(List<StudentDTO> studentDTOs) {
+        var ids = studentDTOs.stream().map(StudentDTO::getId).collect(Collectors.toSet());
+        if (ids.contains(null)) {
+            return null;
+        }
+        var studentEntities = studentService.getEntities(ids);
+        if (studentEntities.size() != ids.size()) {
+            return null;
+        }
+        return studentEntities;
+    }
+
+    /**
+     * Enrolls students in a course, skipping the students that are already enrolled.
+     * Each new enrollment is inserted as its own row, the rest of the roster is not touched.
+     * @param course The saved course to enroll the students in
+     * @param students The students to enroll
+     */
+    private void enroll(Course course, List<Student> students) {
+        var enrollments = students.stream()
+                .map(course::enroll)
+                .filter(Objects::nonNull)
+                .toList();
+        enrollmentRepository.saveAll(enrollments);
+        ServiceOperationEvent.studentsAdded(enrollments.size());
+    }
+
+    /**
+     * Enrolls students in a course without loading the course or its roster, skipping the students that are already enrolled.
+     * Which of the students are enrolled already is found with a single query on the enrollment keys,
+     * and the new enrollments are inserted against a reference to the course,
+     * so the work done doesn't grow with the size of the roster.
+     * @param courseId The id of the saved course to enroll the students in
+     * @param students The students to enroll
+     * @return The number of students that were enrolled
+     */
+    private int enrollNew(Long courseId, List<Student> students) {
+        var studentIds = students.stream().map(Student::getId).collect(Collectors.toSet());
+        var enrolledIds = enrollmentRepository.findEnrolledStudentIds(courseId, studentIds);
+        var course = courseRepository.getReferenceById(courseId);
+        var now = LocalDateTime.now();
+        var enrollments = students.stream()
+                .filter(student -> !enrolledIds.contains(student.getId()))
+                .map(student -> new Enrollment(course, student, now))
+                .toList();
+        enrollmentRepository.saveAll(enrollments);
+        ServiceOperationEvent.studentsAdded(enrollments.size());
+        return enrollments.size();
+    }
+
+    /**
+     * Replaces the roster of a course with the given students, if they all exist.
+     * Only the students that are not on the roster yet are loaded, in a single query that also checks that they exist,
+     * and only the enrollments of students that are removed or added are deleted or inserted.
+     * @param course The saved course with its roster loaded
+     * @param studentDTOs The new students of the course as a list of Student objects with at least their ids set
+     */
+    private void replaceRoster(Course course, List<StudentDTO> studentDTOs) {
+        var studentIds = studentDTOs.stream().map(StudentDTO::getId).collect(Collectors.toSet());
+        if (studentIds.contains(null)) {
+            return;
+        }
+        var enrolledIds = course.getEnrollments().stream()
+                .map(enrollment -> enrollment.getId().getStudentId())
+                .collect(Collectors.toSet());
+        var newIds = studentIds.stream().filter(studentId -> !enrolledIds.contains(studentId)).collect(Collectors.toSet());
+        var newStudents = newIds.isEmpty() ? List.<Student>of() : studentService.getEntities(newIds);
+        if (newStudents.size() != newIds.size()) {
+            return;
+        }
+        var removed = course.getEnrollments().stream()
+                .filter(enrollment -> !studentIds.contains(enrollment.getId().getStudentId()))
+                .toList();
+        course.getEnrollments().removeIf(enrollment -> !studentIds.contains(enrollment.getId().getStudentId()));
+        enrollmentRepository.deleteAll(removed);
+        tombstoneRepository.saveAll(removed.stream().map(Tombstone::of).toList());
+        ServiceOperationEvent.studentsRemoved(removed.size());
+        enroll(course, newStudents);
+    }
+
+    /**
+     * Gets list of all courses from the database, with their teachers and students loaded in a single query
      * @return List of all courses
      */
+    @Coalesced
+    @Transactional(readOnly = true)
     public List<CourseDTO> getAll() {
-        var courses = courseRepository.findAll();
+        var courses = courseRepository.findAllWithRosters();
         return courses.stream().map(this::convertToDTO).toList();
     }
 
+    /**
+     * Gets a summary of all courses from the database, without their rosters.
+     * @return List of all course summaries
+     */
+    @Coalesced
+    @Transactional(readOnly = true)
+    public List<CourseSummaryDTO> getAllSummaries() {
+        return courseRepository.findAllSummaries();
+    }
+
     /**
      * Gets a specific course by its id
      * @param id The id of the course
      * @return The course with the given id, or null if it doesn't exist
      */
+    @Coalesced
+    @Transactional(readOnly = true)
     public CourseDTO get(Long id) {
-        var course = courseRepository.findById(id).orElse(null);
+        var course = courseRepository.findWithRosterById(id).orElse(null);
         if (course == null) {
             return null;
         }
@@ -108,39 +229,79 @@ public class CourseService {
     }
 
     /**
-     * Creates a new course.
+     * Gets the school year of a course without loading its teacher or students.
+     * @param id The id of the course
+     * @return The school year of the course, or null if the course doesn't exist or has no school year
+     */
+    @Transactional(readOnly = true)
+    public Integer getSchoolYear(Long id) {
+        return courseRepository.findSchoolYearById(id).orElse(null);
+    }
+
+    /**
+     * Checks if a course exists.
+     * @param id The id of the course
+     * @return True if the course exists, otherwise false
+     */
+    @Transactional(readOnly = true)
+    public boolean exists(Long id) {
+        return id != null && courseRepository.existsById(id);
+    }
+
+    /**
+     * Creates a new course, and enrolls its students if they all exist.
      * @param courseDTO The course to create
      * @return The created course
      */
+    @Transactional
     public CourseDTO create(CourseDTO courseDTO) {
-        var courseEntity = convertToEntity(courseDTO);
-        return convertToDTO(courseRepository.save(courseEntity));
+        var courseEntity = courseRepository.save(convertToEntity(courseDTO));
+        if (courseDTO.getStudents() != null) {
+            var studentEntities = getStudentEntities(courseDTO.getStudents());
+            if (studentEntities != null) {
+                enroll(courseEntity, studentEntities);
+            }
+        }
+        return convertToDTO(courseEntity);
     }
 
     /**
      * Updates a course overwriting all its fields with the new course data.
+     * The course is loaded with its roster in one query and changed in place. The teacher is set as a reference,
+     * so it must have been checked to exist, and only the students that are not on the roster yet are loaded.
      * @param id The id of the course to update
      * @param courseDTO The new course data
      * @return The updated course, or null if the course doesn't exist
      */
+    @Transactional
     public CourseDTO update(Long id, CourseDTO courseDTO) {
-        var courseEntity = courseRepository.findById(id).orElse(null);
+        var courseEntity = courseRepository.findWithRosterById(id).orElse(null);
         if (courseEntity == null) {
             return null;
         }
-        courseEntity = convertToEntity(courseDTO);
-        return convertToDTO(courseRepository.save(courseEntity));
+        courseEntity.setSubject(courseDTO.getSubject());
+        courseEntity.setSchoolYear(courseDTO.getSchoolYear());
+        courseEntity.setCurrent(courseDTO.isCurrent());
+        if (courseDTO.getTeacher() != null) {
+            courseEntity.setTeacher(teacherService.getReference(courseDTO.getTeacher().getId()));
+        } else {
+            courseEntity.setTeacher(null);
+        }
+        replaceRoster(courseEntity, courseDTO.getStudents() != null ? courseDTO.getStudents() : List.of());
+        return convertToDTO(courseEntity);
     }
 
     /**
      * Updates a course overwriting only the fields that are not null in the new course data.
-     * If the teacher or students are not null, they are fetched from the database to ensure they exist.
+     * The course is loaded with its roster in one query and changed in place. The teacher is set as a reference,
+     * so it must have been checked to exist, and only the students that are not on the roster yet are loaded to check that they exist.
      * @param id The id of the course to update
      * @param courseDTO The new course data
      * @return The updated course, or null if the course doesn't exist
      */
+    @Transactional
     public CourseDTO patch(Long id, CourseDTO courseDTO) {
-        var courseEntity = courseRepository.findById(id).orElse(null);
+        var courseEntity = courseRepository.findWithRosterById(id).orElse(null);
         if (courseEntity == null) {
             return null;
         }
@@ -150,16 +311,11 @@ public class CourseService {
         }
 
         if (courseDTO.getTeacher() != null) {
-            var teacher = teacherService.getEntity(courseDTO.getTeacher().getId());
-            courseEntity.setTeacher(teacher);
+            courseEntity.setTeacher(teacherService.getReference(courseDTO.getTeacher().getId()));
         }
 
         if (courseDTO.getStudents() != null) {
-            var studentEntities = courseDTO.getStudents()
-                    .stream()
-                    .map(student -> studentService.getEntity(student.getId()))
-                    .toList();
-            courseEntity.setStudents(studentEntities);
+            replaceRoster(courseEntity, courseDTO.getStudents());
         }
 
         if (courseDTO.getSchoolYear() != null) {
@@ -170,7 +326,7 @@ public class CourseService {
             courseEntity.setCurrent(courseDTO.isCurrent());
         }
 
-        return convertToDTO(courseRepository.save(courseEntity));
+        return convertToDTO(courseEntity);
     }
 
     /**
@@ -180,8 +336,9 @@ public class CourseService {
      * @param teacherDTO The new teacher
      * @return The updated course, or null if the course doesn't exist or the teacher doesn't exist
      */
+    @Transactional
     public CourseDTO updateTeacher(Long id, TeacherDTO teacherDTO) {
-        var courseEntity = courseRepository.findById(id).orElse(null);
+        var courseEntity = courseRepository.findWithRosterById(id).orElse(null);
         if (courseEntity == null) {
             return null;
         }
@@ -194,97 +351,103 @@ public class CourseService {
         }
 
         courseEntity.setTeacher(teacherEntity);
-        return convertToDTO(courseRepository.save(courseEntity));
+        return convertToDTO(courseEntity);
     }
 
     /**
      * Adds students to a course, finding them by their names.
-     * If the students are not null, they are fetched from the database to ensure they exist.
+     * The students are fetched from the database in a single query to ensure they exist.
+     * The roster of the course is not loaded, see {@link #enrollNew(Long, List)}.
      * @param id The id of the course to update
      * @param studentDTOS The new students as a list of Student objects with at least their names set
-     * @return The updated course, or null if the course doesn't exist
+     * @return The number of students that were enrolled, or null if the course doesn't exist
      */
-    public CourseDTO addStudentsByName(Long id, List<StudentDTO> studentDTOS) {
-        var courseEntity = courseRepository.findById(id).orElse(null);
-        if (courseEntity == null) {
+    @Transactional
+    public Integer addStudentsByName(Long id, List<StudentDTO> studentDTOS) {
+        if (!courseRepository.existsById(id)) {
             return null;
         }
 
+        var studentsByName = studentService.getByNames(studentDTOS.stream().map(StudentDTO::getName).toList());
         var studentEntities = studentDTOS
                 .stream()
-                .map(student -> studentService.get(student.getName()))
+                .map(student -> studentsByName.get(student.getName()))
                 .toList();
-        if(studentEntities.stream().allMatch(Objects::nonNull)){
-            courseEntity.getStudents().addAll(studentEntities);
+        if (!studentEntities.stream().allMatch(Objects::nonNull)) {
+            return 0;
         }
-        return convertToDTO(courseRepository.save(courseEntity));
+        return enrollNew(id, studentEntities);
     }
 
     /**
      * Adds students to a course, finding them by their ids.
      * If the students are not null, they are fetched from the database to ensure they exist.
+     * The roster of the course is not loaded, see {@link #enrollNew(Long, List)}.
      * @param id The id of the course to update
      * @param studentDTOS The new students as a list of Student objects with at least their ids set
-     * @return The updated course, or null if the course doesn't exist
+     * @return The number of students that were enrolled, or null if the course doesn't exist
      */
-    public CourseDTO addStudentsById(Long id, List<StudentDTO> studentDTOS) {
-        var courseEntity = courseRepository.findById(id).orElse(null);
-        if (courseEntity == null) {
+    @Transactional
+    public Integer addStudentsById(Long id, List<StudentDTO> studentDTOS) {
+        if (!courseRepository.existsById(id)) {
             return null;
         }
 
-        if(studentDTOS.isEmpty()){
-            return convertToDTO(courseEntity);
+        if (studentDTOS.isEmpty()) {
+            return 0;
         }
 
-        var studentEntities = studentDTOS
-                .stream()
-                .map(student -> studentService.getEntity(student.getId()))
-                .toList();
-        if(studentEntities.stream().allMatch(Objects::nonNull)){
-            courseEntity.getStudents().addAll(studentEntities);
+        var studentEntities = getStudentEntities(studentDTOS);
+        if (studentEntities == null) {
+            return 0;
         }
-        return convertToDTO(courseRepository.save(courseEntity));
+        return enrollNew(id, studentEntities);
     }
 
     /**
-     * Deletes a course by its id
+     * Deletes a course by its id.
+     * The enrollments are deleted first with a single statement, so the loaded enrollments don't keep the course from being deleted.
+     * Only the course gets a tombstone, which stands for its enrollments too.
      * @param id The id of the course to delete
      */
+    @Transactional
     public void delete(Long id) {
+        enrollmentRepository.deleteByCourseId(id);
         courseRepository.deleteById(id);
+        tombstoneRepository.save(new Tombstone(Tombstone.COURSE, id, null));
     }
 
     /**
      * Removes the teacher from a course, setting it to null.
+     * Only the teacher is selected and the course is updated with a single statement, so the roster is not loaded.
      * @param id The id of the course to update
+     * @return The removed teacher, or null if the course doesn't exist or has no teacher
      */
-    public void removeTeacher(Long id) {
-        var course = courseRepository.findById(id).orElse(null);
-        if (course == null) {
-            return;
+    @Transactional
+    public TeacherDTO removeTeacher(Long id) {
+        var teacher = courseRepository.findTeacherById(id).orElse(null);
+        if (teacher == null) {
+            return null;
         }
-        course.setTeacher(null);
-        courseRepository.save(course);
+        courseRepository.removeTeacherById(id, changeSequence.next());
+        return teacherService.convertToDTO(teacher);
     }
 
     /**
      * Removes a specific student from a course.
+     * Deletes only the enrollment row, without loading the course or its roster.
+     * The enrollment is deleted as an entity rather than with a bulk delete, so only the cached roster of this course
+     * is evicted from the second-level cache, and the enrollment itself is usually found in the cache.
      * @param id The id of the course to update
      * @param studentId The id of the student to remove
      */
+    @Transactional
     public void removeStudent(Long id, Long studentId) {
-        var course = courseRepository.findById(id).orElse(null);
-        if (course == null) {
-            return;
-        }
-        var students = course.getStudents();
-        var student = studentService.getEntity(studentId);
-        if (!students.contains(student)) {
-            return;
-        }
-        course.getStudents().remove(student);
-        courseRepository.save(course);
+        enrollmentRepository.findById(new EnrollmentId(id, studentId)).ifPresent(enrollment -> {
+            enrollmentRepository.delete(enrollment);
+            tombstoneRepository.save(Tombstone.of(enrollment));
+            ServiceOperationEvent.studentsRemoved(1);
+        });
     }
 
 }
@@ -0,0 +1,86 @@
+package edu.hogwarts.studentadmin.service;
+
+import edu.hogwarts.studentadmin.dto.StudentDTO;
+import edu.hogwarts.studentadmin.model.Student;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * This class validates the students that are enrolled in a course.
+ * Collects every violation instead of stopping at the first one, so they can all be returned in one response.
+ */
+@Service
+public class EnrollmentValidator {
+    private final StudentService studentService;
+
+    /**
+     * Constructor for EnrollmentValidator. Uses dependency injection to get the StudentService.
+     * @param studentService The service for students
+     */
+    public EnrollmentValidator(StudentService studentService) {
+        this.studentService = studentService;
+    }
+
+    /**
+     * Validates students given by their ids.
+     * Loads all the students in a single query and checks that they exist and are in the school year of the course.
+     * @param schoolYear The school year of the course
+     * @param students The students as a list of Student objects with at least their ids set
+     * @return A list of violations, empty if all the students are valid
+     */
+    public List<String> validateIds(Integer schoolYear, List<StudentDTO> students) {
+        var violations = new ArrayList<String>();
+        var ids = new LinkedHashSet<Long>();
+        for (var student : students) {
+            if (student.getId() == null) {
+                violations.add("Missing student id.");
+            } else {
+                ids.add(student.getId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return violations;
+        }
+
+        var studentsById = studentService.getEntities(ids)
+                .stream()
+                .collect(Collectors.toMap(Student::getId, Function.identity()));
+        for (var id : ids) {
+            var student = studentsById.get(id);
+            if (student == null) {
+                violations.add("Invalid student id: " + id + ".");
+            } else if (!Objects.equals(student.getSchoolYear(), schoolYear)) {
+                violations.add("Invalid school year for student with id: " + id + ".");
+            }
+        }
+        return violations;
+    }
+
+    /**
+     * Validates students given by their names.
+     * Looks up all the names in a single query and checks that the students exist and are in the school year of the course.
+     * @param schoolYear The school year of the course
+     * @param students The students as a list of Student objects with at least their names set
+     * @return A list of violations, empty if all the students are valid
+     */
+    public List<String> validateNames(Integer schoolYear, List<StudentDTO> students) {
+        var violations = new ArrayList<String>();
+        var names = students.stream().map(StudentDTO::getName).collect(Collectors.toCollection(LinkedHashSet::new));
+        var studentsByName = studentService.getByNames(names);
+        for (var name : names) {
+            var student = studentsByName.get(name);
+            if (student == null) {
+                violations.add("Invalid student name: " + name + ".");
+            } else if (!Objects.equals(student.getSchoolYear(), schoolYear)) {
+                violations.add("Invalid school year for student: " + name + ".");
+            }
+        }
+        return violations;
+    }
+}
@@ -0,0 +1,156 @@
+package edu.hogwarts.studentadmin.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import edu.hogwarts.studentadmin.dto.EnrollmentDTO;
+import edu.hogwarts.studentadmin.dto.StudentDTO;
+import edu.hogwarts.studentadmin.dto.TeacherDTO;
+import edu.hogwarts.studentadmin.repository.EnrollmentRepository;
+import edu.hogwarts.studentadmin.repository.StudentRepository;
+import edu.hogwarts.studentadmin.repository.TeacherRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * This class exports students, teachers and enrollments as NDJSON or CSV.
+ * The rows are read from a forward-only database stream and written to the output one at a time,
+ * and each entity is detached once it is written, so memory use doesn't grow with the size of the table.
+ */
+@Service
+public class ExportService {
+    private static final List<String> STUDENT_COLUMNS = List.of("id", "name", "house", "dateOfBirth", "schoolYear", "enrollmentYear", "graduationYear", "graduated", "prefect");
+    private static final List<String> TEACHER_COLUMNS = List.of("id", "name", "house", "dateOfBirth", "headOfHouse", "employment", "employmentStart", "employmentEnd");
+    private static final List<String> ENROLLMENT_COLUMNS = List.of("courseId", "studentId", "enrolledAt");
+
+    private final StudentRepository studentRepository;
+    private final TeacherRepository teacherRepository;
+    private final EnrollmentRepository enrollmentRepository;
+    private final StudentService studentService;
+    private final TeacherService teacherService;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper;
+
+    /**
+     * Constructor for ExportService. Uses dependency injection to get the repositories, services and the entity manager.
+     * @param studentRepository The repository for students
+     * @param teacherRepository The repository for teachers
+     * @param enrollmentRepository The repository for enrollments
+     * @param studentService The service for students, used to convert the students to DTOs
+     * @param teacherService The service for teachers, used to convert the teachers to DTOs
+     * @param entityManager The entity manager the exported entities are detached from
+     * @param transactionManager The transaction manager used to keep the connection open while streaming
+     * @param objectMapper The JSON mapper used for NDJSON rows
+     */
+    public ExportService(StudentRepository studentRepository, TeacherRepository teacherRepository, EnrollmentRepository enrollmentRepository,
+                         StudentService studentService, TeacherService teacherService, EntityManager entityManager,
+                         PlatformTransactionManager transactionManager, ObjectMapper objectMapper) {
+        this.studentRepository = studentRepository;
+        this.teacherRepository = teacherRepository;
+        this.enrollmentRepository = enrollmentRepository;
+        this.studentService = studentService;
+        this.teacherService = teacherService;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.csvMapper = CsvMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .enable(JsonGenerator.Feature.IGNORE_UNKNOWN)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .build();
+    }
+
+    /**
+     * Writes all students to the output, ordered by id.
+     * The CSV columns match the ones read by the student import.
+     * @param output The stream to write to
+     * @param format The format to write
+     */
+    public void exportStudents(OutputStream output, FileFormat format) {
+        export(output, format, StudentDTO.class, STUDENT_COLUMNS, studentRepository::streamAllOrderById, studentService::convertToDTO, true);
+    }
+
+    /**
+     * Writes all teachers to the output, ordered by id.
+     * @param output The stream to write to
+     * @param format The format to write
+     */
+    public void exportTeachers(OutputStream output, FileFormat format) {
+        export(output, format, TeacherDTO.class, TEACHER_COLUMNS, teacherRepository::streamAllOrderById, teacherService::convertToDTO, true);
+    }
+
+    /**
+     * Writes all enrollments to the output, ordered by course and student.
+     * @param output The stream to write to
+     * @param format The format to write
+     */
+    public void exportEnrollments(OutputStream output, FileFormat format) {
+        export(output, format, EnrollmentDTO.class, ENROLLMENT_COLUMNS, enrollmentRepository::streamAllOrderByCourseAndStudent, Function.identity(), false);
+    }
+
+    /**
+     * Streams the rows of a query to the output inside a read-only transaction, which keeps the connection open until the last row.
+     * @param output The stream to write to
+     * @param format The format to write
+     * @param type The type of the written rows
+     * @param columns The CSV columns, in order
+     * @param query The query to stream the rows from
+     * @param converter Converts a row of the query to the written row
+     * @param detach Whether the rows are entities that must be detached once they are written
+     */
+    private <E, D> void export(OutputStream output, FileFormat format, Class<D> type, List<String> columns,
+                               Supplier<Stream<E>> query, Function<E, D> converter, boolean detach) {
+        transactionTemplate.executeWithoutResult(status -> {
+            try (var rows = query.get(); var writer = writer(output, format, type, columns)) {
+                rows.forEach(row -> {
+                    write(writer, converter.apply(row));
+                    if (detach) {
+                        entityManager.detach(row);
+                    }
+                });
+                if (format == FileFormat.NDJSON) {
+                    writer.flush();
+                    output.write('\n');
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private SequenceWriter writer(OutputStream output, FileFormat format, Class<?> type, List<String> columns) throws IOException {
+        if (format == FileFormat.CSV) {
+            var schema = CsvSchema.builder().addColumns(columns, CsvSchema.ColumnType.STRING).setUseHeader(true).build();
+            return csvMapper.writerFor(type).with(schema).writeValues(output);
+        }
+        return objectMapper.writerFor(type)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .withRootValueSeparator("\n")
+                .writeValues(output);
+    }
+
+    private void write(SequenceWriter writer, Object row) {
+        try {
+            writer.write(row);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package edu.hogwarts.studentadmin.service;
+
+import org.springframework.http.MediaType;
+
+/**
+ * The file formats that data can be imported from and exported to.
+ * Both formats hold one record per line, so they can be read and written one record at a time.
+ */
+public enum FileFormat {
+    /** One JSON object per line, in the same format as the REST endpoints. */
+    NDJSON(MediaType.APPLICATION_NDJSON, "ndjson"),
+    /** A header row with the JSON property names, then one record per row. */
+    CSV(new MediaType("text", "csv"), "csv");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    FileFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Finds the format with the given name or file extension, ignoring case.
+     * @param name The name of the format, e.g. "csv".
+     * @return The format, or null if there is no format with the given name.
+     */
+    public static FileFormat fromName(String name) {
+        for (var format : values()) {
+            if (format.extension.equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
@@ -1,36 +1,107 @@
 package edu.hogwarts.studentadmin.service;
 
 import edu.hogwarts.studentadmin.dto.HogwartsPersonDTO;
+import edu.hogwarts.studentadmin.dto.PageDTO;
 import edu.hogwarts.studentadmin.model.HogwartsPerson;
+import edu.hogwarts.studentadmin.model.Tombstone;
 import edu.hogwarts.studentadmin.repository.HogwartsPersonRepository;
+import edu.hogwarts.studentadmin.repository.TombstoneRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.springframework.core.GenericTypeResolver;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 
 /**
  * This class provides service methods to manage HogwartsPerson entities in the school.
+ * Methods that only read run in read-only transactions, so Hibernate skips the dirty-checking snapshots and the flush.
+ * Within a request they share the persistence context that is kept open for the view, so an entity loaded once is not selected again.
+ * Entities loaded by a read-only method stay read-only for the rest of the request, so methods that write load the entities they change themselves.
+ * The list and detail reads are @Coalesced, so identical concurrent requests share one call and its result.
  * @param <M> The type of HogwartsPerson (Student | Teacher).
  * @param <D> The DTO for the HogwartsPerson (StudentDTO | TeacherDTO).
  */
+@Timed("studentadmin.service")
 public abstract class HogwartsPersonService<M extends HogwartsPerson, D extends HogwartsPersonDTO> {
     protected final HouseService houseService;
     protected final HogwartsPersonRepository<M> repository;
+    protected final TombstoneRepository tombstoneRepository;
+    private final EntityManager entityManager;
+    private final Class<M> entityClass;
 
     /**
-     * Constructor for HogwartsPersonService. Uses dependency injection to get the repository and HouseService.
+     * Constructor for HogwartsPersonService. Uses dependency injection to get the repository, HouseService, TombstoneRepository and EntityManager.
      * @param repository The repository for HogwartsPerson entities.
      * @param houseService The service for House entities.
+     * @param tombstoneRepository The repository for the tombstones of deleted HogwartsPerson entities.
+     * @param entityManager The entity manager, used to look up entities in the persistence context before querying them.
      */
-    public HogwartsPersonService(HogwartsPersonRepository<M> repository, HouseService houseService) {
+    @SuppressWarnings("unchecked")
+    public HogwartsPersonService(HogwartsPersonRepository<M> repository, HouseService houseService, TombstoneRepository tombstoneRepository, EntityManager entityManager) {
         this.repository = repository;
         this.houseService = houseService;
+        this.tombstoneRepository = tombstoneRepository;
+        this.entityManager = entityManager;
+        this.entityClass = (Class<M>) GenericTypeResolver.resolveTypeArguments(getClass(), HogwartsPersonService.class)[0];
     }
 
+    /**
+     * Must be implemented by the subclasses to convert a HogwartsPerson entity to its DTO.
+     * @param person The HogwartsPerson entity to convert.
+     * @return The DTO for the HogwartsPerson entity.
+     */
+    public abstract D convertToDTO(M person);
+
     /**
      * Must be implemented by the subclasses to get a list of all HogwartsPerson entities of the given type.
      * @return A list of all HogwartsPerson entities of the given type.
      */
     public abstract List<D> getAll();
 
+    /**
+     * Gets a page of HogwartsPerson entities using keyset pagination.
+     * Fetches one extra row to find out if there is a next page, so no count query is needed.
+     * @param after The ID of the last person on the previous page, or null for the first page.
+     * @param limit The maximum number of people on the page.
+     * @param sortByName Whether to sort by last name and first name instead of by ID. The ID is always used as the final sort key.
+     * @return The page of people, or null if the cursor does not point to an existing person when sorting by name.
+     */
+    @Coalesced
+    @Transactional(readOnly = true)
+    public PageDTO<D> getPage(Long after, int limit, boolean sortByName) {
+        var pageable = PageRequest.of(0, limit + 1);
+        List<M> people;
+        if (!sortByName) {
+            people = repository.findPageOrderById(after == null ? 0L : after, pageable);
+        } else if (after == null) {
+            people = repository.findFirstPageOrderByName(pageable);
+        } else {
+            var anchor = repository.findById(after).orElse(null);
+            if (anchor == null) {
+                return null;
+            }
+            people = repository.findPageOrderByName(anchor.getLastNameSort(), anchor.getFirstNameSort(), anchor.getId(), pageable);
+        }
+
+        var hasNext = people.size() > limit;
+        var items = people.stream().limit(limit).map(this::convertToDTO).toList();
+        var nextCursor = hasNext ? items.get(items.size() - 1).getId() : null;
+        return new PageDTO<>(items, nextCursor);
+    }
+
     /**
      * Must be implemented by the subclasses to get a HogwartsPerson entity by its ID.
      * @param id The ID of the HogwartsPerson entity to find.
@@ -38,16 +109,145 @@ public abstract class HogwartsPersonService<M extends HogwartsPerson, D extends
      */
     public abstract D get(Long id);
 
+    /**
+     * Gets the version of a HogwartsPerson entity by its ID, without loading the entity.
+     * @param id The ID of the HogwartsPerson entity.
+     * @return The version of the HogwartsPerson entity, or null if it does not exist.
+     */
+    @Transactional(readOnly = true)
+    public Long getVersion(Long id) {
+        return repository.findVersionById(id).orElse(null);
+    }
+
     /**
      * Gets a HogwartsPerson entity by its ID.
      * Needed for the CourseService to get the teacher/student entities to add to a course.
      * @param id The ID of the HogwartsPerson entity to find.
      * @return The HogwartsPerson entity, or null if it does not exist.
      */
+    @Transactional(readOnly = true)
     public M getEntity(Long id) {
         return repository.findById(id).orElse(null);
     }
 
+    /**
+     * Gets a reference to a HogwartsPerson entity by its ID, without selecting it, to set as a foreign key on another entity.
+     * The caller must have checked that the entity exists, otherwise saving the other entity fails.
+     * @param id The ID of the HogwartsPerson entity.
+     * @return A reference to the HogwartsPerson entity, loaded only when one of its fields is read.
+     */
+    public M getReference(Long id) {
+        return repository.getReferenceById(id);
+    }
+
+    /**
+     * Gets all HogwartsPerson entities with the given IDs in a single query.
+     * Entities that are already in the persistence context of the request or in the second-level cache are not queried,
+     * so validating students and then enrolling them selects them only once.
+     * IDs that do not exist are left out of the result, so callers can compare the sizes to find missing entities.
+     * @param ids The IDs of the HogwartsPerson entities to find.
+     * @return The HogwartsPerson entities that exist, in no particular order.
+     */
+    @Transactional(readOnly = true)
+    public List<M> getEntities(Collection<Long> ids) {
+        var people = entityManager.unwrap(Session.class)
+                .byMultipleIds(entityClass)
+                .enableSessionCheck(true)
+                .enableOrderedReturn(false)
+                .multiLoad(List.copyOf(ids));
+        return people.stream().filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Gets a specific HogwartsPerson entity by their name, using the indexed name keys.
+     * A single word is matched against the first name, two words against the first and last names,
+     * and three or more words against the full name. Case and extra whitespace are ignored.
+     * The person with the lowest ID is chosen when several match, like in getByNames.
+     * @param name The full name or first name of the person.
+     * @return The person with the lowest ID found with the given name, or null if none is found.
+     */
+    @Transactional(readOnly = true)
+    public M get(String name) {
+        var key = HogwartsPerson.normalizeName(name);
+        if (key == null) {
+            return null;
+        }
+        return switch (countWords(key)) {
+            case 1 -> repository.findFirstByFirstNameKeyOrderByIdAsc(key).orElse(null);
+            case 2 -> repository.findFirstByShortNameKeyOrderByIdAsc(key).orElse(null);
+            default -> repository.findFirstByNameKeyOrderByIdAsc(key).orElse(null);
+        };
+    }
+
+    /**
+     * Gets HogwartsPerson entities by their names, with a single query for each form of name in the list.
+     * The names are matched the same way as in get(String), and the person with the lowest ID is chosen when several match.
+     * A single first name matches everyone with that first name, so full names should be used for large batches.
+     * @param names The full names or first names of the people.
+     * @return The people found, by the name they were found with. Names that were not found are left out.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, M> getByNames(Collection<String> names) {
+        var firstNames = new HashSet<String>();
+        var shortKeys = new HashSet<String>();
+        var fullKeys = new HashSet<String>();
+        for (var name : names) {
+            var key = HogwartsPerson.normalizeName(name);
+            if (key == null) {
+                continue;
+            }
+            switch (countWords(key)) {
+                case 1 -> firstNames.add(key);
+                case 2 -> shortKeys.add(key);
+                default -> fullKeys.add(key);
+            }
+        }
+        var byFirstName = findLowestIdByKey("firstNameKey", firstNames, HogwartsPerson::getFirstNameKey);
+        var byShortKey = findLowestIdByKey("shortNameKey", shortKeys, HogwartsPerson::getShortNameKey);
+        var byFullKey = findLowestIdByKey("nameKey", fullKeys, HogwartsPerson::getNameKey);
+
+        var people = new LinkedHashMap<String, M>();
+        for (var name : names) {
+            var key = HogwartsPerson.normalizeName(name);
+            if (key == null) {
+                continue;
+            }
+            var person = switch (countWords(key)) {
+                case 1 -> byFirstName.get(key);
+                case 2 -> byShortKey.get(key);
+                default -> byFullKey.get(key);
+            };
+            if (person != null) {
+                people.put(name, person);
+            }
+        }
+        return people;
+    }
+
+    private static int countWords(String normalizedName) {
+        return normalizedName.split(" ").length;
+    }
+
+    /**
+     * Finds the people with any of the given values of a name key in a single query, keeping the lowest ID per value.
+     * Each name key is queried separately, because most databases can't use several indexes for one OR condition.
+     * @param attribute The name of the name key attribute.
+     * @param keys The normalized names to find.
+     * @param keyGetter The getter for the name key attribute.
+     * @return The people found, by their name key.
+     */
+    private Map<String, M> findLowestIdByKey(String attribute, Set<String> keys, Function<M, String> keyGetter) {
+        if (keys.isEmpty()) {
+            return Map.of();
+        }
+        Specification<M> hasAnyKey = (root, query, builder) -> root.get(attribute).in(keys);
+        var people = new HashMap<String, M>();
+        for (var person : repository.findAll(hasAnyKey)) {
+            people.merge(keyGetter.apply(person), person, (existing, added) -> existing.getId() <= added.getId() ? existing : added);
+        }
+        return people;
+    }
+
     /**
      * Must be implemented by the subclasses to add a new HogwartsPerson entity to the database.
      * @param personDTO The DTO for the new HogwartsPerson entity.
@@ -74,10 +274,21 @@ public abstract class HogwartsPersonService<M extends HogwartsPerson, D extends
     public abstract D patch(D person, Long id);
 
     /**
-     * Deletes a HogwartsPerson entity by its ID.
+     * Deletes a HogwartsPerson entity by its ID, and saves its tombstone.
      * @param id The ID of the HogwartsPerson entity to delete.
      */
+    @Transactional
     public void delete(Long id) {
-        if (id != null) repository.deleteById(id);
+        if (id == null) return;
+        repository.deleteById(id);
+        saveTombstone(id);
+    }
+
+    /**
+     * Saves the tombstone of a deleted HogwartsPerson entity, typed with the entity name (student | teacher).
+     * @param id The ID of the deleted HogwartsPerson entity.
+     */
+    protected void saveTombstone(Long id) {
+        tombstoneRepository.save(new Tombstone(entityClass.getAnnotation(Entity.class).name(), id, null));
     }
 }
@@ -2,17 +2,40 @@ package edu.hogwarts.studentadmin.service;
 
 import edu.hogwarts.studentadmin.model.House;
 import edu.hogwarts.studentadmin.repository.HouseRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * This class provides service methods to manage houses in the school.
+ * Houses are reference data that almost never change, so they are kept in an in-memory registry
+ * instead of being queried every time a student or teacher is converted.
  */
 @Service
 public class HouseService {
     private final HouseRepository houseRepository;
 
+    /**
+     * The current registry, replaced as a whole on refresh so readers never need to lock.
+     * Null when it has been invalidated and not reloaded yet.
+     */
+    private volatile Registry registry;
+
+    /**
+     * An immutable snapshot of all houses, indexed by their lower-case name.
+     * @param byName The houses by their lower-case name.
+     * @param all All houses, ordered by name.
+     */
+    private record Registry(Map<String, House> byName, List<House> all) {
+    }
+
     /**
      * Constructor for HouseService. Uses dependency injection to get the HouseRepository.
      * @param houseRepository The repository for houses
@@ -22,21 +45,76 @@ public class HouseService {
     }
 
     /**
-     * Gets a list of all houses in the database.
+     * Loads the registry once the application has started, so the first requests don't have to.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        refresh();
+    }
+
+    /**
+     * Reloads all houses from the database into the registry.
+     * Must be called after houses are created or changed.
+     */
+    public synchronized void refresh() {
+        var houses = houseRepository.findAll()
+                .stream()
+                .sorted(Comparator.comparing(House::getName))
+                .toList();
+        var byName = houses.stream().collect(Collectors.toUnmodifiableMap(house -> key(house.getName()), Function.identity()));
+        registry = new Registry(byName, houses);
+    }
+
+    /**
+     * Clears the registry, so the houses are reloaded from the database the next time they are needed.
+     */
+    public void invalidate() {
+        registry = null;
+    }
+
+    private Registry registry() {
+        var current = registry;
+        if (current == null) {
+            refresh();
+            current = registry;
+        }
+        return current;
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Gets a list of all houses, ordered by name.
      * @return A list of all houses.
      */
     public List<House> getAll() {
-        return this.houseRepository.findAll();
+        return registry().all();
     }
 
     /**
-     * Gets a specific house entity by its name.
+     * Gets a specific house entity by its name, ignoring case.
      * @param name The name of the house.
      * @return The house with the given name, or null if not found.
      */
     public House get(String name) {
         if (name == null || name.isBlank())
             return null;
-        return this.houseRepository.findById(name).orElse(null);
+        return registry().byName().get(key(name));
+    }
+
+    /**
+     * Gets a reference to a house by its name, ignoring case, to set on a student or teacher entity.
+     * The name is checked against the registry, and the reference lets Hibernate save the entity
+     * without selecting the house first to find out if it exists.
+     * @param name The name of the house.
+     * @return A reference to the house with the given name, or null if not found.
+     */
+    public House getReference(String name) {
+        var house = get(name);
+        if (house == null)
+            return null;
+        return houseRepository.getReferenceById(house.getName());
     }
 }
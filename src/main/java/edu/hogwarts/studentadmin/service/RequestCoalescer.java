@@ -0,0 +1,162 @@
+package edu.hogwarts.studentadmin.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * This class coalesces identical concurrent reads, so they share one call of the service method instead of each loading the same rows.
+ * The first caller of a key runs the call, and callers with the same key that arrive before it is done wait for its result.
+ * The result is kept for a short time to live afterwards, so callers that arrive just after the call also share it.
+ * How often the database is read for a key is then capped by the time to live, no matter how many clients ask for it at once.
+ * Every committed change clears the results, also those still being computed, so a client that has made a change never reads the data from before it.
+ * Callers share the same result object, so it must not be changed.
+ * The calls that were executed, joined while in flight, and answered with a kept result are counted as metrics.
+ */
+@Service
+public class RequestCoalescer {
+    private final boolean enabled;
+    private final long timeToLiveNanos;
+    private final ConcurrentHashMap<Object, Flight> flights = new ConcurrentHashMap<>();
+    private final Queue<Flight> expiring = new ConcurrentLinkedQueue<>();
+    private final Counter executed;
+    private final Counter coalesced;
+    private final Counter cached;
+
+    /**
+     * A call that is running or has completed, with the callers that share it.
+     */
+    private static class Flight {
+        private final Object key;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+        private volatile long expiresAt;
+
+        private Flight(Object key) {
+            this.key = key;
+        }
+
+        private boolean isExpired(long now) {
+            return result.isDone() && now - expiresAt >= 0;
+        }
+    }
+
+    /**
+     * Constructor for RequestCoalescer. Uses dependency injection to get the settings.
+     * @param meterRegistry The registry for the counters of the calls
+     * @param enabled Whether identical calls are coalesced
+     * @param timeToLive How long the result of a call is shared after it has completed, zero to only share calls in flight
+     */
+    public RequestCoalescer(MeterRegistry meterRegistry,
+                            @Value("${studentadmin.coalescing.enabled:true}") boolean enabled,
+                            @Value("${studentadmin.coalescing.ttl:0ms}") Duration timeToLive) {
+        this.enabled = enabled;
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.executed = counter(meterRegistry, "executed");
+        this.coalesced = counter(meterRegistry, "coalesced");
+        this.cached = counter(meterRegistry, "cached");
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("studentadmin.coalescing.calls")
+                .description("Coalesced service reads, by whether they were executed, joined a call in flight or used a kept result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs a call, or shares the result of an identical call that is in flight or completed within the time to live.
+     * @param key Identifies identical calls, e.g. the method and its arguments
+     * @param call The call
+     * @param <T> The type of the result
+     * @return The result of the call
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(Object key, Supplier<T> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        var now = System.nanoTime();
+        purgeExpired(now);
+        while (true) {
+            var existing = flights.get(key);
+            if (existing != null && !existing.isExpired(now)) {
+                (existing.result.isDone() ? cached : coalesced).increment();
+                return (T) join(existing.result);
+            }
+            var flight = new Flight(key);
+            if (existing == null ? flights.putIfAbsent(key, flight) == null : flights.replace(key, existing, flight)) {
+                executed.increment();
+                return run(flight, call);
+            }
+        }
+    }
+
+    /**
+     * Clears the results once a change has committed, so the next callers read the change.
+     * Runs before ChangeCounters hands out the ETag of the change, so a caller with the new ETag doesn't share a result from before it.
+     * @param event The change
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChange(SchoolDataChangedEvent event) {
+        flights.clear();
+        expiring.clear();
+    }
+
+    private <T> T run(Flight flight, Supplier<T> call) {
+        T result;
+        try {
+            result = call.get();
+        } catch (RuntimeException | Error e) {
+            flights.remove(flight.key, flight);
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+        flight.expiresAt = System.nanoTime() + timeToLiveNanos;
+        flight.result.complete(result);
+        if (timeToLiveNanos == 0) {
+            flights.remove(flight.key, flight);
+        } else {
+            expiring.add(flight);
+        }
+        return result;
+    }
+
+    /**
+     * Removes the results that have outlived the time to live. They expire in the order they were added, since the time to live is fixed.
+     */
+    private void purgeExpired(long now) {
+        Flight head;
+        while ((head = expiring.peek()) != null && head.isExpired(now)) {
+            if (expiring.remove(head)) {
+                flights.remove(head.key, head);
+            }
+        }
+    }
+
+    private static Object join(CompletableFuture<Object> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package edu.hogwarts.studentadmin.service;
+
+import edu.hogwarts.studentadmin.dto.RolloverReportDTO;
+import edu.hogwarts.studentadmin.model.Rollover;
+import edu.hogwarts.studentadmin.repository.CourseRepository;
+import edu.hogwarts.studentadmin.repository.RolloverRepository;
+import edu.hogwarts.studentadmin.repository.StudentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * This class rolls the school over to the next academic year.
+ * Every student who has not graduated moves up one school year, and the students in the last school year graduate.
+ * The current courses are no longer current, and can be copied as new current courses without students for the next year.
+ * Everything is done with set-based UPDATE and INSERT ... SELECT statements, so no students or courses are loaded.
+ * The students are updated in ranges of IDs, each range in its own transaction, so neither the statements nor the undo log
+ * of the database grow with the size of the school. The courses are updated in one transaction after all the students.
+ * If a range fails, the ranges before it stay rolled over, and the rollover can be resumed after the last student that was rolled over.
+ * Each transaction publishes a SchoolDataChangedEvent and invalidates the cached course responses,
+ * since the statements bypass the service methods that do it. For the same reason, each statement sets the change sequence numbers
+ * of its rows itself, from a block of numbers reserved for it.
+ * Every rollover is recorded before any student is changed, so a year can only be rolled over once, and never before a year
+ * that has already been rolled over. Otherwise a repeated request would promote every student a second time.
+ */
+@Service
+public class RolloverService {
+    private static final Logger logger = LoggerFactory.getLogger(RolloverService.class);
+    private static final Set<SchoolCollection> ROLLOVER_CHANGES = EnumSet.of(SchoolCollection.STUDENTS, SchoolCollection.COURSES);
+
+    private final StudentRepository studentRepository;
+    private final CourseRepository courseRepository;
+    private final RolloverRepository rolloverRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CourseResponseCache courseResponseCache;
+    private final ChangeSequence changeSequence;
+    private final int chunkSize;
+    private final int finalSchoolYear;
+
+    /**
+     * Constructor for RolloverService. Uses dependency injection to get the repositories and the settings.
+     * @param studentRepository The repository for students
+     * @param courseRepository The repository for courses
+     * @param rolloverRepository The repository for the records of the rollovers
+     * @param transactionManager The transaction manager used for each range of students and for the courses
+     * @param eventPublisher The publisher of the change event of each transaction
+     * @param courseResponseCache The cache of course responses, invalidated by each transaction
+     * @param changeSequence The change sequence, which reserves the change sequence numbers of the updated rows
+     * @param chunkSize The size of the ranges of student IDs updated by each statement
+     * @param finalSchoolYear The last school year, students in it graduate instead of moving up
+     */
+    public RolloverService(StudentRepository studentRepository, CourseRepository courseRepository, RolloverRepository rolloverRepository,
+                           PlatformTransactionManager transactionManager,
+                           ApplicationEventPublisher eventPublisher, CourseResponseCache courseResponseCache, ChangeSequence changeSequence,
+                           @Value("${studentadmin.rollover.chunk-size:50000}") int chunkSize,
+                           @Value("${studentadmin.rollover.final-school-year:7}") int finalSchoolYear) {
+        this.studentRepository = studentRepository;
+        this.courseRepository = courseRepository;
+        this.rolloverRepository = rolloverRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.courseResponseCache = courseResponseCache;
+        this.changeSequence = changeSequence;
+        this.chunkSize = chunkSize;
+        this.finalSchoolYear = finalSchoolYear;
+    }
+
+    /**
+     * Rolls the school over to the next academic year.
+     * Students who have not graduated and have no school year are left as they are.
+     * A year can't be rolled over if it or a later year has already been rolled over, and a failed rollover can only be resumed.
+     * @param graduationYear The year that ends, set as the graduation year of the students who graduate
+     * @param copyCourses Whether to copy the current courses as new current courses for the next year
+     * @param dryRun Whether to only count the students and courses that would be changed, without changing them
+     * @param afterId The ID of the last student rolled over by a rollover that failed, to resume it, or null to roll over all students
+     * @return A report with the number of students and courses that were changed, or would be changed for a dry run,
+     * or null if the year can't be rolled over
+     */
+    public RolloverReportDTO rollover(int graduationYear, boolean copyCourses, boolean dryRun, Long afterId) {
+        var start = System.nanoTime();
+        if (!canRollOver(graduationYear, afterId) || (!dryRun && afterId == null && !record(graduationYear))) {
+            logger.warn("Rollover to {} rejected, the year has already been rolled over, or there is no failed rollover of it to resume", graduationYear + 1);
+            return null;
+        }
+        var report = new RolloverReportDTO();
+        report.setGraduationYear(graduationYear);
+        report.setDryRun(dryRun);
+
+        if (dryRun) {
+            report.setStudentsPromoted(studentRepository.countPromotable(finalSchoolYear));
+            report.setStudentsGraduated(studentRepository.countGraduating(finalSchoolYear));
+            report.setCoursesFinished(courseRepository.countCurrent(courseRepository.findMaxId()));
+            report.setCoursesCopied(copyCourses ? report.getCoursesFinished() : 0);
+        } else {
+            updateStudents(graduationYear, afterId, report);
+            transactionTemplate.executeWithoutResult(status -> {
+                var maxCourseId = courseRepository.findMaxId();
+                if (copyCourses) {
+                    report.setCoursesCopied(courseRepository.copyCurrent(maxCourseId, changeSequence.reserve(maxCourseId + 1)));
+                }
+                report.setCoursesFinished(courseRepository.finishCurrent(maxCourseId, changeSequence.reserve(maxCourseId + 1)));
+                rolloverRepository.complete(graduationYear, LocalDateTime.now());
+                publishChange();
+            });
+        }
+
+        report.setDurationMillis((System.nanoTime() - start) / 1_000_000);
+        logger.info("Rollover to {}{}: {} students promoted, {} graduated, {} courses finished, {} copied in {} ms",
+                graduationYear + 1, dryRun ? " (dry run)" : "", report.getStudentsPromoted(), report.getStudentsGraduated(),
+                report.getCoursesFinished(), report.getCoursesCopied(), report.getDurationMillis());
+        return report;
+    }
+
+    /**
+     * Checks that no later year has been rolled over, and that the year itself has not been rolled over, unless a failed rollover of it is resumed.
+     */
+    private boolean canRollOver(int graduationYear, Long afterId) {
+        var latest = rolloverRepository.findFirstByOrderByGraduationYearDesc();
+        if (afterId != null) {
+            return latest != null && latest.getGraduationYear() == graduationYear && latest.getCompletedAt() == null;
+        }
+        return latest == null || latest.getGraduationYear() < graduationYear;
+    }
+
+    /**
+     * Records the rollover of a year before any student is changed.
+     * The year is the primary key, so only one of two concurrent rollovers of the same year can be recorded.
+     * @return True if the rollover was recorded, false if the year was recorded by a concurrent rollover
+     */
+    private boolean record(int graduationYear) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> rolloverRepository.saveAndFlush(new Rollover(graduationYear, LocalDateTime.now())));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Invalidates every cached course and publishes the change once the current transaction has committed.
+     * The rosters contain the students, so every range of students changes the courses too.
+     */
+    private void publishChange() {
+        courseResponseCache.invalidateAll();
+        eventPublisher.publishEvent(new SchoolDataChangedEvent("RolloverService.rollover", ROLLOVER_CHANGES));
+    }
+
+    /**
+     * Graduates and promotes the students one range of IDs at a time, each range in its own transaction.
+     * Each range is graduated before it is promoted, so students promoted into the last school year don't graduate in the same rollover.
+     */
+    private void updateStudents(int graduationYear, Long afterId, RolloverReportDTO report) {
+        var maxId = studentRepository.findMaxId();
+        var from = afterId != null ? afterId + 1 : studentRepository.findMinId();
+        for (; from <= maxId; from += chunkSize) {
+            var rangeFrom = from;
+            var rangeTo = from + chunkSize;
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    var changeSeqBase = changeSequence.reserve(chunkSize) - rangeFrom;
+                    report.setStudentsGraduated(report.getStudentsGraduated() + studentRepository.graduateRange(rangeFrom, rangeTo, finalSchoolYear, graduationYear, changeSeqBase));
+                    report.setStudentsPromoted(report.getStudentsPromoted() + studentRepository.promoteRange(rangeFrom, rangeTo, finalSchoolYear, changeSeqBase));
+                    publishChange();
+                });
+            } catch (RuntimeException e) {
+                logger.error("Rollover to {} failed, resume it after student {}", graduationYear + 1, rangeFrom - 1);
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package edu.hogwarts.studentadmin.service;
+
+/**
+ * The collections of the school that can be listed with a GET request, and whose changes are counted by ChangeCounters.
+ * A change belongs to every collection whose responses contain the changed data, e.g. a change to a student also changes the rosters of the courses.
+ */
+public enum SchoolCollection {
+    STUDENTS,
+    TEACHERS,
+    COURSES
+}
@@ -0,0 +1,13 @@
+package edu.hogwarts.studentadmin.service;
+
+import java.util.Set;
+
+/**
+ * Application event published when a service has changed students, teachers, courses or enrollments.
+ * Published by ChangeEventConfig after every service method that writes, and by the services that write with a TransactionTemplate.
+ * SchoolReadModel, RequestCoalescer and ChangeCounters handle it once the transaction has committed.
+ * @param operation The service method that changed the data, e.g. "StudentService.patch"
+ * @param collections The collections whose responses may have changed
+ */
+public record SchoolDataChangedEvent(String operation, Set<SchoolCollection> collections) {
+}
@@ -0,0 +1,362 @@
+package edu.hogwarts.studentadmin.service;
+
+import edu.hogwarts.studentadmin.dto.CourseDTO;
+import edu.hogwarts.studentadmin.dto.EnrollmentDTO;
+import edu.hogwarts.studentadmin.dto.HogwartsPersonDTO;
+import edu.hogwarts.studentadmin.dto.StudentDTO;
+import edu.hogwarts.studentadmin.dto.TeacherDTO;
+import edu.hogwarts.studentadmin.repository.CourseRepository;
+import edu.hogwarts.studentadmin.repository.EnrollmentRepository;
+import edu.hogwarts.studentadmin.repository.StudentRepository;
+import edu.hogwarts.studentadmin.repository.TeacherRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * This class keeps an optional in-memory read model of the students, teachers and courses of the school,
+ * so the controllers can answer GET requests from an immutable SchoolSnapshot without a transaction, a query or a lock.
+ * The snapshot is copy-on-write: after a change has committed, a new snapshot is built from the database on a background thread
+ * and replaces the current one as a whole, so readers always see a consistent school.
+ * Changes that commit while a snapshot is built are coalesced into one more build.
+ * A build starts at most once per minimum rebuild interval, so sustained writes cost one build per interval instead of one per write.
+ * The interval should be well below the staleness bound, since a change can wait for the interval before its build starts.
+ * Until a change is in the snapshot, the snapshot is stale, and once it has been stale for longer than the configured bound
+ * {@link #current()} returns null, so the controllers read from the database instead.
+ * A bound of zero makes every GET after a change read from the database until the snapshot has caught up.
+ * The houses are not part of the snapshot, since HouseService already keeps them in memory.
+ * The model is turned on with studentadmin.read-model.enabled, and publishes its size, estimated memory, staleness and build time as metrics.
+ * The interval is set with studentadmin.read-model.min-rebuild-interval.
+ */
+@Service
+public class SchoolReadModel {
+    private static final Logger logger = LoggerFactory.getLogger(SchoolReadModel.class);
+    private static final long NOT_STALE = Long.MIN_VALUE;
+
+    private final StudentRepository studentRepository;
+    private final TeacherRepository teacherRepository;
+    private final CourseRepository courseRepository;
+    private final EnrollmentRepository enrollmentRepository;
+    private final StudentService studentService;
+    private final TeacherService teacherService;
+    private final EntityManager entityManager;
+    private final ChangeCounters changeCounters;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long maxStalenessNanos;
+    private final long minRebuildIntervalNanos;
+    private final ScheduledExecutorService executor;
+    private final Timer buildTimer;
+
+    /**
+     * The current snapshot, replaced as a whole when a new one has been built. Null until the first one has been built.
+     */
+    private volatile SchoolSnapshot snapshot;
+
+    /**
+     * The System.nanoTime of the oldest change that is not in the current snapshot, or NOT_STALE.
+     */
+    private volatile long staleSince = NOT_STALE;
+
+    /**
+     * The System.nanoTime of the oldest change that no build has started to read yet, or NOT_STALE. Guarded by this.
+     */
+    private long pendingSince = NOT_STALE;
+
+    /**
+     * Whether a build is waiting to be run by the executor. Guarded by this.
+     */
+    private boolean buildScheduled;
+
+    /**
+     * The System.nanoTime the last build started at. Guarded by this.
+     */
+    private long lastBuildStarted;
+
+    /**
+     * Constructor for SchoolReadModel. Uses dependency injection to get the repositories, services and settings.
+     * @param studentRepository The repository for students
+     * @param teacherRepository The repository for teachers
+     * @param courseRepository The repository for courses
+     * @param enrollmentRepository The repository for the enrollments of students in courses
+     * @param studentService The service for students, used to convert them to DTOs
+     * @param teacherService The service for teachers, used to convert them to DTOs
+     * @param entityManager The entity manager, used to detach the students and teachers once they are converted
+     * @param changeCounters The change counters, kept by each snapshot for the ETags of its responses
+     * @param transactionManager The transaction manager for the read-only transaction of a build
+     * @param meterRegistry The registry for the metrics of the read model
+     * @param enabled Whether GET requests are answered from the read model
+     * @param maxStaleness How long the snapshot may be used after a change that is not in it yet
+     * @param minRebuildInterval The minimum time between the starts of two builds
+     */
+    public SchoolReadModel(StudentRepository studentRepository, TeacherRepository teacherRepository, CourseRepository courseRepository,
+                           EnrollmentRepository enrollmentRepository, StudentService studentService, TeacherService teacherService,
+                           EntityManager entityManager, ChangeCounters changeCounters, PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${studentadmin.read-model.enabled:false}") boolean enabled,
+                           @Value("${studentadmin.read-model.max-staleness:5s}") Duration maxStaleness,
+                           @Value("${studentadmin.read-model.min-rebuild-interval:1s}") Duration minRebuildInterval) {
+        this.studentRepository = studentRepository;
+        this.teacherRepository = teacherRepository;
+        this.courseRepository = courseRepository;
+        this.enrollmentRepository = enrollmentRepository;
+        this.studentService = studentService;
+        this.teacherService = teacherService;
+        this.entityManager = entityManager;
+        this.changeCounters = changeCounters;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = enabled;
+        this.maxStalenessNanos = maxStaleness.toNanos();
+        this.minRebuildIntervalNanos = minRebuildInterval.toNanos();
+        this.lastBuildStarted = System.nanoTime() - minRebuildIntervalNanos;
+        if (!enabled) {
+            this.executor = null;
+            this.buildTimer = null;
+            return;
+        }
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "school-read-model");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.buildTimer = Timer.builder("studentadmin.read_model.build")
+                .description("Time to build a snapshot of the read model")
+                .register(meterRegistry);
+        registerSize(meterRegistry, "students", s -> s.students().size());
+        registerSize(meterRegistry, "teachers", s -> s.teachers().size());
+        registerSize(meterRegistry, "courses", s -> s.getCourses().size());
+        registerSize(meterRegistry, "enrollments", SchoolSnapshot::getEnrollmentCount);
+        Gauge.builder("studentadmin.read_model.memory", this, model -> model.snapshot == null ? 0 : model.snapshot.getEstimatedBytes())
+                .description("Estimated memory used by the current snapshot of the read model")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("studentadmin.read_model.staleness", this, SchoolReadModel::stalenessSeconds)
+                .description("Time since the oldest change that is not in the snapshot of the read model yet")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    private void registerSize(MeterRegistry meterRegistry, String type, ToDoubleFunction<SchoolSnapshot> size) {
+        Gauge.builder("studentadmin.read_model.size", this, model -> model.snapshot == null ? 0 : size.applyAsDouble(model.snapshot))
+                .description("Number of entities in the current snapshot of the read model")
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Builds the first snapshot once the application has started and the data has been loaded.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        if (enabled) {
+            schedule(System.nanoTime());
+        }
+    }
+
+    /**
+     * Schedules a new snapshot once a change has committed, no sooner than the minimum rebuild interval after the last build started.
+     * Changes that were rolled back are never published.
+     * @param event The change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChange(SchoolDataChangedEvent event) {
+        if (enabled) {
+            logger.debug("Rebuilding read model after {}", event.operation());
+            schedule(System.nanoTime());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Gets the current snapshot, if GET requests may be answered from it.
+     * @return The snapshot, or null if the read model is disabled, the first snapshot has not been built yet,
+     * or a change has not been in the snapshot for longer than the staleness bound
+     */
+    public SchoolSnapshot current() {
+        if (!enabled) {
+            return null;
+        }
+        var current = snapshot;
+        var since = staleSince;
+        if (current == null || since != NOT_STALE && System.nanoTime() - since > maxStalenessNanos) {
+            return null;
+        }
+        return current;
+    }
+
+    private synchronized void schedule(long changedAt) {
+        if (pendingSince == NOT_STALE) {
+            pendingSince = changedAt;
+        }
+        if (staleSince == NOT_STALE) {
+            staleSince = changedAt;
+        }
+        if (!buildScheduled) {
+            buildScheduled = true;
+            var delay = Math.max(0, lastBuildStarted + minRebuildIntervalNanos - System.nanoTime());
+            executor.schedule(this::rebuild, delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Builds a new snapshot with every change that committed before the build started, and publishes it.
+     * The change counters are read before the data, like the controllers do, so the ETags of the snapshot are never newer than its data.
+     * Changes that commit during the build have scheduled the next build, and keep the new snapshot stale until it has run.
+     * If the build fails, the snapshot stays stale until the next change schedules another build.
+     */
+    private void rebuild() {
+        synchronized (this) {
+            buildScheduled = false;
+            pendingSince = NOT_STALE;
+            lastBuildStarted = System.nanoTime();
+        }
+        try {
+            var counts = changeCounters.current();
+            var built = buildTimer.record(() -> transactionTemplate.execute(status -> build(counts)));
+            synchronized (this) {
+                snapshot = built;
+                staleSince = pendingSince;
+            }
+            logger.info("Read model rebuilt with {} students, {} teachers, {} courses and {} enrollments, about {} MB",
+                    built.students().size(), built.teachers().size(), built.getCourses().size(), built.getEnrollmentCount(),
+                    built.getEstimatedBytes() / (1024 * 1024));
+        } catch (RuntimeException e) {
+            logger.error("Read model could not be rebuilt", e);
+        }
+    }
+
+    private double stalenessSeconds() {
+        var since = staleSince;
+        return since == NOT_STALE ? 0 : (System.nanoTime() - since) / 1e9;
+    }
+
+    /**
+     * Reads the whole school in one read-only transaction.
+     * Students and teachers are streamed and detached once converted, so the persistence context stays small.
+     * The courses are read without their entities, and their rosters share the student DTOs of the snapshot.
+     */
+    private SchoolSnapshot build(ChangeCounters.Counts counts) {
+        var students = new ArrayList<StudentDTO>();
+        try (var stream = studentRepository.streamAllOrderById()) {
+            stream.forEach(student -> {
+                students.add(studentService.convertToDTO(student));
+                entityManager.detach(student);
+            });
+        }
+        var teachers = new ArrayList<TeacherDTO>();
+        try (var stream = teacherRepository.streamAllOrderById()) {
+            stream.forEach(teacher -> {
+                teachers.add(teacherService.convertToDTO(teacher));
+                entityManager.detach(teacher);
+            });
+        }
+        var studentPeople = new SchoolSnapshot.People<>(students);
+        var teacherPeople = new SchoolSnapshot.People<>(teachers);
+
+        var rows = courseRepository.findAllRows();
+        var courses = new ArrayList<CourseDTO>(rows.size());
+        var bytes = 0L;
+        var enrollmentCount = 0L;
+        try (var enrollments = enrollmentRepository.streamAllOrderByCourseAndStudent()) {
+            var iterator = enrollments.iterator();
+            var next = iterator.hasNext() ? iterator.next() : null;
+            for (var row : rows) {
+                var roster = new ArrayList<Enrolled>();
+                while (next != null && next.getCourseId() <= row.getId()) {
+                    var student = next.getCourseId().equals(row.getId()) ? studentPeople.get(next.getStudentId()) : null;
+                    if (student != null) {
+                        roster.add(new Enrolled(next.getEnrolledAt(), student));
+                    }
+                    next = iterator.hasNext() ? iterator.next() : null;
+                }
+                roster.sort(Comparator.comparing(Enrolled::enrolledAt, Comparator.nullsFirst(Comparator.naturalOrder())));
+
+                var course = new CourseDTO();
+                course.setId(row.getId());
+                course.setSubject(row.getSubject());
+                course.setSchoolYear(row.getSchoolYear());
+                course.setCurrent(row.getCurrent());
+                course.setTeacher(teacherPeople.get(row.getTeacherId()));
+                course.setStudents(roster.stream().map(Enrolled::student).toList());
+                courses.add(course);
+                enrollmentCount += roster.size();
+                bytes += courseBytes(course);
+            }
+        }
+
+        for (var student : students) {
+            bytes += personBytes(student, 5) + boxBytes(student.getEnrollmentYear()) + boxBytes(student.getGraduationYear()) + boxBytes(student.getSchoolYear());
+        }
+        for (var teacher : teachers) {
+            bytes += personBytes(teacher, 4) + (teacher.getEmploymentStart() == null ? 0 : 24) + (teacher.getEmploymentEnd() == null ? 0 : 24);
+        }
+        bytes += listBytes(students.size()) + Long.BYTES * (long) students.size() + listBytes(teachers.size()) + Long.BYTES * (long) teachers.size();
+        bytes += listBytes(courses.size()) + Long.BYTES * (long) courses.size();
+        return new SchoolSnapshot(studentPeople, teacherPeople, courses, enrollmentCount, bytes, counts);
+    }
+
+    /**
+     * A student on a roster with the time they were enrolled, to sort the roster like the enrollments of a course entity.
+     */
+    private record Enrolled(LocalDateTime enrolledAt, StudentDTO student) {
+    }
+
+    // Estimates of the shallow size of the objects of a snapshot, for a 64-bit JVM with compressed references and compact strings.
+
+    private static long personBytes(HogwartsPersonDTO person, int ownFields) {
+        return align(12 + 4L * (7 + ownFields)) + 16
+                + stringBytes(person.getFirstName()) + stringBytes(person.getMiddleName()) + stringBytes(person.getLastName())
+                + (person.getDateOfBirth() == null ? 0 : 24);
+    }
+
+    private static long courseBytes(CourseDTO course) {
+        // The course, its id, subject and roster, and its summary with the teacher's names shared and a boxed count.
+        return align(12 + 4L * 6) + 16 + stringBytes(course.getSubject()) + boxBytes(course.getSchoolYear())
+                + listBytes(course.getStudents().size())
+                + align(12 + 4L * 8) + 16;
+    }
+
+    private static long stringBytes(String value) {
+        return value == null ? 0 : 24 + align(16 + value.length());
+    }
+
+    private static long boxBytes(Integer value) {
+        return value == null || value >= -128 && value <= 127 ? 0 : 16;
+    }
+
+    private static long listBytes(int size) {
+        return 16 + align(16 + 4L * size);
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
@@ -0,0 +1,192 @@
+package edu.hogwarts.studentadmin.service;
+
+import edu.hogwarts.studentadmin.dto.CourseDTO;
+import edu.hogwarts.studentadmin.dto.CourseSummaryDTO;
+import edu.hogwarts.studentadmin.dto.HogwartsPersonDTO;
+import edu.hogwarts.studentadmin.dto.PageDTO;
+import edu.hogwarts.studentadmin.dto.StudentDTO;
+import edu.hogwarts.studentadmin.dto.TeacherDTO;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * An immutable copy of the students, teachers and courses of the school, built by SchoolReadModel.
+ * The rosters of the courses share the student DTOs, so every student is only kept once.
+ * The DTOs are shared by every request that reads the snapshot, so they must not be changed.
+ */
+public class SchoolSnapshot {
+    private final People<StudentDTO> students;
+    private final People<TeacherDTO> teachers;
+    private final List<CourseDTO> courses;
+    private final long[] courseIds;
+    private final List<CourseSummaryDTO> courseSummaries;
+    private final long enrollmentCount;
+    private final long estimatedBytes;
+    private final ChangeCounters.Counts changeCounts;
+
+    /**
+     * Creates a snapshot.
+     * @param students All students, ordered by id
+     * @param teachers All teachers, ordered by id
+     * @param courses All courses with their teachers and rosters, ordered by id
+     * @param enrollmentCount The number of students on all the rosters
+     * @param estimatedBytes The estimated size of the snapshot in memory
+     * @param changeCounts The change counters when the build of the snapshot started
+     */
+    SchoolSnapshot(People<StudentDTO> students, People<TeacherDTO> teachers, List<CourseDTO> courses, long enrollmentCount, long estimatedBytes,
+                   ChangeCounters.Counts changeCounts) {
+        this.students = students;
+        this.teachers = teachers;
+        this.courses = List.copyOf(courses);
+        this.courseIds = ids(courses, CourseDTO::getId);
+        this.courseSummaries = courses.stream().map(SchoolSnapshot::summarize).toList();
+        this.enrollmentCount = enrollmentCount;
+        this.estimatedBytes = estimatedBytes;
+        this.changeCounts = changeCounts;
+    }
+
+    /**
+     * The students or teachers of a snapshot, ordered by id.
+     * @param <D> The DTO for the people (StudentDTO | TeacherDTO).
+     */
+    public static class People<D extends HogwartsPersonDTO> {
+        private final List<D> all;
+        private final long[] ids;
+
+        People(List<D> all) {
+            this.all = List.copyOf(all);
+            this.ids = ids(all, HogwartsPersonDTO::getId);
+        }
+
+        /**
+         * Gets all the people, ordered by id.
+         * @return All the people
+         */
+        public List<D> getAll() {
+            return all;
+        }
+
+        /**
+         * Gets a person by their ID.
+         * @param id The ID of the person
+         * @return The person, or null if they don't exist
+         */
+        public D get(Long id) {
+            var index = id == null ? -1 : Arrays.binarySearch(ids, id);
+            return index < 0 ? null : all.get(index);
+        }
+
+        /**
+         * Gets a page of people ordered by id, like HogwartsPersonService.getPage.
+         * @param after The ID of the last person on the previous page, or null for the first page
+         * @param limit The maximum number of people on the page
+         * @return The page of people
+         */
+        public PageDTO<D> getPage(Long after, int limit) {
+            var from = after == null ? 0 : firstIndexAfter(ids, after);
+            var to = (int) Math.min((long) from + limit, all.size());
+            var items = all.subList(from, to);
+            var nextCursor = to < all.size() && !items.isEmpty() ? items.get(items.size() - 1).getId() : null;
+            return new PageDTO<>(items, nextCursor);
+        }
+
+        /**
+         * Gets the number of people.
+         * @return The number of people
+         */
+        public int size() {
+            return all.size();
+        }
+    }
+
+    /**
+     * Gets the students.
+     * @return The students
+     */
+    public People<StudentDTO> students() {
+        return students;
+    }
+
+    /**
+     * Gets the teachers.
+     * @return The teachers
+     */
+    public People<TeacherDTO> teachers() {
+        return teachers;
+    }
+
+    /**
+     * Gets all courses with their teachers and rosters.
+     * @return All courses, ordered by id
+     */
+    public List<CourseDTO> getCourses() {
+        return courses;
+    }
+
+    /**
+     * Gets a course with its teacher and roster.
+     * @param id The id of the course
+     * @return The course, or null if it doesn't exist
+     */
+    public CourseDTO getCourse(Long id) {
+        var index = id == null ? -1 : Arrays.binarySearch(courseIds, id);
+        return index < 0 ? null : courses.get(index);
+    }
+
+    /**
+     * Gets a summary of all courses, like CourseService.getAllSummaries.
+     * @return The summaries of all courses, ordered by id
+     */
+    public List<CourseSummaryDTO> getCourseSummaries() {
+        return courseSummaries;
+    }
+
+    /**
+     * Gets the number of students on all the rosters.
+     * @return The number of enrollments
+     */
+    public long getEnrollmentCount() {
+        return enrollmentCount;
+    }
+
+    /**
+     * Gets the estimated size of the snapshot in memory, counting the DTOs, their strings and boxed values, and the lists.
+     * The houses are not counted, since they are shared with HouseService.
+     * @return The estimated size in bytes
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * Gets the change counters when the build of the snapshot started, for the ETags of the responses from the snapshot.
+     * @return The change counters
+     */
+    public ChangeCounters.Counts getChangeCounts() {
+        return changeCounts;
+    }
+
+    private static CourseSummaryDTO summarize(CourseDTO course) {
+        var teacher = course.getTeacher();
+        return new CourseSummaryDTO(course.getId(), course.getSubject(), course.getSchoolYear(), course.isCurrent(),
+                teacher == null ? null : teacher.getFirstName(),
+                teacher == null ? null : teacher.getMiddleName(),
+                teacher == null ? null : teacher.getLastName(),
+                (long) course.getStudents().size());
+    }
+
+    private static <T> long[] ids(List<T> items, Function<T, Long> idGetter) {
+        var ids = new long[items.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = idGetter.apply(items.get(i));
+        }
+        return ids;
+    }
+
+    private static int firstIndexAfter(long[] ids, long after) {
+        var index = Arrays.binarySearch(ids, after);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+}
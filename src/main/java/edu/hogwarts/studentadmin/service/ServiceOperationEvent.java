@@ -0,0 +1,92 @@
+package edu.hogwarts.studentadmin.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event for a call to a public method of the course, student, teacher or house service.
+ * The events are created by FlightRecorderConfig, and are disabled unless a recording enables them, e.g. with jfr/student-admin.jfc.
+ * While an event is recorded, the service can add the number of students it enrolled or removed to it,
+ * with {@link #studentsAdded(int)} and {@link #studentsRemoved(int)}, which do nothing when no event is recorded.
+ */
+@Name("edu.hogwarts.studentadmin.ServiceOperation")
+@Label("Service Operation")
+@Category({"Student Admin", "Service"})
+@Description("A call to a service method, with the size of the data it handled")
+public class ServiceOperationEvent extends Event {
+    private static final ThreadLocal<ServiceOperationEvent> current = new ThreadLocal<>();
+
+    @Label("Service")
+    public String service;
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Entity Id")
+    @Description("The id the method was called with, 0 if it has none")
+    public long entityId;
+
+    @Label("Roster Size")
+    @Description("The number of students in the returned course, -1 if no course is returned")
+    public int rosterSize = -1;
+
+    @Label("Converted")
+    @Description("The number of entities converted to DTOs for the result")
+    public int converted;
+
+    @Label("Students Added")
+    @Description("The number of students enrolled in a course")
+    public int studentsAdded;
+
+    @Label("Students Removed")
+    @Description("The number of students removed from a course")
+    public int studentsRemoved;
+
+    /**
+     * Makes an event the one the service methods on the current thread add to.
+     * @param event the event of the method being called
+     * @return the event of the calling method, to restore with {@link #exit(ServiceOperationEvent)}
+     */
+    public static ServiceOperationEvent enter(ServiceOperationEvent event) {
+        var previous = current.get();
+        current.set(event);
+        return previous;
+    }
+
+    /**
+     * Restores the event of the calling method once a method returns.
+     * @param previous the event returned by {@link #enter(ServiceOperationEvent)}
+     */
+    public static void exit(ServiceOperationEvent previous) {
+        if (previous == null) {
+            current.remove();
+        } else {
+            current.set(previous);
+        }
+    }
+
+    /**
+     * Adds enrolled students to the event of the current service method, if it is recorded.
+     * @param count the number of students enrolled
+     */
+    public static void studentsAdded(int count) {
+        var event = current.get();
+        if (event != null) {
+            event.studentsAdded += count;
+        }
+    }
+
+    /**
+     * Adds removed students to the event of the current service method, if it is recorded.
+     * @param count the number of students removed
+     */
+    public static void studentsRemoved(int count) {
+        var event = current.get();
+        if (event != null) {
+            event.studentsRemoved += count;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package edu.hogwarts.studentadmin.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import edu.hogwarts.studentadmin.dto.ImportErrorDTO;
+import edu.hogwarts.studentadmin.dto.ImportReportDTO;
+import edu.hogwarts.studentadmin.dto.StudentDTO;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * This class imports students in bulk from NDJSON or CSV.
+ * The input is read one row at a time and saved in chunks, each in its own transaction,
+ * so memory use doesn't grow with the size of the file.
+ */
+@Service
+public class StudentImportService {
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final StudentService studentService;
+    private final HouseService houseService;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper;
+    private final int chunkSize;
+
+    /**
+     * A parsed row waiting to be saved.
+     * @param row The number of the row in the file.
+     * @param student The parsed student.
+     */
+    private record ImportRow(long row, StudentDTO student) {
+    }
+
+    /**
+     * Constructor for StudentImportService. Uses dependency injection to get the services, the entity manager and the settings.
+     * @param studentService The service for students, used to convert the rows to entities
+     * @param houseService The service for houses, used to check the house names
+     * @param entityManager The entity manager used to save the chunks
+     * @param transactionManager The transaction manager used for each chunk
+     * @param eventPublisher The publisher of the change event of each chunk
+     * @param objectMapper The JSON mapper used for NDJSON rows
+     * @param chunkSize The number of students saved in each transaction
+     */
+    public StudentImportService(StudentService studentService, HouseService houseService, EntityManager entityManager,
+                                PlatformTransactionManager transactionManager, ApplicationEventPublisher eventPublisher, ObjectMapper objectMapper,
+                                @Value("${studentadmin.import.chunk-size:1000}") int chunkSize) {
+        this.studentService = studentService;
+        this.houseService = houseService;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.csvMapper = CsvMapper.builder()
+                .findAndAddModules()
+                .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+                .enable(CsvParser.Feature.TRIM_SPACES)
+                .build();
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports students from a stream of NDJSON or CSV.
+     * Rows that can't be parsed or have an unknown house are skipped and reported, the other rows are saved.
+     * IDs in the input are ignored, every row is saved as a new student.
+     * @param input The stream to read the students from, in UTF-8
+     * @param format The format of the stream
+     * @return A report with the number of imported and failed rows, and the errors of the first failed rows
+     * @throws IOException If the stream can't be read
+     */
+    public ImportReportDTO importStudents(InputStream input, FileFormat format) throws IOException {
+        var report = new ImportReportDTO();
+        var chunk = new ArrayList<ImportRow>(chunkSize);
+        Consumer<ImportRow> addRow = row -> {
+            var error = validate(row.student());
+            if (error != null) {
+                fail(report, row.row(), error);
+                return;
+            }
+            chunk.add(row);
+            if (chunk.size() >= chunkSize) {
+                saveChunk(chunk, report);
+            }
+        };
+
+        var reader = new InputStreamReader(input, StandardCharsets.UTF_8);
+        if (format == FileFormat.CSV) {
+            readCsv(reader, addRow, report);
+        } else {
+            readNdjson(reader, addRow, report);
+        }
+        saveChunk(chunk, report);
+        return report;
+    }
+
+    /**
+     * Reads NDJSON one line at a time, skipping blank lines.
+     */
+    private void readNdjson(Reader reader, Consumer<ImportRow> addRow, ImportReportDTO report) throws IOException {
+        var lines = new BufferedReader(reader);
+        long row = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            row++;
+            try {
+                addRow.accept(new ImportRow(row, objectMapper.readValue(line, StudentDTO.class)));
+            } catch (JsonProcessingException e) {
+                fail(report, row, "Invalid student: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    /**
+     * Reads CSV one record at a time, using the header row as the property names.
+     * A record that can't be parsed is reported and the reader continues with the next record.
+     */
+    private void readCsv(Reader reader, Consumer<ImportRow> addRow, ImportReportDTO report) throws IOException {
+        var schema = CsvSchema.emptySchema().withHeader();
+        try (var students = csvMapper.readerFor(StudentDTO.class).with(schema).<StudentDTO>readValues(reader)) {
+            long row = 0;
+            while (true) {
+                row++;
+                try {
+                    if (!students.hasNextValue()) {
+                        return;
+                    }
+                    addRow.accept(new ImportRow(row, students.nextValue()));
+                } catch (JsonProcessingException e) {
+                    fail(report, row, "Invalid student: " + e.getOriginalMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks a parsed student before it is saved.
+     * @param student The student to check
+     * @return The error message, or null if the student is valid
+     */
+    private String validate(StudentDTO student) {
+        if (student.getFirstName() == null || student.getFirstName().isBlank()) {
+            return "Missing name.";
+        }
+        if (student.getHouseName() != null && houseService.get(student.getHouseName()) == null) {
+            return "Invalid house: " + student.getHouseName() + ".";
+        }
+        return null;
+    }
+
+    /**
+     * Saves a chunk of students in one transaction with batched inserts, then clears the chunk.
+     * If the chunk fails, its rows are saved one at a time, so only the rows that fail are reported.
+     */
+    private void saveChunk(List<ImportRow> chunk, ImportReportDTO report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            save(chunk);
+            report.setImported(report.getImported() + chunk.size());
+        } catch (PersistenceException | DataAccessException e) {
+            for (var row : chunk) {
+                try {
+                    save(List.of(row));
+                    report.setImported(report.getImported() + 1);
+                } catch (PersistenceException | DataAccessException rowException) {
+                    fail(report, row.row(), "Could not save student: " + rowException.getMessage());
+                }
+            }
+        }
+        chunk.clear();
+    }
+
+    /**
+     * Inserts the students in a new transaction.
+     * The persistence context is cleared afterwards, and the students aren't put in the second-level cache,
+     * so neither grows with the size of the import. The chunk is published as a change, for the read model.
+     */
+    private void save(List<ImportRow> rows) {
+        transactionTemplate.executeWithoutResult(status -> {
+            var session = entityManager.unwrap(Session.class);
+            var cacheMode = session.getCacheMode();
+            session.setCacheMode(CacheMode.IGNORE);
+            // Hibernate puts inserted entities in the cache when the transaction commits, so the mode is restored after that
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    session.setCacheMode(cacheMode);
+                }
+            });
+            try {
+                for (var row : rows) {
+                    var student = studentService.convertToEntity(row.student());
+                    student.setId(null);
+                    entityManager.persist(student);
+                }
+                entityManager.flush();
+                eventPublisher.publishEvent(new SchoolDataChangedEvent("StudentImportService.importStudents", Set.of(SchoolCollection.STUDENTS)));
+            } finally {
+                entityManager.clear();
+            }
+        });
+    }
+
+    private void fail(ImportReportDTO report, long row, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+            report.getErrors().add(new ImportErrorDTO(row, message));
+        }
+    }
+}
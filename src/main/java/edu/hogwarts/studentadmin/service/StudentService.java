@@ -2,8 +2,13 @@ package edu.hogwarts.studentadmin.service;
 
 import edu.hogwarts.studentadmin.dto.StudentDTO;
 import edu.hogwarts.studentadmin.model.Student;
+import edu.hogwarts.studentadmin.repository.EnrollmentRepository;
 import edu.hogwarts.studentadmin.repository.StudentRepository;
+import edu.hogwarts.studentadmin.repository.TombstoneRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -11,14 +16,22 @@ import java.util.List;
  * This class provides service methods to manage students in the school.
  */
 @Service
+@Timed("studentadmin.service")
 public class StudentService extends HogwartsPersonService<Student, StudentDTO> {
+    private final EnrollmentRepository enrollmentRepository;
+
     /**
-     * Constructor for StudentService. Uses dependency injection to get the StudentRepository and HouseService.
+     * Constructor for StudentService. Uses dependency injection to get the StudentRepository, EnrollmentRepository, HouseService, TombstoneRepository and EntityManager.
      * @param studentRepository The repository for students
+     * @param enrollmentRepository The repository for the enrollments of students in courses
      * @param houseService The service for houses
+     * @param tombstoneRepository The repository for the tombstones of deleted students
+     * @param entityManager The entity manager
      */
-    public StudentService(StudentRepository studentRepository, HouseService houseService) {
-        super(studentRepository, houseService);
+    public StudentService(StudentRepository studentRepository, EnrollmentRepository enrollmentRepository, HouseService houseService,
+                          TombstoneRepository tombstoneRepository, EntityManager entityManager) {
+        super(studentRepository, houseService, tombstoneRepository, entityManager);
+        this.enrollmentRepository = enrollmentRepository;
     }
 
     /**
@@ -38,6 +51,7 @@ public class StudentService extends HogwartsPersonService<Student, StudentDTO> {
         studentDTO.setMiddleName(student.getMiddleName());
         studentDTO.setLastName(student.getLastName());
         studentDTO.setDateOfBirth(student.getDateOfBirth());
+        studentDTO.setVersion(student.getVersion());
         studentDTO.setEnrollmentYear(student.getEnrollmentYear());
         studentDTO.setGraduationYear(student.getGraduationYear());
         studentDTO.setGraduated(student.isGraduated());
@@ -56,7 +70,18 @@ public class StudentService extends HogwartsPersonService<Student, StudentDTO> {
         if(studentDTO.getId() != null) {
             studentEntity.setId(studentDTO.getId());
         }
-        studentEntity.setHouse(houseService.get(studentDTO.getHouseName()));
+        copyToEntity(studentDTO, studentEntity);
+        return studentEntity;
+    }
+
+    /**
+     * Copies all fields except the ID from a student DTO to a student entity, overwriting the fields of the entity.
+     * The house is set as a reference, so it is not selected.
+     * @param studentDTO The student DTO to copy from.
+     * @param studentEntity The student entity to copy to.
+     */
+    private void copyToEntity(StudentDTO studentDTO, Student studentEntity) {
+        studentEntity.setHouse(houseService.getReference(studentDTO.getHouseName()));
         studentEntity.setFirstName(studentDTO.getFirstName());
         studentEntity.setMiddleName(studentDTO.getMiddleName());
         studentEntity.setLastName(studentDTO.getLastName());
@@ -66,13 +91,14 @@ public class StudentService extends HogwartsPersonService<Student, StudentDTO> {
         studentEntity.setGraduated(studentDTO.isGraduated());
         studentEntity.setPrefect(studentDTO.isPrefect());
         studentEntity.setSchoolYear(studentDTO.getSchoolYear());
-        return studentEntity;
     }
 
     /**
      * Gets a list of all the students.
      * @return A list of all students.
      */
+    @Coalesced
+    @Transactional(readOnly = true)
     public List<StudentDTO> getAll() {
         var students = repository.findAll();
         return students.stream().map(this::convertToDTO).toList();
@@ -83,6 +109,8 @@ public class StudentService extends HogwartsPersonService<Student, StudentDTO> {
      * @param id The ID of the student to find.
      * @return The student, or null if it does not exist.
      */
+    @Coalesced
+    @Transactional(readOnly = true)
     public StudentDTO get(Long id) {
         var student = repository.findById(id).orElse(null);
         if (student == null) {
@@ -91,35 +119,12 @@ public class StudentService extends HogwartsPersonService<Student, StudentDTO> {
         return convertToDTO(student);
     }
 
-    /**
-     * Gets a specific student by their full name.
-     * @param name the full name or first name of the student
-     * @return the first student found with the given name, or null if none is found
-     */
-    public Student get(String name) {
-        if (name == null || name.isBlank()) {
-            return null;
-        }
-        int firstSpace = name.indexOf(" ");
-        int lastSpace = name.lastIndexOf(" ");
-        if (firstSpace == -1) {
-            return ((StudentRepository) repository).findFirstByFirstNameIgnoreCase(name).orElse(null);
-        } else if (firstSpace == lastSpace) {
-            var firstName = name.substring(0, firstSpace);
-            var lastName = name.substring(firstSpace + 1);
-            return ((StudentRepository) repository).findFirstByFirstNameIgnoreCaseAndLastNameIgnoreCase(firstName, lastName).orElse(null);
-        }
-        var firstName = name.substring(0, firstSpace);
-        var middleName = name.substring(firstSpace + 1, lastSpace);
-        var lastName = name.substring(lastSpace + 1);
-        return ((StudentRepository) repository).findFirstByFirstNameIgnoreCaseAndMiddleNameIgnoreCaseAndLastNameIgnoreCase(firstName, middleName, lastName).orElse(null);
-    }
-
     /**
      * Creates a new student from the given student DTO.
      * @param studentDTO the student DTO to create the student from
      * @return the created student
      */
+    @Transactional
     public StudentDTO create(StudentDTO studentDTO) {
         var studentEntity = convertToEntity(studentDTO);
         return convertToDTO(repository.save(studentEntity));
@@ -127,17 +132,19 @@ public class StudentService extends HogwartsPersonService<Student, StudentDTO> {
 
     /**
      * Updates a student by their ID. Overwrites the entire student with the given student DTO.
+     * The loaded student is changed in place and written when the transaction commits, so it is not selected again to be merged.
      * @param studentDTO the DTO of the new student to replace the old student
      * @param id the ID of the student to update
      * @return the updated student, or null if the student with the given ID is not found
      */
+    @Transactional
     public StudentDTO update(StudentDTO studentDTO, Long id) {
         var studentEntity = repository.findById(id).orElse(null);
         if(studentEntity == null){
             return null;
         }
-        studentEntity = convertToEntity(studentDTO);
-        return convertToDTO(repository.save(studentEntity));
+        copyToEntity(studentDTO, studentEntity);
+        return convertToDTO(studentEntity);
     }
 
     /**
@@ -147,13 +154,14 @@ public class StudentService extends HogwartsPersonService<Student, StudentDTO> {
      * @param id the ID of the student to update
      * @return the updated student, or null if the student with the given ID is not found
      */
+    @Transactional
     public StudentDTO patch(StudentDTO studentDTO, Long id) {
         var studentEntity = repository.findById(id).orElse(null);
         if(studentEntity == null){
             return null;
         }
         if (studentDTO.getHouseName() != null) {
-            var house = houseService.get(studentDTO.getHouseName());
+            var house = houseService.getReference(studentDTO.getHouseName());
             studentEntity.setHouse(house);
         }
         if (studentDTO.getName() != null) {
@@ -180,6 +188,21 @@ public class StudentService extends HogwartsPersonService<Student, StudentDTO> {
             studentEntity.setPrefect(studentDTO.isPrefect());
         }
 
-        return convertToDTO(repository.save(studentEntity));
+        return convertToDTO(studentEntity);
+    }
+
+    /**
+     * Deletes a student by their ID, removing them from all their courses first.
+     * The enrollments are deleted with a single statement, so loaded courses don't keep the student from being deleted.
+     * Only the student gets a tombstone, which stands for their enrollments too.
+     * @param id the ID of the student to delete
+     */
+    @Override
+    @Transactional
+    public void delete(Long id) {
+        if (id == null) return;
+        enrollmentRepository.deleteByStudentId(id);
+        repository.deleteById(id);
+        saveTombstone(id);
     }
 }
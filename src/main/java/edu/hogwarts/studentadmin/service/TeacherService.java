@@ -3,7 +3,11 @@ package edu.hogwarts.studentadmin.service;
 import edu.hogwarts.studentadmin.dto.TeacherDTO;
 import edu.hogwarts.studentadmin.model.Teacher;
 import edu.hogwarts.studentadmin.repository.TeacherRepository;
+import edu.hogwarts.studentadmin.repository.TombstoneRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -11,14 +15,17 @@ import java.util.List;
  * This class provides service methods to manage teachers in the school.
  */
 @Service
+@Timed("studentadmin.service")
 public class TeacherService extends HogwartsPersonService<Teacher, TeacherDTO> {
     /**
-     * Constructor for TeacherService. Uses dependency injection to get the TeacherRepository and HouseService.
+     * Constructor for TeacherService. Uses dependency injection to get the TeacherRepository, HouseService, TombstoneRepository and EntityManager.
      * @param repository The repository for teachers
      * @param houseService The service for houses
+     * @param tombstoneRepository The repository for the tombstones of deleted teachers
+     * @param entityManager The entity manager
      */
-    public TeacherService(TeacherRepository repository, HouseService houseService) {
-        super(repository, houseService);
+    public TeacherService(TeacherRepository repository, HouseService houseService, TombstoneRepository tombstoneRepository, EntityManager entityManager) {
+        super(repository, houseService, tombstoneRepository, entityManager);
     }
 
     /**
@@ -38,6 +45,7 @@ public class TeacherService extends HogwartsPersonService<Teacher, TeacherDTO> {
         teacherDTO.setMiddleName(teacher.getMiddleName());
         teacherDTO.setLastName(teacher.getLastName());
         teacherDTO.setDateOfBirth(teacher.getDateOfBirth());
+        teacherDTO.setVersion(teacher.getVersion());
         teacherDTO.setEmployment(teacher.getEmployment());
         teacherDTO.setEmploymentStart(teacher.getEmploymentStart());
         teacherDTO.setEmploymentEnd(teacher.getEmploymentEnd());
@@ -55,8 +63,18 @@ public class TeacherService extends HogwartsPersonService<Teacher, TeacherDTO> {
         if(teacherDTO.getId() != null) {
             teacherEntity.setId(teacherDTO.getId());
         }
+        copyToEntity(teacherDTO, teacherEntity);
+        return teacherEntity;
+    }
 
-        teacherEntity.setHouse(houseService.get(teacherDTO.getHouseName()));
+    /**
+     * Copies all fields except the ID from a teacher DTO to a teacher entity, overwriting the fields of the entity.
+     * The house is set as a reference, so it is not selected.
+     * @param teacherDTO The teacher DTO to copy from.
+     * @param teacherEntity The teacher entity to copy to.
+     */
+    private void copyToEntity(TeacherDTO teacherDTO, Teacher teacherEntity) {
+        teacherEntity.setHouse(houseService.getReference(teacherDTO.getHouseName()));
         teacherEntity.setFirstName(teacherDTO.getFirstName());
         teacherEntity.setMiddleName(teacherDTO.getMiddleName());
         teacherEntity.setLastName(teacherDTO.getLastName());
@@ -65,13 +83,14 @@ public class TeacherService extends HogwartsPersonService<Teacher, TeacherDTO> {
         teacherEntity.setEmploymentStart(teacherDTO.getEmploymentStart());
         teacherEntity.setEmploymentEnd(teacherDTO.getEmploymentEnd());
         teacherEntity.setHeadOfHouse(teacherDTO.isHeadOfHouse());
-        return teacherEntity;
     }
 
     /**
      * Gets a list of all the teachers.
      * @return A list of all teachers.
      */
+    @Coalesced
+    @Transactional(readOnly = true)
     public List<TeacherDTO> getAll() {
         var teachers = repository.findAll();
         return teachers.stream().map(this::convertToDTO).toList();
@@ -82,6 +101,8 @@ public class TeacherService extends HogwartsPersonService<Teacher, TeacherDTO> {
      * @param id The ID of the HogwartsPerson entity to find.
      * @return The teacher entity, or null if it does not exist.
      */
+    @Coalesced
+    @Transactional(readOnly = true)
     public TeacherDTO get(Long id) {
         var teacher = repository.findById(id).orElse(null);
         if (teacher == null) {
@@ -95,6 +116,7 @@ public class TeacherService extends HogwartsPersonService<Teacher, TeacherDTO> {
      * @param teacherDTO the teacher DTO to create the teacher from
      * @return the created teacher
      */
+    @Transactional
     public TeacherDTO create(TeacherDTO teacherDTO) {
         var teacherEntity = convertToEntity(teacherDTO);
         return convertToDTO(repository.save(teacherEntity));
@@ -102,17 +124,19 @@ public class TeacherService extends HogwartsPersonService<Teacher, TeacherDTO> {
 
     /**
      * Updates a teacher by their ID. Overwrites the entire teacher with the given teacher DTO.
+     * The loaded teacher is changed in place and written when the transaction commits, so it is not selected again to be merged.
      * @param teacherDTO the DTO of teacher to update
      * @param id the id of the teacher to update
      * @return the updated teacher or null if the teacher was not found
      */
+    @Transactional
     public TeacherDTO update(TeacherDTO teacherDTO, Long id) {
         var teacherEntity = repository.findById(id).orElse(null);
         if(teacherEntity == null){
             return null;
         }
-        teacherEntity = convertToEntity(teacherDTO);
-        return convertToDTO(repository.save(teacherEntity));
+        copyToEntity(teacherDTO, teacherEntity);
+        return convertToDTO(teacherEntity);
     }
 
     /**
@@ -122,13 +146,14 @@ public class TeacherService extends HogwartsPersonService<Teacher, TeacherDTO> {
      * @param id the id of the teacher to update
      * @return the updated teacher or null if the teacher was not found
      */
+    @Transactional
     public TeacherDTO patch(TeacherDTO teacherDTO, Long id) {
         var teacherEntity = repository.findById(id).orElse(null);
         if (teacherEntity == null) {
             return null;
         }
         if (teacherDTO.getHouseName() != null) {
-            var house = houseService.get(teacherDTO.getHouseName());
+            var house = houseService.getReference(teacherDTO.getHouseName());
             teacherEntity.setHouse(house);
         }
         if (teacherDTO.getName() != null) {
@@ -152,6 +177,6 @@ public class TeacherService extends HogwartsPersonService<Teacher, TeacherDTO> {
             teacherEntity.setHeadOfHouse(teacherDTO.isHeadOfHouse());
         }
 
-        return convertToDTO(repository.save(teacherEntity));
+        return convertToDTO(teacherEntity);
     }
 }
@@ -0,0 +1,285 @@
+package edu.hogwarts.studentadmin;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.hogwarts.studentadmin.config.TombstoneCleanup;
+import edu.hogwarts.studentadmin.model.Student;
+import edu.hogwarts.studentadmin.model.Teacher;
+import edu.hogwarts.studentadmin.repository.StudentRepository;
+import edu.hogwarts.studentadmin.repository.TeacherRepository;
+import edu.hogwarts.studentadmin.service.ChangeSequence;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests the delta sync of GET /changes, on a database of its own, so a full sync only has to page through the seed data
+ * and the rows of these tests.
+ * The second-level cache is turned off, since its regions are shared with the other test contexts, which use another database.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.datasource.url=jdbc:h2:mem:change_sync_test_db",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false"})
+@AutoConfigureMockMvc
+public class ChangeSyncTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TombstoneCleanup tombstoneCleanup;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Test that only the rows changed since a token are returned, and that deleted rows are returned as deleted.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testChangesSinceToken() throws Exception {
+        var token = syncAll(new HashSet<>(), 500);
+        var id = createStudent();
+        mockMvc.perform(patch("/students/" + id).contentType("application/json").content("{\"name\": \"Sync Changed\"}"))
+                .andExpect(status().isOk());
+
+        var changes = getChanges("?since=" + token);
+        assertEquals(1, changes.get("students").size());
+        assertEquals("Sync Changed", changes.get("students").get(0).get("name").asText());
+        assertEquals(0, changes.get("teachers").size());
+        assertFalse(changes.get("more").asBoolean());
+        token = changes.get("next").asLong();
+        assertEquals(0, getChanges("?since=" + token).get("students").size());
+
+        mockMvc.perform(delete("/students/" + id)).andExpect(status().isOk());
+        var deleted = getChanges("?since=" + token).get("deleted");
+        assertEquals(1, deleted.size());
+        assertEquals("student", deleted.get(0).get("type").asText());
+        assertEquals(id, deleted.get(0).get("id").asLong());
+
+        mockMvc.perform(get("/changes?since=yesterday")).andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Test that a full sync in pages smaller than the seed data returns every student exactly once.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testPagesDoNotSkipOrRepeat() throws Exception {
+        var ids = new HashSet<Long>();
+        syncAll(ids, 3);
+        var all = objectMapper.readTree(mockMvc.perform(get("/students")).andReturn().getResponse().getContentAsString());
+        assertTrue(all.size() > 3, "The seed data must take more than one page");
+        for (var student : all) {
+            assertTrue(ids.contains(student.get("id").asLong()), "Every student must be returned");
+        }
+    }
+
+    /**
+     * Test that removing a student from a course and replacing the roster of a course return the removed enrollments as deleted,
+     * and that deleting the course returns the course as deleted, without its enrollments.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testEnrollmentAndCourseTombstones() throws Exception {
+        var first = createStudent();
+        var second = createStudent();
+        var third = createStudent();
+        var course = objectMapper.readTree(mockMvc.perform(post("/courses").contentType("application/json")
+                        .content("{\"subject\": \"Sync Tombstones\", \"schoolYear\": 2, \"current\": true}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString()).get("id").asLong();
+        mockMvc.perform(post("/courses/" + course + "/students").contentType("application/json")
+                        .content("[{\"id\": " + first + "}, {\"id\": " + second + "}, {\"id\": " + third + "}]"))
+                .andExpect(status().isOk());
+        var token = syncAll(new HashSet<>(), 500);
+
+        mockMvc.perform(delete("/courses/" + course + "/students/" + first)).andExpect(status().isOk());
+        var deleted = getChanges("?since=" + token).get("deleted");
+        assertEquals(1, deleted.size());
+        assertEnrollmentDeleted(deleted.get(0), course, first);
+        token = getChanges("?since=" + token).get("next").asLong();
+
+        mockMvc.perform(put("/courses/" + course).contentType("application/json")
+                        .content("{\"subject\": \"Sync Tombstones\", \"schoolYear\": 2, \"current\": true, \"students\": [{\"id\": " + third + "}]}"))
+                .andExpect(status().isOk());
+        deleted = getChanges("?since=" + token).get("deleted");
+        assertEquals(1, deleted.size());
+        assertEnrollmentDeleted(deleted.get(0), course, second);
+        token = getChanges("?since=" + token).get("next").asLong();
+
+        mockMvc.perform(delete("/courses/" + course)).andExpect(status().isOk());
+        deleted = getChanges("?since=" + token).get("deleted");
+        assertEquals(1, deleted.size(), "The enrollments deleted with the course must not get tombstones of their own");
+        assertEquals("course", deleted.get(0).get("type").asText());
+        assertEquals(course, deleted.get(0).get("id").asLong());
+    }
+
+    /**
+     * Test that when one kind has more changes than the limit, the other kinds are cut off at the same number,
+     * so a teacher changed after the last student of the page is left for the next page instead of being skipped later.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testKindsAreCutOffTogether() throws Exception {
+        var token = syncAll(new HashSet<>(), 500);
+        var students = new ArrayList<Long>();
+        for (var i = 0; i < 3; i++) {
+            students.add(createStudent());
+        }
+        var teacher = teacherRepository.save(new Teacher(null, "Sync", null, "Teacher", null, null, false, null, null, null)).getId();
+        students.add(createStudent());
+
+        var first = getChanges("?limit=3&since=" + token);
+        assertEquals(students.subList(0, 3), ids(first.get("students")));
+        assertEquals(List.of(), ids(first.get("teachers")), "The teacher was changed after the last student of the page");
+        assertTrue(first.get("more").asBoolean());
+
+        var second = getChanges("?limit=3&since=" + first.get("next").asLong());
+        assertEquals(students.subList(3, 4), ids(second.get("students")));
+        assertEquals(List.of(teacher), ids(second.get("teachers")));
+        assertFalse(second.get("more").asBoolean());
+    }
+
+    /**
+     * Test that a row written by a transaction that is still open holds back the next token,
+     * so a row committed after it with a higher number isn't returned before it, and both are returned once it has committed.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testOpenTransactionHoldsBackChanges() throws Exception {
+        var token = syncAll(new HashSet<>(), 500);
+        var written = new CountDownLatch(1);
+        var commit = new CountDownLatch(1);
+        var transaction = new TransactionTemplate(transactionManager);
+        var open = CompletableFuture.supplyAsync(() -> transaction.execute(status -> {
+            var id = studentRepository.save(new Student(null, "Sync", null, "Open", null, null, false, 1991, null, false, 2)).getId();
+            written.countDown();
+            try {
+                assertTrue(commit.await(30, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return id;
+        }));
+        assertTrue(written.await(30, TimeUnit.SECONDS));
+        var committed = createStudent();
+
+        var held = getChanges("?since=" + token);
+        assertEquals(List.of(), ids(held.get("students")), "No student may be returned past the open transaction");
+
+        commit.countDown();
+        var openId = open.get(30, TimeUnit.SECONDS);
+        var changes = getChanges("?since=" + held.get("next").asLong());
+        assertEquals(List.of(openId, committed), ids(changes.get("students")));
+    }
+
+    /**
+     * Test that the cleanup deletes the tombstones older than the retention of 30 days and keeps the newer ones,
+     * and that a token or timestamp from before the retention is gone, while a full sync still works.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testExpiredTombstonesAreDeleted() throws Exception {
+        var old = createStudent();
+        var recent = createStudent();
+        mockMvc.perform(delete("/students/" + old)).andExpect(status().isOk());
+        mockMvc.perform(delete("/students/" + recent)).andExpect(status().isOk());
+        var expired = ChangeSequence.fromInstant(Instant.now().minus(Duration.ofDays(31)));
+        jdbcTemplate.update("update tombstone set change_seq = ? where type = 'student' and entity_id = ?", expired, old);
+
+        assertTrue(tombstoneCleanup.run() >= 1);
+        assertEquals(0, count(old));
+        assertEquals(1, count(recent));
+
+        mockMvc.perform(get("/changes?since=" + expired)).andExpect(status().isGone());
+        mockMvc.perform(get("/changes?since=" + Instant.now().minus(Duration.ofDays(40)))).andExpect(status().isGone());
+        mockMvc.perform(get("/changes?since=" + Instant.now().minus(Duration.ofDays(1)))).andExpect(status().isOk());
+        mockMvc.perform(get("/changes")).andExpect(status().isOk());
+    }
+
+    /**
+     * Syncs every change from the start, one page at a time.
+     * @param ids the set the ids of the returned students are added to, which must not be returned twice
+     * @param limit the limit of each page
+     * @return the token after the last page
+     */
+    private long syncAll(Set<Long> ids, int limit) throws Exception {
+        var token = -1L;
+        var more = true;
+        while (more) {
+            var changes = getChanges(token < 0 ? "?limit=" + limit : "?limit=" + limit + "&since=" + token);
+            for (var student : changes.get("students")) {
+                assertTrue(ids.add(student.get("id").asLong()), "A student must not be returned twice");
+            }
+            token = changes.get("next").asLong();
+            more = changes.get("more").asBoolean();
+        }
+        return token;
+    }
+
+    private JsonNode getChanges(String query) throws Exception {
+        var response = mockMvc.perform(get("/changes" + query)).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response);
+    }
+
+    private int count(long deletedStudent) {
+        var count = jdbcTemplate.queryForObject("select count(*) from tombstone where type = 'student' and entity_id = ?", Integer.class, deletedStudent);
+        return count == null ? 0 : count;
+    }
+
+    private static List<Long> ids(JsonNode rows) {
+        var ids = new ArrayList<Long>();
+        rows.forEach(row -> ids.add(row.get("id").asLong()));
+        return ids;
+    }
+
+    private static void assertEnrollmentDeleted(JsonNode deleted, long courseId, long studentId) {
+        assertEquals("enrollment", deleted.get("type").asText());
+        assertEquals(courseId, deleted.get("courseId").asLong());
+        assertEquals(studentId, deleted.get("studentId").asLong());
+    }
+
+    private long createStudent() throws Exception {
+        return StudentFixture.createStudent(mockMvc, objectMapper, "Sync Student", "Ravenclaw", 2);
+    }
+}
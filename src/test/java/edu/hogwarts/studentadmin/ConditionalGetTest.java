@@ -0,0 +1,90 @@
+package edu.hogwarts.studentadmin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.hogwarts.studentadmin.config.StatementCounter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests the ETags of the GET routes, and that conditional GETs are answered with 304 Not Modified until the data changes.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureMockMvc
+public class ConditionalGetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    /**
+     * Test that the lists are not modified without running a statement, and are modified once a student has changed.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testListsNotModifiedWithoutStatements() throws Exception {
+        var students = getETag("/students");
+        var courses = getETag("/courses?view=summary");
+        var houses = getETag("/houses");
+
+        var start = statementCounter.getCount();
+        mockMvc.perform(get("/students").header(HttpHeaders.IF_NONE_MATCH, students)).andExpect(status().isNotModified());
+        mockMvc.perform(get("/courses?view=summary").header(HttpHeaders.IF_NONE_MATCH, courses)).andExpect(status().isNotModified());
+        mockMvc.perform(get("/houses").header(HttpHeaders.IF_NONE_MATCH, houses)).andExpect(status().isNotModified());
+        assertEquals(start, statementCounter.getCount(), "A conditional GET of a list must not run any statements");
+
+        var id = createStudent();
+        mockMvc.perform(get("/students").header(HttpHeaders.IF_NONE_MATCH, students)).andExpect(status().isOk());
+        assertNotEquals(students, getETag("/students"));
+        mockMvc.perform(get("/houses").header(HttpHeaders.IF_NONE_MATCH, houses)).andExpect(status().isNotModified());
+        mockMvc.perform(get("/students/" + id)).andExpect(status().isOk());
+    }
+
+    /**
+     * Test that a person is not modified with a single statement, and is modified once they have changed.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testPersonNotModifiedUntilChanged() throws Exception {
+        var id = createStudent();
+        var student = getETag("/students/" + id);
+
+        var start = statementCounter.getCount();
+        mockMvc.perform(get("/students/" + id).header(HttpHeaders.IF_NONE_MATCH, student)).andExpect(status().isNotModified());
+        assertTrue(statementCounter.getCount() - start <= 1, "A conditional GET of a person must run at most one statement");
+
+        mockMvc.perform(patch("/students/" + id).contentType("application/json").content("{\"name\": \"Conditional Changed\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/students/" + id).header(HttpHeaders.IF_NONE_MATCH, student))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Conditional Changed"));
+        assertNotEquals(student, getETag("/students/" + id));
+    }
+
+    private String getETag(String url) throws Exception {
+        var etag = mockMvc.perform(get(url)).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag, url + " must have an ETag");
+        return etag;
+    }
+
+    private long createStudent() throws Exception {
+        return StudentFixture.createStudent(mockMvc, objectMapper, "Conditional Student", "Hufflepuff", 1);
+    }
+}
@@ -50,20 +50,22 @@ public class CourseControllerTest {
         var studentCannotAdd = new StudentDTO();
         studentCannotAdd.setSchoolYear(2);
 
-        var courseStart = new CourseDTO();
-        courseStart.setId(1L);
-        courseStart.setSchoolYear(1);
-        courseStart.setStudents(new ArrayList<>());
-
         var courseEnd = new CourseDTO();
         courseEnd.setId(1L);
         courseEnd.setSchoolYear(1);
         courseEnd.setStudents(List.of(studentCanAdd));
 
-        when(courseService.get(1L)).thenReturn(courseStart);
-        when(courseService.addStudentsById(anyLong(), anyList())).thenReturn(courseEnd);
+        var studentEntity = new Student();
+        studentEntity.setId(1L);
+        studentEntity.setSchoolYear(1);
+
+        when(courseService.get(1L)).thenReturn(courseEnd);
+        when(courseService.exists(1L)).thenReturn(true);
+        when(courseService.getSchoolYear(1L)).thenReturn(1);
+        when(courseService.addStudentsById(anyLong(), anyList())).thenReturn(1);
 
         when(studentService.get(1L)).thenReturn(studentCanAdd);
+        when(studentService.getEntities(anyCollection())).thenReturn(List.of(studentEntity));
 
         mockMvc.perform(post("/courses/1/students")
                 .content("[{\"id\": 1}]}")
@@ -86,10 +88,17 @@ public class CourseControllerTest {
         course.setSchoolYear(1);
         course.setStudents(new ArrayList<>());
 
+        var studentEntity = new Student();
+        studentEntity.setId(2L);
+        studentEntity.setSchoolYear(2);
+
         when(courseService.get(1L)).thenReturn(course);
-        when(courseService.addStudentsById(anyLong(), anyList())).thenReturn(course);
+        when(courseService.exists(1L)).thenReturn(true);
+        when(courseService.getSchoolYear(1L)).thenReturn(1);
+        when(courseService.addStudentsById(anyLong(), anyList())).thenReturn(1);
 
         when(studentService.get(2L)).thenReturn(studentCannotAdd);
+        when(studentService.getEntities(anyCollection())).thenReturn(List.of(studentEntity));
 
         mockMvc.perform(post("/courses/1/students")
                 .content("[{\"id\": 2}]")
@@ -0,0 +1,294 @@
+package edu.hogwarts.studentadmin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.hogwarts.studentadmin.dto.CourseDTO;
+import edu.hogwarts.studentadmin.dto.StudentDTO;
+import edu.hogwarts.studentadmin.dto.TeacherDTO;
+import edu.hogwarts.studentadmin.model.Student;
+import edu.hogwarts.studentadmin.model.Teacher;
+import edu.hogwarts.studentadmin.repository.StudentRepository;
+import edu.hogwarts.studentadmin.repository.TeacherRepository;
+import edu.hogwarts.studentadmin.service.CourseResponseCache;
+import edu.hogwarts.studentadmin.service.CourseService;
+import edu.hogwarts.studentadmin.service.HouseService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests the cached JSON responses of single courses: hits, invalidation by changes to the course, its students and its teacher,
+ * eviction on the byte bound, and clearing on a new day.
+ * The routes are tested on a course with three students and a teacher of its own, which are deleted after each test.
+ * The bound and the date are tested on caches of their own, with a meter registry and a clock of their own.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureMockMvc
+public class CourseResponseCacheTest {
+    private static final int SCHOOL_YEAR = 104;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CourseService courseService;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private HouseService houseService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private List<Student> students;
+    private Teacher teacher;
+    private Long courseId;
+
+    /**
+     * Creates a course with three students and a teacher, then clears the second-level cache, except for the houses which are always cached.
+     */
+    @BeforeEach
+    public void createCourse() {
+        var newStudents = new ArrayList<Student>();
+        for (int i = 0; i < 3; i++) {
+            newStudents.add(new Student(null, "Cached" + i, null, "Student", null, houseService.get("Hufflepuff"), false, 1991, null, false, SCHOOL_YEAR));
+        }
+        students = studentRepository.saveAll(newStudents);
+        teacher = teacherRepository.save(new Teacher(null, "Cached", null, "Teacher", null, null, false, null, null, null));
+
+        var course = new CourseDTO();
+        course.setSubject("Caching");
+        course.setSchoolYear(SCHOOL_YEAR);
+        course.setCurrent(true);
+        var teacherDTO = new TeacherDTO();
+        teacherDTO.setId(teacher.getId());
+        course.setTeacher(teacherDTO);
+        courseId = courseService.create(course).getId();
+        courseService.addStudentsById(courseId, students.stream().map(student -> studentDTO(student.getId(), null)).toList());
+
+        entityManagerFactory.getCache().evictAll();
+        houseService.refresh();
+    }
+
+    /**
+     * Deletes the course, students and teacher created for the test.
+     */
+    @AfterEach
+    public void deleteCourse() {
+        courseService.delete(courseId);
+        studentRepository.deleteAllInBatch(students);
+        teacherRepository.deleteById(teacher.getId());
+    }
+
+    /**
+     * Test that the course, roster and teacher routes are answered from the cache after the first request,
+     * with one miss and three hits.
+     * @throws Exception if the test fails
+     */
+    @QueryBudget(2)
+    @Test
+    public void testGetCachedCourse() throws Exception {
+        var hits = gets("hit");
+        var misses = gets("miss");
+        mockMvc.perform(get("/courses/" + courseId)).andExpect(status().isOk());
+        mockMvc.perform(get("/courses/" + courseId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.students.length()").value(3));
+        mockMvc.perform(get("/courses/" + courseId + "/students"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3));
+        mockMvc.perform(get("/courses/" + courseId + "/teacher"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(teacher.getId()));
+        assertEquals(misses + 1, gets("miss"));
+        assertEquals(hits + 3, gets("hit"));
+    }
+
+    /**
+     * Test that changing a student on the roster invalidates the cached course.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testStudentChangeInvalidatesCachedCourse() throws Exception {
+        var studentId = students.get(0).getId();
+        mockMvc.perform(get("/courses/" + courseId)).andExpect(status().isOk());
+        var invalidations = invalidations();
+        mockMvc.perform(patch("/students/" + studentId).contentType("application/json").content("{\"name\": \"Changed Student\"}"))
+                .andExpect(status().isOk());
+        assertEquals(invalidations + 1, invalidations());
+        mockMvc.perform(get("/courses/" + courseId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.students[?(@.id == " + studentId + ")].name").value("Changed Student"));
+    }
+
+    /**
+     * Test that changing the teacher of a course invalidates the cached course, through the index of the courses by teacher.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testTeacherChangeInvalidatesCachedCourse() throws Exception {
+        mockMvc.perform(get("/courses/" + courseId + "/teacher")).andExpect(status().isOk());
+        var invalidations = invalidations();
+        mockMvc.perform(patch("/teachers/" + teacher.getId()).contentType("application/json").content("{\"name\": \"Changed Teacher\"}"))
+                .andExpect(status().isOk());
+        assertEquals(invalidations + 1, invalidations());
+        mockMvc.perform(get("/courses/" + courseId + "/teacher"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Changed Teacher"));
+        mockMvc.perform(get("/courses/" + courseId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.teacher.name").value("Changed Teacher"));
+    }
+
+    /**
+     * Test that the cache evicts the least recently used course once the responses are over the bound, which fits two and a half courses,
+     * and doesn't cache a course whose responses are larger than the bound on their own.
+     */
+    @Test
+    public void testEvictsLeastRecentlyUsedOverByteBound() {
+        var unbounded = new CourseResponseCache(objectMapper, new SimpleMeterRegistry(), true, DataSize.ofMegabytes(1), Clock.systemUTC());
+        unbounded.get(1L, () -> course(1L, 2));
+        var bound = unbounded.weight() * 5 / 2;
+        var registry = new SimpleMeterRegistry();
+        var cache = new CourseResponseCache(objectMapper, registry, true, DataSize.ofBytes(bound), Clock.systemUTC());
+        var loads = new AtomicInteger();
+
+        cache.get(1L, () -> load(loads, course(1L, 2)));
+        cache.get(2L, () -> load(loads, course(2L, 2)));
+        cache.get(1L, () -> load(loads, course(1L, 2)));
+        cache.get(3L, () -> load(loads, course(3L, 2)));
+        assertEquals(3, loads.get());
+        assertEquals(2, cache.size());
+        assertTrue(cache.weight() <= bound);
+        assertEquals(1, registry.get("studentadmin.course_cache.evictions").tag("cause", "size").counter().count());
+
+        cache.get(1L, () -> load(loads, course(1L, 2)));
+        assertEquals(3, loads.get(), "The most recently used course must be kept");
+        cache.get(2L, () -> load(loads, course(2L, 2)));
+        assertEquals(4, loads.get(), "The least recently used course must be evicted");
+
+        var before = cache.size();
+        cache.get(4L, () -> course(4L, 500));
+        assertEquals(before, cache.size(), "A course larger than the bound must not be cached");
+    }
+
+    /**
+     * Test that the first lookup on a new day clears the cache, since the responses contain the ages of the people.
+     */
+    @Test
+    public void testClearedOnNewDay() {
+        var clock = new MutableClock(Instant.parse("2024-06-30T23:59:00Z"));
+        var cache = new CourseResponseCache(objectMapper, new SimpleMeterRegistry(), true, DataSize.ofMegabytes(1), clock);
+        var loads = new AtomicInteger();
+
+        cache.get(1L, () -> load(loads, course(1L, 2)));
+        cache.get(2L, () -> load(loads, course(2L, 2)));
+        cache.get(1L, () -> load(loads, course(1L, 2)));
+        assertEquals(2, loads.get());
+
+        clock.advance(Duration.ofMinutes(2));
+        cache.get(1L, () -> load(loads, course(1L, 2)));
+        assertEquals(3, loads.get(), "The course must be loaded again on a new day");
+        assertEquals(1, cache.size(), "The courses of the day before must be cleared");
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("studentadmin.course_cache.gets").tag("result", result).counter().count();
+    }
+
+    private double invalidations() {
+        return meterRegistry.get("studentadmin.course_cache.evictions").tag("cause", "invalidation").counter().count();
+    }
+
+    private static CourseDTO load(AtomicInteger loads, CourseDTO course) {
+        loads.incrementAndGet();
+        return course;
+    }
+
+    private static CourseDTO course(Long id, int rosterSize) {
+        var course = new CourseDTO();
+        course.setId(id);
+        course.setSubject("Cached Course " + id);
+        course.setSchoolYear(SCHOOL_YEAR);
+        course.setCurrent(true);
+        var roster = new ArrayList<StudentDTO>();
+        for (long i = 0; i < rosterSize; i++) {
+            roster.add(studentDTO(id * 1000 + i, "Cached Student " + i));
+        }
+        course.setStudents(roster);
+        return course;
+    }
+
+    private static StudentDTO studentDTO(Long id, String name) {
+        var student = new StudentDTO();
+        student.setId(id);
+        if (name != null) {
+            student.setName(name);
+        }
+        return student;
+    }
+
+    /**
+     * A clock that only moves when the test advances it.
+     */
+    private static class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
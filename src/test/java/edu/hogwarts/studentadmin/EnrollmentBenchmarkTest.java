@@ -0,0 +1,107 @@
+package edu.hogwarts.studentadmin;
+
+import edu.hogwarts.studentadmin.dto.CourseDTO;
+import edu.hogwarts.studentadmin.dto.StudentDTO;
+import edu.hogwarts.studentadmin.model.Student;
+import edu.hogwarts.studentadmin.repository.StudentRepository;
+import edu.hogwarts.studentadmin.service.CourseService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+public class EnrollmentBenchmarkTest {
+
+    @Autowired
+    private CourseService courseService;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * The cost of enrolling or removing one student, measured on a course with a given roster size.
+     */
+    private record ChangeCost(int rosterSize, long addStatements, long addInserts, long addLoads, long removeStatements, long removeLoads) {
+    }
+
+    /**
+     * Test that adding or removing one student costs the same number of SQL statements and loaded entities
+     * on a 5,000-student course as on a 50-student course, with exactly one enrollment row inserted,
+     * and the enrollment, a single DELETE statement and the INSERT of its tombstone to remove the student.
+     * The loaded entities show that the roster isn't loaded, which the number of statements alone can't,
+     * since a roster can be loaded with a single statement.
+     */
+    @Test
+    public void testEnrollmentChangeCostIsConstant() {
+        var small = measure(50, 101);
+        var large = measure(5000, 102);
+
+        assertEquals(4, large.addStatements(),
+                "Adding a student must check the course, load the student, check the enrollment and insert one enrollment");
+        assertEquals(1, large.addInserts());
+        assertEquals(1, large.addLoads(), "Adding a student must only load the student, not the roster");
+        assertEquals(3, large.removeStatements(), "Removing a student must load the enrollment, delete it and insert its tombstone");
+        assertEquals(1, large.removeLoads(), "Removing a student must only load the enrollment, not the student or the roster");
+        assertEquals(small, new ChangeCost(small.rosterSize(), large.addStatements(), large.addInserts(), large.addLoads(),
+                large.removeStatements(), large.removeLoads()));
+    }
+
+    /**
+     * Creates a course with the given roster size, then adds and removes one extra student while counting statements and loaded entities.
+     * The second-level cache is cleared first, so entities can't come from the cache instead of the database.
+     * @param rosterSize the number of students enrolled before the measured changes
+     * @param schoolYear a school year not used by other tests, so the students don't mix
+     * @return the cost of the changes
+     */
+    private ChangeCost measure(int rosterSize, int schoolYear) {
+        var students = new ArrayList<Student>();
+        for (int i = 0; i <= rosterSize; i++) {
+            students.add(new Student(null, "Student" + i, null, "Benchmark" + schoolYear, null, null, false, 1991, null, false, schoolYear));
+        }
+        var saved = studentRepository.saveAll(students);
+        var roster = saved.subList(0, rosterSize).stream().map(this::toDTO).toList();
+        var extra = toDTO(saved.get(rosterSize));
+
+        var course = new CourseDTO();
+        course.setSubject("Benchmarking");
+        course.setSchoolYear(schoolYear);
+        course.setCurrent(true);
+        var courseId = courseService.create(course).getId();
+        courseService.addStudentsById(courseId, roster);
+
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+        courseService.addStudentsById(courseId, List.of(extra));
+        var addStatements = statistics.getPrepareStatementCount();
+        var addInserts = statistics.getEntityInsertCount();
+        var addLoads = statistics.getEntityLoadCount();
+
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+        courseService.removeStudent(courseId, extra.getId());
+
+        return new ChangeCost(rosterSize, addStatements, addInserts, addLoads, statistics.getPrepareStatementCount(), statistics.getEntityLoadCount());
+    }
+
+    private StudentDTO toDTO(Student student) {
+        var studentDTO = new StudentDTO();
+        studentDTO.setId(student.getId());
+        return studentDTO;
+    }
+}
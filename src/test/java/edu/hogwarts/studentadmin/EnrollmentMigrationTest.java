@@ -0,0 +1,61 @@
+package edu.hogwarts.studentadmin;
+
+import edu.hogwarts.studentadmin.config.EnrollmentMigration;
+import edu.hogwarts.studentadmin.model.Course;
+import edu.hogwarts.studentadmin.model.Student;
+import edu.hogwarts.studentadmin.repository.CourseRepository;
+import edu.hogwarts.studentadmin.repository.StudentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests the copy of the old course_students join table into the enrollment table, on a database of its own.
+ * The second-level cache is turned off, since the rows are written with plain JDBC.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:enrollment_migration_test_db",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false"})
+public class EnrollmentMigrationTest {
+
+    @Autowired
+    private EnrollmentMigration enrollmentMigration;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    /**
+     * Test that the rows of the old join table are copied once, without duplicates or rows that are already enrolled,
+     * and that the old table is dropped, so the next start has nothing to copy.
+     */
+    @Test
+    public void testCopiesOldRostersOnce() {
+        var course = courseRepository.save(new Course(null, "Migration", 1, true, null));
+        var first = studentRepository.save(new Student(null, "Migration", null, "First", null, null, false, 1991, null, false, 1));
+        var second = studentRepository.save(new Student(null, "Migration", null, "Second", null, null, false, 1991, null, false, 1));
+        jdbcTemplate.update("insert into enrollment (course_id, student_id, change_seq) values (?, ?, 1)", course.getId(), first.getId());
+        jdbcTemplate.execute("create table course_students (course_id bigint not null, students_id bigint not null)");
+        jdbcTemplate.update("insert into course_students (course_id, students_id) values (?, ?), (?, ?), (?, ?)",
+                course.getId(), first.getId(), course.getId(), second.getId(), course.getId(), second.getId());
+
+        enrollmentMigration.run();
+        enrollmentMigration.run();
+
+        assertEquals(2, count("select count(*) from enrollment where course_id = ?", course.getId()));
+        assertEquals(0, count("select count(*) from information_schema.tables where lower(table_name) = 'course_students'"));
+    }
+
+    private long count(String sql, Object... args) {
+        return jdbcTemplate.queryForObject(sql, Long.class, args);
+    }
+}
@@ -0,0 +1,175 @@
+package edu.hogwarts.studentadmin;
+
+import edu.hogwarts.studentadmin.config.StatementCounter;
+import edu.hogwarts.studentadmin.dto.CourseDTO;
+import edu.hogwarts.studentadmin.dto.StudentDTO;
+import edu.hogwarts.studentadmin.model.Student;
+import edu.hogwarts.studentadmin.repository.StudentRepository;
+import edu.hogwarts.studentadmin.service.CourseService;
+import edu.hogwarts.studentadmin.service.EnrollmentValidator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests that the enrollment validator returns every violation of a list of students, and finds the students with a single query
+ * however many of them there are.
+ * The students have no house, so loading them runs no other statements.
+ * The test students and course are deleted after each test.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureMockMvc
+public class EnrollmentValidatorTest {
+    private static final int SCHOOL_YEAR = 106;
+    private static final String[] LETTERS = {"Alpha", "Beta", "Gamma", "Delta", "Epsilon", "Zeta", "Eta", "Theta", "Iota", "Kappa"};
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EnrollmentValidator enrollmentValidator;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private CourseService courseService;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    private List<Student> valid;
+    private List<Student> wrongYear;
+    private Long courseId;
+
+    /**
+     * Saves ten students in the school year of the course and ten in another school year, and a course with no students.
+     */
+    @BeforeEach
+    public void createStudents() {
+        var students = new ArrayList<Student>();
+        for (var letter : LETTERS) {
+            students.add(new Student(null, "Valid" + letter, null, "Validated", null, null, false, 1991, null, false, SCHOOL_YEAR));
+        }
+        valid = studentRepository.saveAll(students);
+        students = new ArrayList<>();
+        for (var letter : LETTERS) {
+            students.add(new Student(null, "Wrong" + letter, null, "Validated", null, null, false, 1991, null, false, 2));
+        }
+        wrongYear = studentRepository.saveAll(students);
+
+        var course = new CourseDTO();
+        course.setSubject("Validation");
+        course.setSchoolYear(SCHOOL_YEAR);
+        course.setCurrent(true);
+        courseId = courseService.create(course).getId();
+    }
+
+    /**
+     * Deletes the course and students created for the test.
+     */
+    @AfterEach
+    public void deleteStudents() {
+        courseService.delete(courseId);
+        studentRepository.deleteAllInBatch(valid);
+        studentRepository.deleteAllInBatch(wrongYear);
+    }
+
+    /**
+     * Test that a missing id, unknown ids and students of another school year are all reported, in the order of the request,
+     * from a single query.
+     */
+    @Test
+    public void testValidateIdsReportsAllViolations() {
+        var students = List.of(byId(valid.get(0).getId()), byId(-1L), byId(wrongYear.get(0).getId()), new StudentDTO(),
+                byId(-2L), byId(wrongYear.get(1).getId()));
+        var start = statementCounter.getCount();
+        var violations = enrollmentValidator.validateIds(SCHOOL_YEAR, students);
+        assertEquals(1, statementCounter.getCount() - start);
+        assertEquals(List.of(
+                "Missing student id.",
+                "Invalid student id: -1.",
+                "Invalid school year for student with id: " + wrongYear.get(0).getId() + ".",
+                "Invalid student id: -2.",
+                "Invalid school year for student with id: " + wrongYear.get(1).getId() + "."), violations);
+    }
+
+    /**
+     * Test that validating ten invalid students by id runs as many statements as validating one.
+     */
+    @Test
+    public void testValidateIdsQueryCountIndependentOfStudents() {
+        var start = statementCounter.getCount();
+        assertEquals(1, enrollmentValidator.validateIds(SCHOOL_YEAR, List.of(byId(wrongYear.get(0).getId()))).size());
+        var one = statementCounter.getCount() - start;
+
+        var students = new ArrayList<StudentDTO>();
+        for (var student : wrongYear) {
+            students.add(byId(student.getId()));
+        }
+        start = statementCounter.getCount();
+        assertEquals(10, enrollmentValidator.validateIds(SCHOOL_YEAR, students).size());
+        assertEquals(1, one);
+        assertEquals(one, statementCounter.getCount() - start);
+    }
+
+    /**
+     * Test that validating ten invalid students by name runs as many statements as validating one, one for each form of name.
+     */
+    @Test
+    public void testValidateNamesQueryCountIndependentOfStudents() {
+        var start = statementCounter.getCount();
+        assertEquals(1, enrollmentValidator.validateNames(SCHOOL_YEAR, List.of(byName("WrongAlpha Validated"))).size());
+        var one = statementCounter.getCount() - start;
+
+        var students = new ArrayList<StudentDTO>();
+        for (var letter : LETTERS) {
+            students.add(byName("Wrong" + letter + " Validated"));
+        }
+        students.add(byName("Nobody Validated"));
+        students.add(byName("ValidAlpha Validated"));
+        start = statementCounter.getCount();
+        var violations = enrollmentValidator.validateNames(SCHOOL_YEAR, students);
+        assertEquals(11, violations.size());
+        assertEquals("Invalid student name: Nobody Validated.", violations.get(10));
+        assertEquals(1, one);
+        assertEquals(one, statementCounter.getCount() - start);
+    }
+
+    /**
+     * Test that adding several invalid students to a course returns 400 with all the violations, and enrolls none of the students.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testAddStudentsReturnsAllViolations() throws Exception {
+        var body = "[{\"id\": " + valid.get(0).getId() + "}, {\"id\": -1}, {\"id\": " + wrongYear.get(0).getId() + "}, {\"id\": " + wrongYear.get(1).getId() + "}]";
+        mockMvc.perform(post("/courses/" + courseId + "/students").contentType("application/json").content(body))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.length()").value(3));
+        assertEquals(0, courseService.get(courseId).getStudents().size());
+    }
+
+    private static StudentDTO byId(Long id) {
+        var student = new StudentDTO();
+        student.setId(id);
+        return student;
+    }
+
+    private static StudentDTO byName(String name) {
+        var student = new StudentDTO();
+        student.setName(name);
+        return student;
+    }
+}
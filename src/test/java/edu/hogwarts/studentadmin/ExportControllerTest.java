@@ -0,0 +1,216 @@
+package edu.hogwarts.studentadmin;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import edu.hogwarts.studentadmin.dto.CourseDTO;
+import edu.hogwarts.studentadmin.dto.StudentDTO;
+import edu.hogwarts.studentadmin.model.Enrollment;
+import edu.hogwarts.studentadmin.model.HogwartsPerson;
+import edu.hogwarts.studentadmin.model.Student;
+import edu.hogwarts.studentadmin.repository.EnrollmentRepository;
+import edu.hogwarts.studentadmin.repository.StudentRepository;
+import edu.hogwarts.studentadmin.repository.TeacherRepository;
+import edu.hogwarts.studentadmin.service.CourseService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests the streaming exports of GET /export, on a database of its own with the seed data,
+ * a student whose name needs quoting in CSV, and a course with two students.
+ * The second-level cache is turned off, since its regions are shared with the other test contexts, which use another database.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.datasource.url=jdbc:h2:mem:export_test_db",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false"})
+@AutoConfigureMockMvc
+public class ExportControllerTest {
+    private static final String QUOTED_FIRST_NAME = "Ann, Marie";
+    private static final String QUOTED_LAST_NAME = "O\"Neil";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private EnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    private CourseService courseService;
+
+    /**
+     * Adds the student whose name needs quoting and a course with two students, once per database.
+     */
+    @BeforeEach
+    public void createFixture() {
+        if (studentRepository.findFirstByFirstNameKeyOrderByIdAsc("ann, marie").isPresent()) {
+            return;
+        }
+        var quoted = studentRepository.save(new Student(null, QUOTED_FIRST_NAME, null, QUOTED_LAST_NAME, null, null, false, 1991, null, false, 3));
+        var course = new CourseDTO();
+        course.setSubject("Exports");
+        course.setSchoolYear(3);
+        course.setCurrent(true);
+        var courseId = courseService.create(course).getId();
+        courseService.addStudentsById(courseId, List.of(studentWithId(quoted.getId()), studentWithId(1L)));
+    }
+
+    /**
+     * Test that the NDJSON export of the students has one line per student, ordered by id, with their names.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testExportStudentsAsNdjson() throws Exception {
+        var rows = readNdjson(export("/export/students", "application/x-ndjson", "students.ndjson"));
+        var students = studentRepository.findAll().stream().sorted(Comparator.comparing(HogwartsPerson::getId)).toList();
+        assertEquals(students.stream().map(HogwartsPerson::getId).toList(), rows.stream().map(row -> row.get("id").asLong()).toList());
+        for (var i = 0; i < students.size(); i++) {
+            assertEquals(fullName(students.get(i)), rows.get(i).get("name").asText());
+        }
+    }
+
+    /**
+     * Test that the CSV export of the students has a header and one row per student,
+     * and that a name with a comma and a quote is quoted, with the quote doubled.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testExportStudentsAsCsv() throws Exception {
+        var body = export("/export/students?format=csv", "text/csv", "students.csv");
+        assertTrue(body.startsWith("id,name,house,dateOfBirth,schoolYear,enrollmentYear,graduationYear,graduated,prefect\n"), body);
+        assertTrue(body.contains(",\"Ann, Marie O\"\"Neil\","), body);
+
+        var rows = readCsv(body);
+        var students = studentRepository.findAll().stream().sorted(Comparator.comparing(HogwartsPerson::getId)).toList();
+        assertEquals(students.size(), rows.size());
+        for (var i = 0; i < students.size(); i++) {
+            assertEquals(students.get(i).getId().toString(), rows.get(i).get("id"));
+            assertEquals(fullName(students.get(i)), rows.get(i).get("name"));
+        }
+    }
+
+    /**
+     * Test that the NDJSON and CSV exports of the teachers match the seeded teachers.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testExportTeachers() throws Exception {
+        var teachers = teacherRepository.findAll().stream().sorted(Comparator.comparing(HogwartsPerson::getId)).toList();
+        var json = readNdjson(export("/export/teachers", "application/x-ndjson", "teachers.ndjson"));
+        var csv = readCsv(export("/export/teachers?format=csv", "text/csv", "teachers.csv"));
+        assertEquals(teachers.size(), json.size());
+        assertEquals(teachers.size(), csv.size());
+        for (var i = 0; i < teachers.size(); i++) {
+            assertEquals(teachers.get(i).getId().longValue(), json.get(i).get("id").asLong());
+            assertEquals(fullName(teachers.get(i)), json.get(i).get("name").asText());
+            assertEquals(fullName(teachers.get(i)), csv.get(i).get("name"));
+            assertEquals(teachers.get(i).getEmployment().name(), csv.get(i).get("employment"));
+        }
+    }
+
+    /**
+     * Test that the NDJSON and CSV exports of the enrollments have the course and student ids of every enrollment, ordered by course and student.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testExportEnrollments() throws Exception {
+        var expected = enrollmentRepository.findAll().stream()
+                .sorted(Comparator.comparing((Enrollment enrollment) -> enrollment.getId().getCourseId())
+                        .thenComparing(enrollment -> enrollment.getId().getStudentId()))
+                .map(enrollment -> enrollment.getId().getCourseId() + "/" + enrollment.getId().getStudentId())
+                .toList();
+        assertEquals(2, expected.size());
+
+        var json = readNdjson(export("/export/enrollments", "application/x-ndjson", "enrollments.ndjson"));
+        assertEquals(expected, json.stream().map(row -> row.get("courseId").asLong() + "/" + row.get("studentId").asLong()).toList());
+        assertTrue(json.stream().allMatch(row -> row.hasNonNull("enrolledAt")));
+
+        var csv = readCsv(export("/export/enrollments?format=csv", "text/csv", "enrollments.csv"));
+        assertEquals(expected, csv.stream().map(row -> row.get("courseId") + "/" + row.get("studentId")).toList());
+    }
+
+    /**
+     * Test that an unknown format is a bad request on every export.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testUnknownFormatIsBadRequest() throws Exception {
+        for (var path : List.of("/export/students", "/export/teachers", "/export/enrollments")) {
+            var result = mockMvc.perform(get(path + "?format=xml")).andExpect(request().asyncStarted()).andReturn();
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(content().string("Invalid format. Must be either ndjson or csv."));
+        }
+    }
+
+    /**
+     * Gets an export, waiting for the streamed body, and checks its content type and file name.
+     */
+    private String export(String path, String contentType, String fileName) throws Exception {
+        var result = mockMvc.perform(get(path)).andExpect(request().asyncStarted()).andReturn();
+        return mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(contentType))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"" + fileName + "\""))
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    private List<JsonNode> readNdjson(String body) throws Exception {
+        var rows = new ArrayList<JsonNode>();
+        for (var line : body.split("\n")) {
+            if (!line.isBlank()) {
+                rows.add(objectMapper.readTree(line));
+            }
+        }
+        return rows;
+    }
+
+    private static List<Map<String, String>> readCsv(String body) throws Exception {
+        try (var rows = new CsvMapper().readerFor(Map.class).with(CsvSchema.emptySchema().withHeader()).<Map<String, String>>readValues(body)) {
+            return rows.readAll();
+        }
+    }
+
+    private static String fullName(HogwartsPerson person) {
+        var name = person.getFirstName();
+        if (person.getMiddleName() != null && !person.getMiddleName().isBlank()) {
+            name += " " + person.getMiddleName();
+        }
+        return person.getLastName() == null ? name : name + " " + person.getLastName();
+    }
+
+    private static StudentDTO studentWithId(Long id) {
+        var student = new StudentDTO();
+        student.setId(id);
+        return student;
+    }
+}
@@ -0,0 +1,84 @@
+package edu.hogwarts.studentadmin;
+
+import edu.hogwarts.studentadmin.dto.StudentDTO;
+import edu.hogwarts.studentadmin.model.Course;
+import edu.hogwarts.studentadmin.model.Student;
+import edu.hogwarts.studentadmin.repository.CourseRepository;
+import edu.hogwarts.studentadmin.repository.StudentRepository;
+import edu.hogwarts.studentadmin.service.CourseService;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests the ServiceOperationEvents created by FlightRecorderConfig, with a recording that commits every event.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+public class FlightRecorderTest {
+    private static final String EVENT_NAME = "edu.hogwarts.studentadmin.ServiceOperation";
+
+    @Autowired
+    private CourseService courseService;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    /**
+     * Test that enrolling and removing students records the service, operation, course id and the number of students added and removed.
+     * @param directory the directory the recording is written to
+     * @throws Exception if the recording can't be written or read
+     */
+    @Test
+    public void testRecordsServiceOperations(@TempDir Path directory) throws Exception {
+        var courseId = courseRepository.save(new Course(null, "Recording", 4, true, null)).getId();
+        var first = studentRepository.save(new Student(null, "Recorded", null, "First", null, null, false, 1991, null, false, 4)).getId();
+        var second = studentRepository.save(new Student(null, "Recorded", null, "Second", null, null, false, 1991, null, false, 4)).getId();
+
+        var file = directory.resolve("recording.jfr");
+        try (var recording = new Recording()) {
+            recording.enable(EVENT_NAME).withThreshold(Duration.ZERO);
+            recording.start();
+            courseService.addStudentsById(courseId, List.of(studentWithId(first), studentWithId(second)));
+            courseService.removeStudent(courseId, first);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        var events = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals(EVENT_NAME) && event.getLong("entityId") == courseId)
+                .toList();
+        var added = single(events, "addStudentsById");
+        assertEquals("CourseService", added.getString("service"));
+        assertEquals(2, added.getInt("studentsAdded"));
+        assertEquals(0, added.getInt("studentsRemoved"));
+        var removed = single(events, "removeStudent");
+        assertEquals("CourseService", removed.getString("service"));
+        assertEquals(0, removed.getInt("studentsAdded"));
+        assertEquals(1, removed.getInt("studentsRemoved"));
+    }
+
+    private static RecordedEvent single(List<RecordedEvent> events, String operation) {
+        var matching = events.stream().filter(event -> operation.equals(event.getString("operation"))).toList();
+        assertEquals(1, matching.size(), "Expected one event for " + operation);
+        return matching.get(0);
+    }
+
+    private static StudentDTO studentWithId(Long id) {
+        var student = new StudentDTO();
+        student.setId(id);
+        return student;
+    }
+}
@@ -0,0 +1,221 @@
+package edu.hogwarts.studentadmin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Sends a scripted mix of HTTP requests to a running application and records the latency of every request per endpoint.
+ * The requests are chosen by a seeded random generator, so the same seed always sends the same requests in the same order.
+ */
+class LoadRunner {
+    private static final Logger logger = LoggerFactory.getLogger(LoadRunner.class);
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final List<Operation> operations;
+    private final int totalWeight;
+    private final long seed;
+    private final Map<String, List<Long>> latencies = new ConcurrentHashMap<>();
+    private final Map<String, List<String>> errors = new ConcurrentHashMap<>();
+
+    /**
+     * One kind of request in the mix.
+     * @param endpoint the name of the endpoint in the report, e.g. "GET /courses/{id}"
+     * @param weight how often the request is sent, relative to the other operations
+     * @param request creates a request, using the given random generator for its parameters
+     */
+    record Operation(String endpoint, int weight, Function<Random, HttpRequest> request) {
+    }
+
+    /**
+     * The latency and throughput of one endpoint, or of all endpoints together.
+     */
+    record EndpointReport(long requests, long errors, double throughputPerSecond,
+                          double p50Millis, double p95Millis, double p99Millis, double maxMillis) {
+    }
+
+    /**
+     * The result of a run, written as JSON so runs of different builds can be compared.
+     */
+    record Report(String scenario, String mode, int concurrency, Double targetRatePerSecond, long seed,
+                  long requests, long durationMillis, Map<String, EndpointReport> endpoints, List<String> sampleErrors) {
+    }
+
+    /**
+     * Creates a runner for a mix of operations.
+     * @param operations the operations to send, chosen by their weights
+     * @param seed the seed of the random generator used to choose the operations and their parameters
+     */
+    LoadRunner(List<Operation> operations, long seed) {
+        this.operations = operations;
+        this.totalWeight = operations.stream().mapToInt(Operation::weight).sum();
+        this.seed = seed;
+    }
+
+    /**
+     * Sends requests from a fixed number of clients, each sending its next request as soon as the previous one is answered.
+     * The latencies of earlier runs are discarded.
+     * @param concurrency the number of clients
+     * @param requests the total number of requests, split evenly between the clients
+     * @return the duration of the run in milliseconds
+     */
+    long runFixedConcurrency(int concurrency, int requests) throws InterruptedException {
+        reset();
+        var executor = Executors.newFixedThreadPool(concurrency);
+        var start = System.nanoTime();
+        for (int client = 0; client < concurrency; client++) {
+            var random = new Random(seed + client);
+            var clientRequests = requests / concurrency + (client < requests % concurrency ? 1 : 0);
+            executor.execute(() -> {
+                for (int i = 0; i < clientRequests; i++) {
+                    var operation = pick(random);
+                    send(operation, operation.request().apply(random), System.nanoTime());
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.HOURS);
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * Sends requests at a fixed rate, whether or not the earlier requests have been answered.
+     * Latency is measured from the time a request was scheduled to be sent,
+     * so requests that wait for a free connection are counted as slow instead of being sent later.
+     * The latencies of earlier runs are discarded.
+     * @param ratePerSecond the number of requests to send per second
+     * @param requests the total number of requests
+     * @param maxConcurrency the maximum number of requests waiting for a response at the same time
+     * @return the duration of the run in milliseconds
+     */
+    long runFixedRate(double ratePerSecond, int requests, int maxConcurrency) throws InterruptedException {
+        reset();
+        var executor = Executors.newFixedThreadPool(maxConcurrency);
+        var random = new Random(seed);
+        var interval = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        var start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            var scheduled = start + i * interval;
+            var operation = pick(random);
+            var request = operation.request().apply(random);
+            while (System.nanoTime() < scheduled) {
+                LockSupport.parkNanos(scheduled - System.nanoTime());
+            }
+            executor.execute(() -> send(operation, request, scheduled));
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.HOURS);
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * Builds a report of the last run, with the latency percentiles of each endpoint and of all endpoints together.
+     */
+    Report report(String scenario, String mode, int concurrency, Double targetRatePerSecond, long durationMillis) {
+        var endpoints = new LinkedHashMap<String, EndpointReport>();
+        var all = new ArrayList<Long>();
+        for (var operation : operations) {
+            var endpointLatencies = latencies.getOrDefault(operation.endpoint(), List.of());
+            all.addAll(endpointLatencies);
+            endpoints.put(operation.endpoint(), endpointReport(endpointLatencies, errorCount(operation.endpoint()), durationMillis));
+        }
+        var totalErrors = errors.values().stream().mapToLong(List::size).sum();
+        endpoints.put("all", endpointReport(all, totalErrors, durationMillis));
+        var sampleErrors = errors.values().stream().flatMap(List::stream).limit(20).toList();
+        return new Report(scenario, mode, concurrency, targetRatePerSecond, seed, all.size(), durationMillis, endpoints, sampleErrors);
+    }
+
+    /**
+     * Writes a report as JSON and logs a summary table.
+     * @param report the report to write
+     * @param file the file to write to, its directory is created if needed
+     */
+    static void write(Report report, Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report);
+
+        var summary = new StringBuilder(String.format("%s (%s), %d requests in %d ms, written to %s%n",
+                report.scenario(), report.mode(), report.requests(), report.durationMillis(), file));
+        summary.append(String.format("%-30s %-8s %-7s %-10s %-9s %-9s %-9s %-9s", "endpoint", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        report.endpoints().forEach((endpoint, result) -> summary.append(String.format("%n%-30s %-8d %-7d %-10.1f %-9.2f %-9.2f %-9.2f %-9.2f",
+                endpoint, result.requests(), result.errors(), result.throughputPerSecond(),
+                result.p50Millis(), result.p95Millis(), result.p99Millis(), result.maxMillis())));
+        logger.info("{}", summary);
+    }
+
+    private void send(Operation operation, HttpRequest request, long startNanos) {
+        String error = null;
+        try {
+            var response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() >= 400) {
+                error = request.method() + " " + request.uri().getPath() + " returned " + response.statusCode();
+            }
+        } catch (IOException e) {
+            error = request.method() + " " + request.uri().getPath() + " failed: " + e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        var latency = System.nanoTime() - startNanos;
+        latencies.computeIfAbsent(operation.endpoint(), endpoint -> Collections.synchronizedList(new ArrayList<>())).add(latency);
+        if (error != null) {
+            errors.computeIfAbsent(operation.endpoint(), endpoint -> Collections.synchronizedList(new ArrayList<>())).add(error);
+        }
+    }
+
+    private Operation pick(Random random) {
+        var value = random.nextInt(totalWeight);
+        for (var operation : operations) {
+            value -= operation.weight();
+            if (value < 0) {
+                return operation;
+            }
+        }
+        throw new IllegalStateException("No operations");
+    }
+
+    private void reset() {
+        latencies.clear();
+        errors.clear();
+    }
+
+    private long errorCount(String endpoint) {
+        return errors.getOrDefault(endpoint, List.of()).size();
+    }
+
+    private static EndpointReport endpointReport(List<Long> latencies, long errors, long durationMillis) {
+        var sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        var throughput = durationMillis == 0 ? 0 : sorted.length * 1000.0 / durationMillis;
+        return new EndpointReport(sorted.length, errors, throughput,
+                percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99), percentile(sorted, 100));
+    }
+
+    /**
+     * Gets a percentile of sorted latencies with the nearest-rank method, in milliseconds.
+     */
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        var rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,136 @@
+package edu.hogwarts.studentadmin;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Load tests for the REST API, sending a mix of reads and writes over HTTP to the application on a random port.
+ * The database is an in-memory H2 database of its own, filled by the synthetic data generator.
+ * Excluded from the normal build, run with: ./mvnw test -Pload-test
+ * The size of the runs can be changed with the system properties loadtest.concurrency, loadtest.requests, loadtest.rate and loadtest.seed.
+ * Each scenario writes a JSON report with the throughput and latency percentiles per endpoint to target/load-test.
+ */
+@Tag("load")
+@ActiveProfiles("synthetic")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:loadtest",
+        "studentadmin.synthetic.students=50000",
+        "studentadmin.synthetic.teachers=200",
+        "studentadmin.synthetic.courses-per-year=200",
+        "studentadmin.synthetic.average-roster-size=30"
+})
+public class LoadTest {
+    private static final Path REPORT_DIRECTORY = Path.of("target", "load-test");
+    private static final int WARMUP_REQUESTS = 1000;
+
+    private final int concurrency = Integer.getInteger("loadtest.concurrency", 8);
+    private final int requests = Integer.getInteger("loadtest.requests", 5000);
+    private final double rate = Double.parseDouble(System.getProperty("loadtest.rate", "100"));
+    private final long seed = Long.getLong("loadtest.seed", 42L);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long[] studentIds;
+    private final Map<Long, Integer> schoolYearByCourse = new HashMap<>();
+    private final Map<Integer, long[]> studentIdsByYear = new HashMap<>();
+
+    /**
+     * Loads the ids of the generated students and courses, so the requests can pick existing ones.
+     */
+    @BeforeEach
+    public void loadIds() {
+        studentIds = jdbcTemplate.queryForList("select id from student order by id", Long.class).stream().mapToLong(Long::longValue).toArray();
+        jdbcTemplate.query("select id, school_year from course order by id",
+                row -> { schoolYearByCourse.put(row.getLong(1), row.getInt(2)); });
+        for (int year = 1; year <= 7; year++) {
+            studentIdsByYear.put(year, jdbcTemplate.queryForList("select id from student where school_year = ? order by id", Long.class, year)
+                    .stream().mapToLong(Long::longValue).toArray());
+        }
+    }
+
+    /**
+     * Test the mix with a fixed number of clients, each sending its next request as soon as it gets a response.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testFixedConcurrency() throws Exception {
+        var runner = new LoadRunner(operations(), seed);
+        runner.runFixedConcurrency(concurrency, WARMUP_REQUESTS);
+        var duration = runner.runFixedConcurrency(concurrency, requests);
+
+        var report = runner.report("mixed", "fixed-concurrency", concurrency, null, duration);
+        LoadRunner.write(report, REPORT_DIRECTORY.resolve("mixed-fixed-concurrency.json"));
+        assertEquals(0, report.endpoints().get("all").errors(), String.join("\n", report.sampleErrors()));
+    }
+
+    /**
+     * Test the mix with requests arriving at a fixed rate, however long the responses take.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testFixedArrivalRate() throws Exception {
+        var runner = new LoadRunner(operations(), seed);
+        runner.runFixedConcurrency(concurrency, WARMUP_REQUESTS);
+        var duration = runner.runFixedRate(rate, requests, 64);
+
+        var report = runner.report("mixed", "fixed-arrival-rate", 64, rate, duration);
+        LoadRunner.write(report, REPORT_DIRECTORY.resolve("mixed-fixed-arrival-rate.json"));
+        assertEquals(0, report.endpoints().get("all").errors(), String.join("\n", report.sampleErrors()));
+    }
+
+    /**
+     * The request mix: mostly reads, with some enrollments and student updates.
+     */
+    private List<LoadRunner.Operation> operations() {
+        var courseIds = schoolYearByCourse.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        return List.of(
+                new LoadRunner.Operation("GET /students", 40, random ->
+                        get("/students?limit=50&after=" + studentIds[random.nextInt(studentIds.length)])),
+                new LoadRunner.Operation("GET /courses/{id}", 40, random ->
+                        get("/courses/" + courseIds[random.nextInt(courseIds.length)])),
+                new LoadRunner.Operation("POST /courses/{id}/students", 10, random -> {
+                    var courseId = courseIds[random.nextInt(courseIds.length)];
+                    var yearStudents = studentIdsByYear.get(schoolYearByCourse.get(courseId));
+                    var studentId = yearStudents[random.nextInt(yearStudents.length)];
+                    return send("POST", "/courses/" + courseId + "/students", "[{\"id\": " + studentId + "}]");
+                }),
+                new LoadRunner.Operation("PATCH /students/{id}", 10, random ->
+                        send("PATCH", "/students/" + studentIds[random.nextInt(studentIds.length)], "{\"prefect\": " + random.nextBoolean() + "}"))
+        );
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(uri(path)).GET().build();
+    }
+
+    private HttpRequest send(String method, String path, String body) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+}
@@ -0,0 +1,68 @@
+package edu.hogwarts.studentadmin;
+
+import edu.hogwarts.studentadmin.dto.CourseDTO;
+import edu.hogwarts.studentadmin.dto.StudentDTO;
+import edu.hogwarts.studentadmin.model.Student;
+import edu.hogwarts.studentadmin.repository.StudentRepository;
+import edu.hogwarts.studentadmin.service.CourseService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests the metrics published on /actuator/prometheus.
+ * Metrics are only exported in tests with @AutoConfigureObservability.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+public class MetricsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CourseService courseService;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    /**
+     * Test that getting a course with one student is timed with the roster size bucket of the course,
+     * and that the service method it calls is timed with its class and method.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testCourseRequestIsTimedByRosterSize() throws Exception {
+        var studentId = studentRepository.save(new Student(null, "Metrics", null, "Student", null, null, false, 1991, null, false, 5)).getId();
+        var course = new CourseDTO();
+        course.setSubject("Metrics");
+        course.setSchoolYear(5);
+        course.setCurrent(true);
+        var courseId = courseService.create(course).getId();
+        var student = new StudentDTO();
+        student.setId(studentId);
+        courseService.addStudentsById(courseId, List.of(student));
+
+        mockMvc.perform(get("/courses/" + courseId)).andExpect(status().isOk());
+
+        var metrics = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString().lines().toList();
+        assertTrue(metrics.stream().anyMatch(line -> line.startsWith("http_server_requests_seconds_count{")
+                        && line.contains("roster_size=\"1-9\"") && line.contains("uri=\"/courses/{id}\"")),
+                "Expected a request timer for /courses/{id} with roster_size=\"1-9\"");
+        assertTrue(metrics.stream().anyMatch(line -> line.startsWith("studentadmin_service_seconds_count{")
+                        && line.contains("class=\"" + CourseService.class.getName() + "\"") && line.contains("method=\"get\"")),
+                "Expected a studentadmin.service timer for CourseService.get");
+    }
+}
@@ -0,0 +1,54 @@
+package edu.hogwarts.studentadmin;
+
+import edu.hogwarts.studentadmin.config.NameKeyBackfill;
+import edu.hogwarts.studentadmin.model.Student;
+import edu.hogwarts.studentadmin.repository.StudentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the backfill of the name keys and sort keys, on a database of its own.
+ * The second-level cache is turned off, since the keys are cleared with plain JDBC.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.datasource.url=jdbc:h2:mem:name_key_backfill_test_db",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false"})
+public class NameKeyBackfillTest {
+
+    @Autowired
+    private NameKeyBackfill nameKeyBackfill;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Test that people saved before the keys were added get their keys, including people without names,
+     * so the next start finds nothing to do.
+     */
+    @Test
+    public void testFillsMissingKeysOnce() {
+        var named = studentRepository.save(new Student(null, "Backfill", null, "Named", null, null, false, 1991, null, false, 1));
+        var nameless = studentRepository.save(new Student(null, null, null, null, null, null, false, 1991, null, false, 1));
+        jdbcTemplate.update("update student set first_name_key = null, name_key = null, short_name_key = null, " +
+                "last_name_sort = null, first_name_sort = null where id in (?, ?)", named.getId(), nameless.getId());
+        assertTrue(studentRepository.existsByLastNameSortIsNull());
+
+        nameKeyBackfill.run();
+
+        assertFalse(studentRepository.existsByLastNameSortIsNull());
+        assertEquals("backfill named", jdbcTemplate.queryForObject("select name_key from student where id = ?", String.class, named.getId()));
+        assertEquals("Named", jdbcTemplate.queryForObject("select last_name_sort from student where id = ?", String.class, named.getId()));
+        assertEquals("", jdbcTemplate.queryForObject("select last_name_sort from student where id = ?", String.class, nameless.getId()));
+    }
+}
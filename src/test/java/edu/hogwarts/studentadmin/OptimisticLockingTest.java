@@ -0,0 +1,83 @@
+package edu.hogwarts.studentadmin;
+
+import edu.hogwarts.studentadmin.model.Student;
+import edu.hogwarts.studentadmin.repository.StudentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests that a write of a row that was changed since it was loaded is answered with 409 Conflict.
+ * The race is made deterministic by a controller that only exists in the test, and changes the row between loading and writing it.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureMockMvc
+@Import(OptimisticLockingTest.StaleWriteController.class)
+public class OptimisticLockingTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Test that a stale write fails with 409 Conflict and doesn't overwrite the other write.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testStaleWriteIsConflict() throws Exception {
+        var id = studentRepository.save(new Student(null, "Stale", null, "Write", null, null, false, 1991, null, false, 1)).getId();
+
+        mockMvc.perform(post("/test/stale-write/" + id)).andExpect(status().isConflict());
+
+        assertEquals("Other", jdbcTemplate.queryForObject("select first_name from student where id = ?", String.class, id));
+    }
+
+    /**
+     * Loads a student, lets another transaction update them, then changes the loaded student, whose version is now stale.
+     */
+    @RestController
+    static class StaleWriteController {
+        private final StudentRepository studentRepository;
+        private final JdbcTemplate jdbcTemplate;
+        private final TransactionTemplate transactionTemplate;
+        private final TransactionTemplate otherTransactionTemplate;
+
+        StaleWriteController(StudentRepository studentRepository, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+            this.studentRepository = studentRepository;
+            this.jdbcTemplate = jdbcTemplate;
+            this.transactionTemplate = new TransactionTemplate(transactionManager);
+            this.otherTransactionTemplate = new TransactionTemplate(transactionManager);
+            this.otherTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        }
+
+        @PostMapping("/test/stale-write/{id}")
+        public String staleWrite(@PathVariable("id") Long id) {
+            transactionTemplate.executeWithoutResult(status -> {
+                var student = studentRepository.findById(id).orElseThrow();
+                otherTransactionTemplate.executeWithoutResult(other ->
+                        jdbcTemplate.update("update student set first_name = 'Other', version = version + 1 where id = ?", id));
+                student.setFirstName("Newer");
+            });
+            return "written";
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package edu.hogwarts.studentadmin;
+
+import edu.hogwarts.studentadmin.config.StatementCounter;
+import edu.hogwarts.studentadmin.model.Student;
+import edu.hogwarts.studentadmin.repository.StudentRepository;
+import edu.hogwarts.studentadmin.service.StudentService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests finding people by name with get(String) and getByNames, on students with names no other test uses.
+ * Every name form is shared by several students, so the one with the lowest id must be chosen.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+public class PersonNameLookupTest {
+
+    @Autowired
+    private StudentService studentService;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    private Student full;
+    private Student shortName;
+    private Student duplicate;
+
+    /**
+     * Saves three students named Lookup, in the order of their ids.
+     */
+    @BeforeEach
+    public void createStudents() {
+        full = studentRepository.save(new Student(null, "Zacharias", "Quentin", "Lookup", null, null, false, 1991, null, false, 3));
+        shortName = studentRepository.save(new Student(null, "Zacharias", null, "Lookup", null, null, false, 1991, null, false, 3));
+        duplicate = studentRepository.save(new Student(null, "Zacharias", "Quentin", "Lookup", null, null, false, 1991, null, false, 3));
+    }
+
+    /**
+     * Deletes the students again, so the next test's students are the only ones with these names.
+     */
+    @AfterEach
+    public void deleteStudents() {
+        studentRepository.deleteAll(List.of(full, shortName, duplicate));
+    }
+
+    /**
+     * Test that one word is matched against the first name, two words against the first and last names,
+     * and three words against the full name, with the lowest id chosen among the matches.
+     */
+    @Test
+    public void testGetByOneTwoAndThreeWords() {
+        assertEquals(full.getId(), studentService.get("Zacharias").getId());
+        assertEquals(full.getId(), studentService.get("Zacharias Lookup").getId());
+        assertEquals(full.getId(), studentService.get("Zacharias Quentin Lookup").getId());
+        assertNull(studentService.get("Zacharias Nobody"));
+        assertNull(studentService.get("Zacharias Quentin Nobody"));
+    }
+
+    /**
+     * Test that case and extra whitespace are ignored, and that a blank name finds nobody.
+     */
+    @Test
+    public void testGetNormalizesCaseAndWhitespace() {
+        assertEquals(full.getId(), studentService.get("  ZACHARIAS  ").getId());
+        assertEquals(full.getId(), studentService.get("zacharias \t lookup").getId());
+        assertEquals(full.getId(), studentService.get(" zAcHaRiAs   QUENTIN\nlookup ").getId());
+        assertNull(studentService.get("   "));
+        assertNull(studentService.get((String) null));
+    }
+
+    /**
+     * Test that getByNames resolves the duplicates of every form to the lowest id, like get(String).
+     */
+    @Test
+    public void testDuplicatesResolveToLowestId() {
+        assertTrue(full.getId() < shortName.getId() && shortName.getId() < duplicate.getId());
+        var people = studentService.getByNames(List.of("Zacharias", "zacharias lookup", "ZACHARIAS QUENTIN LOOKUP"));
+        assertEquals(full.getId(), people.get("Zacharias").getId());
+        assertEquals(full.getId(), people.get("zacharias lookup").getId());
+        assertEquals(full.getId(), people.get("ZACHARIAS QUENTIN LOOKUP").getId());
+    }
+
+    /**
+     * Test that getByNames runs one query for each form of name in the list, however many names of each form there are,
+     * and leaves out the names that are not found.
+     */
+    @Test
+    public void testGetByNamesRunsOneQueryPerNameForm() {
+        var start = statementCounter.getCount();
+        var people = studentService.getByNames(List.of("Zacharias Quentin Lookup", "Zacharias Nobody Lookup", "Nobody Quentin Lookup"));
+        assertEquals(1, statementCounter.getCount() - start, "Full names must be found with a single query");
+        assertEquals(1, people.size());
+
+        start = statementCounter.getCount();
+        people = studentService.getByNames(List.of(
+                "Zacharias", "Nobody",
+                "Zacharias Lookup", "Nobody Lookup", "Zacharias Nobody",
+                "Zacharias Quentin Lookup", "Zacharias Nobody Lookup", " zacharias  quentin  lookup "));
+        assertEquals(3, statementCounter.getCount() - start, "Each form of name must be found with a single query");
+        assertEquals(List.of("Zacharias", "Zacharias Lookup", "Zacharias Quentin Lookup", " zacharias  quentin  lookup "), List.copyOf(people.keySet()));
+    }
+}
@@ -0,0 +1,111 @@
+package edu.hogwarts.studentadmin;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.hogwarts.studentadmin.model.Student;
+import edu.hogwarts.studentadmin.repository.StudentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests the keyset pages of GET /students sorted by name, on a database of its own.
+ * The second-level cache is turned off, since its regions are shared with the other test contexts, which use another database.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.datasource.url=jdbc:h2:mem:person_paging_test_db",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false"})
+@AutoConfigureMockMvc
+public class PersonPagingTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    /**
+     * Test that following the cursors returns every student exactly once, in the order of last name, first name and id,
+     * with people of the same name ordered by id, and people without a last name first.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testCursorWalksAllInNameOrder() throws Exception {
+        var twin = studentRepository.save(new Student(null, "Paging", null, "Twin", null, null, false, 1991, null, false, 1));
+        var otherTwin = studentRepository.save(new Student(null, "Paging", null, "Twin", null, null, false, 1991, null, false, 1));
+        var nameless = studentRepository.save(new Student(null, "Paging", null, null, null, null, false, 1991, null, false, 1));
+
+        var ids = new ArrayList<Long>();
+        String after = null;
+        do {
+            var page = getPage("?sort=lastName,firstName&limit=7" + (after == null ? "" : "&after=" + after));
+            assertTrue(page.get("items").size() <= 7);
+            page.get("items").forEach(item -> ids.add(item.get("id").asLong()));
+            after = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+        } while (after != null);
+
+        assertEquals(ids.size(), new HashSet<>(ids).size(), "A student must not be returned twice");
+        var students = studentRepository.findAll();
+        assertEquals(students.size(), ids.size(), "Every student must be returned");
+        var expected = students.stream()
+                .sorted(Comparator.comparing(Student::getLastNameSort).thenComparing(Student::getFirstNameSort).thenComparing(Student::getId))
+                .map(Student::getId)
+                .toList();
+        assertEquals(expected, ids);
+        assertEquals(ids.indexOf(twin.getId()) + 1, ids.indexOf(otherTwin.getId()), "People with the same name must be ordered by id");
+        assertTrue(ids.indexOf(nameless.getId()) < ids.indexOf(twin.getId()), "A missing last name must sort first");
+    }
+
+    /**
+     * Test that a limit above the maximum is capped at 500 people.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testLimitIsCapped() throws Exception {
+        var missing = 501 - studentRepository.count();
+        List<Student> extra = new ArrayList<>();
+        for (var i = 0; i < missing; i++) {
+            extra.add(new Student(null, "Capped" + i, null, "Limit", null, null, false, 1991, null, false, 1));
+        }
+        studentRepository.saveAll(extra);
+
+        var page = getPage("?sort=lastName,firstName&limit=100000");
+        assertEquals(500, page.get("items").size());
+        assertFalse(page.get("nextCursor").isNull());
+    }
+
+    /**
+     * Test that a cursor that doesn't point to an existing person is a bad request.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testInvalidCursorIsBadRequest() throws Exception {
+        mockMvc.perform(get("/students?sort=lastName,firstName&after=999999999"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Invalid cursor."));
+    }
+
+    private JsonNode getPage(String query) throws Exception {
+        var response = mockMvc.perform(get("/students" + query)).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response);
+    }
+}
@@ -0,0 +1,24 @@
+package edu.hogwarts.studentadmin;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Fails a Spring Boot test if its test method runs more SQL statements than the budget.
+ * Only the statements of the test method itself are counted, so the test data should be created in a @BeforeEach method.
+ * Requests sent with MockMvc run on the test thread, so their statements are counted.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(QueryBudgetExtension.class)
+public @interface QueryBudget {
+    /**
+     * The maximum number of SQL statements the test method may run.
+     * @return the budget
+     */
+    long value();
+}
@@ -0,0 +1,34 @@
+package edu.hogwarts.studentadmin;
+
+import edu.hogwarts.studentadmin.config.StatementCounter;
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * JUnit extension for the QueryBudget annotation.
+ * Reads the statement count of the test thread right before and after the test method, and fails the test if the difference is over the budget.
+ */
+public class QueryBudgetExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(QueryBudgetExtension.class);
+
+    @Override
+    public void beforeTestExecution(ExtensionContext context) {
+        context.getStore(NAMESPACE).put("start", counter(context).getCount());
+    }
+
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        var budget = context.getRequiredTestMethod().getAnnotation(QueryBudget.class).value();
+        var start = context.getStore(NAMESPACE).get("start", Long.class);
+        var statements = counter(context).getCount() - start;
+        assertTrue(statements <= budget, context.getDisplayName() + " ran " + statements + " SQL statements, over its budget of " + budget);
+    }
+
+    private static StatementCounter counter(ExtensionContext context) {
+        return SpringExtension.getApplicationContext(context).getBean(StatementCounter.class);
+    }
+}
@@ -0,0 +1,198 @@
+package edu.hogwarts.studentadmin;
+
+import edu.hogwarts.studentadmin.dto.CourseDTO;
+import edu.hogwarts.studentadmin.dto.StudentDTO;
+import edu.hogwarts.studentadmin.dto.TeacherDTO;
+import edu.hogwarts.studentadmin.model.Student;
+import edu.hogwarts.studentadmin.repository.StudentRepository;
+import edu.hogwarts.studentadmin.repository.TeacherRepository;
+import edu.hogwarts.studentadmin.service.CourseService;
+import edu.hogwarts.studentadmin.service.HouseService;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * SQL statement budgets for the main routes, so an N+1 query fails the build instead of slowing down production.
+ * The second-level cache is cleared before each test, except for the houses which are always cached,
+ * so the budgets hold for the first request after a restart.
+ * The courses and students of each test are deleted after it, so the tests don't fill up the database the other tests share.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureMockMvc
+public class QueryBudgetTest {
+    private static final int SCHOOL_YEAR = 103;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CourseService courseService;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private HouseService houseService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long smallCourseId;
+    private Long largeCourseId;
+    private List<Student> students;
+    private Long teacherId;
+
+    /**
+     * Creates a course with 5 students and a course with 1000 students, both with a teacher, then clears the second-level cache.
+     */
+    @BeforeEach
+    public void createCourses() {
+        var newStudents = new ArrayList<Student>();
+        for (int i = 0; i < 1001; i++) {
+            newStudents.add(new Student(null, "Budget" + i, null, "Student", null, houseService.get("Ravenclaw"), false, 1991, null, false, SCHOOL_YEAR));
+        }
+        students = studentRepository.saveAll(newStudents);
+        teacherId = teacherRepository.findAll().get(0).getId();
+        smallCourseId = createCourse(students.subList(0, 5));
+        largeCourseId = createCourse(students.subList(0, 1000));
+
+        entityManagerFactory.getCache().evictAll();
+        houseService.refresh();
+    }
+
+    /**
+     * Deletes the courses and students created for the test.
+     */
+    @AfterEach
+    public void deleteCourses() {
+        courseService.delete(smallCourseId);
+        courseService.delete(largeCourseId);
+        studentRepository.deleteAllInBatch(students);
+    }
+
+    @QueryBudget(2)
+    @Test
+    public void testGetSmallCourse() throws Exception {
+        mockMvc.perform(get("/courses/" + smallCourseId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.students.length()").value(5));
+    }
+
+    @QueryBudget(2)
+    @Test
+    public void testGetLargeCourse() throws Exception {
+        mockMvc.perform(get("/courses/" + largeCourseId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.students.length()").value(1000));
+    }
+
+    @QueryBudget(1)
+    @Test
+    public void testGetAllCourses() throws Exception {
+        mockMvc.perform(get("/courses?view=full"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.id == " + largeCourseId + ")].students.length()").value(1000));
+    }
+
+    @QueryBudget(1)
+    @Test
+    public void testGetCourseSummaries() throws Exception {
+        mockMvc.perform(get("/courses?view=summary")).andExpect(status().isOk());
+    }
+
+    @QueryBudget(1)
+    @Test
+    public void testGetStudent() throws Exception {
+        mockMvc.perform(get("/students/" + students.get(0).getId())).andExpect(status().isOk());
+    }
+
+    @QueryBudget(1)
+    @Test
+    public void testGetStudentPage() throws Exception {
+        mockMvc.perform(get("/students?limit=50")).andExpect(status().isOk());
+    }
+
+    @QueryBudget(2)
+    @Test
+    public void testPatchStudent() throws Exception {
+        mockMvc.perform(patch("/students/" + students.get(0).getId()).contentType("application/json").content("{\"prefect\": true}"))
+                .andExpect(status().isOk());
+    }
+
+    @QueryBudget(5)
+    @Test
+    public void testUpdateLargeCourse() throws Exception {
+        mockMvc.perform(put("/courses/" + largeCourseId).contentType("application/json").content(courseJson(students.subList(0, 1000))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.students.length()").value(1000));
+    }
+
+    @QueryBudget(2)
+    @Test
+    public void testUpdateStudent() throws Exception {
+        mockMvc.perform(put("/students/" + students.get(0).getId()).contentType("application/json")
+                        .content("{\"name\": \"Budget Student\", \"house\": \"Ravenclaw\", \"enrollmentYear\": 1991, \"schoolYear\": " + SCHOOL_YEAR + "}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(students.get(0).getId()));
+    }
+
+    @QueryBudget(7)
+    @Test
+    public void testAddStudentToLargeCourse() throws Exception {
+        mockMvc.perform(post("/courses/" + largeCourseId + "/students").contentType("application/json")
+                        .content("[{\"id\": " + students.get(1000).getId() + "}]"))
+                .andExpect(status().isOk());
+    }
+
+    @QueryBudget(4)
+    @Test
+    public void testRemoveTeacher() throws Exception {
+        mockMvc.perform(delete("/courses/" + smallCourseId + "/teacher"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(teacherId));
+        mockMvc.perform(get("/courses/" + smallCourseId + "/teacher")).andExpect(status().isNoContent());
+    }
+
+    private String courseJson(List<Student> roster) {
+        var ids = roster.stream().map(student -> "{\"id\": " + student.getId() + "}").toList();
+        return "{\"subject\": \"Advanced Budgeting\", \"schoolYear\": " + SCHOOL_YEAR + ", \"current\": true, "
+                + "\"teacher\": {\"id\": " + teacherId + "}, \"students\": [" + String.join(", ", ids) + "]}";
+    }
+
+    private Long createCourse(List<Student> roster) {
+        var course = new CourseDTO();
+        course.setSubject("Budgeting");
+        course.setSchoolYear(SCHOOL_YEAR);
+        course.setCurrent(true);
+        var teacher = new TeacherDTO();
+        teacher.setId(teacherId);
+        course.setTeacher(teacher);
+        var courseId = courseService.create(course).getId();
+        courseService.addStudentsById(courseId, roster.stream().map(student -> {
+            var studentDTO = new StudentDTO();
+            studentDTO.setId(student.getId());
+            return studentDTO;
+        }).toList());
+        return courseId;
+    }
+}
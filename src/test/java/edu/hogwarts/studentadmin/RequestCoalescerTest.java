@@ -0,0 +1,96 @@
+package edu.hogwarts.studentadmin;
+
+import edu.hogwarts.studentadmin.service.RequestCoalescer;
+import edu.hogwarts.studentadmin.service.SchoolCollection;
+import edu.hogwarts.studentadmin.service.SchoolDataChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the coalescing of identical calls, without the application, since it only needs a meter registry.
+ */
+public class RequestCoalescerTest {
+
+    /**
+     * Test that identical concurrent calls share one execution and its result, and that different keys don't.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testConcurrentCallsShareOneExecution() throws Exception {
+        var registry = new SimpleMeterRegistry();
+        var coalescer = new RequestCoalescer(registry, true, Duration.ZERO);
+        var executions = new AtomicInteger();
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var leader = executor.submit(() -> coalescer.execute("courses", () -> {
+                executions.incrementAndGet();
+                started.countDown();
+                await(release);
+                return new Object();
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            var followers = new ArrayList<Future<Object>>();
+            for (int i = 0; i < 3; i++) {
+                followers.add(executor.submit(() -> coalescer.execute("courses", Object::new)));
+            }
+            var coalesced = registry.get("studentadmin.coalescing.calls").tag("result", "coalesced").counter();
+            while (coalesced.count() < 3) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+            var result = leader.get(5, TimeUnit.SECONDS);
+            for (var follower : followers) {
+                assertSame(result, follower.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, executions.get());
+            assertEquals(1, registry.get("studentadmin.coalescing.calls").tag("result", "executed").counter().count());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+        assertEquals("student", coalescer.execute("student", () -> "student"));
+    }
+
+    /**
+     * Test that a result is kept for the time to live, until a change clears it, and that failures are not kept.
+     */
+    @Test
+    public void testResultsAreKeptUntilChange() {
+        var coalescer = new RequestCoalescer(new SimpleMeterRegistry(), true, Duration.ofMinutes(1));
+        var first = coalescer.execute("students", Object::new);
+        assertSame(first, coalescer.execute("students", Object::new));
+
+        coalescer.onChange(new SchoolDataChangedEvent("StudentService.patch", Set.of(SchoolCollection.STUDENTS, SchoolCollection.COURSES)));
+        var second = coalescer.execute("students", Object::new);
+        assertTrue(first != second, "A change must clear the kept results");
+
+        assertThrows(IllegalStateException.class, () -> coalescer.execute("teachers", () -> {
+            throw new IllegalStateException("failed");
+        }));
+        assertEquals("teachers", coalescer.execute("teachers", () -> "teachers"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
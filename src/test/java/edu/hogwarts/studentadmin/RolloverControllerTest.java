@@ -0,0 +1,148 @@
+package edu.hogwarts.studentadmin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.hogwarts.studentadmin.dto.RolloverReportDTO;
+import edu.hogwarts.studentadmin.model.Rollover;
+import edu.hogwarts.studentadmin.model.Student;
+import edu.hogwarts.studentadmin.repository.CourseRepository;
+import edu.hogwarts.studentadmin.repository.RolloverRepository;
+import edu.hogwarts.studentadmin.repository.StudentRepository;
+import edu.hogwarts.studentadmin.service.HouseService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests the academic year rollover on a database of its own, since it changes every student and course.
+ * The second-level cache is turned off, since its regions are shared with the other test contexts, which use another database.
+ * The records of the rollovers are deleted after each test, so every test can roll over the years it uses.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:rollover_test_db",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false",
+        "studentadmin.rollover.chunk-size=2"})
+@AutoConfigureMockMvc
+public class RolloverControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private RolloverRepository rolloverRepository;
+
+    @Autowired
+    private HouseService houseService;
+
+    /**
+     * Deletes the records of the rollovers of the test.
+     */
+    @AfterEach
+    public void deleteRollovers() {
+        rolloverRepository.deleteAll();
+    }
+
+    /**
+     * Test that a dry run counts the same students and courses that the rollover then changes,
+     * that students in the last year graduate while the others move up one year across several ranges of IDs,
+     * and that the current courses are copied and finished.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testRollover() throws Exception {
+        var sixthYear = studentRepository.save(new Student(null, "Rollover", null, "Sixth", null, houseService.get("Hufflepuff"), false, 1990, null, false, 6));
+        var seventhYear = studentRepository.save(new Student(null, "Rollover", null, "Seventh", null, houseService.get("Hufflepuff"), false, 1989, null, false, 7));
+        var graduate = studentRepository.save(new Student(null, "Rollover", null, "Graduate", null, houseService.get("Hufflepuff"), false, 1988, 1995, true, 7));
+        var currentCourses = courseRepository.countCurrent(courseRepository.findMaxId());
+        var courses = courseRepository.count();
+
+        var dryRun = rollover("/admin/rollover?year=1996&copyCourses=true&dryRun=true");
+        assertTrue(dryRun.isDryRun());
+        assertEquals(6, studentRepository.findById(sixthYear.getId()).orElseThrow().getSchoolYear());
+        assertEquals(courses, courseRepository.count());
+
+        var report = rollover("/admin/rollover?year=1996&copyCourses=true");
+        assertEquals(dryRun.getStudentsPromoted(), report.getStudentsPromoted());
+        assertEquals(dryRun.getStudentsGraduated(), report.getStudentsGraduated());
+        assertEquals(currentCourses, report.getCoursesFinished());
+        assertEquals(currentCourses, report.getCoursesCopied());
+        assertEquals(courses + currentCourses, courseRepository.count());
+
+        var promoted = studentRepository.findById(sixthYear.getId()).orElseThrow();
+        assertEquals(7, promoted.getSchoolYear());
+        assertEquals(false, promoted.isGraduated());
+        var graduated = studentRepository.findById(seventhYear.getId()).orElseThrow();
+        assertEquals(true, graduated.isGraduated());
+        assertEquals(1996, graduated.getGraduationYear());
+        assertEquals(1995, studentRepository.findById(graduate.getId()).orElseThrow().getGraduationYear());
+    }
+
+    /**
+     * Test that a year can only be rolled over once, that no earlier year can be rolled over afterwards, even as a dry run,
+     * and that a completed rollover can't be resumed.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testRolloverOnlyOnce() throws Exception {
+        var student = studentRepository.save(new Student(null, "Rollover", null, "Once", null, houseService.get("Hufflepuff"), false, 1993, null, false, 3));
+        var courses = courseRepository.count();
+
+        var report = rollover("/admin/rollover?year=1997&copyCourses=true");
+        assertEquals(4, studentRepository.findById(student.getId()).orElseThrow().getSchoolYear());
+        assertNotNull(rolloverRepository.findById(1997).orElseThrow().getCompletedAt());
+        var copied = courseRepository.count();
+        assertEquals(courses + report.getCoursesCopied(), copied);
+
+        mockMvc.perform(post("/admin/rollover?year=1997&copyCourses=true")).andExpect(status().isConflict());
+        mockMvc.perform(post("/admin/rollover?year=1996")).andExpect(status().isConflict());
+        mockMvc.perform(post("/admin/rollover?year=1997&dryRun=true")).andExpect(status().isConflict());
+        mockMvc.perform(post("/admin/rollover?year=1997&afterId=0")).andExpect(status().isConflict());
+        assertEquals(4, studentRepository.findById(student.getId()).orElseThrow().getSchoolYear());
+        assertEquals(copied, courseRepository.count());
+    }
+
+    /**
+     * Test that a failed rollover can be resumed once, after the last student it rolled over, but not started again.
+     * The failure is simulated with a rollover that was recorded but not completed, and had rolled over every student.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testResumeFailedRollover() throws Exception {
+        var student = studentRepository.save(new Student(null, "Rollover", null, "Resumed", null, houseService.get("Hufflepuff"), false, 1993, null, false, 3));
+        rolloverRepository.save(new Rollover(1998, LocalDateTime.now()));
+
+        mockMvc.perform(post("/admin/rollover?year=1998")).andExpect(status().isConflict());
+        var report = rollover("/admin/rollover?year=1998&afterId=" + student.getId());
+        assertEquals(0, report.getStudentsPromoted());
+        assertEquals(3, studentRepository.findById(student.getId()).orElseThrow().getSchoolYear());
+        assertNotNull(rolloverRepository.findById(1998).orElseThrow().getCompletedAt());
+        mockMvc.perform(post("/admin/rollover?year=1998&afterId=" + student.getId())).andExpect(status().isConflict());
+    }
+
+    private RolloverReportDTO rollover(String uri) throws Exception {
+        var response = mockMvc.perform(post(uri))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, RolloverReportDTO.class);
+    }
+}
@@ -0,0 +1,93 @@
+package edu.hogwarts.studentadmin;
+
+import edu.hogwarts.studentadmin.service.SchoolReadModel;
+import edu.hogwarts.studentadmin.service.SchoolSnapshot;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests that the read model rebuilds at most once per minimum rebuild interval under sustained writes,
+ * on a database of its own, with an interval of 200 ms and a staleness bound of 2 seconds.
+ * The second-level cache is turned off, since its regions are shared with the other test contexts, which use another database.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.datasource.url=jdbc:h2:mem:read_model_rebuild_test_db",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false",
+        "studentadmin.read-model.enabled=true",
+        "studentadmin.read-model.max-staleness=2s",
+        "studentadmin.read-model.min-rebuild-interval=200ms"})
+@AutoConfigureMockMvc
+public class SchoolReadModelRebuildTest {
+    private static final Duration WRITING = Duration.ofSeconds(2);
+    private static final long INTERVAL_MILLIS = 200;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private SchoolReadModel readModel;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Test that writing every 20 ms for 2 seconds keeps the snapshot within its staleness bound,
+     * with no more builds than intervals, and that the last write is in the snapshot afterwards.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testSustainedWritesAreCoalesced() throws Exception {
+        var first = awaitCurrent();
+        assertNotNull(first, "The read model was not built");
+        var id = first.students().getAll().get(0).getId();
+        var before = builds();
+
+        var writes = 0;
+        var start = System.nanoTime();
+        while (System.nanoTime() - start < WRITING.toNanos()) {
+            mockMvc.perform(patch("/students/" + id)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"name\": \"Sustained Write" + writes + "\"}"))
+                    .andExpect(status().isOk());
+            writes++;
+            assertNotNull(readModel.current(), "The snapshot must stay within its staleness bound under sustained writes");
+            Thread.sleep(20);
+        }
+        var elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        var last = "Sustained Write" + (writes - 1);
+        for (int i = 0; i < 100 && !last.equals(readModel.current().students().get(id).getName()); i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(last, readModel.current().students().get(id).getName());
+        var builds = builds() - before;
+        assertTrue(builds <= elapsedMillis / INTERVAL_MILLIS + 2, builds + " builds for " + writes + " writes in " + elapsedMillis + " ms");
+        assertTrue(builds < writes / 2, builds + " builds for " + writes + " writes");
+    }
+
+    private long builds() {
+        return meterRegistry.get("studentadmin.read_model.build").timer().count();
+    }
+
+    private SchoolSnapshot awaitCurrent() throws InterruptedException {
+        for (int i = 0; i < 200 && readModel.current() == null; i++) {
+            Thread.sleep(50);
+        }
+        return readModel.current();
+    }
+}
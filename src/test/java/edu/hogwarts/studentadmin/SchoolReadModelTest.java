@@ -0,0 +1,120 @@
+package edu.hogwarts.studentadmin;
+
+import edu.hogwarts.studentadmin.service.SchoolReadModel;
+import edu.hogwarts.studentadmin.service.SchoolSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests the in-memory read model on a database of its own, with a staleness bound of zero,
+ * so a GET after a change reads from the database until the snapshot has caught up.
+ * The second-level cache is turned off, since its regions are shared with the other test contexts, which use another database.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:read_model_test_db",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false",
+        "studentadmin.read-model.enabled=true",
+        "studentadmin.read-model.max-staleness=0s"})
+@AutoConfigureMockMvc
+public class SchoolReadModelTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private SchoolReadModel readModel;
+
+    private SchoolSnapshot snapshot;
+
+    /**
+     * Creates a course with two students if there is none, and waits until the read model has a snapshot with every change.
+     * @throws Exception if the course can't be created or the wait is interrupted
+     */
+    @BeforeEach
+    public void awaitSnapshot() throws Exception {
+        snapshot = awaitCurrent();
+        assertNotNull(snapshot, "The read model was not built");
+        if (snapshot.getCourses().isEmpty()) {
+            var student = snapshot.students().getAll().get(0);
+            var classmate = snapshot.students().getAll().stream()
+                    .filter(other -> other != student && other.getSchoolYear().equals(student.getSchoolYear()))
+                    .findFirst().orElseThrow();
+            mockMvc.perform(post("/courses")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"subject\": \"Potions\", \"schoolYear\": " + student.getSchoolYear() + ", \"current\": true, "
+                                    + "\"students\": [{\"id\": " + student.getId() + "}, {\"id\": " + classmate.getId() + "}]}"))
+                    .andExpect(status().isOk());
+            snapshot = awaitCurrent();
+            assertNotNull(snapshot, "The read model was not rebuilt");
+        }
+    }
+
+    /**
+     * Test that students, teachers and courses are served from the snapshot without any SQL statements.
+     * @throws Exception if the test fails
+     */
+    @Test
+    @QueryBudget(0)
+    public void testGetFromSnapshot() throws Exception {
+        var student = snapshot.students().getAll().get(0);
+        var course = snapshot.getCourses().get(0);
+        mockMvc.perform(get("/students/" + student.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value(student.getName()));
+        mockMvc.perform(get("/students?limit=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2));
+        mockMvc.perform(get("/teachers"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(snapshot.teachers().size()));
+        mockMvc.perform(get("/courses/" + course.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.students.length()").value(course.getStudents().size()));
+        mockMvc.perform(get("/courses?view=summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].studentCount").value(course.getStudents().size()));
+    }
+
+    /**
+     * Test that a change is visible to the next GET, and is in the next snapshot.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testChangeIsVisible() throws Exception {
+        var id = snapshot.students().getAll().get(0).getId();
+        mockMvc.perform(patch("/students/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Snapshot Student\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/students/" + id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Snapshot Student"));
+
+        var rebuilt = awaitCurrent();
+        assertNotNull(rebuilt, "The read model was not rebuilt");
+        assertEquals("Snapshot Student", rebuilt.students().get(id).getName());
+        assertNull(rebuilt.students().get(-1L));
+    }
+
+    private SchoolSnapshot awaitCurrent() throws InterruptedException {
+        for (int i = 0; i < 200 && readModel.current() == null; i++) {
+            Thread.sleep(50);
+        }
+        return readModel.current();
+    }
+}
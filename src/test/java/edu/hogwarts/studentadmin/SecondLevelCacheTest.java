@@ -0,0 +1,203 @@
+package edu.hogwarts.studentadmin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.hogwarts.studentadmin.dto.CourseDTO;
+import edu.hogwarts.studentadmin.dto.StudentDTO;
+import edu.hogwarts.studentadmin.dto.TeacherDTO;
+import edu.hogwarts.studentadmin.model.Course;
+import edu.hogwarts.studentadmin.model.Enrollment;
+import edu.hogwarts.studentadmin.model.Student;
+import edu.hogwarts.studentadmin.model.Teacher;
+import edu.hogwarts.studentadmin.repository.CourseRepository;
+import edu.hogwarts.studentadmin.repository.HouseRepository;
+import edu.hogwarts.studentadmin.repository.StudentRepository;
+import edu.hogwarts.studentadmin.repository.TeacherRepository;
+import edu.hogwarts.studentadmin.service.CourseService;
+import edu.hogwarts.studentadmin.service.TeacherService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests the second-level cache of the houses, teachers and rosters with the Hibernate statistics of each region.
+ * Every read goes through a repository without a surrounding transaction, so it has a session of its own and can only hit the second-level cache.
+ * The test course has two students and a teacher of its own, which are deleted after each test.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureMockMvc
+public class SecondLevelCacheTest {
+    private static final String HOUSES = "edu.hogwarts.studentadmin.model.House";
+    private static final String TEACHERS = "edu.hogwarts.studentadmin.model.Teacher";
+    private static final String ROSTERS = "edu.hogwarts.studentadmin.model.Course.enrollments";
+    private static final int SCHOOL_YEAR = 105;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private HouseRepository houseRepository;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private CourseService courseService;
+
+    @Autowired
+    private TeacherService teacherService;
+
+    private Statistics statistics;
+    private List<Student> students;
+    private Long teacherId;
+    private Long courseId;
+
+    /**
+     * Creates a course with two of three new students and a new teacher, then clears the second-level cache.
+     */
+    @BeforeEach
+    public void createCourse() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        var newStudents = new ArrayList<Student>();
+        for (int i = 0; i < 3; i++) {
+            newStudents.add(new Student(null, "Regional" + i, null, "Student", null, null, false, 1991, null, false, SCHOOL_YEAR));
+        }
+        students = studentRepository.saveAll(newStudents);
+        teacherId = teacherRepository.save(new Teacher(null, "Regional", null, "Teacher", null, null, false, null, null, null)).getId();
+
+        var course = new CourseDTO();
+        course.setSubject("Regions");
+        course.setSchoolYear(SCHOOL_YEAR);
+        course.setCurrent(true);
+        var teacher = new TeacherDTO();
+        teacher.setId(teacherId);
+        course.setTeacher(teacher);
+        courseId = courseService.create(course).getId();
+        courseService.addStudentsById(courseId, List.of(studentDTO(students.get(0)), studentDTO(students.get(1))));
+
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    /**
+     * Deletes the course, students and teacher created for the test.
+     */
+    @AfterEach
+    public void deleteCourse() {
+        courseService.delete(courseId);
+        studentRepository.deleteAllInBatch(students);
+        teacherRepository.deleteById(teacherId);
+    }
+
+    /**
+     * Test that the second read of a house, a teacher and a roster is a hit in their region, without another miss.
+     */
+    @Test
+    public void testSecondReadIsCacheHit() {
+        assertSecondReadHits(HOUSES, () -> houseRepository.findById("Gryffindor").orElseThrow());
+        assertSecondReadHits(TEACHERS, () -> teacherRepository.findById(teacherId).orElseThrow());
+        assertSecondReadHits(ROSTERS, () -> assertEquals(2, courseRepository.findById(courseId).orElseThrow().getEnrollments().size()));
+    }
+
+    /**
+     * Test that enrolling a student evicts the cached roster, so the next read misses and has the new student,
+     * and that updating a teacher leaves no stale teacher in the cache.
+     */
+    @Test
+    public void testWritesEvict() {
+        courseRepository.findById(courseId).orElseThrow();
+        var misses = misses(ROSTERS);
+        courseService.addStudentsById(courseId, List.of(studentDTO(students.get(2))));
+        assertEquals(3, roster().size());
+        assertEquals(misses + 1, misses(ROSTERS), "Enrolling a student must evict the cached roster");
+        var hits = hits(ROSTERS);
+        assertEquals(3, roster().size());
+        assertEquals(hits + 1, hits(ROSTERS), "The new roster must be cached again");
+
+        courseService.removeStudent(courseId, students.get(0).getId());
+        assertEquals(2, roster().size(), "Removing a student must evict the cached roster");
+
+        teacherRepository.findById(teacherId).orElseThrow();
+        var teacher = new TeacherDTO();
+        teacher.setName("Renamed Teacher");
+        teacherService.patch(teacher, teacherId);
+        assertEquals("Renamed", teacherRepository.findById(teacherId).orElseThrow().getFirstName());
+    }
+
+    /**
+     * Test that /admin/cache reports the regions of the houses, teachers, students, enrollments and rosters, with their hits.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testAdminCacheReportsRegions() throws Exception {
+        houseRepository.findById("Gryffindor").orElseThrow();
+        houseRepository.findById("Gryffindor").orElseThrow();
+
+        var response = mockMvc.perform(get("/admin/cache")).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        var regions = new HashSet<String>();
+        var houseHits = 0L;
+        for (var region : objectMapper.readTree(response)) {
+            regions.add(region.get("region").asText());
+            if (region.get("region").asText().equals(HOUSES)) {
+                houseHits = Math.max(houseHits, region.get("hits").asLong());
+            }
+        }
+        assertTrue(regions.containsAll(List.of(HOUSES, TEACHERS, "edu.hogwarts.studentadmin.model.Student",
+                "edu.hogwarts.studentadmin.model.Enrollment", ROSTERS)), regions.toString());
+        assertTrue(houseHits > 0, "The house region must report its hits");
+    }
+
+    private void assertSecondReadHits(String region, Runnable read) {
+        read.run();
+        var hits = hits(region);
+        var misses = misses(region);
+        read.run();
+        assertEquals(hits + 1, hits(region), "The second read must hit " + region);
+        assertEquals(misses, misses(region), "The second read must not miss " + region);
+    }
+
+    private Set<Enrollment> roster() {
+        return courseRepository.findById(courseId).map(Course::getEnrollments).orElseThrow();
+    }
+
+    private long hits(String region) {
+        return statistics.getDomainDataRegionStatistics(region).getHitCount();
+    }
+
+    private long misses(String region) {
+        return statistics.getDomainDataRegionStatistics(region).getMissCount();
+    }
+
+    private static StudentDTO studentDTO(Student student) {
+        var studentDTO = new StudentDTO();
+        studentDTO.setId(student.getId());
+        return studentDTO;
+    }
+}
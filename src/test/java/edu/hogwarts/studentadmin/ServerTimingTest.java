@@ -0,0 +1,122 @@
+package edu.hogwarts.studentadmin;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayOutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests the Server-Timing header and trailer, and the studentadmin.request.phase timers.
+ * Runs on a real port as well, since only the servlet container sends trailers.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "spring.jpa.show-sql=false")
+@AutoConfigureMockMvc
+public class ServerTimingTest {
+    private static final String PHASES = "controller;dur=[0-9.]+, service;dur=[0-9.]+, repository;dur=[0-9.]+, serialization;dur=[0-9.]+, total;dur=[0-9.]+";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @LocalServerPort
+    private int port;
+
+    /**
+     * Test that the header has a duration for every phase and the total.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testHeaderListsPhases() throws Exception {
+        var value = mockMvc.perform(get("/students"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("Server-Timing");
+        assertNotNull(value);
+        assertTrue(value.matches(PHASES), value);
+    }
+
+    /**
+     * Test that the time of each phase is recorded in a timer per phase, with the method and uri of the request.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testPhaseTimersAreRecorded() throws Exception {
+        var previous = meterRegistry.find("studentadmin.request.phase").tags("phase", "serialization", "method", "GET", "uri", "/students").timer();
+        var before = previous == null ? 0 : previous.count();
+        mockMvc.perform(get("/students")).andExpect(status().isOk());
+
+        for (var phase : new String[]{"controller", "service", "repository", "serialization"}) {
+            assertTrue(phaseTimer(phase).count() > 0, "Expected a timer for " + phase);
+        }
+        assertEquals(before + 1, phaseTimer("serialization").count());
+        assertTrue(phaseTimer("serialization").totalTime(TimeUnit.NANOSECONDS) > 0);
+        assertTrue(phaseTimer("repository").totalTime(TimeUnit.NANOSECONDS) > 0);
+    }
+
+    /**
+     * Test that a client that accepts trailers gets the serialization and total times after the body.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testTrailerHasSerialization() throws Exception {
+        String response;
+        try (var socket = new Socket("localhost", port)) {
+            socket.getOutputStream().write(("GET /students HTTP/1.1\r\nHost: localhost\r\nTE: trailers\r\nConnection: close\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            var bytes = new ByteArrayOutputStream();
+            socket.getInputStream().transferTo(bytes);
+            response = bytes.toString(StandardCharsets.UTF_8);
+        }
+        var headers = response.substring(0, response.indexOf("\r\n\r\n"));
+        assertTrue(headers.contains("Transfer-Encoding: chunked"), headers);
+        assertTrue(headers.contains("Trailer: Server-Timing"), headers);
+        assertTrue(response.matches("(?s).*\r\n0\r\nServer-Timing: serialization;dur=[0-9.]+, total;dur=[0-9.]+\r\n\r\n"), response);
+    }
+
+    private Timer phaseTimer(String phase) {
+        var timer = meterRegistry.find("studentadmin.request.phase").tags("phase", phase, "method", "GET", "uri", "/students").timer();
+        assertNotNull(timer, "Expected a timer for " + phase);
+        return timer;
+    }
+
+    /**
+     * Tests that nothing is timed when studentadmin.server-timing.enabled is false.
+     */
+    @Nested
+    @TestPropertySource(properties = "studentadmin.server-timing.enabled=false")
+    public class Disabled {
+
+        @Autowired
+        private MockMvc disabledMockMvc;
+
+        /**
+         * Test that no header is sent.
+         * @throws Exception if the test fails
+         */
+        @Test
+        public void testNoHeader() throws Exception {
+            disabledMockMvc.perform(get("/students"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().doesNotExist("Server-Timing"));
+        }
+    }
+}
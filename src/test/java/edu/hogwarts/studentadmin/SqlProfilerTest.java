@@ -0,0 +1,115 @@
+package edu.hogwarts.studentadmin;
+
+import edu.hogwarts.studentadmin.config.SqlProfiler;
+import edu.hogwarts.studentadmin.dto.SlowQueryDTO;
+import edu.hogwarts.studentadmin.model.Course;
+import edu.hogwarts.studentadmin.repository.CourseRepository;
+import edu.hogwarts.studentadmin.service.CourseService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests the records of the SQL profiler, with a threshold of 0 so every statement is recorded as slow.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "studentadmin.sql-profiler.threshold-ms=0",
+        "studentadmin.sql-profiler.sample-rate=0",
+        "studentadmin.sql-profiler.buffer-size=3"})
+@AutoConfigureMockMvc
+public class SqlProfilerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SqlProfiler sqlProfiler;
+
+    @Autowired
+    private CourseService courseService;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    /**
+     * Test that a query run by a service through a repository is recorded with the service method as its caller,
+     * not one of the aspects that wrap the service and the repository.
+     */
+    @Test
+    public void testCallerIsServiceMethod() {
+        var courseId = courseRepository.save(new Course(null, "Profiling", 3, true, null)).getId();
+
+        courseService.getSchoolYear(courseId);
+
+        var record = newest();
+        assertTrue(record.getSql().contains("school_year"), record.getSql());
+        assertEquals("CourseService.getSchoolYear", record.getCaller());
+    }
+
+    /**
+     * Test that a query is recorded with the rows read from its result set, its number of bind parameters and the method that ran it.
+     */
+    @Test
+    public void testRecordsRowsParametersAndCaller() {
+        var sql = "select x from system_range(1, 10) where x > ? and x <= ?";
+        assertEquals(5, jdbcTemplate.queryForList(sql, Long.class, 2, 7).size());
+
+        var record = newest();
+        assertEquals(sql, record.getSql());
+        assertEquals(5, record.getRowCount());
+        assertEquals(2, record.getParameterCount());
+        assertEquals(1, record.getBatchSize());
+        assertEquals("SqlProfilerTest.testRecordsRowsParametersAndCaller", record.getCaller());
+        assertEquals(Thread.currentThread().getName(), record.getThread());
+        assertFalse(record.isSampled(), "A statement over the threshold is not a sample");
+    }
+
+    /**
+     * Test that the buffer keeps only the most recent records once it wraps around, and returns them newest first.
+     */
+    @Test
+    public void testBufferWrapsNewestFirst() {
+        for (var i = 1; i <= 5; i++) {
+            jdbcTemplate.queryForObject("select " + i + " as wrap", Integer.class);
+        }
+
+        var sql = sqlProfiler.getRecent().stream().map(SlowQueryDTO::getSql).toList();
+        assertEquals(List.of("select 5 as wrap", "select 4 as wrap", "select 3 as wrap"), sql);
+    }
+
+    /**
+     * Test that the records are shown on /admin/slow-queries, newest first.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testSlowQueriesEndpoint() throws Exception {
+        jdbcTemplate.queryForObject("select 42 as endpoint", Integer.class);
+
+        mockMvc.perform(get("/admin/slow-queries"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].sql").value("select 42 as endpoint"))
+                .andExpect(jsonPath("$[0].rowCount").value(1))
+                .andExpect(jsonPath("$[0].caller").value("SqlProfilerTest.testSlowQueriesEndpoint"));
+    }
+
+    private SlowQueryDTO newest() {
+        return sqlProfiler.getRecent().get(0);
+    }
+}
@@ -0,0 +1,71 @@
+package edu.hogwarts.studentadmin;
+
+import edu.hogwarts.studentadmin.config.StatementCountFilter;
+import edu.hogwarts.studentadmin.config.StatementCounter;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests the X-SQL-Statement-Count header, which is only added under the debug profile.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureMockMvc
+public class StatementCountFilterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    /**
+     * Test that the header is not added by default.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testNoHeaderByDefault() throws Exception {
+        mockMvc.perform(get("/students?limit=5"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(StatementCountFilter.HEADER));
+    }
+
+    /**
+     * Tests the header under the debug profile.
+     */
+    @Nested
+    @ActiveProfiles("debug")
+    public class Debug {
+
+        @Autowired
+        private MockMvc debugMockMvc;
+
+        @Autowired
+        private StatementCounter statementCounter;
+
+        /**
+         * Test that the header has the number of statements the request ran, which MockMvc runs on the test thread.
+         * @throws Exception if the test fails
+         */
+        @Test
+        public void testHeaderCountsStatements() throws Exception {
+            var start = statementCounter.getCount();
+            var value = debugMockMvc.perform(get("/students?limit=5"))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getHeader(StatementCountFilter.HEADER);
+            var statements = statementCounter.getCount() - start;
+
+            assertNotNull(value);
+            assertTrue(statements > 0);
+            assertEquals(String.valueOf(statements), value);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package edu.hogwarts.studentadmin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Creates students through POST /students for the tests that need a student of their own.
+ */
+final class StudentFixture {
+
+    private StudentFixture() {
+    }
+
+    /**
+     * Creates a student and returns their id.
+     * @param mockMvc the MockMvc of the test
+     * @param objectMapper the ObjectMapper used to read the created student
+     * @param name the full name of the student
+     * @param house the name of the house of the student
+     * @param schoolYear the school year of the student
+     * @return the id of the created student
+     * @throws Exception if the student couldn't be created
+     */
+    static long createStudent(MockMvc mockMvc, ObjectMapper objectMapper, String name, String house, int schoolYear) throws Exception {
+        var student = objectMapper.createObjectNode()
+                .put("name", name)
+                .put("house", house)
+                .put("schoolYear", schoolYear);
+        var response = mockMvc.perform(post("/students").contentType("application/json").content(student.toString()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response).get("id").asLong();
+    }
+}
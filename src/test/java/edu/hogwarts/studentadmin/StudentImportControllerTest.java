@@ -0,0 +1,70 @@
+package edu.hogwarts.studentadmin;
+
+import edu.hogwarts.studentadmin.service.StudentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "studentadmin.import.chunk-size=2")
+@AutoConfigureMockMvc
+public class StudentImportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StudentService studentService;
+
+    /**
+     * Test that an NDJSON import saves the valid rows across several chunks,
+     * and reports the rows that can't be parsed or have an unknown house.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testImportNdjson() throws Exception {
+        var body = """
+                {"name": "Dennis Creevey", "house": "gryffindor", "schoolYear": 1}
+                {"name": "Astoria Greengrass", "house": "Slytherin", "schoolYear": 1}
+
+                {"name": "Viktor Krum", "house": "Durmstrang"}
+                {"name": "Broken
+                {"name": "Eleanor Branstone", "house": "Hufflepuff", "schoolYear": 1}
+                """;
+        mockMvc.perform(post("/students/import").contentType("application/x-ndjson").content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(3))
+                .andExpect(jsonPath("$.failed").value(2))
+                .andExpect(jsonPath("$.errors[0].row").value(3))
+                .andExpect(jsonPath("$.errors[1].row").value(4));
+
+        assertNotNull(studentService.get("Eleanor Branstone"));
+    }
+
+    /**
+     * Test that a CSV import continues after a row that can't be parsed, and reports it.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testImportCsv() throws Exception {
+        var body = """
+                name,house,dateOfBirth,schoolYear
+                Colin Creevey,Gryffindor,1981-01-01,2
+                Marietta Edgecombe,Ravenclaw,not a date,2
+                Owen Cauldwell,Hufflepuff,,1
+                """;
+        mockMvc.perform(post("/students/import").contentType("text/csv").content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.errors[0].row").value(2));
+
+        assertNotNull(studentService.get("Owen Cauldwell"));
+    }
+}
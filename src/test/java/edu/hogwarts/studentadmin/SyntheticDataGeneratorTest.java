@@ -0,0 +1,155 @@
+package edu.hogwarts.studentadmin;
+
+import edu.hogwarts.studentadmin.config.StatementCounter;
+import edu.hogwarts.studentadmin.config.SyntheticDataGenerator;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the synthetic data generator with a small school of 70 students, 5 teachers and 3 courses of about 4 students in each school year,
+ * on a database of its own, which the generator fills when the context starts.
+ * The second-level cache is turned off, since its regions are shared with the other test contexts, which use another database.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.datasource.url=jdbc:h2:mem:synthetic_data_test_db",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false",
+        "studentadmin.synthetic.students=70",
+        "studentadmin.synthetic.teachers=5",
+        "studentadmin.synthetic.courses-per-year=3",
+        "studentadmin.synthetic.average-roster-size=4",
+        "studentadmin.synthetic.seed=7"})
+@ActiveProfiles("synthetic")
+public class SyntheticDataGeneratorTest {
+    private static final int SCHOOL_YEARS = 7;
+
+    @Autowired
+    private SyntheticDataGenerator generator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    /**
+     * Test that the configured numbers of students, teachers and courses are generated,
+     * with the students spread evenly over the school years, and rosters of students from the course's school year
+     * between half and one and a half times the average roster size.
+     */
+    @Test
+    public void testGeneratesConfiguredCounts() {
+        assertEquals(70, count("student"));
+        assertEquals(5, count("teacher"));
+        assertEquals(3 * SCHOOL_YEARS, count("course"));
+        for (int schoolYear = 1; schoolYear <= SCHOOL_YEARS; schoolYear++) {
+            assertEquals(10, jdbcTemplate.queryForObject("select count(*) from student where school_year = ?", Long.class, schoolYear));
+            assertEquals(3, jdbcTemplate.queryForObject("select count(*) from course where school_year = ?", Long.class, schoolYear));
+        }
+
+        var rosterSizes = jdbcTemplate.queryForList(
+                "select count(e.student_id) from course c left join enrollment e on e.course_id = c.id group by c.id", Long.class);
+        assertEquals(3 * SCHOOL_YEARS, rosterSizes.size());
+        for (var rosterSize : rosterSizes) {
+            assertTrue(rosterSize >= 2 && rosterSize <= 6, "Roster of " + rosterSize + " students");
+        }
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "select count(*) from enrollment e join course c on c.id = e.course_id join student s on s.id = e.student_id " +
+                "where s.school_year <> c.school_year", Long.class), "Students must only be enrolled in courses of their own school year");
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "select count(*) from course where teacher_id is null", Long.class), "Every course must have a teacher");
+    }
+
+    /**
+     * Test that running the generator on a database that already has data inserts nothing, and only checks for existing data.
+     */
+    @Test
+    public void testSecondRunInsertsNothing() {
+        var before = snapshot();
+        var start = statementCounter.getCount();
+        generator.run();
+        assertEquals(1, statementCounter.getCount() - start, "Only the existing students must be counted");
+        assertEquals(before, snapshot());
+    }
+
+    /**
+     * Test that the same seed gives the same school again on an empty database, apart from the generated ids.
+     */
+    @Test
+    public void testSameSeedGivesIdenticalData() {
+        var first = snapshot();
+        jdbcTemplate.update("delete from enrollment");
+        jdbcTemplate.update("delete from course");
+        jdbcTemplate.update("delete from student");
+        jdbcTemplate.update("delete from teacher");
+        assertEquals(0, count("student"));
+
+        generator.run();
+        assertEquals(first, snapshot());
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("select count(*) from " + table, Long.class);
+    }
+
+    /**
+     * Reads the whole school, with the ids of the students, teachers and courses replaced by their position in the order they were created,
+     * and without the versions and change sequence numbers, so two runs of the generator can be compared.
+     */
+    private List<Object> snapshot() {
+        var students = rows("select * from student order by id");
+        var teachers = rows("select * from teacher order by id");
+        var courses = rows("select * from course order by id");
+        var studentIndexes = indexes(students);
+        var teacherIndexes = indexes(teachers);
+        var courseIndexes = indexes(courses);
+        for (var course : courses) {
+            course.put("TEACHER_ID", teacherIndexes.get(course.get("TEACHER_ID")));
+        }
+        var enrollments = new ArrayList<List<Object>>();
+        for (var enrollment : jdbcTemplate.queryForList("select course_id, student_id, enrolled_at from enrollment order by course_id, enrolled_at")) {
+            enrollments.add(List.of(courseIndexes.get(enrollment.get("COURSE_ID")), studentIndexes.get(enrollment.get("STUDENT_ID")),
+                    enrollment.get("ENROLLED_AT")));
+        }
+        strip(students);
+        strip(teachers);
+        strip(courses);
+        return List.of(students, teachers, courses, enrollments);
+    }
+
+    private List<Map<String, Object>> rows(String sql) {
+        var rows = new ArrayList<Map<String, Object>>();
+        for (var row : jdbcTemplate.queryForList(sql)) {
+            rows.add(new HashMap<>(row));
+        }
+        return rows;
+    }
+
+    private static Map<Object, Integer> indexes(List<Map<String, Object>> rows) {
+        var indexes = new HashMap<Object, Integer>();
+        for (int i = 0; i < rows.size(); i++) {
+            indexes.put(rows.get(i).get("ID"), i);
+        }
+        return indexes;
+    }
+
+    private static void strip(List<Map<String, Object>> rows) {
+        for (var row : rows) {
+            row.remove("ID");
+            row.remove("VERSION");
+            row.remove("CHANGE_SEQ");
+        }
+    }
+}